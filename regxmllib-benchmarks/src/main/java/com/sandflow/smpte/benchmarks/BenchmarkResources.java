@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.benchmarks;
+
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.importers.RegisterImporter;
+import com.sandflow.smpte.util.UL;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Locates and loads the sample files and reference registers used by the
+ * benchmarks. These are the unit test resources of regxmllib, which are found at
+ * ../regxmllib/src/test/resources unless the regxmllib.resources system
+ * property is set.
+ */
+final class BenchmarkResources {
+
+    static final UL PREFACE_KEY = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
+
+    /**
+     * Prefix of the names of synthetic sample files, e.g. synthetic-1000
+     */
+    static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    /**
+     * Sample file from which synthetic sample files are generated
+     */
+    static final String SYNTHETIC_SOURCE = "video1.mxf";
+
+    /* warnings about the sample files would otherwise be logged at each
+       invocation and dominate the measurements */
+    private static final Logger LOG = Logger.getLogger("com.sandflow.smpte");
+
+    static {
+        LOG.setLevel(Level.SEVERE);
+    }
+
+    private BenchmarkResources() {
+    }
+
+    static File getResourceDirectory() {
+        return new File(System.getProperty("regxmllib.resources", "../regxmllib/src/test/resources"));
+    }
+
+    /**
+     * Reads a sample file in memory
+     *
+     * @param name Either the name of a file in sample-files, or
+     * synthetic-N, where N is the number of copies of the header metadata
+     * sets of SYNTHETIC_SOURCE to add, see SyntheticHeaderMetadata
+     * @return Contents of the sample file
+     * @throws IOException
+     */
+    static byte[] readSampleFile(String name) throws IOException {
+
+        if (name.startsWith(SYNTHETIC_PREFIX)) {
+
+            int copies = Integer.parseInt(name.substring(SYNTHETIC_PREFIX.length()));
+
+            return SyntheticHeaderMetadata.generate(readSampleFile(SYNTHETIC_SOURCE), copies);
+
+        }
+
+        return Files.readAllBytes(new File(new File(getResourceDirectory(), "sample-files"), name).toPath());
+    }
+
+    static TypesRegister readTypesRegister() throws JAXBException, IOException {
+        try (FileReader fr = new FileReader(getRegister("Types.xml"))) {
+            return TypesRegister.fromXML(fr);
+        }
+    }
+
+    static GroupsRegister readGroupsRegister() throws JAXBException, IOException {
+        try (FileReader fr = new FileReader(getRegister("Groups.xml"))) {
+            return GroupsRegister.fromXML(fr);
+        }
+    }
+
+    static ElementsRegister readElementsRegister() throws JAXBException, IOException {
+        try (FileReader fr = new FileReader(getRegister("Elements.xml"))) {
+            return ElementsRegister.fromXML(fr);
+        }
+    }
+
+    /**
+     * Creates metadictionaries from the reference registers
+     */
+    static MetaDictionaryCollection readDictionaries() throws Exception {
+        return RegisterImporter.fromRegister(
+                readTypesRegister(),
+                readGroupsRegister(),
+                readElementsRegister()
+        );
+    }
+
+    private static File getRegister(String name) {
+        return new File(new File(getResourceDirectory(), "reference-registers"), name);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.benchmarks;
+
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.importers.RegisterImporter;
+import com.sandflow.smpte.util.AUID;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the creation of metadictionaries from the reference registers,
+ * and the lookup of their definitions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    private TypesRegister typesreg;
+    private GroupsRegister groupsreg;
+    private ElementsRegister elementsreg;
+
+    private MetaDictionaryCollection mds;
+
+    /* parallel arrays of dictionaries and the identification of one of their definitions */
+    private MetaDictionary[] dicts;
+    private AUID[] ids;
+
+    @Setup
+    public void setup() throws Exception {
+
+        typesreg = BenchmarkResources.readTypesRegister();
+        groupsreg = BenchmarkResources.readGroupsRegister();
+        elementsreg = BenchmarkResources.readElementsRegister();
+
+        mds = RegisterImporter.fromRegister(typesreg, groupsreg, elementsreg);
+
+        ArrayList<MetaDictionary> dictlist = new ArrayList<>();
+        ArrayList<AUID> idlist = new ArrayList<>();
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+            for (Definition def : md.getDefinitions()) {
+                dictlist.add(md);
+                idlist.add(def.getIdentification());
+            }
+        }
+
+        dicts = dictlist.toArray(new MetaDictionary[dictlist.size()]);
+        ids = idlist.toArray(new AUID[idlist.size()]);
+    }
+
+    /**
+     * Looks up every definition in the metadictionary that contains it
+     */
+    @Benchmark
+    public void getDefinition(Blackhole bh) {
+
+        for (int i = 0; i < ids.length; i++) {
+            bh.consume(dicts[i].getDefinition(ids[i]));
+        }
+    }
+
+    /**
+     * Looks up every definition through the collection of metadictionaries, as
+     * FragmentBuilder does
+     */
+    @Benchmark
+    public void getDefinitionFromCollection(Blackhole bh) {
+
+        for (AUID id : ids) {
+            bh.consume(mds.getDefinition(id));
+        }
+    }
+
+    /**
+     * Creates metadictionaries from registers already parsed from XML
+     */
+    @Benchmark
+    public MetaDictionaryCollection fromRegister() throws Exception {
+
+        return RegisterImporter.fromRegister(typesreg, groupsreg, elementsreg);
+    }
+
+}
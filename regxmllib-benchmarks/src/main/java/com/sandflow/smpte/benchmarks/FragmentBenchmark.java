@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.benchmarks;
+
+import com.sandflow.smpte.regxml.MXFFragmentBuilder;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.DocumentFragment;
+
+/**
+ * Benchmarks the generation of a RegXML fragment from the header metadata of
+ * sample files held in memory, from the start of the file to the complete
+ * fragment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FragmentBenchmark {
+
+    @Param({"audio1.mxf", "audio2.mxf", "indirect.mxf", "video1.mxf", "video2.mxf", "synthetic-1000"})
+    public String file;
+
+    private byte[] mxf;
+    private MetaDictionaryCollection mds;
+    private DocumentBuilder db;
+    private XMLOutputFactory xof;
+
+    @Setup
+    public void setup() throws Exception {
+
+        mxf = BenchmarkResources.readSampleFile(file);
+
+        mds = BenchmarkResources.readDictionaries();
+
+        db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+
+        xof = XMLOutputFactory.newInstance();
+    }
+
+    /**
+     * Generates the fragment as a DOM
+     */
+    @Benchmark
+    public DocumentFragment fromInputStream() throws Exception {
+
+        return MXFFragmentBuilder.fromInputStream(
+                new ByteArrayInputStream(mxf),
+                mds,
+                BenchmarkResources.PREFACE_KEY,
+                db.newDocument()
+        );
+    }
+
+    /**
+     * Writes the fragment through an XMLStreamWriter, discarding the output
+     */
+    @Benchmark
+    public void fromInputStreamToXMLStreamWriter() throws Exception {
+
+        XMLStreamWriter writer = xof.createXMLStreamWriter(new NullOutputStream(), "UTF-8");
+
+        MXFFragmentBuilder.fromInputStream(
+                new ByteArrayInputStream(mxf),
+                mds,
+                BenchmarkResources.PREFACE_KEY,
+                writer
+        );
+
+        writer.close();
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.benchmarks;
+
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.mxf.PrimerPack;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks KLV parsing and local set decoding over sample files held in
+ * memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KLVBenchmark {
+
+    @Param({"audio1.mxf", "audio2.mxf", "indirect.mxf", "video1.mxf", "video2.mxf", "synthetic-1000"})
+    public String file;
+
+    private byte[] mxf;
+    private LocalTagRegister localreg;
+    private final ArrayList<Triplet> localsets = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException, KLVException {
+
+        mxf = BenchmarkResources.readSampleFile(file);
+
+        /* collect the local sets that follow the first primer pack, up to
+           the next partition pack */
+        KLVInputStream kis = new KLVInputStream(mxf);
+
+        localreg = null;
+        localsets.clear();
+
+        try {
+
+            for (Triplet t = kis.readTriplet();; t = kis.readTriplet()) {
+
+                if (localreg == null) {
+
+                    if (t.getKey().equalsIgnoreVersion(PrimerPack.getKey())) {
+                        localreg = PrimerPack.createLocalTagRegister(t);
+                    }
+
+                } else if (PartitionPack.isPartitionPackKey(t.getKey())) {
+
+                    break;
+
+                } else if (t.getKey().isLocalSet()) {
+
+                    localsets.add(t);
+
+                }
+            }
+
+        } catch (EOFException e) {
+            /* end of file */
+        }
+
+        if (localreg == null) {
+            throw new IOException("No Primer Pack found in " + file);
+        }
+    }
+
+    /**
+     * Reads all the KLV triplets of the file
+     */
+    @Benchmark
+    public void readTriplet(Blackhole bh) throws IOException, KLVException {
+
+        KLVInputStream kis = new KLVInputStream(mxf);
+
+        try {
+
+            while (true) {
+                bh.consume(kis.readTriplet());
+            }
+
+        } catch (EOFException e) {
+            /* end of file */
+        }
+    }
+
+    /**
+     * Decodes all the header metadata sets of the file
+     */
+    @Benchmark
+    public void localSetFromTriplet(Blackhole bh) throws KLVException {
+
+        for (Triplet t : localsets) {
+            bh.consume(LocalSet.fromTriplet(t, localreg));
+        }
+    }
+
+}
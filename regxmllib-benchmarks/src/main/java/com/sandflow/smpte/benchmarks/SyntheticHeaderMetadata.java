@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.benchmarks;
+
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.FillItem;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.util.UL;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates MXF files with arbitrarily large header metadata, by appending
+ * copies of the header metadata sets of an existing file. Each copy is given a
+ * new Instance UID so that it is registered as a distinct set, but remains
+ * unreachable from the Preface: copies exercise KLV parsing, local set
+ * decoding and set resolution, but not fragment generation.
+ */
+final class SyntheticHeaderMetadata {
+
+    private static final int INSTANCE_UID_TAG = 0x3C0A;
+    private static final int HEADER_BYTE_COUNT_OFFSET = 32;
+
+    private SyntheticHeaderMetadata() {
+    }
+
+    /**
+     * Generates a synthetic MXF file consisting of a single header partition
+     *
+     * @param mxf Source MXF file
+     * @param copies Number of copies of the header metadata sets to append
+     * @return Synthetic MXF file
+     * @throws IOException
+     */
+    static byte[] generate(byte[] mxf, int copies) throws IOException {
+
+        try {
+
+            KLVInputStream kis = new KLVInputStream(mxf);
+
+            /* look for the header partition pack */
+            Triplet pptriplet;
+
+            do {
+                pptriplet = kis.readTriplet();
+            } while (!PartitionPack.isPartitionPackKey(pptriplet.getKey()));
+
+            PartitionPack pp = PartitionPack.fromTriplet(pptriplet);
+
+            /* copy the primer pack and the header metadata sets */
+            ByteArrayOutputStream hm = new ByteArrayOutputStream();
+
+            ArrayList<Triplet> sets = new ArrayList<>();
+
+            long hmstart = kis.getPosition();
+
+            while (kis.getPosition() - hmstart < pp.getHeaderByteCount()) {
+
+                Triplet t = kis.readTriplet();
+
+                if (t.getKey().equalsIgnoreVersion(FillItem.getKey())) {
+                    continue;
+                }
+
+                writeTriplet(hm, t.getKey(), t.getValue());
+
+                if (t.getKey().isLocalSet()) {
+                    sets.add(t);
+                }
+            }
+
+            /* append the copies, using a fixed seed such that runs are comparable */
+            Random rnd = new Random(0);
+
+            for (int i = 0; i < copies; i++) {
+                for (Triplet t : sets) {
+                    writeTriplet(hm, t.getKey(), withNewInstanceUID(t.getValue(), rnd));
+                }
+            }
+
+            /* update the header byte count of the partition pack */
+            byte[] ppvalue = pptriplet.getValue();
+
+            ByteBuffer.wrap(ppvalue).putLong(HEADER_BYTE_COUNT_OFFSET, hm.size());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            writeTriplet(out, pptriplet.getKey(), ppvalue);
+
+            hm.writeTo(out);
+
+            return out.toByteArray();
+
+        } catch (KLVException e) {
+            throw new IOException(e);
+        }
+
+    }
+
+    private static byte[] withNewInstanceUID(byte[] localset, Random rnd) {
+
+        byte[] value = localset.clone();
+
+        ByteBuffer bb = ByteBuffer.wrap(value);
+
+        while (bb.remaining() >= 4) {
+
+            int tag = bb.getShort() & 0xFFFF;
+            int len = bb.getShort() & 0xFFFF;
+
+            if (len > bb.remaining()) {
+                break;
+            }
+
+            if (tag == INSTANCE_UID_TAG && len == 16) {
+
+                byte[] uuid = new byte[16];
+
+                rnd.nextBytes(uuid);
+
+                bb.put(uuid);
+
+            } else {
+
+                bb.position(bb.position() + len);
+
+            }
+        }
+
+        return value;
+    }
+
+    private static void writeTriplet(ByteArrayOutputStream out, UL key, byte[] value) throws IOException {
+
+        out.write(key.getValue());
+
+        /* always use the 9-byte long form of the BER length */
+        out.write(0x88);
+        out.write(ByteBuffer.allocate(8).putLong(value.length).array());
+
+        out.write(value);
+    }
+
+}
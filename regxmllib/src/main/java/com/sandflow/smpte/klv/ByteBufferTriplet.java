@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.util.ByteBufferInputStream;
+import com.sandflow.smpte.util.UL;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+
+/**
+ * KLV Triplet whose Value is a region of a ByteBuffer, typically shared with
+ * other Triplets, e.g. a memory-mapped file or the Value of an enclosing Local Set.
+ * The Value is not copied unless requested through getValue().
+ */
+public class ByteBufferTriplet implements Triplet {
+
+    final private UL key;
+    final private ByteBuffer buffer;
+    final private int offset;
+    final private int length;
+
+    /**
+     * Creates a Triplet from a Key and a region of a ByteBuffer as the Value
+     * @param key Triplet Key
+     * @param buffer Buffer containing the Value. Its position and limit are ignored.
+     * @param offset Absolute offset of the Value within the buffer
+     * @param length Length of the Value in bytes
+     */
+    public ByteBufferTriplet(UL key, ByteBuffer buffer, int offset, int length) {
+
+        if (key == null || buffer == null) throw new InvalidParameterException("Triplet muse have key and value.");
+
+        if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+            throw new InvalidParameterException("Value lies outside the buffer.");
+        }
+
+        this.key = key;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public UL getKey() {
+        return key;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public byte[] getValue() {
+        
+        if (buffer.hasArray() && buffer.arrayOffset() + offset == 0 && buffer.array().length == length) {
+            return buffer.array();
+        }
+        
+        byte[] value = new byte[length];
+
+        getValueAsBuffer().get(value);
+
+        return value;
+    }
+
+    @Override
+    public InputStream getValueAsStream() {
+        
+        if (buffer.hasArray()) {
+            return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        
+        return new ByteBufferInputStream(getValueAsBuffer());
+    }
+
+    @Override
+    public ByteBuffer getValueAsBuffer() {
+        
+        ByteBuffer bb = buffer.duplicate();
+
+        bb.limit(offset + length).position(offset);
+
+        return bb.slice();
+    }
+
+}
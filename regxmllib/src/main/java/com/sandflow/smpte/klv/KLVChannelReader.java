@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_BER_SIZE_EXCEEED;
+import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_LENGTH_EXCEEED;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * KLVChannelReader allows KLV data structures to be read from a FileChannel.
+ * The file is memory-mapped one window at a time, such that files of any size
+ * can be accessed randomly without reading the bytes that are skipped over.
+ */
+public class KLVChannelReader implements KLVReader {
+
+    /**
+     * Size of the memory-mapped window when none is specified
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int windowsize;
+    private ByteBuffer window;
+    private long windowoffset;
+    private long position;
+    private final byte[] ulbytes = new byte[16];
+
+    /**
+     * Reads from the current position of the FileChannel.
+     * 
+     * @param channel FileChannel to read from
+     * @throws IOException 
+     */
+    public KLVChannelReader(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Allows the size of the memory-mapped window to be specified.
+     * 
+     * @param channel FileChannel to read from
+     * @param windowsize Size in bytes of the portion of the file mapped in memory at any time 
+     * @throws IOException 
+     */
+    public KLVChannelReader(FileChannel channel, int windowsize) throws IOException {
+        this.channel = channel;
+        this.windowsize = windowsize;
+        this.position = channel.position();
+    }
+
+    /**
+     * Makes count bytes, starting at the current position, available in the window.
+     * 
+     * @param count Number of bytes
+     * @return Window, with its position set to the current position
+     * @throws IOException
+     * @throws EOFException if less than count bytes remain in the file
+     */
+    private ByteBuffer window(int count) throws IOException, EOFException {
+
+        if (window == null
+                || position < windowoffset
+                || position + count > windowoffset + window.limit()) {
+
+            long size = channel.size();
+
+            if (position + count > size) {
+                throw new EOFException();
+            }
+
+            window = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    position,
+                    Math.min(Math.max(windowsize, count), size - position)
+            );
+
+            windowoffset = position;
+        }
+
+        window.position((int) (position - windowoffset));
+
+        return window;
+    }
+
+    /**
+     * Returns a read-only view of a region of the file, without copying it.
+     * 
+     * @param offset Offset of the region from the start of the file
+     * @param length Length of the region in bytes
+     * @return Memory-mapped region of the file
+     * @throws IOException
+     * @throws EOFException if the region extends beyond the end of the file
+     * @throws KLVException if the region is too large to be mapped at once
+     */
+    public ByteBuffer slice(long offset, long length) throws IOException, EOFException, KLVException {
+
+        if (length > Integer.MAX_VALUE) {
+            throw new KLVException(MAX_LENGTH_EXCEEED);
+        }
+
+        long saved = position;
+
+        try {
+
+            position = offset;
+
+            ByteBuffer bb = window((int) length).slice();
+
+            bb.limit((int) length);
+
+            return bb;
+
+        } finally {
+            position = saved;
+        }
+    }
+
+    /**
+     * Moves to a new position in the file.
+     * 
+     * @param position Offset from the start of the file
+     */
+    public void seek(long position) {
+        this.position = position;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Size of the underlying file in bytes
+     * @throws IOException 
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public UL readUL() throws IOException, EOFException {
+
+        window(16).get(ulbytes);
+
+        position += 16;
+
+        return new UL(ulbytes);
+    }
+
+    @Override
+    public long readBERLength() throws IOException, EOFException, KLVException {
+
+        long val = 0;
+
+        int b = window(1).get() & 0xFF;
+
+        if ((b & 0x80) == 0) {
+            position += 1;
+            return b;
+        }
+
+        int bersz = (b & 0x7f);
+
+        if (bersz > 8) {
+            throw new KLVException(MAX_BER_SIZE_EXCEEED);
+        }
+
+        ByteBuffer w = window(1 + bersz);
+
+        w.get();
+
+        for (int i = 0; i < bersz; i++) {
+            val = (val << 8) + (w.get() & 0xFF);
+        }
+
+        if (val < 0) {
+            throw new KLVException(MAX_LENGTH_EXCEEED);
+        }
+
+        position += 1 + bersz;
+
+        return val;
+    }
+
+    /**
+     * Reads a single KLV triplet. The Value of the Triplet is a view of the
+     * memory-mapped file and is not copied.
+     * 
+     * @return KLV Triplet
+     * @throws IOException
+     * @throws EOFException
+     * @throws KLVException 
+     */
+    @Override
+    public Triplet readTriplet() throws IOException, EOFException, KLVException {
+        UL ul = readUL();
+
+        long len = readBERLength();
+
+        return readValue(ul, len);
+    }
+
+    @Override
+    public Triplet readValue(UL key, long length) throws IOException, EOFException, KLVException {
+
+        if (length > Integer.MAX_VALUE) {
+            throw new KLVException(MAX_LENGTH_EXCEEED);
+        }
+
+        ByteBuffer w = window((int) length);
+
+        Triplet t = new ByteBufferTriplet(key, w, w.position(), (int) length);
+
+        position += length;
+
+        return t;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+
+        if (n <= 0) {
+            return 0;
+        }
+
+        long skipped = Math.min(n, Math.max(0, channel.size() - position));
+
+        position += skipped;
+
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+}
@@ -26,26 +26,41 @@
 package com.sandflow.smpte.klv;
 
 import com.sandflow.smpte.klv.exceptions.KLVException;
+import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_BER_SIZE_EXCEEED;
 import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_LENGTH_EXCEEED;
 import com.sandflow.smpte.util.UL;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.EOFException;
-import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * KLVInputStream allows KLV data structures to be read from an InputStream
+ * KLVInputStream allows KLV data structures to be read from an InputStream.
+ * Bytes are read from the underlying InputStream in blocks into an internal
+ * buffer, from which Keys, Lengths and primitive values are decoded directly.
  */
-public class KLVInputStream extends InputStream implements DataInput {
+public class KLVInputStream extends InputStream implements DataInput, KLVReader {
     
     public enum ByteOrder {
         LITTLE_ENDIAN,
         BIG_ENDIAN
     }
     
-    private DataInputStream dis;
+    /**
+     * Size of the internal read buffer when none is specified
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    
+    /* the largest item decoded directly from the buffer is a UMID */
+    private static final int MIN_BUFFER_SIZE = 32;
+    
+    private final InputStream is;
+    private byte[] buffer;
+    private final int buffersize;
+    private int pos = 0;
+    private int limit = 0;
+    private long bufferoffset = 0;
     private ByteOrder byteorder;
 
     /**
@@ -64,8 +79,126 @@ public class KLVInputStream extends InputStream implements DataInput {
      * @param byteorder Byte ordering of the file
      */
     public KLVInputStream(InputStream is, ByteOrder byteorder) {
-        dis = new DataInputStream(is);
+        this(is, byteorder, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Allows the byte ordering and the size of the internal read buffer to be specified.
+     * 
+     * @param is InputStream to read from
+     * @param byteorder Byte ordering of the file
+     * @param buffersize Size of the internal read buffer in bytes
+     */
+    public KLVInputStream(InputStream is, ByteOrder byteorder, int buffersize) {
+        this.is = is;
+        this.byteorder = byteorder;
+        this.buffersize = Math.max(buffersize, MIN_BUFFER_SIZE);
+    }
+    
+    /**
+     * Reads directly from an array of bytes, without copying it. Assumes big
+     * endian byte ordering.
+     * 
+     * @param bytes Bytes to read from
+     */
+    public KLVInputStream(byte[] bytes) {
+        this(bytes, ByteOrder.BIG_ENDIAN);
+    }
+    
+    /**
+     * Reads directly from an array of bytes, without copying it.
+     * 
+     * @param bytes Bytes to read from
+     * @param byteorder Byte ordering of the bytes
+     */
+    public KLVInputStream(byte[] bytes, ByteOrder byteorder) {
+        this(bytes, 0, bytes.length, byteorder);
+    }
+    
+    /**
+     * Reads directly from a region of an array of bytes, without copying it.
+     * Positions are relative to the start of the region.
+     * 
+     * @param bytes Bytes to read from
+     * @param offset Offset of the first byte of the region
+     * @param length Length of the region in bytes
+     * @param byteorder Byte ordering of the bytes
+     */
+    public KLVInputStream(byte[] bytes, int offset, int length, ByteOrder byteorder) {
+        
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        this.is = null;
         this.byteorder = byteorder;
+        this.buffer = bytes;
+        this.buffersize = bytes.length;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.bufferoffset = -offset;
+    }
+    
+    /**
+     * Returns the number of bytes read, or skipped, since the stream was created.
+     * 
+     * @return Position of the next byte to be read
+     */
+    public long getPosition() {
+        return bufferoffset + pos;
+    }
+    
+    /**
+     * Makes at least minbytes available in the buffer, unless the end of the
+     * stream is reached.
+     * 
+     * @param minbytes Number of bytes needed, no larger than the buffer size
+     * @return Number of bytes available in the buffer
+     * @throws IOException 
+     */
+    private int fill(int minbytes) throws IOException {
+        
+        if (limit - pos >= minbytes || is == null) {
+            return limit - pos;
+        }
+        
+        if (buffer == null) {
+            buffer = new byte[buffersize];
+        }
+        
+        /* move unread bytes to the start of the buffer */
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            bufferoffset += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        
+        while (limit < minbytes) {
+            
+            int br = is.read(buffer, limit, buffer.length - limit);
+            
+            if (br < 0) {
+                break;
+            }
+            
+            limit += br;
+        }
+        
+        return limit;
+    }
+    
+    /**
+     * Makes exactly count bytes available in the buffer.
+     * 
+     * @param count Number of bytes needed, no larger than the buffer size
+     * @throws IOException
+     * @throws EOFException if less than count bytes remain in the stream
+     */
+    private void require(int count) throws IOException, EOFException {
+        if (fill(count) < count) {
+            throw new EOFException();
+        }
     }
 
     /**
@@ -76,13 +209,14 @@ public class KLVInputStream extends InputStream implements DataInput {
      * @throws EOFException 
      */
     public UL readUL() throws IOException, EOFException {
-        byte[] ul = new byte[16];
-
-        if (read(ul) < ul.length) {
-            throw new EOFException();
-        }
+        
+        require(16);
+        
+        UL ul = new UL(buffer, pos);
+        
+        pos += 16;
 
-        return new UL(ul);
+        return ul;
     }
 
     /**
@@ -99,7 +233,7 @@ public class KLVInputStream extends InputStream implements DataInput {
 
         int b = read();
 
-        if (b <= 0) {
+        if (b < 0) {
             throw new EOFException();
         }
         
@@ -107,25 +241,20 @@ public class KLVInputStream extends InputStream implements DataInput {
            return b;
         }
 
-        int bersz =  (b & 0x0f);
+        int bersz =  (b & 0x7f);
 
         if (bersz > 8) {
-            throw new KLVException(MAX_LENGTH_EXCEEED);
+            throw new KLVException(MAX_BER_SIZE_EXCEEED);
         }
 
-        byte[] octets = new byte[bersz];
+        require(bersz);
 
-        if (read(octets) < bersz) {
-            throw new EOFException();
+        for (int i = 0; i < bersz; i++) {
+            val = (val << 8) + (((int) buffer[pos++]) & 0xFF);
         }
 
-        for (int i = 0; i < bersz; i++) {
-            int tmp = (((int) octets[i]) & 0xFF);
-                val = (val << 8) + tmp;
-                
-                if (val > Integer.MAX_VALUE) {
-                    throw new KLVException(MAX_LENGTH_EXCEEED);
-                }
+        if (val < 0) {
+            throw new KLVException(MAX_LENGTH_EXCEEED);
         }
 
         return val;
@@ -144,113 +273,174 @@ public class KLVInputStream extends InputStream implements DataInput {
 
         long len = readBERLength();
 
-        if (len > Integer.MAX_VALUE) {
+        return readValue(ul, len);
+    }
+
+    /**
+     * Reads the Value of a KLV triplet whose Key and Length have already been read.
+     * 
+     * @param key Key of the KLV triplet
+     * @param length Length of the KLV triplet
+     * @return KLV Triplet
+     * @throws IOException
+     * @throws EOFException
+     * @throws KLVException 
+     */
+    public Triplet readValue(UL key, long length) throws IOException, EOFException, KLVException {
+
+        if (length > Integer.MAX_VALUE) {
             throw new KLVException(MAX_LENGTH_EXCEEED);
         }
 
-        byte[] value = new byte[(int) len];
+        byte[] value = new byte[(int) length];
 
-        if (len != read(value)) {
+        if (length != read(value)) {
             throw new EOFException("EOF reached while reading Value.");
         }
 
-        return new MemoryTriplet(ul, value);
+        return new MemoryTriplet(key, value);
     }
 
     @Override
     public final int read(byte[] bytes) throws IOException {
-        return dis.read(bytes);
+        return read(bytes, 0, bytes.length);
     }
 
+    /**
+     * Reads up to len bytes, blocking until len bytes are read or the end of the
+     * stream is reached.
+     */
     @Override
-    public final int read(byte[] bytes, int i, int i1) throws IOException {
-        return dis.read(bytes, i, i1);
+    public final int read(byte[] bytes, int off, int len) throws IOException {
+        
+        int count = 0;
+        
+        while (count < len) {
+            
+            if (pos == limit) {
+                
+                if (is == null) {
+                    break;
+                }
+                
+                /* large reads bypass the buffer */
+                if (len - count >= buffersize) {
+                    
+                    int br = is.read(bytes, off + count, len - count);
+                    
+                    if (br < 0) {
+                        break;
+                    }
+                    
+                    bufferoffset += br;
+                    count += br;
+                    
+                    continue;
+                }
+                
+                if (fill(1) == 0) {
+                    break;
+                }
+            }
+            
+            int sz = Math.min(len - count, limit - pos);
+            
+            System.arraycopy(buffer, pos, bytes, off + count, sz);
+            
+            pos += sz;
+            count += sz;
+        }
+        
+        return (count == 0 && len > 0) ? -1 : count;
     }
 
     @Override
     public final void readFully(byte[] bytes) throws IOException {
-        dis.readFully(bytes);
+        readFully(bytes, 0, bytes.length);
     }
 
     @Override
-    public final void readFully(byte[] bytes, int i, int i1) throws IOException {
-        dis.readFully(bytes, i, i1);
+    public final void readFully(byte[] bytes, int off, int len) throws IOException {
+        if (read(bytes, off, len) < len) {
+            throw new EOFException();
+        }
     }
 
     @Override
     public final int skipBytes(int i) throws IOException {
-        return dis.skipBytes(i);
+        return (int) skip(i);
     }
 
     @Override
     public final boolean readBoolean() throws IOException {
-        return dis.readBoolean();
+        return readUnsignedByte() != 0;
     }
 
     @Override
     public final byte readByte() throws IOException {
-        return dis.readByte();
+        return (byte) readUnsignedByte();
     }
 
     @Override
     public final int readUnsignedByte() throws IOException {
-        return dis.readUnsignedByte();
+        
+        require(1);
+        
+        return buffer[pos++] & 0xFF;
     }
 
     @Override
     public final short readShort() throws IOException {
-        
-        if (byteorder == ByteOrder.BIG_ENDIAN) {
-        
-            return dis.readShort();
-            
-        } else {
-            
-            int lo = readUnsignedByte();
-            int hi = readUnsignedByte();
-            
-            return (short) (lo + (hi << 8));
-            
-        }
+        return (short) readUnsignedShort();
     }
 
     @Override
     public final int readUnsignedShort() throws IOException {
         
+        require(2);
+        
+        int b0 = buffer[pos++] & 0xFF;
+        int b1 = buffer[pos++] & 0xFF;
+        
         if (byteorder == ByteOrder.BIG_ENDIAN) {
         
-            return dis.readUnsignedShort();
+            return (b0 << 8) | b1;
             
         } else {
             
-            int lo = readUnsignedByte();
-            int hi = readUnsignedByte();
-            
-            return lo + hi << 8;
+            return b0 | (b1 << 8);
             
         }
     }
 
     @Override
     public final char readChar() throws IOException {
-        return dis.readChar();
+        
+        require(2);
+        
+        int hi = buffer[pos++] & 0xFF;
+        int lo = buffer[pos++] & 0xFF;
+        
+        return (char) ((hi << 8) | lo);
     }
 
     @Override
     public final int readInt() throws IOException {
         
+        require(4);
+        
+        int b0 = buffer[pos++] & 0xFF;
+        int b1 = buffer[pos++] & 0xFF;
+        int b2 = buffer[pos++] & 0xFF;
+        int b3 = buffer[pos++] & 0xFF;
+        
         if (byteorder == ByteOrder.BIG_ENDIAN) {
         
-            return dis.readInt();
+            return (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
             
         } else {
             
-            int b0 = readUnsignedByte();
-            int b1 = readUnsignedByte();
-            int b2 = readUnsignedByte();
-            int b3 = readUnsignedByte();
-            
-            return b0 + (b1 << 8) + (b2 << 16) + (b3 << 24);
+            return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
             
         }
         
@@ -258,64 +448,79 @@ public class KLVInputStream extends InputStream implements DataInput {
     
     public long readUnsignedInt() throws IOException, EOFException {
         
-        if (byteorder == ByteOrder.BIG_ENDIAN) {
-        
-            return ((long) dis.readInt()) & 0xFFFF;
-            
-        } else {
-            
-            int b0 = readUnsignedByte();
-            int b1 = readUnsignedByte();
-            int b2 = readUnsignedByte();
-            int b3 = readUnsignedByte();
-            
-            return ((long) b0 + (b1 << 8) + (b2 << 16) + (b3 << 24)) & 0xFFFF;
-            
-        }
+        return ((long) readInt()) & 0xFFFFFFFFL;
         
     }
 
     @Override
     public final long readLong() throws IOException {
         
+        require(8);
+        
+        long val = 0;
+        
         if (byteorder == ByteOrder.BIG_ENDIAN) {
         
-            return dis.readLong();
+            for (int i = 0; i < 8; i++) {
+                val = (val << 8) | (buffer[pos + i] & 0xFF);
+            }
             
         } else {
             
-            int b0 = readUnsignedByte();
-            int b1 = readUnsignedByte();
-            int b2 = readUnsignedByte();
-            int b3 = readUnsignedByte();
-            int b4 = readUnsignedByte();
-            int b5 = readUnsignedByte();
-            int b6 = readUnsignedByte();
-            int b7 = readUnsignedByte();
-            
-            return b0 + (b1 << 8) + (b2 << 16) + (b3 << 24) + (b4 << 32) + (b5 << 40) + (b6 << 48) + (b7 << 56);
+            for (int i = 7; i >= 0; i--) {
+                val = (val << 8) | (buffer[pos + i] & 0xFF);
+            }
             
         }
+        
+        pos += 8;
+        
+        return val;
     }
 
     @Override
     public final float readFloat() throws IOException {
-        return dis.readFloat();
+        return Float.intBitsToFloat(readInt());
     }
 
     @Override
     public final double readDouble() throws IOException {
-        return dis.readDouble();
+        return Double.longBitsToDouble(readLong());
     }
 
     @Override
     public final String readLine() throws IOException {
-        return dis.readLine();
+        
+        StringBuilder sb = new StringBuilder();
+        
+        int c = read();
+        
+        if (c < 0) {
+            return null;
+        }
+        
+        while (c >= 0 && c != '\n') {
+            
+            if (c == '\r') {
+                
+                if (fill(1) > 0 && buffer[pos] == '\n') {
+                    pos++;
+                }
+                
+                break;
+            }
+            
+            sb.append((char) c);
+            
+            c = read();
+        }
+        
+        return sb.toString();
     }
 
     @Override
     public final String readUTF() throws IOException {
-        return dis.readUTF();
+        return DataInputStream.readUTF(this);
     }
 
     public static final String readUTF(DataInput di) throws IOException {
@@ -324,37 +529,67 @@ public class KLVInputStream extends InputStream implements DataInput {
 
     @Override
     public int read() throws IOException {
-        return dis.read();
+        
+        if (fill(1) == 0) {
+            return -1;
+        }
+        
+        return buffer[pos++] & 0xFF;
     }
 
     @Override
     public long skip(long l) throws IOException {
-        return dis.skip(l);
+        
+        if (l <= 0) {
+            return 0;
+        }
+        
+        long skipped = Math.min(l, limit - pos);
+        
+        pos += skipped;
+        
+        while (skipped < l && is != null) {
+            
+            long sb = is.skip(l - skipped);
+            
+            if (sb <= 0) {
+                
+                /* skip() may return 0 before the end of the stream is reached */
+                if (fill(1) == 0) {
+                    break;
+                }
+                
+                sb = Math.min(l - skipped, limit - pos);
+                
+                pos += sb;
+                
+            } else {
+                
+                bufferoffset += sb;
+                
+            }
+            
+            skipped += sb;
+        }
+        
+        return skipped;
     }
 
     @Override
     public int available() throws IOException {
-        return dis.available();
+        return (limit - pos) + (is == null ? 0 : is.available());
     }
 
     @Override
     public void close() throws IOException {
-        dis.close();
-    }
-
-    @Override
-    public synchronized void mark(int i) {
-        dis.mark(i);
-    }
-
-    @Override
-    public synchronized void reset() throws IOException {
-        dis.reset();
+        if (is != null) {
+            is.close();
+        }
     }
 
     @Override
     public boolean markSupported() {
-        return dis.markSupported();
+        return false;
     }
     
 }
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_BER_SIZE_EXCEEED;
+import static com.sandflow.smpte.klv.exceptions.KLVException.MAX_LENGTH_EXCEEED;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Parses KLV triplets, as specified in SMPTE ST 336, from bytes pushed to it
+ * in chunks of arbitrary sizes. The parser never blocks: it consumes each
+ * chunk entirely, keeping any incomplete Key, Length or Value until the next
+ * chunk, and notifies a Handler as soon as each part of a triplet is complete.
+ */
+public class KLVPushParser {
+
+    /**
+     * Receives the triplets parsed by a KLVPushParser
+     */
+    public interface Handler {
+
+        /**
+         * Called when the Key and Length of a triplet have been parsed.
+         *
+         * @param key Key of the triplet
+         * @param length Length of the Value of the triplet
+         * @param offset Offset of the Key from the first byte pushed
+         * @return true if the Value is to be held in memory and passed to
+         * onTriplet(), or false if it is to be skipped over, in which case
+         * onSkipped() is called instead
+         * @throws KLVException
+         */
+        boolean onKeyLength(UL key, long length, long offset) throws KLVException;
+
+        /**
+         * Called when the Value of a triplet has been received.
+         *
+         * @param triplet Triplet
+         * @param offset Offset of the Key from the first byte pushed
+         * @throws KLVException
+         */
+        void onTriplet(Triplet triplet, long offset) throws KLVException;
+
+        /**
+         * Called when the Value of a triplet has been skipped over.
+         *
+         * @param key Key of the triplet
+         * @param length Length of the Value of the triplet
+         * @param offset Offset of the Key from the first byte pushed
+         * @throws KLVException
+         */
+        void onSkipped(UL key, long length, long offset) throws KLVException;
+    }
+
+    /* initial size of the buffer of a Value, which grows as bytes are
+       received such that a corrupt Length does not cause a large allocation */
+    private static final int INITIAL_VALUE_SIZE = 8192;
+
+    private enum State {
+        KEY,
+        LENGTH,
+        BER,
+        VALUE
+    }
+
+    private final Handler handler;
+
+    private State state = State.KEY;
+    private long position = 0;
+
+    private final byte[] keybytes = new byte[16];
+    private int keylength = 0;
+
+    private UL key;
+    private long tripletoffset;
+    private long length;
+    private int berremaining;
+
+    /* value being received, or null if it is being skipped */
+    private byte[] value;
+    private int valuesize;
+    private long valueremaining;
+
+    private KLVException failure;
+
+    /**
+     * Creates a parser
+     *
+     * @param handler Receives the triplets as they are parsed
+     */
+    public KLVPushParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses all the remaining bytes of a chunk, advancing its position to
+     * its limit. The chunk is not referenced after the method returns.
+     *
+     * @param chunk Bytes that follow those previously pushed
+     * @throws KLVException if the bytes are not valid KLV, or if the handler
+     * throws, after which the parser can no longer be used
+     */
+    public void feed(ByteBuffer chunk) throws KLVException {
+
+        if (failure != null) {
+            throw new KLVException("Parser failed previously.", failure);
+        }
+
+        try {
+
+            parse(chunk);
+
+        } catch (KLVException e) {
+
+            failure = e;
+
+            throw e;
+        }
+    }
+
+    private void parse(ByteBuffer chunk) throws KLVException {
+
+        while (chunk.hasRemaining()) {
+
+            switch (state) {
+
+                case KEY:
+
+                    if (keylength == 0) {
+                        tripletoffset = position;
+                    }
+
+                    int sz = Math.min(16 - keylength, chunk.remaining());
+
+                    chunk.get(keybytes, keylength, sz);
+
+                    keylength += sz;
+                    position += sz;
+
+                    if (keylength == 16) {
+                        key = new UL(keybytes);
+                        keylength = 0;
+                        state = State.LENGTH;
+                    }
+
+                    break;
+
+                case LENGTH:
+
+                    int b = chunk.get() & 0xFF;
+
+                    position++;
+
+                    if ((b & 0x80) == 0) {
+
+                        startValue(b);
+
+                    } else {
+
+                        berremaining = b & 0x7f;
+
+                        if (berremaining > 8) {
+                            throw new KLVException(MAX_BER_SIZE_EXCEEED);
+                        }
+
+                        length = 0;
+
+                        state = State.BER;
+
+                        if (berremaining == 0) {
+                            startValue(0);
+                        }
+                    }
+
+                    break;
+
+                case BER:
+
+                    while (berremaining > 0 && chunk.hasRemaining()) {
+                        length = (length << 8) | (chunk.get() & 0xFF);
+                        position++;
+                        berremaining--;
+                    }
+
+                    if (berremaining == 0) {
+
+                        if (length < 0) {
+                            throw new KLVException(MAX_LENGTH_EXCEEED);
+                        }
+
+                        startValue(length);
+                    }
+
+                    break;
+
+                case VALUE:
+
+                    int vsz = (int) Math.min(valueremaining, chunk.remaining());
+
+                    if (value != null) {
+
+                        if (valuesize + vsz > value.length) {
+                            value = Arrays.copyOf(value, (int) Math.min(length, Math.max(valuesize + vsz, 2L * value.length)));
+                        }
+
+                        chunk.get(value, valuesize, vsz);
+
+                        valuesize += vsz;
+
+                    } else {
+                        chunk.position(chunk.position() + vsz);
+                    }
+
+                    position += vsz;
+                    valueremaining -= vsz;
+
+                    if (valueremaining == 0) {
+                        endValue();
+                    }
+
+                    break;
+            }
+        }
+    }
+
+    private void startValue(long len) throws KLVException {
+
+        length = len;
+
+        if (handler.onKeyLength(key, len, tripletoffset)) {
+
+            if (len > Integer.MAX_VALUE) {
+                throw new KLVException(MAX_LENGTH_EXCEEED);
+            }
+
+            value = new byte[(int) Math.min(len, INITIAL_VALUE_SIZE)];
+            valuesize = 0;
+
+        } else {
+
+            value = null;
+
+        }
+
+        valueremaining = len;
+
+        state = State.VALUE;
+
+        /* empty values are complete without further bytes */
+        if (len == 0) {
+            endValue();
+        }
+    }
+
+    private void endValue() throws KLVException {
+
+        byte[] v = value;
+
+        value = null;
+
+        state = State.KEY;
+
+        if (v != null) {
+            handler.onTriplet(new MemoryTriplet(key, v), tripletoffset);
+        } else {
+            handler.onSkipped(key, length, tripletoffset);
+        }
+    }
+
+    /**
+     * Advances over bytes of a Value that the handler chose to skip, without
+     * them being pushed, e.g. to avoid reading essence from a file.
+     *
+     * @param n Maximum number of bytes to advance over
+     * @return Number of bytes advanced over, which is 0 unless the parser is
+     * within a Value being skipped
+     * @throws KLVException if the handler throws, after which the parser can
+     * no longer be used
+     */
+    public long skip(long n) throws KLVException {
+
+        if (failure != null) {
+            throw new KLVException("Parser failed previously.", failure);
+        }
+
+        if (state != State.VALUE || value != null || n <= 0) {
+            return 0;
+        }
+
+        long sz = Math.min(n, valueremaining);
+
+        position += sz;
+        valueremaining -= sz;
+
+        if (valueremaining == 0) {
+
+            try {
+
+                endValue();
+
+            } catch (KLVException e) {
+
+                failure = e;
+
+                throw e;
+            }
+        }
+
+        return sz;
+    }
+
+    /**
+     * Returns the number of bytes pushed so far
+     *
+     * @return Position of the next byte to be pushed, including those skipped
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Indicates that no more bytes will be pushed
+     *
+     * @throws EOFException if the last triplet is incomplete
+     */
+    public void finish() throws EOFException {
+
+        if (state != State.KEY || keylength != 0) {
+            throw new EOFException("EOF reached while reading triplet.");
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Reads KLV data structures, as specified in SMPTE ST 336, sequentially from a source
+ */
+public interface KLVReader extends Closeable {
+
+    /**
+     * Reads a single UL.
+     * 
+     * @return UL
+     * @throws IOException
+     * @throws EOFException 
+     */
+    UL readUL() throws IOException, EOFException;
+
+    /**
+     * Reads a single BER-encoded length. Lengths up to 2^63-1 bytes can be read,
+     * e.g. to skip over the Value of very large KLV triplets.
+     * 
+     * @return Length
+     * @throws IOException
+     * @throws EOFException
+     * @throws KLVException 
+     */
+    long readBERLength() throws IOException, EOFException, KLVException;
+
+    /**
+     * Reads a single KLV triplet.
+     * 
+     * @return KLV Triplet
+     * @throws IOException
+     * @throws EOFException
+     * @throws KLVException 
+     */
+    Triplet readTriplet() throws IOException, EOFException, KLVException;
+
+    /**
+     * Reads the Value of a KLV triplet whose Key and Length have already been read.
+     * 
+     * @param key Key of the KLV triplet
+     * @param length Length of the KLV triplet
+     * @return KLV Triplet
+     * @throws IOException
+     * @throws EOFException
+     * @throws KLVException if the Value is too large to be held in memory
+     */
+    Triplet readValue(UL key, long length) throws IOException, EOFException, KLVException;
+    
+    /**
+     * Skips over bytes, e.g. the Value of a KLV triplet.
+     * 
+     * @param n Number of bytes to skip
+     * @return Number of bytes actually skipped, which is less than n only if the end of the source is reached
+     * @throws IOException 
+     */
+    long skip(long n) throws IOException;
+
+    /**
+     * Returns the position of the next byte to be read, relative to the start of the source.
+     * 
+     * @return Position in bytes
+     */
+    long getPosition();
+    
+}
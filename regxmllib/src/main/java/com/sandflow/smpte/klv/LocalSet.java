@@ -26,18 +26,21 @@
 package com.sandflow.smpte.klv;
 
 import com.sandflow.smpte.klv.exceptions.KLVException;
-import com.sandflow.smpte.klv.exceptions.TripletLengthException;
-import com.sandflow.smpte.util.CountingInputStream;
 import com.sandflow.smpte.util.UL;
-import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.logging.Logger;
 
 /**
  * LocalSet implements a Local Set as specified in SMPTE ST 336. 
  */
 public class LocalSet implements Group {
 
+    private final static Logger LOG = Logger.getLogger(LocalSet.class.getName());
+
     /**
      * Creates a Group from a Local Set using a LocalTagRegister to map Local Tags to Keys 
      * @param localset Triplet containing a Group encoded as a Local Set
@@ -46,94 +49,260 @@ public class LocalSet implements Group {
      * @throws KLVException 
      */
     public static LocalSet fromTriplet(Triplet localset, LocalTagRegister reg) throws KLVException {
-        try {
 
-            if (!localset.getKey().isLocalSet()) {
-                return null;
+        if (!localset.getKey().isLocalSet()) {
+            return null;
+        }
+
+        LocalSet set = new LocalSet(localset.getKey());
+
+        ItemReader items = new ItemReader(localset);
+
+        while (items.next()) {
+
+            UL itemkey = reg.get(items.localtag);
+
+            if (itemkey == null) {
+                throw new KLVException("Local tag not found: " + items.localtag + " in Local Set " + localset.getKey());
             }
-            
-            CountingInputStream cis = new CountingInputStream(localset.getValueAsStream());
 
-            KLVInputStream kis = new KLVInputStream(cis);
+            set.addItem(new ByteBufferTriplet(itemkey, items.value, items.offset, items.length));
+
+        }
+
+        return set;
+    }
+
+    /**
+     * Creates a Group from a Local Set whose items are decoded only when first
+     * accessed through {@link Group#getItems()}. Errors encountered while
+     * decoding the items are logged and result in an empty Group.
+     * 
+     * @param localset Triplet containing a Group encoded as a Local Set
+     * @param reg LocalTagRegister used to map Local Tags to Keys
+     * @return Group, or null if the input Triplet is not a Local Set
+     */
+    public static Group fromTripletLazily(Triplet localset, LocalTagRegister reg) {
+
+        if (!localset.getKey().isLocalSet()) {
+            return null;
+        }
+
+        return new LazyLocalSet(localset, reg);
+    }
+
+    /**
+     * Returns the value of the first item of a Local Set with the specified
+     * Key, ignoring the version byte, without decoding the other items
+     * 
+     * @param localset Triplet containing a Group encoded as a Local Set
+     * @param reg LocalTagRegister used to map Local Tags to Keys
+     * @param itemkey Key of the item
+     * @return Value of the item, or null if the input Triplet is not a Local
+     * Set or no item has the specified Key
+     * @throws KLVException 
+     */
+    public static ByteBuffer getItemValue(Triplet localset, LocalTagRegister reg, UL itemkey) throws KLVException {
+
+        if (!localset.getKey().isLocalSet()) {
+            return null;
+        }
+
+        ItemReader items = new ItemReader(localset);
+
+        while (items.next()) {
+
+            UL key = reg.get(items.localtag);
+
+            if (key != null && key.equalsIgnoreVersion(itemkey)) {
+
+                ByteBuffer value = items.value.duplicate();
+
+                value.limit(items.offset + items.length).position(items.offset);
+
+                return value.slice();
+            }
+
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the Local Tag and extent of successive items of a Local Set
+     */
+    private static class ItemReader {
+
+        /* items are views of the local set value, which is never copied */
+        final ByteBuffer value;
+        final UL setkey;
 
-            LocalSet set = new LocalSet(localset.getKey());
+        /* local tag and local length encodings are constant across the set */
+        final int tagcoding;
+        final int lencoding;
 
-            while(cis.getCount() < localset.getLength()) {
+        long localtag;
+        int offset;
+        int length;
 
-                long localtag = 0;
+        ItemReader(Triplet localset) {
+            this.value = localset.getValueAsBuffer();
+            this.setkey = localset.getKey();
+            this.tagcoding = setkey.getRegistryDesignator() >> 3 & 3;
+            this.lencoding = setkey.getRegistryDesignator() >> 5 & 3;
+        }
+
+        /**
+         * Advances to the next item
+         * @return false if no item remains
+         * @throws KLVException 
+         */
+        boolean next() throws KLVException {
+
+            if (!value.hasRemaining()) {
+                return false;
+            }
+
+            try {
 
                 /* read local tag */
-                switch (localset.getKey().getRegistryDesignator() >> 3 & 3) {
+                switch (tagcoding) {
 
                     /* 1 byte length field */
                     case 0:
-                        localtag = kis.readUnsignedByte();
+                        localtag = value.get() & 0xFF;
                         break;
 
                     /* ASN.1 OID BER length field */
                     case 1:
-                        localtag = kis.readBERLength();
+                        localtag = readBERLength(value);
                         break;
 
                     /* 2 byte length field */
                     case 2:
-                        localtag = kis.readUnsignedShort();
+                        localtag = value.getShort() & 0xFFFF;
                         break;
 
                     /* 4 byte length field */
                     case 3:
-                        localtag = kis.readUnsignedInt();
+                        localtag = value.getInt() & 0xFFFFFFFFL;
                         break;
                 }
 
                 long locallen = 0;
 
                 /* read local length */
-                switch (localset.getKey().getRegistryDesignator() >> 5 & 3) {
+                switch (lencoding) {
 
                     /* ASN.1 OID BER length field */
                     case 0:
-                        locallen = kis.readBERLength();
+                        locallen = readBERLength(value);
                         break;
 
                     /* 1 byte length field */
                     case 1:
-                        locallen = kis.readUnsignedByte();
+                        locallen = value.get() & 0xFF;
                         break;
 
                     /* 2 byte length field */
                     case 2:
-                        locallen = kis.readUnsignedShort();
+                        locallen = value.getShort() & 0xFFFF;
                         break;
 
                     /* 4 byte length field */
                     case 3:
-                        locallen = kis.readUnsignedInt();
+                        locallen = value.getInt() & 0xFFFFFFFFL;
                         break;
                 }
 
-                if (locallen > Integer.MAX_VALUE) {
-                    throw new TripletLengthException();
+                if (locallen > value.remaining()) {
+                    throw new KLVException("Local length exceeds the remaining bytes in Local Set " + setkey);
                 }
 
-                byte[] localval = new byte[(int) locallen];
+                offset = value.position();
+                length = (int) locallen;
 
-                kis.readFully(localval);
-                
-                if (reg.get(localtag) == null) {
-                    throw new KLVException("Local tag not found: " + localtag + " in Local Set " + localset.getKey());
-                }
+                value.position(offset + length);
+
+            } catch (BufferUnderflowException e) {
+                throw new KLVException("Error parsing Local Set: " + setkey, e);
+            }
 
-                set.addItem(new MemoryTriplet(reg.get(localtag), localval));
+            return true;
+        }
+    }
+
+    /**
+     * Local Set whose items are decoded on first access
+     */
+    private static class LazyLocalSet implements Group {
+
+        private final Triplet localset;
+        private final LocalTagRegister reg;
+        private Collection<Triplet> items;
+
+        LazyLocalSet(Triplet localset, LocalTagRegister reg) {
+            this.localset = localset;
+            this.reg = reg;
+        }
+
+        @Override
+        public UL getKey() {
+            return localset.getKey();
+        }
 
+        @Override
+        public synchronized Collection<Triplet> getItems() {
+
+            if (items == null) {
+
+                try {
+
+                    items = fromTriplet(localset, reg).getItems();
+
+                } catch (KLVException ke) {
+
+                    LOG.warning(
+                            String.format(
+                                    "Failed to read Group %s with error %s",
+                                    localset.getKey().toString(),
+                                    ke.getMessage()
+                            )
+                    );
+
+                    items = Collections.emptyList();
+                }
             }
 
-            return set;
-                    
-        } catch (IOException e) {
-            throw new KLVException("Error parsing Local Set: " + localset.getKey(), e);
+            return items;
+        }
+    }
+    
+    private static long readBERLength(ByteBuffer value) throws KLVException {
+
+        int b = value.get() & 0xFF;
+
+        if ((b & 0x80) == 0) {
+            return b;
+        }
+
+        int bersz = (b & 0x7f);
+
+        if (bersz > 8) {
+            throw new KLVException(KLVException.MAX_BER_SIZE_EXCEEED);
+        }
+
+        long val = 0;
+
+        for (int i = 0; i < bersz; i++) {
+            val = (val << 8) + (value.get() & 0xFF);
+
+            if (val > Integer.MAX_VALUE) {
+                throw new KLVException(KLVException.MAX_LENGTH_EXCEEED);
+            }
         }
-        
+
+        return val;
     }
 
     private final ArrayList<Triplet> items = new ArrayList<>();
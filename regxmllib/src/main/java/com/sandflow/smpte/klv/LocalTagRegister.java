@@ -30,11 +30,21 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * LocalTagRegister maps Local Tags found in a Local Set to UL Keys
+ * LocalTagRegister maps Local Tags found in a Local Set to UL Keys. Local Tags
+ * up to 2 bytes long, which include all Local Tags found in MXF files, are
+ * looked up in a table indexed by the Local Tag value.
+ * 
+ * Modifying a register is an optional operation: read-only registers, such as
+ * those shared across Primer Packs by
+ * {@link com.sandflow.smpte.mxf.PrimerPack#createLocalTagRegister}, throw
+ * UnsupportedOperationException from {@link #add(long, UL)}.
  */
 public class LocalTagRegister {
 
-    private final HashMap<Long, UL> entries = new HashMap<>();
+    private static final int SHORT_TAG_COUNT = 0x10000;
+
+    private final UL[] shortEntries = new UL[SHORT_TAG_COUNT];
+    private final HashMap<Long, UL> longEntries = new HashMap<>();
     
     /**
      * Instantiates an empty LocalTagRegister
@@ -46,7 +56,9 @@ public class LocalTagRegister {
      * @param entries Initial set of mappings
      */
     public LocalTagRegister(Map<Long, UL> entries) {
-        this.entries.putAll(entries);
+        for (Map.Entry<Long, UL> entry : entries.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
     }
 
     /**
@@ -55,7 +67,11 @@ public class LocalTagRegister {
      * @return Key, or null if no Key exists for the Local Tag
      */
     public UL get(long localtag) {
-        return entries.get(localtag);
+        if (localtag >= 0 && localtag < SHORT_TAG_COUNT) {
+            return shortEntries[(int) localtag];
+        }
+
+        return longEntries.get(localtag);
     }
     
     /**
@@ -63,9 +79,18 @@ public class LocalTagRegister {
      * @param localtag Local Tag
      * @param key Key with which the Local Tag is associated
      * @return The Key is the Local Tag was already present in the registry, or null otherwise.
+     * @throws UnsupportedOperationException if the register is read-only
      */
     public UL add(long localtag, UL key) {
-        return entries.put(localtag, key);
+        if (localtag >= 0 && localtag < SHORT_TAG_COUNT) {
+            UL old = shortEntries[(int) localtag];
+            
+            shortEntries[(int) localtag] = key;
+            
+            return old;
+        }
+
+        return longEntries.put(localtag, key);
     }
     
 
@@ -28,6 +28,7 @@ package com.sandflow.smpte.klv;
 import com.sandflow.smpte.util.UL;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.InvalidParameterException;
 
 /**
@@ -70,5 +71,10 @@ public class MemoryTriplet implements Triplet {
     public InputStream getValueAsStream() {
         return new ByteArrayInputStream(value);
     }
+
+    @Override
+    public ByteBuffer getValueAsBuffer() {
+        return ByteBuffer.wrap(value);
+    }
     
 }
@@ -28,6 +28,7 @@ package com.sandflow.smpte.klv;
 
 import com.sandflow.smpte.util.UL;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Abstract class representing a KLV Triplet per SMPTE ST 336
@@ -57,5 +58,11 @@ public interface Triplet {
      * @return Triplet Value
      */ 
     InputStream getValueAsStream();
+    
+    /**
+     * Return the Value of the KLV Triplet as a ByteBuffer, without copying it
+     * @return Triplet Value, starting at position 0
+     */ 
+    ByteBuffer getValueAsBuffer();
 
 }
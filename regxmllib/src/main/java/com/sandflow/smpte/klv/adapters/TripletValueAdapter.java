@@ -25,6 +25,8 @@
  */
 package com.sandflow.smpte.klv.adapters;
 
+import com.sandflow.smpte.klv.exceptions.KLVException;
+
 /**
  * TripletValueAdapter is an abstract class defining the conversion of KLV Triplet
  * values to Java types.
@@ -37,8 +39,9 @@ public class TripletValueAdapter<W> {
      * @param <W> Java object type
      * @param value KLV Triplet Value
      * @return Java object
+     * @throws KLVException if the value cannot be converted
      */
-    public static <W> W fromValue(byte[] value) { return null;}
+    public static <W> W fromValue(byte[] value) throws KLVException { return null;}
     
     /**
      * Converts a Java object to a KLV Triplet Value.
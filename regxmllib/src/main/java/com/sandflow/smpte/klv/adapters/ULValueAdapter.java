@@ -25,6 +25,7 @@
  */
 package com.sandflow.smpte.klv.adapters;
 
+import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.util.UL;
 
 /**
@@ -36,8 +37,14 @@ public class ULValueAdapter extends TripletValueAdapter {
      * Converts a KLV Triplet Value to a UL.
      * @param value KLV Triplet Value
      * @return UL
+     * @throws KLVException if the value is not 16 bytes long
      */
-    public static UL fromValue(byte[] value) {
+    public static UL fromValue(byte[] value) throws KLVException {
+
+        if (value.length != 16) {
+            throw new KLVException("UL value is " + value.length + " bytes long instead of 16");
+        }
+
         return new UL(value);
     }
 
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.KLVPushParser;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parses the first Partition Pack and the Header Metadata that follows it
+ * from bytes pushed in chunks of arbitrary sizes, e.g. as they are received
+ * from a network or a non-blocking channel. Each structure is reported as
+ * soon as its last byte has been pushed. Bytes that follow the Header
+ * Metadata are skipped without being held in memory. Optionally, the Header
+ * Metadata of every subsequent partition is also parsed, e.g. to follow a
+ * file as it is written.
+ */
+public class HeaderMetadataParser {
+
+    private final static Logger LOG = Logger.getLogger(HeaderMetadataParser.class.getName());
+
+    /**
+     * Receives the structures parsed by a HeaderMetadataParser
+     */
+    public interface Handler {
+
+        /**
+         * Called when the Partition Pack that precedes the Header Metadata has
+         * been parsed.
+         *
+         * @param pp Partition Pack
+         * @param offset Offset of the Partition Pack from the first byte pushed
+         */
+        void onPartitionPack(PartitionPack pp, long offset);
+
+        /**
+         * Called when the Primer Pack has been parsed. Not called for a
+         * partition whose Header Byte Count is zero.
+         *
+         * @param reg Local Tag Register created from the Primer Pack, or null
+         * if the Primer Pack could not be parsed, in which case the sets of the
+         * partition are skipped
+         */
+        void onPrimerPack(LocalTagRegister reg);
+
+        /**
+         * Called when a Header Metadata set has been parsed.
+         *
+         * @param group Local Set
+         * @param offset Offset of the Local Set from the first byte pushed
+         */
+        void onLocalSet(Group group, long offset);
+
+        /**
+         * Called when the end of the Header Metadata has been reached. Unless
+         * all partitions are parsed, no further calls are made to the handler.
+         */
+        void onHeaderMetadataEnd();
+    }
+
+    private enum State {
+        PARTITION,
+        PRIMER,
+        SETS,
+        DONE
+    }
+
+    private final Handler handler;
+    private final KLVPushParser parser;
+    private final boolean allpartitions;
+
+    private State state = State.PARTITION;
+    private PartitionPack pp;
+    private LocalTagRegister localreg;
+    private long hmstart;
+
+    /**
+     * Creates a parser
+     *
+     * @param handler Receives the structures as they are parsed
+     */
+    public HeaderMetadataParser(Handler handler) {
+        this(handler, false);
+    }
+
+    /**
+     * Creates a parser
+     *
+     * @param handler Receives the structures as they are parsed
+     * @param allpartitions If true, every Partition Pack is reported, and the
+     * Header Metadata of every partition whose Header Byte Count is not zero
+     * is parsed. Otherwise only the first partition is parsed.
+     */
+    public HeaderMetadataParser(Handler handler, boolean allpartitions) {
+        this.handler = handler;
+        this.parser = new KLVPushParser(new TripletHandler());
+        this.allpartitions = allpartitions;
+    }
+
+    /**
+     * Decodes a Header Metadata set. Subclasses can override this method, e.g.
+     * to reuse sets decoded previously.
+     *
+     * @param localset Triplet containing the set encoded as a Local Set
+     * @param reg Register created from the Primer Pack that precedes the set
+     * @return Group, or null if the Triplet is not a Local Set
+     * @throws KLVException
+     */
+    protected Group decodeLocalSet(Triplet localset, LocalTagRegister reg) throws KLVException {
+        return LocalSet.fromTriplet(localset, reg);
+    }
+
+    /**
+     * Decodes the Primer Pack that precedes the Header Metadata sets.
+     * Subclasses can override this method, e.g. to compare Primer Packs across
+     * partitions.
+     *
+     * @param primer Triplet containing the Primer Pack
+     * @return Local Tag Register, or null if the Triplet is not a Primer Pack
+     * @throws KLVException
+     */
+    protected LocalTagRegister decodePrimerPack(Triplet primer) throws KLVException {
+        return PrimerPack.createLocalTagRegister(primer);
+    }
+
+    /**
+     * Parses all the remaining bytes of a chunk, advancing its position to
+     * its limit.
+     *
+     * @param chunk Bytes that follow those previously pushed
+     * @throws KLVException if the bytes are not valid KLV
+     */
+    public void feed(ByteBuffer chunk) throws KLVException {
+        parser.feed(chunk);
+    }
+
+    /**
+     * Advances over bytes that would be skipped without being parsed, e.g.
+     * essence, without them being pushed
+     *
+     * @param n Maximum number of bytes to advance over
+     * @return Number of bytes advanced over
+     * @throws KLVException
+     * @see KLVPushParser#skip(long)
+     */
+    public long skip(long n) throws KLVException {
+        return parser.skip(n);
+    }
+
+    /**
+     * Returns the number of bytes pushed so far
+     *
+     * @return Position of the next byte to be pushed, including those skipped
+     */
+    public long getPosition() {
+        return parser.getPosition();
+    }
+
+    /**
+     * Indicates whether the end of the Header Metadata has been reached
+     *
+     * @return true if onHeaderMetadataEnd() has been called, which is never
+     * the case when all partitions are parsed
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /**
+     * Indicates that no more bytes will be pushed
+     *
+     * @throws EOFException if the end of the Header Metadata has not been
+     * reached, or, when all partitions are parsed, if it is incomplete
+     */
+    public void finish() throws EOFException {
+
+        /* bytes that follow the Header Metadata need not form complete KLVs */
+        if (state == State.DONE) {
+            return;
+        }
+
+        parser.finish();
+
+        if (state != (allpartitions ? State.PARTITION : State.DONE)) {
+            throw new EOFException("EOF reached before end of Header Metadata.");
+        }
+    }
+
+    private void checkEnd() {
+        if (state == State.SETS && parser.getPosition() - hmstart >= pp.getHeaderByteCount()) {
+            end();
+        }
+    }
+
+    private void end() {
+        state = allpartitions ? State.PARTITION : State.DONE;
+
+        handler.onHeaderMetadataEnd();
+    }
+
+    private class TripletHandler implements KLVPushParser.Handler {
+
+        @Override
+        public boolean onKeyLength(UL key, long length, long offset) throws KLVException {
+
+            switch (state) {
+
+                case PARTITION:
+
+                    /* skip the value of any other KLV, e.g. run-in or essence */
+                    return PartitionPack.isPartitionPackKey(key);
+
+                case PRIMER:
+
+                    /* skip fill items, if any */
+                    if (key.equalsIgnoreVersion(FillItem.getKey())) {
+                        return false;
+                    }
+
+                    /* start counting header metadata bytes */
+                    hmstart = offset;
+
+                    return true;
+
+                case SETS:
+
+                    if (key.equalsIgnoreVersion(IndexTableSegment.getKey())) {
+
+                        /* stop if Index Table reached */
+                        LOG.warning("Index Table Segment encountered before Header Byte Count bytes read.");
+
+                        end();
+
+                        return false;
+                    }
+
+                    /* skip fill items, and all sets if no Primer Pack was read */
+                    return localreg != null && !key.equalsIgnoreVersion(FillItem.getKey());
+
+                default:
+
+                    return false;
+            }
+        }
+
+        @Override
+        public void onTriplet(Triplet triplet, long offset) throws KLVException {
+
+            switch (state) {
+
+                case PARTITION:
+
+                    pp = PartitionPack.fromTriplet(triplet);
+
+                    if (pp != null) {
+
+                        hmstart = parser.getPosition();
+
+                        /* skip partitions without Header Metadata */
+                        if (pp.getHeaderByteCount() != 0) {
+                            state = State.PRIMER;
+                        }
+
+                        handler.onPartitionPack(pp, offset);
+
+                        /* the Header Metadata of the first partition is empty */
+                        if (!allpartitions && state == State.PARTITION) {
+                            end();
+                        }
+                    }
+
+                    break;
+
+                case PRIMER:
+
+                    try {
+
+                        localreg = decodePrimerPack(triplet);
+
+                        if (localreg == null) {
+                            LOG.warning("No Primer Pack found");
+                        }
+
+                    } catch (KLVException ke) {
+                        LOG.warning(
+                                String.format(
+                                        "Failed to read Primer Pack with error %s",
+                                        ke.getMessage()
+                                )
+                        );
+
+                        localreg = null;
+                    }
+
+                    state = State.SETS;
+
+                    handler.onPrimerPack(localreg);
+
+                    checkEnd();
+
+                    break;
+
+                case SETS:
+
+                    try {
+
+                        Group g = decodeLocalSet(triplet, localreg);
+
+                        if (g != null) {
+                            handler.onLocalSet(g, offset);
+                        } else {
+                            LOG.log(Level.WARNING, "Failed to read Group: {0}", triplet.getKey().toString());
+                        }
+
+                    } catch (KLVException ke) {
+                        LOG.warning(
+                                String.format(
+                                        "Failed to read Group %s with error %s",
+                                        triplet.getKey().toString(),
+                                        ke.getMessage()
+                                )
+                        );
+                    }
+
+                    checkEnd();
+
+                    break;
+            }
+        }
+
+        @Override
+        public void onSkipped(UL key, long length, long offset) throws KLVException {
+            checkEnd();
+        }
+    }
+
+}
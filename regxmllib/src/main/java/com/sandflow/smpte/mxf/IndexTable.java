@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * Index Table (see SMPTE ST 377-1) assembled from the Index Table Segments of
+ * a single Index SID, which can be spread across partitions and repeated.
+ * Maps Edit Units to offsets within the Essence Container in constant time
+ * for a constant Edit Unit size, and in time logarithmic in the number of
+ * segments otherwise.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class IndexTable {
+
+    private final TreeMap<Long, IndexTableSegment> segments = new TreeMap<>();
+
+    /* lookup arrays, rebuilt when segments are added */
+    private long[] starts;
+    private IndexTableSegment[] lookup;
+    private long[] cbeoffsets;
+
+    /* segment of the last lookup, which is checked first */
+    private int last;
+
+    /**
+     * Adds a segment to the Index Table. A segment with the same start
+     * position as a segment added previously replaces it, since a later copy
+     * of a segment, e.g. in the Footer Partition, is at least as complete.
+     *
+     * @param segment Index Table Segment
+     * @throws IllegalArgumentException if the Index SID of the segment differs
+     * from that of the segments added previously
+     */
+    public void add(IndexTableSegment segment) {
+
+        if (!segments.isEmpty() && segments.firstEntry().getValue().getIndexSID() != segment.getIndexSID()) {
+            throw new IllegalArgumentException("Index Table Segment belongs to a different Index Table.");
+        }
+
+        segments.put(segment.getIndexStartPosition(), segment);
+
+        starts = null;
+    }
+
+    /**
+     * Returns the segments of the Index Table
+     *
+     * @return Segments, in increasing order of start position
+     */
+    public Collection<IndexTableSegment> getSegments() {
+        return Collections.unmodifiableCollection(segments.values());
+    }
+
+    /**
+     * Returns the offset of an Edit Unit within the Essence Container
+     *
+     * @param editunit Position of the Edit Unit
+     * @return Offset in bytes, or -1 if the Edit Unit is not indexed
+     */
+    public long getStreamOffset(long editunit) {
+
+        int i = findSegment(editunit);
+
+        if (i < 0) {
+            return -1;
+        }
+
+        IndexTableSegment segment = lookup[i];
+
+        long entry = editunit - starts[i];
+
+        if (segment.getEditUnitByteCount() != 0) {
+            return cbeoffsets[i] + entry * segment.getEditUnitByteCount();
+        }
+
+        return segment.getStreamOffset((int) entry);
+    }
+
+    /**
+     * Returns the segment that indexes an Edit Unit
+     *
+     * @param editunit Position of the Edit Unit
+     * @return Segment or null if the Edit Unit is not indexed
+     */
+    public IndexTableSegment getSegment(long editunit) {
+
+        int i = findSegment(editunit);
+
+        return i < 0 ? null : lookup[i];
+    }
+
+    private int findSegment(long editunit) {
+
+        if (starts == null) {
+            buildLookup();
+        }
+
+        if (starts.length == 0) {
+            return -1;
+        }
+
+        /* sequential access usually remains within the same segment */
+        if (!contains(last, editunit)) {
+
+            int i = Arrays.binarySearch(starts, editunit);
+
+            /* segment starting at or before the edit unit */
+            i = i >= 0 ? i : -i - 2;
+
+            if (i < 0 || !contains(i, editunit)) {
+                return -1;
+            }
+
+            last = i;
+        }
+
+        return last;
+    }
+
+    private boolean contains(int i, long editunit) {
+
+        if (editunit < starts[i]) {
+            return false;
+        }
+
+        IndexTableSegment segment = lookup[i];
+
+        long count;
+
+        if (segment.getEditUnitByteCount() != 0) {
+
+            /* a constant Edit Unit size with a duration of 0 applies to all subsequent Edit Units */
+            if (segment.getIndexDuration() == 0) {
+                return i == starts.length - 1 || editunit < starts[i + 1];
+            }
+
+            count = segment.getIndexDuration();
+
+        } else {
+
+            count = segment.getIndexEntryCount();
+
+        }
+
+        return editunit - starts[i] < count;
+    }
+
+    private void buildLookup() {
+
+        int count = segments.size();
+
+        starts = new long[count];
+        lookup = new IndexTableSegment[count];
+        cbeoffsets = new long[count];
+
+        int i = 0;
+
+        for (IndexTableSegment segment : segments.values()) {
+
+            starts[i] = segment.getIndexStartPosition();
+            lookup[i] = segment;
+
+            if (segment.getEditUnitByteCount() != 0) {
+
+                IndexTableSegment previous = i > 0 ? lookup[i - 1] : null;
+
+                if (previous != null
+                        && previous.getEditUnitByteCount() != 0
+                        && previous.getIndexDuration() != 0
+                        && starts[i - 1] + previous.getIndexDuration() == starts[i]) {
+
+                    /* continues the preceding segment */
+                    cbeoffsets[i] = cbeoffsets[i - 1] + previous.getIndexDuration() * previous.getEditUnitByteCount();
+
+                } else {
+
+                    /* assumes a constant Edit Unit size from the start of the Essence Container */
+                    cbeoffsets[i] = starts[i] * segment.getEditUnitByteCount();
+
+                }
+            }
+
+            i++;
+        }
+
+        last = 0;
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a MXF Index Table Segment (see SMPTE ST 377-1). Delta and Index
+ * Entries are held in primitive arrays, one per field, rather than as
+ * individual objects.
+ */
+public class IndexTableSegment {
+
+    private static final UL KEY = new UL(new byte[]{0x06, 0x0e, 0x2b, 0x34, 0x02, 0x53, 0x01, 0x01, 0x0d, 0x01, 0x02, 0x01, 0x01, 0x10, 0x01, 0x00});
+
+    /* local tags, which are statically allocated by SMPTE ST 377-1 */
+    private static final int INSTANCE_ID_TAG = 0x3C0A;
+    private static final int INDEX_EDIT_RATE_TAG = 0x3F0B;
+    private static final int INDEX_START_POSITION_TAG = 0x3F0C;
+    private static final int INDEX_DURATION_TAG = 0x3F0D;
+    private static final int EDIT_UNIT_BYTE_COUNT_TAG = 0x3F05;
+    private static final int INDEX_SID_TAG = 0x3F06;
+    private static final int BODY_SID_TAG = 0x3F07;
+    private static final int SLICE_COUNT_TAG = 0x3F08;
+    private static final int POS_TABLE_COUNT_TAG = 0x3F0E;
+    private static final int DELTA_ENTRY_ARRAY_TAG = 0x3F09;
+    private static final int INDEX_ENTRY_ARRAY_TAG = 0x3F0A;
+
+    /* size of the fixed fields of an Index Entry */
+    private static final int INDEX_ENTRY_FIXED_SIZE = 11;
+
+    /* size of a Delta Entry */
+    private static final int DELTA_ENTRY_SIZE = 6;
+
+    /**
+     * Returns the Index Table Segment Key
+     * @return Key
+     */
+    public static UL getKey() {
+        return KEY;
+    }
+
+    /**
+     * Creates an Index Table Segment from a Triplet
+     * @param triplet Triplet from which to create the Index Table Segment
+     * @return IndexTableSegment or null if the Triplet is not an Index Table Segment
+     * @throws KLVException 
+     */
+    public static IndexTableSegment fromTriplet(Triplet triplet) throws KLVException {
+
+        if (!KEY.equalsIgnoreVersion(triplet.getKey())) {
+            return null;
+        }
+
+        IndexTableSegment its = new IndexTableSegment();
+
+        ByteBuffer value = triplet.getValueAsBuffer();
+
+        /* the arrays depend on the slice and pos table counts, which can follow them */
+        ByteBuffer deltas = null;
+        ByteBuffer entries = null;
+
+        try {
+
+            while (value.remaining() >= 4) {
+
+                int tag = value.getShort() & 0xFFFF;
+
+                int len = value.getShort() & 0xFFFF;
+
+                if (len > value.remaining()) {
+                    throw new KLVException("Index Table Segment item exceeds the segment.");
+                }
+
+                ByteBuffer item = value.slice();
+
+                item.limit(len);
+
+                value.position(value.position() + len);
+
+                switch (tag) {
+                    case INSTANCE_ID_TAG:
+                        byte[] uuid = new byte[16];
+                        item.get(uuid);
+                        its.instanceID = new UUID(uuid);
+                        break;
+                    case INDEX_EDIT_RATE_TAG:
+                        its.indexEditRateNumerator = item.getInt();
+                        its.indexEditRateDenominator = item.getInt();
+                        break;
+                    case INDEX_START_POSITION_TAG:
+                        its.indexStartPosition = item.getLong();
+                        break;
+                    case INDEX_DURATION_TAG:
+                        its.indexDuration = item.getLong();
+                        break;
+                    case EDIT_UNIT_BYTE_COUNT_TAG:
+                        its.editUnitByteCount = item.getInt() & 0xFFFFFFFFL;
+                        break;
+                    case INDEX_SID_TAG:
+                        its.indexSID = item.getInt() & 0xFFFFFFFFL;
+                        break;
+                    case BODY_SID_TAG:
+                        its.bodySID = item.getInt() & 0xFFFFFFFFL;
+                        break;
+                    case SLICE_COUNT_TAG:
+                        its.sliceCount = item.get() & 0xFF;
+                        break;
+                    case POS_TABLE_COUNT_TAG:
+                        its.posTableCount = item.get() & 0xFF;
+                        break;
+                    case DELTA_ENTRY_ARRAY_TAG:
+                        deltas = item;
+                        break;
+                    case INDEX_ENTRY_ARRAY_TAG:
+                        entries = item;
+                        break;
+                    default:
+                        /* ignore other items */
+                }
+            }
+
+            if (deltas != null) {
+                its.readDeltaEntries(deltas);
+            }
+
+            if (entries != null) {
+                its.readIndexEntries(entries);
+            }
+
+        } catch (BufferUnderflowException e) {
+            throw new KLVException(e);
+        }
+
+        return its;
+    }
+
+    private UUID instanceID;
+    private int indexEditRateNumerator;
+    private int indexEditRateDenominator;
+    private long indexStartPosition;
+    private long indexDuration;
+    private long editUnitByteCount;
+    private long indexSID;
+    private long bodySID;
+    private int sliceCount;
+    private int posTableCount;
+
+    /* Delta Entries */
+    private byte[] posTableIndexes = new byte[0];
+    private byte[] slices = new byte[0];
+    private int[] elementDeltas = new int[0];
+
+    /* Index Entries */
+    private byte[] temporalOffsets = new byte[0];
+    private byte[] keyFrameOffsets = new byte[0];
+    private byte[] flags = new byte[0];
+    private long[] streamOffsets = new long[0];
+    private int[] sliceOffsets = new int[0];
+
+    private IndexTableSegment() {
+    }
+
+    private static int readBatchHeader(ByteBuffer batch, int minitemsize) throws KLVException {
+
+        long count = batch.getInt() & 0xFFFFFFFFL;
+
+        long itemsize = batch.getInt() & 0xFFFFFFFFL;
+
+        if (count != 0 && (itemsize < minitemsize || count > batch.remaining() / itemsize)) {
+            throw new KLVException("Invalid Index Table Segment array.");
+        }
+
+        return (int) count;
+    }
+
+    private void readDeltaEntries(ByteBuffer batch) throws KLVException {
+
+        int count = readBatchHeader(batch, DELTA_ENTRY_SIZE);
+
+        int itemsize = batch.getInt(4);
+
+        posTableIndexes = new byte[count];
+        slices = new byte[count];
+        elementDeltas = new int[count];
+
+        for (int i = 0; i < count; i++) {
+
+            int start = batch.position();
+
+            posTableIndexes[i] = batch.get();
+            slices[i] = batch.get();
+            elementDeltas[i] = batch.getInt();
+
+            batch.position(start + itemsize);
+        }
+    }
+
+    private void readIndexEntries(ByteBuffer batch) throws KLVException {
+
+        int count = readBatchHeader(batch, INDEX_ENTRY_FIXED_SIZE + 4 * sliceCount + 8 * posTableCount);
+
+        int itemsize = batch.getInt(4);
+
+        temporalOffsets = new byte[count];
+        keyFrameOffsets = new byte[count];
+        flags = new byte[count];
+        streamOffsets = new long[count];
+        sliceOffsets = new int[count * sliceCount];
+
+        for (int i = 0; i < count; i++) {
+
+            int start = batch.position();
+
+            temporalOffsets[i] = batch.get();
+            keyFrameOffsets[i] = batch.get();
+            flags[i] = batch.get();
+            streamOffsets[i] = batch.getLong();
+
+            for (int j = 0; j < sliceCount; j++) {
+                sliceOffsets[i * sliceCount + j] = batch.getInt();
+            }
+
+            /* PosTable entries are skipped */
+            batch.position(start + itemsize);
+        }
+    }
+
+    public UUID getInstanceID() {
+        return instanceID;
+    }
+
+    public int getIndexEditRateNumerator() {
+        return indexEditRateNumerator;
+    }
+
+    public int getIndexEditRateDenominator() {
+        return indexEditRateDenominator;
+    }
+
+    /**
+     * Returns the position of the first Edit Unit indexed by the segment
+     * @return Position in Edit Units
+     */
+    public long getIndexStartPosition() {
+        return indexStartPosition;
+    }
+
+    /**
+     * Returns the number of Edit Units indexed by the segment, which can be
+     * zero for a constant Edit Unit size, in which case the segment indexes
+     * all Edit Units from its start position
+     * @return Duration in Edit Units
+     */
+    public long getIndexDuration() {
+        return indexDuration;
+    }
+
+    /**
+     * Returns the constant size of Edit Units
+     * @return Size in bytes, or 0 if Edit Units have variable sizes
+     */
+    public long getEditUnitByteCount() {
+        return editUnitByteCount;
+    }
+
+    public long getIndexSID() {
+        return indexSID;
+    }
+
+    public long getBodySID() {
+        return bodySID;
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    public int getPosTableCount() {
+        return posTableCount;
+    }
+
+    public int getDeltaEntryCount() {
+        return elementDeltas.length;
+    }
+
+    public int getDeltaEntryPosTableIndex(int entry) {
+        return posTableIndexes[entry];
+    }
+
+    public int getDeltaEntrySlice(int entry) {
+        return slices[entry] & 0xFF;
+    }
+
+    public long getDeltaEntryElementDelta(int entry) {
+        return elementDeltas[entry] & 0xFFFFFFFFL;
+    }
+
+    public int getIndexEntryCount() {
+        return streamOffsets.length;
+    }
+
+    public int getTemporalOffset(int entry) {
+        return temporalOffsets[entry];
+    }
+
+    public int getKeyFrameOffset(int entry) {
+        return keyFrameOffsets[entry];
+    }
+
+    public int getFlags(int entry) {
+        return flags[entry] & 0xFF;
+    }
+
+    /**
+     * Returns the offset of an Edit Unit within the Essence Container
+     * @param entry Index Entry, starting at 0 for the Edit Unit at the start position
+     * @return Offset in bytes
+     */
+    public long getStreamOffset(int entry) {
+        return streamOffsets[entry];
+    }
+
+    /**
+     * Returns the offset of a slice relative to the start of its Edit Unit
+     * @param entry Index Entry
+     * @param slice Slice, starting at 0 for the second slice of the Edit Unit
+     * @return Offset in bytes
+     */
+    public long getSliceOffset(int entry, int slice) {
+        return sliceOffsets[entry * sliceCount + slice] & 0xFFFFFFFFL;
+    }
+
+}
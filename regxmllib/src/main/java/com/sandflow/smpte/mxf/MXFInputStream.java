@@ -61,6 +61,39 @@ public class MXFInputStream extends KLVInputStream {
     public MXFInputStream(InputStream is, ByteOrder byteorder) {
         super(is, byteorder);
     }
+    
+    /**
+     * Allows the byte ordering and the size of the internal read buffer to be specified.
+     * 
+     * @param is InputStream to read from
+     * @param byteorder Byte ordering of the file
+     * @param buffersize Size of the internal read buffer in bytes
+     */
+    public MXFInputStream(InputStream is, ByteOrder byteorder, int buffersize) {
+        super(is, byteorder, buffersize);
+    }
+    
+    /**
+     * Reads directly from an array of bytes, without copying it. Assumes big
+     * endian byte ordering.
+     * 
+     * @param bytes Bytes to read from
+     */
+    public MXFInputStream(byte[] bytes) {
+        super(bytes);
+    }
+    
+    /**
+     * Reads directly from a region of an array of bytes, without copying it.
+     * 
+     * @param bytes Bytes to read from
+     * @param offset Offset of the first byte of the region
+     * @param length Length of the region in bytes
+     * @param byteorder Byte ordering of the bytes
+     */
+    public MXFInputStream(byte[] bytes, int offset, int length, ByteOrder byteorder) {
+        super(bytes, offset, length, byteorder);
+    }
 
     /**
      * Reads a single UUID.
@@ -126,29 +159,45 @@ public class MXFInputStream extends KLVInputStream {
         return new UMID(umid);
     }
 
+    /**
+     * Converts the items of an MXF array or batch into Java objects
+     *
+     * @param <T> Type of the Java objects
+     */
+    public interface ItemAdapter<T> {
+
+        /**
+         * Converts a single item.
+         * @param value Bytes of the item
+         * @return Java object
+         * @throws KLVException
+         */
+        T fromValue(byte[] value) throws KLVException;
+    }
+
     /**
      * Reads an MXF array into a Java Collection
      *
      * @param <T> Type of the collection elements
-     * @param <W> TripletValueAdapter that is used to convert MXF array elements into Java collection elements
+     * @param adapter Converts MXF array elements into Java collection elements
      * @return Collection of elements of type T
      * @throws KLVException
      * @throws IOException
      */
-    public <T, W extends TripletValueAdapter> Collection<T> readArray() throws KLVException, IOException {
-        return readBatch();
+    public <T> Collection<T> readArray(ItemAdapter<T> adapter) throws KLVException, IOException {
+        return readBatch(adapter);
     }
-    
+
     /**
      * Reads an MXF batch into a Java Collection
      *
      * @param <T> Type of the collection elements
-     * @param <W> TripletValueAdapter that is used to convert MXF batch elements into Java collection elements
+     * @param adapter Converts MXF batch elements into Java collection elements
      * @return Collection of elements of type T
      * @throws KLVException
      * @throws IOException
      */
-    public <T, W extends TripletValueAdapter> Collection<T> readBatch() throws KLVException, IOException {
+    public <T> Collection<T> readBatch(ItemAdapter<T> adapter) throws KLVException, IOException {
         ArrayList<T> batch = new ArrayList<>();
         long itemcount = readUnsignedInt();
         long itemlength = readUnsignedInt();
@@ -157,8 +206,47 @@ public class MXFInputStream extends KLVInputStream {
         }
         for (int i = 0; i < itemcount; i++) {
             byte[] value = new byte[(int) itemlength];
-            batch.add(W.<T>fromValue(value));
+            readFully(value);
+            batch.add(adapter.fromValue(value));
         }
         return batch;
     }
+
+    /**
+     * Reads an MXF array into a Java Collection
+     *
+     * @param <T> Type of the collection elements
+     * @param <W> TripletValueAdapter that is used to convert MXF array elements into Java collection elements
+     * @return Collection of elements of type T
+     * @throws KLVException
+     * @throws IOException
+     * @deprecated The adapter W cannot be resolved at runtime and every
+     * element is null. Use {@link #readArray(ItemAdapter)} instead.
+     */
+    @Deprecated
+    public <T, W extends TripletValueAdapter> Collection<T> readArray() throws KLVException, IOException {
+        return readBatch();
+    }
+    
+    /**
+     * Reads an MXF batch into a Java Collection
+     *
+     * @param <T> Type of the collection elements
+     * @param <W> TripletValueAdapter that is used to convert MXF batch elements into Java collection elements
+     * @return Collection of elements of type T
+     * @throws KLVException
+     * @throws IOException
+     * @deprecated The adapter W cannot be resolved at runtime and every
+     * element is null. Use {@link #readBatch(ItemAdapter)} instead.
+     */
+    @Deprecated
+    public <T, W extends TripletValueAdapter> Collection<T> readBatch() throws KLVException, IOException {
+        return readBatch(new ItemAdapter<T>() {
+
+            @Override
+            public T fromValue(byte[] value) throws KLVException {
+                return W.<T>fromValue(value);
+            }
+        });
+    }
 }
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.KLVChannelReader;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Map of the partitions of an MXF file (see SMPTE ST 377-1), built by reading
+ * only Partition Packs and the Random Index Pack. Starting from the Footer
+ * Partition, located using the Header Partition Pack or the Random Index
+ * Pack, the PreviousPartition chain is followed back to the Header Partition,
+ * such that essence is never read. Inconsistencies found along the way, e.g.
+ * between the chain and the Random Index Pack, are logged as warnings.
+ */
+public class PartitionMap {
+
+    private final static Logger LOG = Logger.getLogger(PartitionMap.class.getName());
+
+    /**
+     * Size of the portion of the file mapped in memory at any time, which
+     * only needs to hold a Partition Pack or a Random Index Pack
+     */
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * Builds the partition map of an MXF file
+     *
+     * @param mxffile MXF file, positioned at the start of the Header Partition
+     * @return Partition map
+     * @throws IOException
+     * @throws KLVException if no Header Partition Pack is found at the current
+     * position
+     */
+    public static PartitionMap fromFileChannel(FileChannel mxffile) throws IOException, KLVException {
+
+        KLVChannelReader kcr = new KLVChannelReader(mxffile, WINDOW_SIZE);
+
+        PartitionMap pm = new PartitionMap(kcr.getPosition());
+
+        PartitionPack header = pm.readPartitionPack(kcr, 0);
+
+        if (header == null || header.getKind() != PartitionPack.Kind.HEADER) {
+            throw new KLVException("No Header Partition Pack found.");
+        }
+
+        RandomIndexPack rip = pm.readRandomIndexPack(kcr);
+
+        long footer = header.getFooterPartition();
+
+        PartitionPack footerpp = footer == 0 ? null : pm.readPartitionPack(kcr, footer);
+
+        if ((footerpp == null || footerpp.getKind() != PartitionPack.Kind.FOOTER)
+                && rip != null && !rip.getEntries().isEmpty()) {
+
+            /* the last partition listed in the Random Index Pack is the Footer Partition */
+            long ripfooter = 0;
+
+            for (RandomIndexPack.Entry entry : rip.getEntries()) {
+                ripfooter = entry.getByteOffset();
+            }
+
+            PartitionPack rippp = ripfooter == footer ? null : pm.readPartitionPack(kcr, ripfooter);
+
+            /* the Header Partition Pack is not updated when the file is closed, and can be stale */
+            if (rippp != null && (footerpp == null || rippp.getKind() == PartitionPack.Kind.FOOTER)) {
+
+                if (footer != 0) {
+                    LOG.log(Level.WARNING, "No Footer Partition found at FooterPartition offset {0}: using offset {1} listed in the Random Index Pack",
+                            new Object[]{footer, ripfooter});
+                }
+
+                footer = ripfooter;
+                footerpp = rippp;
+            }
+
+        }
+
+        if (footerpp != null) {
+
+            pm.readChain(kcr, footer);
+
+        } else {
+
+            /* the file is likely incomplete, e.g. still being written or truncated */
+            LOG.warning("Footer Partition not found: scanning the file for Partition Packs.");
+
+            pm.scan(kcr);
+
+        }
+
+        if (rip != null) {
+            pm.checkRandomIndexPack(kcr, rip);
+        }
+
+        return pm;
+    }
+
+    private final long start;
+    private final TreeMap<Long, PartitionPack> partitions = new TreeMap<>();
+    private boolean hasRandomIndexPack;
+
+    private PartitionMap(long start) {
+        this.start = start;
+    }
+
+    /**
+     * Reads the Partition Pack at an offset relative to the start of the
+     * Header Partition, and adds it to the map
+     *
+     * @return Partition Pack, or null if none is found at the offset
+     */
+    private PartitionPack readPartitionPack(KLVChannelReader kcr, long offset) throws IOException, KLVException {
+
+        if (partitions.containsKey(offset)) {
+            return partitions.get(offset);
+        }
+
+        PartitionPack pp;
+
+        try {
+
+            kcr.seek(start + offset);
+
+            UL key = kcr.readUL();
+
+            if (!PartitionPack.isPartitionPackKey(key)) {
+                return null;
+            }
+
+            pp = PartitionPack.fromTriplet(kcr.readValue(key, kcr.readBERLength()));
+
+        } catch (EOFException e) {
+            return null;
+        }
+
+        if (pp == null) {
+            return null;
+        }
+
+        if (pp.getThisPartition() != offset) {
+            LOG.log(Level.WARNING, "Partition Pack at offset {0} has a ThisPartition of {1}",
+                    new Object[]{offset, pp.getThisPartition()});
+        }
+
+        partitions.put(offset, pp);
+
+        return pp;
+    }
+
+    private RandomIndexPack readRandomIndexPack(KLVChannelReader kcr) throws IOException {
+
+        long size = kcr.size();
+
+        /* the last 4 bytes of the file contain the length of the Random Index Pack */
+        if (size - start < 4) {
+            return null;
+        }
+
+        try {
+
+            long riplen = kcr.slice(size - 4, 4).getInt() & 0xFFFFFFFFL;
+
+            if (riplen < 20 || riplen > size - start) {
+                return null;
+            }
+
+            kcr.seek(size - riplen);
+
+            UL key = kcr.readUL();
+
+            if (!RandomIndexPack.getKey().equalsIgnoreVersion(key)) {
+                return null;
+            }
+
+            RandomIndexPack rip = RandomIndexPack.fromTriplet(kcr.readValue(key, kcr.readBERLength()));
+
+            hasRandomIndexPack = rip != null;
+
+            return rip;
+
+        } catch (KLVException | EOFException e) {
+
+            LOG.log(Level.WARNING, "Failed to read Random Index Pack: {0}", e.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * Follows the PreviousPartition chain from the Footer Partition
+     */
+    private void readChain(KLVChannelReader kcr, long footer) throws IOException, KLVException {
+
+        PartitionPack pp = readPartitionPack(kcr, footer);
+
+        if (pp.getKind() != PartitionPack.Kind.FOOTER) {
+            LOG.log(Level.WARNING, "Partition at Footer Partition offset {0} is not a Footer Partition", footer);
+        }
+
+        for (long offset = footer; pp != null && offset != 0;) {
+
+            long previous = pp.getPreviousPartition();
+
+            if (previous >= offset) {
+
+                LOG.log(Level.WARNING, "Partition at offset {0} has a PreviousPartition of {1}, which does not precede it",
+                        new Object[]{offset, previous});
+
+                break;
+            }
+
+            pp = readPartitionPack(kcr, previous);
+
+            if (pp == null) {
+                LOG.log(Level.WARNING, "No Partition Pack found at PreviousPartition offset {0}", previous);
+            }
+
+            offset = previous;
+        }
+    }
+
+    /**
+     * Reads every Partition Pack from the start of the file, skipping the
+     * Value of every other KLV without reading it
+     */
+    private void scan(KLVChannelReader kcr) throws IOException, KLVException {
+
+        long size = kcr.size();
+
+        kcr.seek(start);
+
+        try {
+
+            while (kcr.getPosition() < size) {
+
+                long offset = kcr.getPosition() - start;
+
+                UL key = kcr.readUL();
+
+                long next = kcr.readBERLength() + kcr.getPosition();
+
+                if (PartitionPack.isPartitionPackKey(key)) {
+                    readPartitionPack(kcr, offset);
+                }
+
+                kcr.seek(next);
+            }
+
+        } catch (EOFException e) {
+            /* end of the file reached */
+        }
+    }
+
+    /**
+     * Reports the differences between the map and the Random Index Pack, and
+     * adds the partitions listed only in the latter
+     */
+    private void checkRandomIndexPack(KLVChannelReader kcr, RandomIndexPack rip) throws IOException, KLVException {
+
+        TreeMap<Long, PartitionPack> chain = new TreeMap<>(partitions);
+
+        for (RandomIndexPack.Entry entry : rip.getEntries()) {
+
+            long offset = entry.getByteOffset();
+
+            PartitionPack pp = chain.remove(offset);
+
+            if (pp == null) {
+
+                LOG.log(Level.WARNING, "Partition at offset {0} listed in the Random Index Pack is not in the PreviousPartition chain", offset);
+
+                pp = readPartitionPack(kcr, offset);
+            }
+
+            if (pp == null) {
+                LOG.log(Level.WARNING, "No Partition Pack found at offset {0} listed in the Random Index Pack", offset);
+            } else if (pp.getBodySID() != entry.getBodySID()) {
+                LOG.log(Level.WARNING, "Partition at offset {0} has a BodySID of {1} but the Random Index Pack lists {2}",
+                        new Object[]{offset, pp.getBodySID(), entry.getBodySID()});
+            }
+        }
+
+        for (Long offset : chain.keySet()) {
+            LOG.log(Level.WARNING, "Partition at offset {0} is not listed in the Random Index Pack", offset);
+        }
+    }
+
+    /**
+     * Returns the Partition Packs of the file
+     *
+     * @return Partition Packs, in increasing order of offset
+     */
+    public List<PartitionPack> getPartitions() {
+        return Collections.unmodifiableList(new ArrayList<>(partitions.values()));
+    }
+
+    /**
+     * Returns the Partition Pack at an offset
+     *
+     * @param offset Offset of the Partition Pack relative to the start of the
+     * Header Partition
+     * @return Partition Pack or null if no partition starts at the offset
+     */
+    public PartitionPack getPartition(long offset) {
+        return partitions.get(offset);
+    }
+
+    /**
+     * Returns the offsets of the partitions of the file
+     *
+     * @return Offsets relative to the start of the Header Partition, in
+     * increasing order
+     */
+    public List<Long> getOffsets() {
+        return Collections.unmodifiableList(new ArrayList<>(partitions.keySet()));
+    }
+
+    /**
+     * Indicates whether the file ends with a Random Index Pack
+     *
+     * @return true if a Random Index Pack was read
+     */
+    public boolean hasRandomIndexPack() {
+        return hasRandomIndexPack;
+    }
+
+}
@@ -26,7 +26,6 @@
 package com.sandflow.smpte.mxf;
 
 import com.sandflow.smpte.klv.Triplet;
-import com.sandflow.smpte.klv.adapters.ULValueAdapter;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.util.UL;
 import java.io.IOException;
@@ -40,6 +39,19 @@ public class PartitionPack {
 
     private static final UL KEY = new UL(new byte[]{0x06, 0x0e, 0x2b, 0x34, 0x02, 0x05, 0x01, 0x01, 0x0d, 0x01, 0x02, 0x01, 0x01, 0x00, 0x00, 0x00});
 
+    private static final MXFInputStream.ItemAdapter<UL> ESSENCE_CONTAINER_ADAPTER = new MXFInputStream.ItemAdapter<UL>() {
+
+        @Override
+        public UL fromValue(byte[] value) throws KLVException {
+
+            if (value.length != 16) {
+                throw new KLVException("Invalid Essence Container batch.");
+            }
+
+            return new UL(value);
+        }
+    };
+
     /**
      * Returns the Partition Pack Key
      * @return Key
@@ -48,6 +60,16 @@ public class PartitionPack {
         return KEY;
     }
     
+    /**
+     * Determines whether a Key is that of a Partition Pack, regardless of its
+     * kind and status
+     * @param key Key to be tested
+     * @return true if the Key is a Partition Pack Key
+     */
+    public static boolean isPartitionPackKey(UL key) {
+        return KEY.equalsWithMask(key, 0xfef9 /*11111110 11111001*/);
+    }
+    
     /**
      * Creates a Partition Pack from a Triplet
      * @param triplet Triplet from which to create the Partition Pack
@@ -57,7 +79,7 @@ public class PartitionPack {
     public static PartitionPack fromTriplet(Triplet triplet) throws KLVException {
         PartitionPack pp = new PartitionPack();
         
-        if (!KEY.equalsWithMask(triplet.getKey(), 0xfef9 /*11111110 11111001*/)) {
+        if (!isPartitionPackKey(triplet.getKey())) {
             return null;
         }
         
@@ -98,7 +120,7 @@ public class PartitionPack {
                 return null;
         }
         
-        MXFInputStream kis = new MXFInputStream(triplet.getValueAsStream());
+        MXFInputStream kis = new MXFInputStream(triplet.getValue());
         
         try {
             
@@ -122,11 +144,11 @@ public class PartitionPack {
             
             pp.setBodyOffset(kis.readLong());
             
-            pp.setBodySID(kis.readLong());
+            pp.setBodySID(kis.readUnsignedInt());
             
             pp.setOperationalPattern(kis.readUL());
             
-            pp.setEssenceContainers(kis.<UL, ULValueAdapter>readBatch());
+            pp.essenceContainers.addAll(kis.readBatch(ESSENCE_CONTAINER_ADAPTER));
             
         } catch (IOException e) {
             throw new KLVException(e);
@@ -29,8 +29,10 @@ import com.sandflow.smpte.klv.LocalTagRegister;
 import com.sandflow.smpte.klv.Triplet;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.util.UL;
-import java.io.IOException;
-import java.util.HashMap;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Represents a MXF Primer Pack (see SMPTE ST 377-1)
@@ -40,7 +42,80 @@ public class PrimerPack {
     private static final UL KEY = new UL(new byte[]{0x06, 0x0e, 0x2b, 0x34, 0x02, 0x05, 0x01, 0x01, 0x0d, 0x01, 0x02, 0x01, 0x01, 0x05, 0x01, 0x00});
 
     /**
-     * Creates a LocalTagRegister from a PrimerPack
+     * Maximum number of distinct Primer Packs whose registers are retained
+     */
+    static final int CACHE_SIZE = 16;
+
+    private static final Map<PrimerValue, LocalTagRegister> CACHE = new LinkedHashMap<PrimerValue, LocalTagRegister>(CACHE_SIZE, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PrimerValue, LocalTagRegister> eldest) {
+            return size() > CACHE_SIZE;
+        }
+
+    };
+
+    /**
+     * Value of a Primer Pack, compared by content
+     */
+    private static final class PrimerValue {
+
+        private final ByteBuffer value;
+        private final int hash;
+
+        PrimerValue(ByteBuffer value) {
+            this.value = value;
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PrimerValue)) {
+                return false;
+            }
+            final PrimerValue other = (PrimerValue) obj;
+            return this.hash == other.hash && this.value.equals(other.value);
+        }
+    }
+
+    /**
+     * LocalTagRegister that cannot be modified once fully populated. Sealed
+     * registers reject {@link LocalTagRegister#add(long, UL)}, which is an
+     * optional operation.
+     */
+    private static final class SharedLocalTagRegister extends LocalTagRegister {
+
+        private boolean sealed = false;
+
+        @Override
+        public UL add(long localtag, UL key) {
+            if (sealed) {
+                throw new UnsupportedOperationException("Local tag registers created from Primer Packs cannot be modified");
+            }
+
+            return super.add(localtag, key);
+        }
+
+        void seal() {
+            sealed = true;
+        }
+    }
+
+    /**
+     * Creates a LocalTagRegister from a PrimerPack. Registers are cached by
+     * Primer Pack value, so that the same register instance is returned for
+     * identical Primer Packs, e.g. across files from the same encoder. The
+     * returned register is shared and read-only: calling
+     * {@link LocalTagRegister#add(long, UL)} on it throws
+     * UnsupportedOperationException. Callers that need to extend the mappings
+     * must copy them into a new LocalTagRegister first.
      *
      * @param triplet Triplet representation of the Primer Pack
      * @return LocalTagRegister or null if the Triplet is not a Primer Pack
@@ -52,26 +127,54 @@ public class PrimerPack {
             return null;
         }
 
-        HashMap<Long, UL> reg = new HashMap<>();
+        ByteBuffer value = triplet.getValueAsBuffer();
+
+        LocalTagRegister reg;
+
+        synchronized (CACHE) {
+            reg = CACHE.get(new PrimerValue(value));
+        }
+
+        if (reg == null) {
+
+            reg = parseLocalTagRegister(value.duplicate());
+
+            /* the cache keeps its own copy since the triplet value may be a view of a reused buffer */
+            ByteBuffer copy = ByteBuffer.allocate(value.remaining());
+            copy.put(value.duplicate()).flip();
 
-        MXFInputStream kis = new MXFInputStream(triplet.getValueAsStream());
+            synchronized (CACHE) {
+                CACHE.put(new PrimerValue(copy), reg);
+            }
+        }
+
+        return reg;
+    }
+
+    private static LocalTagRegister parseLocalTagRegister(ByteBuffer value) throws KLVException {
+
+        SharedLocalTagRegister reg = new SharedLocalTagRegister();
 
         try {
 
-            long itemcount = kis.readUnsignedInt();
+            long itemcount = value.getInt() & 0xFFFFFFFFL;
 
-            long itemlength = kis.readUnsignedInt();
+            long itemlength = value.getInt() & 0xFFFFFFFFL;
 
             for (int i = 0; i < itemcount; i++) {
 
-                reg.put((long) kis.readUnsignedShort(), kis.readUL());
+                long localtag = value.getShort() & 0xFFFF;
+
+                reg.add(localtag, new UL(value.getLong(), value.getLong()));
             }
 
-        } catch (IOException e) {
+        } catch (BufferUnderflowException e) {
             throw new KLVException(e);
         }
 
-        return new LocalTagRegister(reg);
+        reg.seal();
+
+        return reg;
     }
 
     /**
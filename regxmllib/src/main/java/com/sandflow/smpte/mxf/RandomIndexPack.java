@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Represents a MXF Random Index Pack (see SMPTE ST 377-1)
+ */
+public class RandomIndexPack {
+
+    private static final UL KEY = new UL(new byte[]{0x06, 0x0e, 0x2b, 0x34, 0x02, 0x05, 0x01, 0x01, 0x0d, 0x01, 0x02, 0x01, 0x01, 0x11, 0x01, 0x00});
+
+    /**
+     * Returns the Random Index Pack Key
+     * @return Key
+     */
+    public static UL getKey() {
+        return KEY;
+    }
+
+    /**
+     * Creates a Random Index Pack from a Triplet
+     * @param triplet Triplet from which to create the Random Index Pack
+     * @return RandomIndexPack or null if the Triplet is not a Random Index Pack
+     * @throws KLVException 
+     */
+    public static RandomIndexPack fromTriplet(Triplet triplet) throws KLVException {
+
+        if (!KEY.equalsIgnoreVersion(triplet.getKey())) {
+            return null;
+        }
+
+        RandomIndexPack rip = new RandomIndexPack();
+
+        ByteBuffer value = triplet.getValueAsBuffer();
+
+        try {
+
+            /* the last 4 bytes contain the overall length of the pack */
+            while (value.remaining() > 4) {
+
+                long bodysid = value.getInt() & 0xFFFFFFFFL;
+
+                long byteoffset = value.getLong();
+
+                rip.entries.add(new Entry(bodysid, byteoffset));
+            }
+
+            rip.length = value.getInt() & 0xFFFFFFFFL;
+
+        } catch (BufferUnderflowException e) {
+            throw new KLVException(e);
+        }
+
+        return rip;
+    }
+
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private long length;
+
+    /**
+     * Returns the partitions listed in the Random Index Pack, in the order in
+     * which they appear in the file
+     * @return Partition entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the overall length of the Random Index Pack, including its Key and Length
+     * @return Length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Partition entry of the Random Index Pack
+     */
+    public static class Entry {
+
+        private final long bodySID;
+        private final long byteOffset;
+
+        public Entry(long bodySID, long byteOffset) {
+            this.bodySID = bodySID;
+            this.byteOffset = byteOffset;
+        }
+
+        public long getBodySID() {
+            return bodySID;
+        }
+
+        /**
+         * Returns the offset of the Partition Pack relative to the start
+         * of the header partition
+         * @return Offset in bytes
+         */
+        public long getByteOffset() {
+            return byteOffset;
+        }
+    }
+}
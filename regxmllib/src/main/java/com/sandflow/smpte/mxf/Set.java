@@ -26,9 +26,13 @@
 package com.sandflow.smpte.mxf;
 
 import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
 import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.UUID;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -40,7 +44,7 @@ public class Set implements Group{
     /**
      * Creates an MXF Set from a Group
      * @param group Group from which to create the MXF Set
-     * @return MXF Set or null if the Group does not contain an Instance ID property
+     * @return MXF Set or null if the Group does not contain a valid Instance ID property
      */
     static public Set fromGroup(Group group) {
         
@@ -48,9 +52,9 @@ public class Set implements Group{
 
             if (INSTANCE_UID_ITEM_UL.equalsIgnoreVersion(t.getKey())) {
 
-                UUID uuid = new UUID(t.getValue());
+                UUID instanceID = readInstanceID(t.getValueAsBuffer());
 
-                return new Set(group, uuid);
+                return instanceID == null ? null : new Set(group, instanceID);
             }
 
         }
@@ -58,6 +62,66 @@ public class Set implements Group{
         return null;
     }
 
+    /**
+     * Creates an MXF Set from a Local Set, reading only its Instance ID. The
+     * remaining items are decoded when first accessed.
+     * @param localset Triplet containing a Group encoded as a Local Set
+     * @param reg LocalTagRegister used to map Local Tags to Keys
+     * @return MXF Set or null if the Triplet is not a Local Set or does not contain an Instance ID property
+     * @throws KLVException
+     */
+    static public Set fromLocalSet(Triplet localset, LocalTagRegister reg) throws KLVException {
+
+        UUID instanceID = getInstanceID(localset, reg);
+
+        if (instanceID == null) {
+            return null;
+        }
+
+        return new Set(LocalSet.fromTripletLazily(localset, reg), instanceID);
+    }
+
+    /**
+     * Reads the Instance ID of a Local Set without decoding its other items
+     * @param localset Triplet containing a Group encoded as a Local Set
+     * @param reg LocalTagRegister used to map Local Tags to Keys
+     * @return Instance ID or null if the Triplet is not a Local Set or does not contain an Instance ID property
+     * @throws KLVException if the Instance ID property is shorter than 16 bytes
+     */
+    static public UUID getInstanceID(Triplet localset, LocalTagRegister reg) throws KLVException {
+
+        ByteBuffer value = LocalSet.getItemValue(localset, reg, INSTANCE_UID_ITEM_UL);
+
+        if (value == null) {
+            return null;
+        }
+
+        UUID instanceID = readInstanceID(value);
+
+        if (instanceID == null) {
+            throw new KLVException("Instance ID shorter than 16 bytes in Local Set " + localset.getKey());
+        }
+
+        return instanceID;
+    }
+
+    /**
+     * Returns null if the value is too short to contain a UUID, rather than
+     * padding it, which would make distinct malformed sets collide
+     */
+    private static UUID readInstanceID(ByteBuffer value) {
+
+        if (value.remaining() < 16) {
+            return null;
+        }
+
+        byte[] uuid = new byte[16];
+
+        value.get(uuid);
+
+        return new UUID(uuid);
+    }
+
     private final UUID instanceID;
     private final Group group;
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Writes a RegXML Fragment as children of a DOM node. Namespace prefixes are
+ * assigned in the order in which namespaces are first used, and are declared
+ * on the root element of the fragment by declareNamespaces().
+ */
+class DOMFragmentWriter implements FragmentWriter {
+
+    private final static String XMLNS_NS = "http://www.w3.org/2000/xmlns/";
+
+    private final Document document;
+    private final Node root;
+    private Node current;
+    private final Map<String, String> nsprefixes = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a DOMFragmentWriter
+     *
+     * @param root Node to which the RegXML Fragment is appended
+     */
+    DOMFragmentWriter(Node root) {
+        this.root = root;
+        this.current = root;
+        this.document = root.getNodeType() == Node.DOCUMENT_NODE ? (Document) root : root.getOwnerDocument();
+    }
+
+    private String getPrefix(String ns) {
+        String prefix = this.nsprefixes.get(ns);
+
+        /* if prefix does not exist, create one */
+        if (prefix == null) {
+            prefix = "r" + this.nsprefixes.size();
+
+            this.nsprefixes.put(ns, prefix);
+        }
+
+        return prefix;
+    }
+
+    @Override
+    public void startElement(String namespace, String localname) {
+
+        Element elem = document.createElementNS(namespace, localname);
+
+        elem.setPrefix(getPrefix(namespace));
+
+        current.appendChild(elem);
+
+        current = elem;
+    }
+
+    @Override
+    public void declareNamespace(String namespace) {
+        /* all namespaces are declared on the root element by declareNamespaces() */
+    }
+
+    @Override
+    public void attribute(String namespace, String localname, String value) {
+
+        Attr attr = document.createAttributeNS(namespace, localname);
+
+        attr.setPrefix(getPrefix(namespace));
+        attr.setTextContent(value);
+
+        ((Element) current).setAttributeNodeNS(attr);
+    }
+
+    @Override
+    public void characters(String text) {
+
+        if (!text.isEmpty()) {
+            current.appendChild(document.createTextNode(text));
+        }
+    }
+
+    @Override
+    public void comment(String text) {
+        current.appendChild(document.createComment(text));
+    }
+
+    @Override
+    public void endElement() {
+        current = current.getParentNode();
+    }
+
+    /**
+     * Declares all namespaces used by the fragment on its root element
+     */
+    void declareNamespaces() {
+
+        Node first = root.getFirstChild();
+
+        if (!(first instanceof Element)) {
+            return;
+        }
+
+        for (Map.Entry<String, String> entry : nsprefixes.entrySet()) {
+            ((Element) first).setAttributeNS(XMLNS_NS, "xmlns:" + entry.getValue(), entry.getKey());
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.util.AUID;
+
+/**
+ * Everything FragmentBuilder needs to know to decode a property, resolved
+ * once from the MetaDictionary definitions.
+ */
+final class DecodePlan {
+
+    /**
+     * Strategy used to decode the value of the property
+     */
+    enum Decoder {
+
+        /**
+         * ByteOrder property, decoded to BigEndian or LittleEndian
+         */
+        BYTE_ORDER,
+        
+        /**
+         * PrimaryPackage property, decoded to the unique identifier of the
+         * target package
+         */
+        PRIMARY_PACKAGE,
+        
+        /**
+         * Decoded according to its type, using Rule 5
+         */
+        TYPE
+    }
+
+    private final Definition definition;
+    private final String namespace;
+    private final String symbol;
+    private final byte version;
+    private final boolean uniqueIdentifier;
+    private final Decoder decoder;
+    private final Definition type;
+    private final AUID typeID;
+    private final boolean referencesObjects;
+
+    /**
+     * Creates a plan for an item that is not a property, or that is not
+     * defined at all if definition is null.
+     */
+    DecodePlan(Definition definition) {
+        this.definition = definition;
+        this.namespace = null;
+        this.symbol = null;
+        this.version = 0;
+        this.uniqueIdentifier = false;
+        this.decoder = null;
+        this.type = null;
+        this.typeID = null;
+        this.referencesObjects = false;
+    }
+
+    /**
+     * Creates a plan for a property.
+     *
+     * @param definition Definition of the property, possibly an alias
+     * @param decoder Decoding strategy
+     * @param type Base (non-rename) type of the property, or null if it
+     * cannot be resolved
+     * @param typeID Identification of the type of the property
+     * @param referencesObjects true if the value of the property can contain
+     * Strong References
+     */
+    DecodePlan(PropertyDefinition definition, Decoder decoder, Definition type, AUID typeID, boolean referencesObjects) {
+        this.definition = definition;
+        this.namespace = definition.getNamespace().toString();
+        this.symbol = definition.getSymbol();
+        this.version = definition.getIdentification().isUL() ? definition.getIdentification().asUL().getVersion() : 0;
+        this.uniqueIdentifier = definition.isUniqueIdentifier();
+        this.decoder = decoder;
+        this.type = type;
+        this.typeID = typeID;
+        this.referencesObjects = referencesObjects;
+    }
+
+    /**
+     * @return Definition of the item, or null if the item is not defined
+     */
+    public Definition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * @return true if the item is a property and can be decoded
+     */
+    public boolean isProperty() {
+        return decoder != null;
+    }
+
+    /**
+     * @return Namespace of the element corresponding to the property
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return Local name of the element corresponding to the property
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return Version byte of the property UL, as registered
+     */
+    public byte getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the property is the unique identifier of its class
+     */
+    public boolean isUniqueIdentifier() {
+        return uniqueIdentifier;
+    }
+
+    public Decoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * @return Base type of the property, or null if it could not be resolved
+     */
+    public Definition getType() {
+        return type;
+    }
+
+    public AUID getTypeID() {
+        return typeID;
+    }
+
+    /**
+     * @return true if the value of the property can contain Strong
+     * References, and therefore other objects
+     */
+    public boolean referencesObjects() {
+        return referencesObjects;
+    }
+
+}
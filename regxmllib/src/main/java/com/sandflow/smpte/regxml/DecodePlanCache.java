@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.dict.DefinitionResolver;
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.FixedArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.SetTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StrongReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.VariableArrayTypeDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles and caches DecodePlan instances, keyed by the UL of the item as it
+ * appears in the file. A single cache is shared by all users of a given
+ * DefinitionResolver. The plans are dropped when definitions are added to a
+ * MetaDictionary or MetaDictionaryCollection resolver.
+ */
+final class DecodePlanCache {
+
+    private static final UL UUID_UL = UL.fromDotValue("06.0E.2B.34.01.04.01.01.01.03.03.00.00.00.00.00");
+    private static final UL ByteOrder_UL = UL.fromDotValue("06.0E.2B.34.01.01.01.01.03.01.02.01.02.00.00.00");
+    private static final UL PrimaryPackage_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010104.06010104.01080000");
+    private static final UL LinkedGenerationID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.08000000");
+    private static final UL GenerationID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.01000000");
+    private static final UL ApplicationProductID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.07000000");
+
+    private static final Map<DefinitionResolver, DecodePlanCache> caches = new WeakHashMap<>();
+
+    /**
+     * Returns the cache associated with a DefinitionResolver, creating it if
+     * necessary.
+     *
+     * @param defresolver Resolver from which the plans are compiled
+     * @return Cache associated with defresolver
+     */
+    static synchronized DecodePlanCache forResolver(DefinitionResolver defresolver) {
+
+        DecodePlanCache cache = caches.get(defresolver);
+
+        if (cache == null) {
+            cache = new DecodePlanCache(defresolver);
+            caches.put(defresolver, cache);
+        }
+
+        return cache;
+    }
+
+    /* the cache is itself referenced by caches, which must not prevent the
+       resolver from being collected */
+    private final WeakReference<DefinitionResolver> defresolver;
+    private final ConcurrentHashMap<UL, DecodePlan> plansByKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AUID, DecodePlan> plansByID = new ConcurrentHashMap<>();
+
+    /* revision of the resolver from which the plans were compiled */
+    private volatile int revision;
+
+    private DecodePlanCache(DefinitionResolver defresolver) {
+        this.defresolver = new WeakReference<>(defresolver);
+        this.revision = getRevision(defresolver);
+    }
+
+    private static int getRevision(DefinitionResolver defresolver) {
+
+        if (defresolver instanceof MetaDictionaryCollection) {
+            return ((MetaDictionaryCollection) defresolver).getRevision();
+        }
+
+        if (defresolver instanceof MetaDictionary) {
+            return ((MetaDictionary) defresolver).getRevision();
+        }
+
+        /* other resolvers are assumed not to change */
+        return 0;
+    }
+
+    /* drops the plans if definitions were added since they were compiled */
+    private void checkRevision() {
+
+        int current = getRevision(defresolver.get());
+
+        if (current != revision) {
+
+            synchronized (this) {
+
+                if (current != revision) {
+                    plansByKey.clear();
+                    plansByID.clear();
+                    revision = current;
+                }
+
+            }
+        }
+    }
+
+    /**
+     * Returns the plan for an item
+     *
+     * @param key Key of the item
+     * @return Plan for the item, which is never null
+     */
+    DecodePlan get(UL key) {
+
+        checkRevision();
+
+        DecodePlan plan = plansByKey.get(key);
+
+        if (plan == null) {
+
+            plan = compile(defresolver.get().getDefinition(new AUID(key)));
+
+            DecodePlan prev = plansByKey.putIfAbsent(key, plan);
+
+            if (prev != null) {
+                plan = prev;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Returns the plan for a property
+     *
+     * @param definition Definition of the property
+     * @return Plan for the property, which is never null
+     */
+    DecodePlan get(PropertyDefinition definition) {
+
+        checkRevision();
+
+        DecodePlan plan = plansByID.get(definition.getIdentification());
+
+        if (plan == null) {
+
+            plan = compile(definition);
+
+            DecodePlan prev = plansByID.putIfAbsent(definition.getIdentification(), plan);
+
+            if (prev != null) {
+                plan = prev;
+            }
+        }
+
+        return plan;
+    }
+
+    private DecodePlan compile(Definition definition) {
+
+        DefinitionResolver defresolver = this.defresolver.get();
+
+        if (!(definition instanceof PropertyDefinition)) {
+            return new DecodePlan(definition);
+        }
+
+        PropertyDefinition propdef = (PropertyDefinition) definition;
+
+        if (propdef.getIdentification().equals(ByteOrder_UL)) {
+            return new DecodePlan(propdef, DecodePlan.Decoder.BYTE_ORDER, null, null, false);
+        }
+
+        PropertyDefinition origdef = propdef;
+
+        if (origdef instanceof PropertyAliasDefinition) {
+
+            Definition def = defresolver.getDefinition(((PropertyAliasDefinition) origdef).getOriginalProperty());
+
+            if (!(def instanceof PropertyDefinition)) {
+                return new DecodePlan(propdef, DecodePlan.Decoder.TYPE, null, ((PropertyAliasDefinition) origdef).getOriginalProperty(), false);
+            }
+
+            origdef = (PropertyDefinition) def;
+        }
+
+        Definition typedef = findBaseDefinition(defresolver, defresolver.getDefinition(origdef.getType()));
+
+        if (typedef != null && origdef.getIdentification().equals(PrimaryPackage_UL)) {
+            return new DecodePlan(propdef, DecodePlan.Decoder.PRIMARY_PACKAGE, typedef, origdef.getType(), false);
+        }
+
+        if (typedef != null
+                && (origdef.getIdentification().equals(LinkedGenerationID_UL)
+                || origdef.getIdentification().equals(GenerationID_UL)
+                || origdef.getIdentification().equals(ApplicationProductID_UL))) {
+
+            /* EXCEPTION: LinkedGenerationID, GenerationID and ApplicationProductID
+             are encoded using UUID */
+            typedef = defresolver.getDefinition(new AUID(UUID_UL));
+        }
+
+        return new DecodePlan(propdef, DecodePlan.Decoder.TYPE, typedef, origdef.getType(),
+                referencesObjects(defresolver, typedef, new HashSet<Definition>()));
+    }
+
+    /**
+     * Determines whether a value of the specified type can contain Strong
+     * References. Indirect values are assumed to possibly contain them.
+     */
+    private static boolean referencesObjects(DefinitionResolver defresolver, Definition definition, java.util.Set<Definition> visited) {
+
+        definition = findBaseDefinition(defresolver, definition);
+
+        if (definition == null || !visited.add(definition)) {
+            return false;
+        }
+
+        if (definition instanceof StrongReferenceTypeDefinition || definition instanceof IndirectTypeDefinition) {
+
+            return true;
+
+        } else if (definition instanceof FixedArrayTypeDefinition) {
+
+            return referencesObjects(defresolver, defresolver.getDefinition(((FixedArrayTypeDefinition) definition).getElementType()), visited);
+
+        } else if (definition instanceof VariableArrayTypeDefinition) {
+
+            return referencesObjects(defresolver, defresolver.getDefinition(((VariableArrayTypeDefinition) definition).getElementType()), visited);
+
+        } else if (definition instanceof SetTypeDefinition) {
+
+            return referencesObjects(defresolver, defresolver.getDefinition(((SetTypeDefinition) definition).getElementType()), visited);
+
+        } else if (definition instanceof RecordTypeDefinition) {
+
+            for (RecordTypeDefinition.Member member : ((RecordTypeDefinition) definition).getMembers()) {
+                if (referencesObjects(defresolver, defresolver.getDefinition(member.getType()), visited)) {
+                    return true;
+                }
+            }
+
+        }
+
+        return false;
+    }
+
+    private static Definition findBaseDefinition(DefinitionResolver defresolver, Definition definition) {
+
+        while (definition instanceof RenameTypeDefinition) {
+            definition = defresolver.getDefinition(((RenameTypeDefinition) definition).getRenamedType());
+        }
+
+        return definition;
+    }
+
+}
@@ -31,6 +31,7 @@ import com.sandflow.smpte.klv.Triplet;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.mxf.MXFInputStream;
 import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.regxml.dict.ClassIndex;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
 import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
@@ -43,7 +44,6 @@ import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.LensSerialFloatTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
-import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
@@ -59,28 +59,28 @@ import com.sandflow.smpte.util.IDAU;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.UMID;
 import com.sandflow.smpte.util.UUID;
-import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.logging.Logger;
 import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Attr;
-import org.w3c.dom.Comment;
+import javax.xml.stream.XMLStreamWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 /**
  * Builds a RegXML Fragment of a single KLV Group, typically a Header Metadata
@@ -99,18 +99,12 @@ public class FragmentBuilder {
     private static final UL TimeStruct_UL = UL.fromDotValue("06.0E.2B.34.01.04.01.01.03.01.06.00.00.00.00.00");
     private static final UL TimeStamp_UL = UL.fromDotValue("06.0E.2B.34.01.04.01.01.03.01.07.00.00.00.00.00");
     private static final UL VersionType_UL = UL.fromDotValue("06.0E.2B.34.01.04.01.01.03.01.03.00.00.00.00.00");
-    private static final UL ByteOrder_UL = UL.fromDotValue("06.0E.2B.34.01.01.01.01.03.01.02.01.02.00.00.00");
     private static final UL Character_UL = UL.fromURN("urn:smpte:ul:060e2b34.01040101.01100100.00000000");
     private static final UL Char_UL = UL.fromURN("urn:smpte:ul:060e2b34.01040101.01100300.00000000");
     private static final UL ProductReleaseType_UL = UL.fromURN("urn:smpte:ul:060e2b34.01040101.02010101.00000000");
     private static final UL Boolean_UL = UL.fromURN("urn:smpte:ul:060e2b34.01040101.01040100.00000000");
-    private static final UL PrimaryPackage_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010104.06010104.01080000");
-    private static final UL LinkedGenerationID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.08000000");
-    private static final UL GenerationID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.01000000");
-    private static final UL ApplicationProductID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.07000000");
 
     private static final String REGXML_NS = "http://sandflow.com/ns/SMPTEST2001-1/baseline";
-    private final static String XMLNS_NS = "http://www.w3.org/2000/xmlns/";
 
     private static final String BYTEORDER_BE = "BigEndian";
     private static final String BYTEORDER_LE = "LittleEndian";
@@ -119,7 +113,26 @@ public class FragmentBuilder {
 
     private final DefinitionResolver defresolver;
     private final Map<UUID, Set> setresolver;
-    private final HashMap<URI, String> nsprefixes = new HashMap<>();
+    private final DecodePlanCache plans;
+    private final ClassIndex classes;
+
+    /* holds the value of an enumeration while it is being decoded */
+    private final byte[] enumbuffer = new byte[8];
+
+    /* reused when decoding characters and strings; the decoders replace
+       malformed input, as does InputStreamReader */
+    private final CharsetDecoder utf16decoder = Charset.forName("UTF-16BE").newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharsetDecoder asciidecoder = Charset.forName("US-ASCII").newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer charbytes = ByteBuffer.allocate(256);
+    private final CharBuffer charchars = CharBuffer.allocate(256);
+    private final StringBuilder text = new StringBuilder();
+
+    /* instance IDs of the objects that contain the object being written */
+    private final HashSet<UUID> ancestors = new HashSet<>();
     
     /**
      * Instantiates a FragmentBuilder
@@ -130,6 +143,8 @@ public class FragmentBuilder {
     public FragmentBuilder(DefinitionResolver defresolver, Map<UUID, Set> setresolver) {
         this.defresolver = defresolver;
         this.setresolver = setresolver;
+        this.plans = DecodePlanCache.forResolver(defresolver);
+        this.classes = ClassIndex.forResolver(defresolver);
     }
 
     /**
@@ -147,39 +162,148 @@ public class FragmentBuilder {
 
         DocumentFragment df = document.createDocumentFragment();
 
-        applyRule3(df, group);
+        DOMFragmentWriter out = new DOMFragmentWriter(df);
+
+        try {
+
+            applyRule3(out, group);
+
+        } finally {
+
+            /* objects left open by an error are not ancestors of the next fragment */
+            ancestors.clear();
 
-        /* NOTE: Hack to clean-up namespace prefixes */
-        for (Map.Entry<URI, String> entry : nsprefixes.entrySet()) {
-            ((Element) df.getFirstChild()).setAttributeNS(XMLNS_NS, "xmlns:" + entry.getValue(), entry.getKey().toString());
         }
 
+        out.declareNamespaces();
+
         return df;
     }
-    
-    private String getPrefix(URI ns) {
-        String prefix = this.nsprefixes.get(ns);
 
-        /* if prefix does not exist, create one */
-        if (prefix == null) {
-            prefix = "r" + this.nsprefixes.size();
+    /**
+     * Writes a RegXML Fragment to an XMLStreamWriter as it is generated,
+     * without building it in memory. The writer is neither started nor ended,
+     * such that the RegXML Fragment can be embedded in a larger document.
+     *
+     * @param group KLV Group for which the Fragment will be generated.
+     * @param writer Writer to which the RegXML Fragment will be written.
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public void fromTriplet(Group group, XMLStreamWriter writer) throws KLVException, RuleException {
+
+        try {
+
+            applyRule3(new XMLStreamFragmentWriter(writer), group);
+
+        } finally {
+
+            /* objects left open by an error are not ancestors of the next fragment */
+            ancestors.clear();
 
-            this.nsprefixes.put(ns, prefix);
         }
 
-        return prefix;
     }
 
-    private String getPrefix(String ns) {
+    /**
+     * Returns the text content of the element that would be generated for a property
+     */
+    private String getTextContent(Triplet item, DecodePlan plan) throws RuleException {
+
+        TextCollector tc = new TextCollector();
+
+        applyRule4(tc, valueStream(item), plan);
+
+        return tc.toString();
+    }
+
+    /**
+     * Object whose element is being written
+     */
+    private static class ObjectFrame {
+
+        final Definition definition;
+        final ArrayList<Triplet> items;
+        final DecodePlan[] itemplans;
+        final UUID iid;
+        final boolean cyclic;
+
+        /* index of the next property to be written */
+        int next = 0;
+
+        /* value of the property being written, if it references other objects */
+        ObjectRecorder value;
+
+        ObjectFrame(Definition definition, ArrayList<Triplet> items, DecodePlan[] itemplans, UUID iid, boolean cyclic) {
+            this.definition = definition;
+            this.items = items;
+            this.itemplans = itemplans;
+            this.iid = iid;
+            this.cyclic = cyclic;
+        }
+    }
+
+    /* writes the object elements iteratively, such that deeply nested
+       Strong References do not exhaust the call stack */
+    void applyRule3(FragmentWriter out, Group group) throws RuleException {
+
+        ArrayDeque<ObjectFrame> stack = new ArrayDeque<>();
+
+        ObjectFrame frame = startObject(out, group);
+
+        if (frame != null) {
+            stack.push(frame);
+        }
+
+        while (!stack.isEmpty()) {
+
+            frame = stack.peek();
+
+            if (frame.value != null) {
+
+                /* write the property value up to the next referenced object */
+                UUID ref = frame.value.replay(out);
+
+                if (ref != null) {
+
+                    Group child = resolveStrongReference(out, ref, frame.value.getReferenceSymbol());
+
+                    ObjectFrame childframe = child == null ? null : startObject(out, child);
+
+                    if (childframe != null) {
+                        stack.push(childframe);
+                    }
+
+                } else {
+
+                    frame.value = null;
+
+                    out.endElement();
+                }
+
+            } else if (frame.next < frame.items.size()) {
+
+                if (!applyRule3Property(out, frame)) {
+                    stack.pop();
+                }
+
+            } else {
+
+                out.endElement();
+
+                if (!frame.cyclic && frame.iid != null) {
+                    ancestors.remove(frame.iid);
+                }
+
+                stack.pop();
+            }
 
-        try {
-            return getPrefix(new URI(ns));
-        } catch (URISyntaxException ex) {
-            throw new RuntimeException(ex);
         }
+
     }
 
-    void applyRule3(Node node, Group group) throws RuleException {
+    /* starts the element of an object, returning null if the object is not defined */
+    private ObjectFrame startObject(FragmentWriter out, Group group) throws RuleException {
 
         Definition definition = defresolver.getDefinition(new AUID(group.getKey()));
 
@@ -191,7 +315,7 @@ public class FragmentBuilder {
                     )
             );
 
-            return;
+            return null;
         }
 
         if (definition.getIdentification().asUL().getVersion() != group.getKey().getVersion()) {
@@ -204,198 +328,207 @@ public class FragmentBuilder {
             );
         }
 
-        Element objelem = node.getOwnerDocument().createElementNS(definition.getNamespace().toString(), definition.getSymbol());
+        /* resolve item definitions, and the values of the instance ID and 
+           unique ID properties, before the object element is started since
+           the unique ID is written as an attribute */
+        ArrayList<Triplet> items = new ArrayList<>(group.getItems());
+        DecodePlan[] itemplans = new DecodePlan[items.size()];
 
-        node.appendChild(objelem);
+        UUID iid = null;
+        String uid = null;
 
-        objelem.setPrefix(getPrefix(definition.getNamespace()));
+        for (int i = 0; i < itemplans.length; i++) {
 
-        for (Triplet item : group.getItems()) {
+            Triplet item = items.get(i);
 
-            /* skip if the property is not defined in the registers */
-            Definition itemdef = defresolver.getDefinition(new AUID(item.getKey()));
+            itemplans[i] = plans.get(item.getKey());
+
+            if (!itemplans[i].isProperty()) {
+                continue;
+            }
 
-            if (itemdef == null) {
+            /* a malformed Instance UID, shorter than 16 bytes, is not used for cycle detection */
+            if (item.getKey().equals(INSTANCE_UID_ITEM_UL) && item.getLength() >= 16) {
+                try {
+                    iid = valueStream(item).readUUID();
+                } catch (IOException e) {
+                    throw new RuleException(e);
+                }
+            }
 
-                LOG.info(
-                        String.format(
-                                "Unknown property UL = %s at group %s",
-                                item.getKey().toString(),
-                                definition.getSymbol()
-                        )
-                );
+            if (itemplans[i].isUniqueIdentifier()) {
+                uid = getTextContent(item, itemplans[i]);
+            }
+        }
 
-                objelem.appendChild(
-                        objelem.getOwnerDocument().createComment(
-                                String.format(
-                                        "Unknown property\nKey: %s\nData: %s",
-                                        item.getKey().toString(),
-                                        bytesToString(item.getValue())
-                                )
-                        )
-                );
+        /* detect cyclic references by looking for an identical instance ID
+           among the objects that contain this one */
+        boolean cyclic = iid != null && ancestors.contains(iid);
 
-                continue;
+        out.startElement(definition.getNamespace().toString(), definition.getSymbol());
 
+        for (DecodePlan itemplan : itemplans) {
+            if (itemplan.isProperty()) {
+                out.declareNamespace(itemplan.getNamespace());
             }
+        }
 
-            /* make sure this is a property definition */
-            if (!(itemdef instanceof PropertyDefinition)) {
+        /* add reg:uid if the object has a unique ID */
+        if (uid != null && !cyclic) {
+            out.attribute(REGXML_NS, UID_ATTR, uid);
+        }
 
-                LOG.warning(
-                        String.format(
-                                "Item UL = %s at group %s is not a property",
-                                item.getKey().toString(),
-                                definition.getSymbol()
-                        )
-                );
+        if (!cyclic && iid != null) {
+            ancestors.add(iid);
+        }
 
-                objelem.appendChild(
-                        objelem.getOwnerDocument().createComment(
-                                String.format(
-                                        "Item UL = %s is not a property",
-                                        item.getKey().toString()
-                                )
-                        )
-                );
+        return new ObjectFrame(definition, items, itemplans, iid, cyclic);
+    }
 
-                continue;
-            }
+    /* writes the next property of an object, returning false if the object
+       element was ended early because of a cyclic reference */
+    private boolean applyRule3Property(FragmentWriter out, ObjectFrame frame) throws RuleException {
 
-            /* warn if version byte of the property does not match the register version byte  */
-            if (itemdef.getIdentification().asUL().getVersion() != item.getKey().getVersion()) {
-                LOG.warning(
-                        String.format(
-                                "Property UL %s in file does not have the same version as in the register (0x%02x)",
-                                item.getKey().toString(),
-                                itemdef.getIdentification().asUL().getVersion()
-                        )
-                );
-            }
+        Triplet item = frame.items.get(frame.next);
 
-            Element elem = node.getOwnerDocument().createElementNS(itemdef.getNamespace().toString(), itemdef.getSymbol());
+        DecodePlan itemplan = frame.itemplans[frame.next];
 
-            objelem.appendChild(elem);
+        frame.next++;
 
-            elem.setPrefix(getPrefix(itemdef.getNamespace()));
-            
-            
-            /* write the property */
+        /* skip if the property is not defined in the registers */
+        if (itemplan.getDefinition() == null) {
 
-            applyRule4(elem, new MXFInputStream(item.getValueAsStream()), itemdef);
+            LOG.info(
+                    String.format(
+                            "Unknown property UL = %s at group %s",
+                            item.getKey().toString(),
+                            frame.definition.getSymbol()
+                    )
+            );
 
-            /* detect cyclic references  */
-            if (item.getKey().equals(INSTANCE_UID_ITEM_UL)) {
+            out.comment(
+                    String.format(
+                            "Unknown property\nKey: %s\nData: %s",
+                            item.getKey().toString(),
+                            bytesToString(item.getValue())
+                    )
+            );
 
-                String iidns = objelem.getLastChild().getNamespaceURI();
-                String iidname = objelem.getLastChild().getLocalName();
-                String iid = objelem.getLastChild().getTextContent();
+            return true;
 
-                /* look for identical instanceID in parent elements */
-                Node parent = node;
+        }
 
-                while (parent.getNodeType() == Node.ELEMENT_NODE) {
+        /* make sure this is a property definition */
+        if (!itemplan.isProperty()) {
 
-                    for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            LOG.warning(
+                    String.format(
+                            "Item UL = %s at group %s is not a property",
+                            item.getKey().toString(),
+                            frame.definition.getSymbol()
+                    )
+            );
 
-                        if (n.getNodeType() == Node.ELEMENT_NODE
-                                && iidname.equals(n.getLocalName())
-                                && iidns.equals(n.getNamespaceURI())
-                                && iid.equals(n.getTextContent())) {
+            out.comment(
+                    String.format(
+                            "Item UL = %s is not a property",
+                            item.getKey().toString()
+                    )
+            );
 
-                            LOG.warning(
-                                    String.format(
-                                            "Self-referencing Strong Reference at Group %s with UID %s",
-                                            definition.getSymbol(),
-                                            iid
-                                    )
-                            );
+            return true;
+        }
 
-                            Comment comment = node.getOwnerDocument().createComment(
-                                    String.format(
-                                            "Strong Reference %s not found",
-                                            iid
-                                    )
-                            );
+        /* warn if version byte of the property does not match the register version byte  */
+        if (itemplan.getVersion() != item.getKey().getVersion()) {
+            LOG.warning(
+                    String.format(
+                            "Property UL %s in file does not have the same version as in the register (0x%02x)",
+                            item.getKey().toString(),
+                            itemplan.getVersion()
+                    )
+            );
+        }
 
-                            node.appendChild(comment);
+        out.startElement(itemplan.getNamespace(), itemplan.getSymbol());
 
-                            return;
-                        }
-                    }
+        /* the objects referenced by the property are written by applyRule3
+           as the recorded value is replayed, and the property element is
+           ended once the replay is complete */
+        if (itemplan.referencesObjects()) {
 
-                    parent = parent.getParentNode();
-                }
+            frame.value = new ObjectRecorder();
 
-            }
+            applyRule4(frame.value, valueStream(item), itemplan);
 
-            /* add reg:uid if property is a unique ID */
-            if (((PropertyDefinition) itemdef).isUniqueIdentifier()) {
+            return true;
+        }
 
-                Attr attr = node.getOwnerDocument().createAttributeNS(REGXML_NS, UID_ATTR);
+        /* write the property */
+        applyRule4(out, valueStream(item), itemplan);
 
-                attr.setPrefix(getPrefix(REGXML_NS));
-                attr.setTextContent(objelem.getLastChild().getTextContent());
+        out.endElement();
 
-                objelem.setAttributeNodeNS(attr);
-            }
+        /* stop at cyclic references  */
+        if (frame.cyclic && item.getKey().equals(INSTANCE_UID_ITEM_UL)) {
 
+            LOG.warning(
+                    String.format(
+                            "Self-referencing Strong Reference at Group %s with UID %s",
+                            frame.definition.getSymbol(),
+                            frame.iid
+                    )
+            );
+
+            out.endElement();
+
+            out.comment(
+                    String.format(
+                            "Strong Reference %s not found",
+                            frame.iid
+                    )
+            );
+
+            return false;
         }
 
+        return true;
     }
 
-    void applyRule4(Element element, MXFInputStream value, Definition propdef) throws RuleException {
+    void applyRule4(FragmentWriter out, MXFInputStream value, DecodePlan plan) throws RuleException {
 
         try {
 
-            if (propdef.getIdentification().equals(ByteOrder_UL)) {
+            switch (plan.getDecoder()) {
 
-                int byteorder;
+                case BYTE_ORDER:
 
-                byteorder = value.readUnsignedShort();
+                    int byteorder = value.readUnsignedShort();
 
-                /* ISSUE: ST 2001-1 inverses these constants */
-                if (byteorder == 0x4D4D) {
-                    
-                    element.setTextContent(BYTEORDER_BE);
-                    
-                } else if (byteorder == 0x4949) {
-                                        
-                    element.setTextContent(BYTEORDER_LE);
-                    
-                        LOG.warning("ByteOrder property set to little-endian: either the property is set incorrectly"
-                                                + "or the file does not conform to MXF. Processing assumes a big-endian byte order.");
-                        
-                        element.appendChild(
-                                element.getOwnerDocument().createComment(
-                                        String.format("ByteOrder property set to little-endian: either the property is set incorrectly"
-                                                + "or the file does not conform to MXF. Processing assumes a big-endian byte order.")
-                                )
-                        );
-                    
-                } else {
-                    throw new RuleException("Unknown ByteOrder value.");
-                }
+                    /* ISSUE: ST 2001-1 inverses these constants */
+                    if (byteorder == 0x4D4D) {
 
-            } else {
+                        out.characters(BYTEORDER_BE);
 
-                if (propdef instanceof PropertyAliasDefinition) {
-                    propdef = defresolver.getDefinition(((PropertyAliasDefinition) propdef).getOriginalProperty());
-                }
+                    } else if (byteorder == 0x4949) {
 
-                Definition typedef = findBaseDefinition(defresolver.getDefinition(((PropertyDefinition) propdef).getType()));
+                        out.characters(BYTEORDER_LE);
 
-                if (typedef == null) {
-                    throw new RuleException(
-                            String.format(
-                                    "Type %s not found at %s.",
-                                    ((PropertyDefinition) propdef).getType().toString(),
-                                    propdef.getSymbol()
-                            )
-                    );
-                }
+                        LOG.warning("ByteOrder property set to little-endian: either the property is set incorrectly"
+                                + "or the file does not conform to MXF. Processing assumes a big-endian byte order.");
 
-                if (propdef.getIdentification().equals(PrimaryPackage_UL)) {
+                        out.comment(
+                                String.format("ByteOrder property set to little-endian: either the property is set incorrectly"
+                                        + "or the file does not conform to MXF. Processing assumes a big-endian byte order.")
+                        );
+
+                    } else {
+                        throw new RuleException("Unknown ByteOrder value.");
+                    }
+
+                    break;
+
+                case PRIMARY_PACKAGE:
 
                     /* EXCEPTION: PrimaryPackage is encoded as the Instance UUID of the target set
                      but needs to be the UMID contained in the unique ID of the target set */
@@ -411,13 +544,11 @@ public class FragmentBuilder {
                         /* find the unique identifier in the group */
                         for (Triplet item : g.getItems()) {
 
-                            Definition itemdef = defresolver.getDefinition(new AUID(item.getKey()));
+                            DecodePlan itemplan = plans.get(item.getKey());
 
-                            if (itemdef != null
-                                    && itemdef instanceof PropertyDefinition
-                                    && ((PropertyDefinition) itemdef).isUniqueIdentifier()) {
+                            if (itemplan.isProperty() && itemplan.isUniqueIdentifier()) {
 
-                                applyRule4(element, new MXFInputStream(item.getValueAsStream()), itemdef);
+                                applyRule4(out, valueStream(item), itemplan);
 
                                 foundUniqueID = true;
 
@@ -436,12 +567,10 @@ public class FragmentBuilder {
                                     )
                             );
 
-                            element.appendChild(
-                                    element.getOwnerDocument().createComment(
-                                            String.format(
-                                                    "Target Primary Package with Instance UID %s has no IsUnique element.",
-                                                    uuid.toString()
-                                            )
+                            out.comment(
+                                    String.format(
+                                            "Target Primary Package with Instance UID %s has no IsUnique element.",
+                                            uuid.toString()
                                     )
                             );
 
@@ -456,51 +585,48 @@ public class FragmentBuilder {
                                 )
                         );
 
-                        element.appendChild(
-                                element.getOwnerDocument().createComment(
-                                        String.format(
-                                                "Target Primary Package with Instance UID %s not found.",
-                                                uuid.toString()
-                                        )
+                        out.comment(
+                                String.format(
+                                        "Target Primary Package with Instance UID %s not found.",
+                                        uuid.toString()
                                 )
                         );
 
                     }
 
-                } else {
+                    break;
 
-                    if (propdef.getIdentification().equals(LinkedGenerationID_UL)
-                            || propdef.getIdentification().equals(GenerationID_UL)
-                            || propdef.getIdentification().equals(ApplicationProductID_UL)) {
+                default:
 
-                        /* EXCEPTION: LinkedGenerationID, GenerationID and ApplicationProductID
-                         are encoded using UUID */
-                        typedef = defresolver.getDefinition(new AUID(UUID_UL));
+                    if (plan.getType() == null) {
+                        throw new RuleException(
+                                String.format(
+                                        "Type %s not found at %s.",
+                                        String.valueOf(plan.getTypeID()),
+                                        plan.getSymbol()
+                                )
+                        );
                     }
 
-                    applyRule5(element, value, typedef);
-                }
+                    applyRule5(out, value, plan.getType());
             }
-            
 
         } catch (EOFException eof) {
 
             LOG.warning(
                     String.format(
                             "Value too short for element %s",
-                            propdef.getSymbol()
+                            plan.getSymbol()
                     )
             );
 
-            Comment comment = element.getOwnerDocument().createComment(
+            out.comment(
                     String.format(
                             "Value too short for element %s",
-                            propdef.getSymbol()
+                            plan.getSymbol()
                     )
             );
 
-            element.appendChild(comment);
-
         } catch (IOException ioe) {
 
             throw new RuleException(ioe);
@@ -509,42 +635,42 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5(Element element, MXFInputStream value, Definition definition) throws RuleException, IOException {
+    void applyRule5(FragmentWriter out, MXFInputStream value, Definition definition) throws RuleException, IOException {
 
         if (definition instanceof CharacterTypeDefinition) {
-            applyRule5_1(element, value, (CharacterTypeDefinition) definition);
+            applyRule5_1(out, value, (CharacterTypeDefinition) definition);
         } else if (definition instanceof EnumerationTypeDefinition) {
-            applyRule5_2(element, value, (EnumerationTypeDefinition) definition);
+            applyRule5_2(out, value, (EnumerationTypeDefinition) definition);
         } else if (definition instanceof ExtendibleEnumerationTypeDefinition) {
-            applyRule5_3(element, value, (ExtendibleEnumerationTypeDefinition) definition);
+            applyRule5_3(out, value, (ExtendibleEnumerationTypeDefinition) definition);
         } else if (definition instanceof FixedArrayTypeDefinition) {
-            applyRule5_4(element, value, (FixedArrayTypeDefinition) definition);
+            applyRule5_4(out, value, (FixedArrayTypeDefinition) definition);
         } else if (definition instanceof IndirectTypeDefinition) {
-            applyRule5_5(element, value, (IndirectTypeDefinition) definition);
+            applyRule5_5(out, value, (IndirectTypeDefinition) definition);
         } else if (definition instanceof IntegerTypeDefinition) {
-            applyRule5_6(element, value, (IntegerTypeDefinition) definition);
+            applyRule5_6(out, value, (IntegerTypeDefinition) definition);
         } else if (definition instanceof OpaqueTypeDefinition) {
-            applyRule5_7(element, value, (OpaqueTypeDefinition) definition);
+            applyRule5_7(out, value, (OpaqueTypeDefinition) definition);
         } else if (definition instanceof RecordTypeDefinition) {
-            applyRule5_8(element, value, (RecordTypeDefinition) definition);
+            applyRule5_8(out, value, (RecordTypeDefinition) definition);
         } else if (definition instanceof RenameTypeDefinition) {
-            applyRule5_9(element, value, (RenameTypeDefinition) definition);
+            applyRule5_9(out, value, (RenameTypeDefinition) definition);
         } else if (definition instanceof SetTypeDefinition) {
-            applyRule5_10(element, value, (SetTypeDefinition) definition);
+            applyRule5_10(out, value, (SetTypeDefinition) definition);
         } else if (definition instanceof StreamTypeDefinition) {
-            applyRule5_11(element, value, (StreamTypeDefinition) definition);
+            applyRule5_11(out, value, (StreamTypeDefinition) definition);
         } else if (definition instanceof StringTypeDefinition) {
-            applyRule5_12(element, value, (StringTypeDefinition) definition);
+            applyRule5_12(out, value, (StringTypeDefinition) definition);
         } else if (definition instanceof StrongReferenceTypeDefinition) {
-            applyRule5_13(element, value, (StrongReferenceTypeDefinition) definition);
+            applyRule5_13(out, value, (StrongReferenceTypeDefinition) definition);
         } else if (definition instanceof VariableArrayTypeDefinition) {
-            applyRule5_14(element, value, (VariableArrayTypeDefinition) definition);
+            applyRule5_14(out, value, (VariableArrayTypeDefinition) definition);
         } else if (definition instanceof WeakReferenceTypeDefinition) {
-            applyRule5_15(element, value, (WeakReferenceTypeDefinition) definition);
+            applyRule5_15(out, value, (WeakReferenceTypeDefinition) definition);
         } else if (definition instanceof FloatTypeDefinition) {
-            applyRule5_alpha(element, value, (FloatTypeDefinition) definition);
+            applyRule5_alpha(out, value, (FloatTypeDefinition) definition);
         } else if (definition instanceof LensSerialFloatTypeDefinition) {
-            applyRule5_beta(element, value, (LensSerialFloatTypeDefinition) definition);
+            applyRule5_beta(out, value, (LensSerialFloatTypeDefinition) definition);
         } else {
 
             throw new RuleException(
@@ -560,12 +686,12 @@ public class FragmentBuilder {
 
     private void readCharacters(InputStream value, CharacterTypeDefinition definition, StringBuilder sb) throws RuleException, IOException {
 
-        Reader in = null;
+        CharsetDecoder decoder = null;
 
         if (definition.getIdentification().equals(Character_UL)) {
-            in = new InputStreamReader(value, "UTF-16BE");
+            decoder = utf16decoder;
         } else if (definition.getIdentification().equals(Char_UL)) {
-            in = new InputStreamReader(value, "US-ASCII");
+            decoder = asciidecoder;
         } else {
             throw new RuleException(
                     String.format("Character type %s not supported",
@@ -574,25 +700,74 @@ public class FragmentBuilder {
             );
         }
 
-        char[] chars = new char[32];
+        decoder.reset();
+
+        charbytes.clear();
+
+        for (boolean eof = false; !eof;) {
+
+            int br = value.read(charbytes.array(), charbytes.position(), charbytes.remaining());
+
+            if (br < 0) {
+                eof = true;
+            } else {
+                charbytes.position(charbytes.position() + br);
+            }
+
+            charbytes.flip();
+
+            CoderResult cr;
+
+            do {
+                cr = decoder.decode(charbytes, charchars, eof);
+                charchars.flip();
+                sb.append(charchars);
+                charchars.clear();
+            } while (cr.isOverflow());
+
+            /* keep the bytes of incomplete characters for the next read */
+            charbytes.compact();
+        }
+
+        while (decoder.flush(charchars).isOverflow()) {
+            charchars.flip();
+            sb.append(charchars);
+            charchars.clear();
+        }
+
+        charchars.flip();
+        sb.append(charchars);
+        charchars.clear();
+
+    }
 
-        for (int c; (c = in.read(chars)) != -1;) {
-            sb.append(chars, 0, c);
+    /**
+     * Reads an unsigned big-endian integer of up to 8 bytes
+     */
+    private static long readBigEndian(MXFInputStream value, int len) throws IOException {
+
+        long val = 0;
+
+        for (int i = 0; i < len; i++) {
+            val = (val << 8) | value.readUnsignedByte();
         }
 
+        return val;
     }
 
-    void applyRule5_1(Element element, MXFInputStream value, CharacterTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_1(FragmentWriter out, MXFInputStream value, CharacterTypeDefinition definition) throws RuleException, IOException {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = text;
+
+        sb.setLength(0);
 
         readCharacters(value, definition, sb);
 
-        element.setTextContent(sb.toString());
+        out.characters(sb.toString());
 
     }
 
-    void applyRule5_2(Element element, MXFInputStream value, EnumerationTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_2(FragmentWriter out, MXFInputStream value, EnumerationTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
@@ -632,9 +807,9 @@ public class FragmentBuilder {
                 }
             }
 
-            byte[] val = new byte[len];
+            byte[] val = enumbuffer;
 
-            int br = value.read(val);
+            int br = value.read(val, 0, len);
 
             String str = null;
 
@@ -664,26 +839,30 @@ public class FragmentBuilder {
 
                 }
 
-                /* still try to read the value even if the length is not as expected */
-                BigInteger bi = idef.isSigned() ? new BigInteger(val) : new BigInteger(1, val);
+                /* still try to read the value even if the length is not as
+                   expected, treating missing bytes as zeroes */
+                long lv = 0;
+
+                for (int i = 0; i < len; i++) {
+                    lv = (lv << 8) | (i < br ? val[i] & 0xFF : 0);
+                }
+
+                if (idef.isSigned() && len < 8) {
+                    lv = (lv << (64 - 8 * len)) >> (64 - 8 * len);
+                }
+
+                /* only the lower 32 bits are significant since element values are ints */
+                int iv = (int) lv;
 
                 if (definition.getElementType().equals(Boolean_UL)) {
 
                     /* find the "true" enum element */
                     /* MXF can encode "true" as any value other than 0 */
-                    for (EnumerationTypeDefinition.Element e : definition.getElements()) {
-                        if ((bi.intValue() == 0 && e.getValue() == 0) || (bi.intValue() != 0 && e.getValue() == 1)) {
-                            str = e.getName();
-                        }
-                    }
+                    str = definition.getElementName(iv == 0 ? 0 : 1);
 
                 } else {
 
-                    for (EnumerationTypeDefinition.Element e : definition.getElements()) {
-                        if (e.getValue() == bi.intValue()) {
-                            str = e.getName();
-                        }
-                    }
+                    str = definition.getElementName(iv);
 
                 }
 
@@ -694,7 +873,7 @@ public class FragmentBuilder {
                     LOG.warning(
                             String.format(
                                     "Undefined value %d for Enumeration %s.",
-                                    bi.intValue(),
+                                    iv,
                                     definition.getIdentification()
                             )
                     );
@@ -702,14 +881,14 @@ public class FragmentBuilder {
                 }
             }
 
-            element.setTextContent(str);
+            out.characters(str);
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
     }
 
-    void applyRule5_3(Element element, MXFInputStream value, ExtendibleEnumerationTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_3(FragmentWriter out, MXFInputStream value, ExtendibleEnumerationTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
@@ -717,55 +896,70 @@ public class FragmentBuilder {
 
             /* NOTE: ST 2001-1 XML Schema does not allow ULs as values for Extendible Enumerations, which
              defeats the purpose of the type. This issue could be addressed at the next revision opportunity. */
-            element.setTextContent(ul.toString());
+            out.characters(ul.toString());
+
+            /* the label itself is written since the schema types Extendible
+               Enumerations as AUIDs, but labels unknown to the dictionary are reported */
+            if (definition.getElements() != null
+                    && !definition.getElements().isEmpty()
+                    && definition.getElement(ul) == null) {
+
+                LOG.info(
+                        String.format(
+                                "Unknown label %s for Extendible Enumeration %s.",
+                                ul,
+                                definition.getSymbol()
+                        )
+                );
+            }
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
     }
 
-    void applyRule5_4(Element element, MXFInputStream value, FixedArrayTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_4(FragmentWriter out, MXFInputStream value, FixedArrayTypeDefinition definition) throws RuleException, IOException {
 
         if (definition.getIdentification().equals(UUID_UL)) {
 
             UUID uuid = value.readUUID();
 
-            element.setTextContent(uuid.toString());
+            out.characters(uuid.toString());
 
         } else {
 
             Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
 
-            applyCoreRule5_4(element, value, typedef, definition.getElementCount());
+            applyCoreRule5_4(out, value, typedef, definition.getElementCount());
 
         }
     }
 
-    void applyCoreRule5_4(Element element, MXFInputStream value, Definition typedef, int elementcount) throws RuleException, IOException {
+    void applyCoreRule5_4(FragmentWriter out, MXFInputStream value, Definition typedef, int elementcount) throws RuleException, IOException {
 
         for (int i = 0; i < elementcount; i++) {
 
             if (typedef instanceof StrongReferenceTypeDefinition) {
 
                 /* Rule 5.4.1 */
-                applyRule5_13(element, value, (StrongReferenceTypeDefinition) typedef);
+                applyRule5_13(out, value, (StrongReferenceTypeDefinition) typedef);
 
             } else {
 
                 /* Rule 5.4.2 */
-                Element elem = element.getOwnerDocument().createElementNS(typedef.getNamespace().toString(), typedef.getSymbol());
-
-                elem.setPrefix(getPrefix(typedef.getNamespace()));
+                out.startElement(typedef.getNamespace().toString(), typedef.getSymbol());
 
-                applyRule5(elem, value, typedef);
-
-                element.appendChild(elem);
+                try {
+                    applyRule5(out, value, typedef);
+                } finally {
+                    out.endElement();
+                }
 
             }
         }
     }
 
-    void applyRule5_5(Element element, MXFInputStream value, IndirectTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_5(FragmentWriter out, MXFInputStream value, IndirectTypeDefinition definition) throws RuleException, IOException {
         
         /* see https://github.com/sandflow/regxmllib/issues/74 for a discussion on Indirect Type */
                 
@@ -800,12 +994,11 @@ public class FragmentBuilder {
                 )
             );
 
-            element.appendChild(
-                element.getOwnerDocument().createComment(
-                    String.format(
-                        "No definition found for indirect type with AUID %s.",
-                        idau.toString()
-                ))
+            out.comment(
+                String.format(
+                    "No definition found for indirect type with AUID %s.",
+                    idau.toString()
+                )
             );
 
             return;
@@ -813,18 +1006,15 @@ public class FragmentBuilder {
         
             // create reg:actualType attribute
         
-        Attr attr = element.getOwnerDocument().createAttributeNS(REGXML_NS, ACTUALTYPE_ATTR);
-        attr.setPrefix(getPrefix(REGXML_NS));
-        attr.setTextContent(def.getSymbol());
-        element.setAttributeNodeNS(attr);
+        out.attribute(REGXML_NS, ACTUALTYPE_ATTR, def.getSymbol());
         
-        MXFInputStream orderedval = new MXFInputStream(value, bo);
+        MXFInputStream orderedval = new MXFInputStream(value, bo, value.available());
             
-        applyRule5(element, orderedval, def);
+        applyRule5(out, orderedval, def);
 
     }
 
-    void applyRule5_6(Element element, MXFInputStream value, IntegerTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_6(FragmentWriter out, MXFInputStream value, IntegerTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
@@ -845,6 +1035,29 @@ public class FragmentBuilder {
                     break;
             }
 
+            /* fast path, which decodes big-endian values as did the BigInteger
+               path below, allocating a BigInteger only for UInt64 values beyond
+               the range of long */
+            if (value.available() >= len) {
+
+                long lv = readBigEndian(value, len);
+
+                if (definition.isSigned() && len < 8) {
+                    lv = (lv << (64 - 8 * len)) >> (64 - 8 * len);
+                }
+
+                if (lv < 0 && !definition.isSigned()) {
+                    out.characters(new BigInteger(1, new byte[]{
+                        (byte) (lv >>> 56), (byte) (lv >>> 48), (byte) (lv >>> 40), (byte) (lv >>> 32),
+                        (byte) (lv >>> 24), (byte) (lv >>> 16), (byte) (lv >>> 8), (byte) lv
+                    }).toString());
+                } else {
+                    out.characters(Long.toString(lv));
+                }
+
+                return;
+            }
+
             byte[] val = new byte[len];
 
             int br = value.read(val);
@@ -858,7 +1071,7 @@ public class FragmentBuilder {
                         )
                 );
 
-                element.setTextContent("NaN");
+                out.characters("NaN");
 
             } else {
 
@@ -875,7 +1088,7 @@ public class FragmentBuilder {
 
                 BigInteger bi = definition.isSigned() ? new BigInteger(val) : new BigInteger(1, val);
                 
-                element.setTextContent(bi.toString());
+                out.characters(bi.toString());
 
             }
 
@@ -885,7 +1098,7 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_7(Element element, MXFInputStream value, OpaqueTypeDefinition definition) throws RuleException {
+    void applyRule5_7(FragmentWriter out, MXFInputStream value, OpaqueTypeDefinition definition) throws RuleException {
 
         /* NOTE: Opaque Types are not used in MXF */
         throw new RuleException("Opaque types are not supported.");
@@ -910,13 +1123,13 @@ public class FragmentBuilder {
         return String.format("%04d-%02d-%02d", year, month, day);
     }
 
-    void applyRule5_8(Element element, MXFInputStream value, RecordTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_8(FragmentWriter out, MXFInputStream value, RecordTypeDefinition definition) throws RuleException, IOException {
 
         if (definition.getIdentification().equals(AUID_UL)) {
 
             AUID auid = value.readAUID();
 
-            element.setTextContent(auid.toString());
+            out.characters(auid.toString());
 
         } else if (definition.getIdentification().equals(DateStruct_UL)) {
 
@@ -924,20 +1137,20 @@ public class FragmentBuilder {
             int month = value.readUnsignedByte();
             int day = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Date(year, month, day));
+            out.characters(generateISO8601Date(year, month, day));
 
         } else if (definition.getIdentification().equals(PackageID_UL)) {
 
             UMID umid = value.readUMID();
 
-            element.setTextContent(umid.toString());
+            out.characters(umid.toString());
 
         } else if (definition.getIdentification().equals(Rational_UL)) {
 
             int numerator = value.readInt();
             int denominator = value.readInt();
 
-            element.setTextContent(String.format("%d/%d", numerator, denominator));
+            out.characters(String.format("%d/%d", numerator, denominator));
 
         } else if (definition.getIdentification().equals(TimeStruct_UL)) {
 
@@ -948,7 +1161,7 @@ public class FragmentBuilder {
             int second = value.readUnsignedByte();
             int fraction = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Time(hour, minute, second, 4 * fraction));
+            out.characters(generateISO8601Time(hour, minute, second, 4 * fraction));
 
         } else if (definition.getIdentification().equals(TimeStamp_UL)) {
 
@@ -960,7 +1173,7 @@ public class FragmentBuilder {
             int second = value.readUnsignedByte();
             int fraction = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Date(year, month, day) + "T" + generateISO8601Time(hour, minute, second, 4 * fraction));
+            out.characters(generateISO8601Date(year, month, day) + "T" + generateISO8601Time(hour, minute, second, 4 * fraction));
 
         } else if (definition.getIdentification().equals(VersionType_UL)) {
 
@@ -968,7 +1181,7 @@ public class FragmentBuilder {
             int major = value.readUnsignedByte();
             int minor = value.readUnsignedByte();
 
-            element.setTextContent(String.format("%d.%d", major, minor));
+            out.characters(String.format("%d.%d", major, minor));
 
         } else {
 
@@ -976,38 +1189,36 @@ public class FragmentBuilder {
 
                 Definition itemdef = findBaseDefinition(defresolver.getDefinition(member.getType()));
 
-                Element elem = element.getOwnerDocument().createElementNS(definition.getNamespace().toString(), member.getName());
-
-                elem.setPrefix(getPrefix(definition.getNamespace()));
-
-                applyRule5(elem, value, itemdef);
+                out.startElement(definition.getNamespace().toString(), member.getName());
 
-                element.appendChild(elem);
+                try {
+                    applyRule5(out, value, itemdef);
+                } finally {
+                    out.endElement();
+                }
             }
         }
 
     }
 
-    void applyRule5_9(Element element, MXFInputStream value, RenameTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_9(FragmentWriter out, MXFInputStream value, RenameTypeDefinition definition) throws RuleException, IOException {
 
         Definition rdef = defresolver.getDefinition(definition.getRenamedType());
 
-        applyRule5(element, value, rdef);
+        applyRule5(out, value, rdef);
 
     }
 
-    void applyRule5_10(Element element, MXFInputStream value, SetTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_10(FragmentWriter out, MXFInputStream value, SetTypeDefinition definition) throws RuleException, IOException {
 
         Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
-
-            long itemcount = dis.readInt() & 0xfffffffL;
-            long itemlength = dis.readInt() & 0xfffffffL;
+            long itemcount = readBigEndian(value, 4) & 0xfffffffL;
+            long itemlength = readBigEndian(value, 4) & 0xfffffffL;
 
-            applyCoreRule5_4(element, value, typedef, (int) itemcount);
+            applyCoreRule5_4(out, value, typedef, (int) itemcount);
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
@@ -1015,13 +1226,13 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_11(Element element, MXFInputStream value, StreamTypeDefinition definition) throws RuleException {
+    void applyRule5_11(FragmentWriter out, MXFInputStream value, StreamTypeDefinition definition) throws RuleException {
 
         throw new RuleException("Rule 5.11 is not supported yet.");
 
     }
 
-    void applyRule5_12(Element element, MXFInputStream value, StringTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_12(FragmentWriter out, MXFInputStream value, StringTypeDefinition definition) throws RuleException, IOException {
 
         /* Rule 5.12 */
         Definition chrdef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
@@ -1038,7 +1249,9 @@ public class FragmentBuilder {
             );
         }
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = text;
+
+        sb.setLength(0);
 
         readCharacters(value, (CharacterTypeDefinition) chrdef, sb);
 
@@ -1049,11 +1262,11 @@ public class FragmentBuilder {
             sb.setLength(nullpos);
         }
 
-        element.setTextContent(sb.toString());
+        out.characters(sb.toString());
 
     }
 
-    void applyRule5_13(Element element, MXFInputStream value, StrongReferenceTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_13(FragmentWriter out, MXFInputStream value, StrongReferenceTypeDefinition definition) throws RuleException, IOException {
 
         Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getReferenceType()));
 
@@ -1063,56 +1276,71 @@ public class FragmentBuilder {
 
         UUID uuid = value.readUUID();
 
-        Group g = setresolver.get(uuid);
+        /* the referenced object is only resolved when it is written, such
+           that the objects referenced by a large array are not all held in
+           memory at once */
+        if (out instanceof ObjectRecorder) {
+
+            ((ObjectRecorder) out).reference(uuid, definition.getSymbol());
+
+            return;
+        }
+
+        Group g = resolveStrongReference(out, uuid, definition.getSymbol());
 
         if (g != null) {
+            applyRule3(out, g);
+        }
+
+    }
 
-            applyRule3(element, g);
+    /* returns the object referenced by a Strong Reference, or null if it is
+       not found, in which case a comment is written in its place */
+    private Group resolveStrongReference(FragmentWriter out, UUID uuid, String symbol) throws RuleException {
 
-        } else {
+        Group g = setresolver.get(uuid);
+
+        if (g == null) {
             LOG.warning(
                     String.format(
                             "Strong Reference %s not found at %s",
                             uuid.toString(),
-                            definition.getSymbol()
+                            symbol
                     )
             );
 
-            Comment comment = element.getOwnerDocument().createComment(
+            out.comment(
                     String.format(
                             "Strong Reference %s not found",
                             uuid.toString()
                     )
             );
-
-            element.appendChild(comment);
         }
 
+        return g;
     }
 
-    void applyRule5_alpha(Element element, MXFInputStream value, FloatTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_alpha(FragmentWriter out, MXFInputStream value, FloatTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
-
             double val = 0;
 
             switch (definition.getSize()) {
                 case HALF:
 
-                    val = HalfFloat.toDouble(dis.readUnsignedShort());
+                    val = HalfFloat.toDouble((int) readBigEndian(value, 2));
 
                     break;
                 case SINGLE:
-                    val = dis.readFloat();
+                    val = Float.intBitsToFloat((int) readBigEndian(value, 4));
                     break;
                 case DOUBLE:
-                    val = dis.readDouble();
+                    val = Double.longBitsToDouble(readBigEndian(value, 8));
                     break;
             }
 
-            element.setTextContent(Double.toString(val));
+            out.characters(Double.toString(val));
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
@@ -1120,7 +1348,7 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_beta(Element element, MXFInputStream value, LensSerialFloatTypeDefinition definition) throws RuleException {
+    void applyRule5_beta(FragmentWriter out, MXFInputStream value, LensSerialFloatTypeDefinition definition) throws RuleException {
 
         throw new RuleException("Lens serial floats not supported.");
 
@@ -1136,25 +1364,22 @@ public class FragmentBuilder {
     }
 
     public Collection<PropertyDefinition> getAllMembersOf(ClassDefinition definition) {
-        ClassDefinition cdef = definition;
-
-        ArrayList<PropertyDefinition> props = new ArrayList<>();
-
-        while (cdef != null) {
+        return classes.get(definition).getAllMembers();
+    }
 
-            for (AUID auid : defresolver.getMembersOf(cdef)) {
-                props.add((PropertyDefinition) defresolver.getDefinition(auid));
-            }
+    /**
+     * Returns a stream over the Value of a Triplet, reading in place whenever
+     * the Value is backed by an array.
+     */
+    private static MXFInputStream valueStream(Triplet item) {
 
-            if (cdef.getParentClass() != null) {
-                cdef = (ClassDefinition) defresolver.getDefinition(cdef.getParentClass());
-            } else {
-                cdef = null;
-            }
+        ByteBuffer bb = item.getValueAsBuffer();
 
+        if (bb.hasArray()) {
+            return new MXFInputStream(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining(), ByteOrder.BIG_ENDIAN);
         }
 
-        return props;
+        return new MXFInputStream(item.getValue());
     }
 
     final static char[] HEXMAP = "0123456789abcdef".toCharArray();
@@ -1173,33 +1398,26 @@ public class FragmentBuilder {
         return new String(out);
     }
 
-    void applyRule5_14(Element element, MXFInputStream value, VariableArrayTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_14(FragmentWriter out, MXFInputStream value, VariableArrayTypeDefinition definition) throws RuleException, IOException {
 
         Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
-
             if (definition.getSymbol().equals("DataValue")) {
 
                 /* RULE 5.14.2 */
                 /* DataValue is string of octets, without number of elements or size of elements */
-                byte[] buffer = new byte[32];
-
-                StringBuilder sb = new StringBuilder();
+                StringBuilder sb = text;
 
-                for (int sz = 0; (sz = dis.read(buffer)) > -1;) {
+                sb.setLength(0);
 
-                    for (int j = 0; j < sz; j++) {
-
-                        int v = buffer[j] & 0xFF;
-                        sb.append(HEXMAP[v >>> 4]);
-                        sb.append(HEXMAP[v & 0x0F]);
-                    }
+                for (int v; (v = value.read()) > -1;) {
+                    sb.append(HEXMAP[v >>> 4]);
+                    sb.append(HEXMAP[v & 0x0F]);
                 }
 
-                element.setTextContent(sb.toString());
+                out.characters(sb.toString());
 
             } else {
 
@@ -1213,10 +1431,10 @@ public class FragmentBuilder {
 
                 } else {
 
-                    long itemcount = dis.readInt() & 0xfffffffL;
-                    long itemlength = dis.readInt() & 0xfffffffL;
+                    long itemcount = readBigEndian(value, 4) & 0xfffffffL;
+                    long itemlength = readBigEndian(value, 4) & 0xfffffffL;
 
-                    applyCoreRule5_4(element, value, typedef, (int) itemcount);
+                    applyCoreRule5_4(out, value, typedef, (int) itemcount);
                 }
 
             }
@@ -1227,31 +1445,25 @@ public class FragmentBuilder {
 
         } catch (EOFException eof) {
 
-            Comment comment = element.getOwnerDocument().createComment(
+            out.comment(
                     String.format(
                             "Value too short for Type %s",
                             typedef.getSymbol()
                     )
             );
 
-            element.appendChild(comment);
-
         }
 
     }
 
-    void applyRule5_15(Element element, MXFInputStream value, WeakReferenceTypeDefinition typedefinition) throws RuleException {
+    void applyRule5_15(FragmentWriter out, MXFInputStream value, WeakReferenceTypeDefinition typedefinition) throws RuleException {
 
         ClassDefinition classdef = (ClassDefinition) defresolver.getDefinition(typedefinition.getReferencedType());
 
         PropertyDefinition uniquepropdef = null;
 
-        for (PropertyDefinition propdef : getAllMembersOf(classdef)) {
-
-            if (propdef.isUniqueIdentifier()) {
-                uniquepropdef = propdef;
-                break;
-            }
+        if (classdef != null) {
+            uniquepropdef = classes.get(classdef).getUniqueIdentifier();
         }
 
         if (uniquepropdef == null) {
@@ -1261,7 +1473,190 @@ public class FragmentBuilder {
             );
         }
 
-        applyRule4(element, value, uniquepropdef);
+        applyRule4(out, value, plans.get(uniquepropdef));
+
+    }
+
+    /**
+     * Collects the text content of an element, ignoring its markup
+     */
+    private static class TextCollector implements FragmentWriter {
+
+        private final StringBuilder sb = new StringBuilder();
+
+        @Override
+        public void startElement(String namespace, String localname) {
+        }
+
+        @Override
+        public void declareNamespace(String namespace) {
+        }
+
+        @Override
+        public void attribute(String namespace, String localname, String value) {
+        }
+
+        @Override
+        public void characters(String text) {
+            sb.append(text);
+        }
+
+        @Override
+        public void comment(String text) {
+        }
+
+        @Override
+        public void endElement() {
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+
+    }
+
+    /**
+     * Records the nodes written to it, along with the instance IDs of the
+     * objects referenced from within them, such that they can be replayed
+     * later
+     */
+    private static class ObjectRecorder implements FragmentWriter {
+
+        private static final byte START_ELEMENT = 0;
+        private static final byte DECLARE_NAMESPACE = 1;
+        private static final byte ATTRIBUTE = 2;
+        private static final byte CHARACTERS = 3;
+        private static final byte COMMENT = 4;
+        private static final byte END_ELEMENT = 5;
+        private static final byte REFERENCE = 6;
+
+        private byte[] events = new byte[16];
+        private int eventcount = 0;
+        private final ArrayList<Object> args = new ArrayList<>();
+
+        /* index of the next event to be replayed */
+        private int next = 0;
+
+        /* index of the arguments of the next event to be replayed */
+        private int nextarg = 0;
+
+        /* symbol of the type of the last reference replayed */
+        private String referencesymbol;
+
+        @Override
+        public void startElement(String namespace, String localname) {
+            addEvent(START_ELEMENT);
+            args.add(namespace);
+            args.add(localname);
+        }
+
+        @Override
+        public void declareNamespace(String namespace) {
+            addEvent(DECLARE_NAMESPACE);
+            args.add(namespace);
+        }
+
+        @Override
+        public void attribute(String namespace, String localname, String value) {
+            addEvent(ATTRIBUTE);
+            args.add(namespace);
+            args.add(localname);
+            args.add(value);
+        }
+
+        @Override
+        public void characters(String text) {
+            addEvent(CHARACTERS);
+            args.add(text);
+        }
+
+        @Override
+        public void comment(String text) {
+            addEvent(COMMENT);
+            args.add(text);
+        }
+
+        @Override
+        public void endElement() {
+            addEvent(END_ELEMENT);
+        }
+
+        /**
+         * Records a reference to an object, which is to be resolved and
+         * written in place
+         *
+         * @param uuid Instance ID of the object
+         * @param symbol Symbol of the Strong Reference type
+         */
+        public void reference(UUID uuid, String symbol) {
+            addEvent(REFERENCE);
+            args.add(uuid);
+            args.add(symbol);
+        }
+
+        private void addEvent(byte event) {
+            if (eventcount == events.length) {
+                events = Arrays.copyOf(events, 2 * eventcount);
+            }
+
+            events[eventcount++] = event;
+        }
+
+        /**
+         * Replays the recorded nodes, stopping after the next reference
+         *
+         * @param out Writer to which the nodes are replayed
+         * @return Instance ID of the referenced object, or null if all nodes
+         * have been replayed
+         * @throws RuleException
+         */
+        public UUID replay(FragmentWriter out) throws RuleException {
+
+            while (next < eventcount) {
+
+                switch (events[next++]) {
+                    case START_ELEMENT:
+                        out.startElement((String) args.get(nextarg), (String) args.get(nextarg + 1));
+                        nextarg += 2;
+                        break;
+                    case DECLARE_NAMESPACE:
+                        out.declareNamespace((String) args.get(nextarg++));
+                        break;
+                    case ATTRIBUTE:
+                        out.attribute((String) args.get(nextarg), (String) args.get(nextarg + 1), (String) args.get(nextarg + 2));
+                        nextarg += 3;
+                        break;
+                    case CHARACTERS:
+                        out.characters((String) args.get(nextarg++));
+                        break;
+                    case COMMENT:
+                        out.comment((String) args.get(nextarg++));
+                        break;
+                    case END_ELEMENT:
+                        out.endElement();
+                        break;
+                    case REFERENCE:
+                        referencesymbol = (String) args.get(nextarg + 1);
+                        UUID uuid = (UUID) args.get(nextarg);
+                        nextarg += 2;
+                        return uuid;
+                    default:
+                        throw new IllegalStateException("Unknown recorded event " + events[next - 1]);
+                }
+
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns the symbol of the Strong Reference type of the last
+         * reference replayed
+         */
+        public String getReferenceSymbol() {
+            return referencesymbol;
+        }
 
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.FragmentBuilder.RuleException;
+
+/**
+ * Receives the nodes of a RegXML Fragment, in document order, as they are
+ * generated by a FragmentBuilder
+ */
+interface FragmentWriter {
+
+    /**
+     * Starts an element
+     *
+     * @param namespace Namespace of the element
+     * @param localname Local name of the element
+     * @throws RuleException
+     */
+    void startElement(String namespace, String localname) throws RuleException;
+
+    /**
+     * Indicates that a namespace will be used by the descendants of the
+     * current element. Can only be called immediately after startElement().
+     *
+     * @param namespace Namespace
+     * @throws RuleException
+     */
+    void declareNamespace(String namespace) throws RuleException;
+
+    /**
+     * Adds an attribute to the current element. Can only be called
+     * immediately after startElement().
+     *
+     * @param namespace Namespace of the attribute
+     * @param localname Local name of the attribute
+     * @param value Value of the attribute
+     * @throws RuleException
+     */
+    void attribute(String namespace, String localname, String value) throws RuleException;
+
+    /**
+     * Adds text to the current element
+     *
+     * @param text Text
+     * @throws RuleException
+     */
+    void characters(String text) throws RuleException;
+
+    /**
+     * Adds a comment to the current element
+     *
+     * @param text Text of the comment
+     * @throws RuleException
+     */
+    void comment(String text) throws RuleException;
+
+    /**
+     * Ends the current element
+     *
+     * @throws RuleException
+     */
+    void endElement() throws RuleException;
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.ByteBufferTriplet;
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.KLVChannelReader;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+/**
+ * Resolves Instance IDs to MXF Sets by re-reading the Sets from a
+ * memory-mapped file when they are requested. Only the Key, Instance ID and
+ * location of each Set are held in memory, in primitive arrays, along with a
+ * bounded number of recently decoded Sets.
+ */
+class IndexedSetResolver extends AbstractMap<UUID, Set> {
+
+    private final static Logger LOG = Logger.getLogger(IndexedSetResolver.class.getName());
+
+    private final KLVChannelReader reader;
+    private final LocalTagRegister reg;
+
+    /* per-group entries, in the order in which they were added */
+    private int count = 0;
+    private long[] keymsbs = new long[64];
+    private long[] keylsbs = new long[64];
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+    private long[] idmsbs = new long[64];
+    private long[] idlsbs = new long[64];
+
+    /* open-addressing table of group index + 1, keyed on Instance ID, 0 if empty */
+    private int[] slots = new int[128];
+    private int idcount = 0;
+
+    private final Map<Integer, Group> cache;
+
+    /**
+     * @param reader Memory-mapped file from which Groups are read
+     * @param reg Local Tag Register used to decode Groups
+     * @param cachesize Maximum number of decoded Groups held in memory
+     */
+    IndexedSetResolver(KLVChannelReader reader, LocalTagRegister reg, final int cachesize) {
+        this.reader = reader;
+        this.reg = reg;
+        this.cache = new LinkedHashMap<Integer, Group>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Group> eldest) {
+                return size() > cachesize;
+            }
+
+        };
+    }
+
+    /**
+     * Adds a Group encoded as a Local Set to the index
+     *
+     * @param key Key of the Local Set
+     * @param offset Offset of the Value of the Local Set from the start of the file
+     * @param length Length of the Value of the Local Set
+     * @param instanceID Instance ID of the Set, or null if the Group is not an MXF Set
+     */
+    void add(UL key, long offset, int length, UUID instanceID) {
+
+        if (count == offsets.length) {
+            int capacity = 2 * count;
+
+            keymsbs = Arrays.copyOf(keymsbs, capacity);
+            keylsbs = Arrays.copyOf(keylsbs, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            idmsbs = Arrays.copyOf(idmsbs, capacity);
+            idlsbs = Arrays.copyOf(idlsbs, capacity);
+        }
+
+        keymsbs[count] = key.getMostSignificantBits();
+        keylsbs[count] = key.getLeastSignificantBits();
+        offsets[count] = offset;
+        lengths[count] = length;
+
+        if (instanceID != null) {
+
+            idmsbs[count] = instanceID.getMostSignificantBits();
+            idlsbs[count] = instanceID.getLeastSignificantBits();
+
+            /* keep the load factor at or below 0.5 */
+            if (2 * (idcount + 1) > slots.length) {
+                rehash(2 * slots.length);
+            }
+
+            /* as with a map, a later Set replaces an earlier one with the same Instance ID */
+            int slot = find(idmsbs[count], idlsbs[count]);
+
+            if (slots[slot] == 0) {
+                idcount++;
+            }
+
+            slots[slot] = count + 1;
+        }
+
+        count++;
+    }
+
+    private void rehash(int capacity) {
+
+        int[] old = slots;
+
+        slots = new int[capacity];
+
+        for (int entry : old) {
+            if (entry != 0) {
+                slots[find(idmsbs[entry - 1], idlsbs[entry - 1])] = entry;
+            }
+        }
+    }
+
+    /**
+     * @return Slot containing the Instance ID, or the empty slot where it
+     * would be inserted
+     */
+    private int find(long msb, long lsb) {
+
+        int mask = slots.length - 1;
+
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+
+        for (int i = (int) (h ^ (h >>> 29)) & mask;; i = (i + 1) & mask) {
+
+            int entry = slots[i];
+
+            if (entry == 0 || (idmsbs[entry - 1] == msb && idlsbs[entry - 1] == lsb)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Returns the Group at the specified position, reading it from the file
+     * unless it was recently decoded
+     *
+     * @param index Position of the Group in the order in which Groups were added
+     * @return Group, or null if the Group cannot be decoded
+     */
+    Group getGroup(int index) {
+
+        Group g = cache.get(index);
+
+        if (g != null) {
+            return g;
+        }
+
+        UL key = new UL(keymsbs[index], keylsbs[index]);
+
+        try {
+
+            Triplet t = new ByteBufferTriplet(key, reader.slice(offsets[index], lengths[index]), 0, lengths[index]);
+
+            g = LocalSet.fromTriplet(t, reg);
+
+        } catch (KLVException | IOException e) {
+
+            LOG.warning(
+                    String.format(
+                            "Failed to read Group %s with error %s",
+                            key,
+                            e.getMessage()
+                    )
+            );
+
+            return null;
+        }
+
+        Set set = Set.fromGroup(g);
+
+        if (set != null) {
+            g = set;
+        }
+
+        cache.put(index, g);
+
+        return g;
+    }
+
+    /**
+     * Returns the Groups in the order in which they were added. Each Group is
+     * decoded only when its items are accessed.
+     *
+     * @return List of Groups
+     */
+    List<Group> getGroups() {
+        return new AbstractList<Group>() {
+
+            @Override
+            public Group get(final int index) {
+
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException();
+                }
+
+                return new Group() {
+
+                    @Override
+                    public Collection<Triplet> getItems() {
+
+                        Group g = getGroup(index);
+
+                        return g == null ? Collections.<Triplet>emptyList() : g.getItems();
+                    }
+
+                    @Override
+                    public UL getKey() {
+                        return new UL(keymsbs[index], keylsbs[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public Set get(Object key) {
+
+        if (!(key instanceof UUID)) {
+            return null;
+        }
+
+        int entry = slots[find(((UUID) key).getMostSignificantBits(), ((UUID) key).getLeastSignificantBits())];
+
+        if (entry == 0) {
+            return null;
+        }
+
+        Group g = getGroup(entry - 1);
+
+        return g instanceof Set ? (Set) g : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof UUID
+                && slots[find(((UUID) key).getMostSignificantBits(), ((UUID) key).getLeastSignificantBits())] != 0;
+    }
+
+    @Override
+    public int size() {
+        return idcount;
+    }
+
+    @Override
+    public java.util.Set<Map.Entry<UUID, Set>> entrySet() {
+        return new AbstractSet<Map.Entry<UUID, Set>>() {
+
+            @Override
+            public Iterator<Map.Entry<UUID, Set>> iterator() {
+                return new Iterator<Map.Entry<UUID, Set>>() {
+
+                    private int slot = advance(0);
+
+                    private int advance(int i) {
+                        while (i < slots.length && slots[i] == 0) {
+                            i++;
+                        }
+
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < slots.length;
+                    }
+
+                    @Override
+                    public Map.Entry<UUID, Set> next() {
+
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        int index = slots[slot] - 1;
+
+                        slot = advance(slot + 1);
+
+                        Group g = getGroup(index);
+
+                        return new AbstractMap.SimpleImmutableEntry<>(
+                                new UUID(idmsbs[index], idlsbs[index]),
+                                g instanceof Set ? (Set) g : null
+                        );
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return idcount;
+            }
+        };
+    }
+
+}
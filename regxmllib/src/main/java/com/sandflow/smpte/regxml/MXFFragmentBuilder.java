@@ -26,30 +26,38 @@
 package com.sandflow.smpte.regxml;
 
 import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.KLVChannelReader;
 import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.KLVReader;
 import com.sandflow.smpte.klv.LocalSet;
 import com.sandflow.smpte.klv.LocalTagRegister;
 import com.sandflow.smpte.klv.Triplet;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.mxf.FillItem;
+import com.sandflow.smpte.mxf.IndexTableSegment;
 import com.sandflow.smpte.mxf.PartitionPack;
 import com.sandflow.smpte.mxf.PrimerPack;
+import com.sandflow.smpte.mxf.RandomIndexPack;
 import com.sandflow.smpte.mxf.Set;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
 import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.Definition;
 import com.sandflow.smpte.util.AUID;
-import com.sandflow.smpte.util.CountingInputStream;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.UUID;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
 
@@ -60,12 +68,42 @@ public class MXFFragmentBuilder {
 
     private final static Logger LOG = Logger.getLogger(MXFFragmentBuilder.class.getName());
 
-    private static final UL INDEX_TABLE_SEGMENT_UL
-            = UL.fromURN("urn:smpte:ul:060e2b34.02530101.0d010201.01100100");
-    
     private static final UL PREFACE_KEY
             = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
 
+    /**
+     * Maximum number of decoded Header Metadata sets held in memory with
+     * SetDecoding.INDEXED
+     */
+    private static final int INDEXED_SET_CACHE_SIZE = 1024;
+
+    /**
+     * Strategies for decoding the sets of the Header Metadata
+     */
+    public enum SetDecoding {
+
+        /**
+         * All sets are decoded upfront and held in memory
+         */
+        EAGER,
+        /**
+         * Only the Key and Instance ID of each set are read upfront, and the
+         * remaining items of a set are decoded, and then held in memory, only
+         * if the set is reached from the root object, e.g. through a Strong
+         * Reference
+         */
+        LAZY,
+        /**
+         * Each set is decoded upfront but only its Key, Instance ID and
+         * location are held in memory, in a compact index. Sets that cannot
+         * be decoded are dropped. Sets are read again from the file when
+         * reached from the root object, and only a bounded number of recently
+         * decoded sets are held in memory, so that memory use remains bounded
+         * for Header Metadata with a very large number of sets
+         */
+        INDEXED
+    }
+
     /**
      * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
      * the first Header Metadata object with the specified class, with a class
@@ -84,17 +122,350 @@ public class MXFFragmentBuilder {
      */
     public static DocumentFragment fromInputStream(InputStream mxffile, DefinitionResolver defresolver, UL rootclasskey, Document document) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
 
-        CountingInputStream cis = new CountingInputStream(mxffile);
+        return fromInputStream(mxffile, defresolver, rootclasskey, document, SetDecoding.EAGER);
+    }
+
+    /**
+     * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
+     * the first Header Metadata object with the specified class, with a class
+     * that descends from the specified class.
+     *
+     * @param mxffile MXF file
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param document DOM for which the Document Fragment is created
+     * @param decoding Decoding strategy for Header Metadata sets, other than
+     * SetDecoding.INDEXED which requires a FileChannel
+     * @return Document Fragment containing a single RegXML Fragment
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws ParserConfigurationException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static DocumentFragment fromInputStream(InputStream mxffile, DefinitionResolver defresolver, UL rootclasskey, Document document, SetDecoding decoding) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        if (decoding == SetDecoding.INDEXED) {
+            throw new IllegalArgumentException("Indexed set decoding requires a FileChannel.");
+        }
+
+        return fromKLVReader(new KLVInputStream(mxffile), defresolver, rootclasskey, document, decoding);
+    }
+
+    /**
+     * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
+     * the first Header Metadata object with the specified class, with a class
+     * that descends from the specified class. The MXF file is memory-mapped
+     * instead of being read through an InputStream.
+     *
+     * @param mxffile MXF file, read from its current position
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param document DOM for which the Document Fragment is created
+     * @return Document Fragment containing a single RegXML Fragment
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws ParserConfigurationException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static DocumentFragment fromFileChannel(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey, Document document) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        return fromFileChannel(mxffile, defresolver, rootclasskey, document, false);
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * the specified class, with a class that descends from the specified class,
+     * to an XMLStreamWriter, without building a DOM.
+     *
+     * @param mxffile MXF file
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param writer Writer to which the RegXML Fragment is written
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromInputStream(InputStream mxffile, DefinitionResolver defresolver, UL rootclasskey, XMLStreamWriter writer) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        fromInputStream(mxffile, defresolver, rootclasskey, writer, SetDecoding.EAGER);
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * the specified class, with a class that descends from the specified class,
+     * to an XMLStreamWriter, without building a DOM.
+     *
+     * @param mxffile MXF file
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param writer Writer to which the RegXML Fragment is written
+     * @param decoding Decoding strategy for Header Metadata sets, other than
+     * SetDecoding.INDEXED which requires a FileChannel
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromInputStream(InputStream mxffile, DefinitionResolver defresolver, UL rootclasskey, XMLStreamWriter writer, SetDecoding decoding) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        if (decoding == SetDecoding.INDEXED) {
+            throw new IllegalArgumentException("Indexed set decoding requires a FileChannel.");
+        }
+
+        fromKLVReader(new KLVInputStream(mxffile), defresolver, rootclasskey, writer, decoding);
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * the specified class, with a class that descends from the specified class,
+     * to an XMLStreamWriter, without building a DOM. The MXF file is memory-mapped
+     * instead of being read through an InputStream.
+     *
+     * @param mxffile MXF file, read from its current position, which is the start of the Header Partition
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param writer Writer to which the RegXML Fragment is written
+     * @param usebestpartition Use the Random Index Pack to locate the best copy of the Header Metadata
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromFileChannel(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey, XMLStreamWriter writer, boolean usebestpartition) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        fromFileChannel(mxffile, defresolver, rootclasskey, writer, usebestpartition, SetDecoding.EAGER);
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * the specified class, with a class that descends from the specified class,
+     * to an XMLStreamWriter, without building a DOM. The MXF file is memory-mapped
+     * instead of being read through an InputStream.
+     * 
+     * The decoding parameter determines when Header Metadata sets are decoded
+     * and how long they are held in memory (see {@link SetDecoding}).
+     *
+     * @param mxffile MXF file, read from its current position, which is the start of the Header Partition
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param writer Writer to which the RegXML Fragment is written
+     * @param usebestpartition Use the Random Index Pack to locate the best copy of the Header Metadata
+     * @param decoding Decoding strategy for Header Metadata sets
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromFileChannel(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey, XMLStreamWriter writer, boolean usebestpartition, SetDecoding decoding) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        fromKLVReader(openFileChannel(mxffile, usebestpartition), defresolver, rootclasskey, writer, decoding);
+    }
+
+    /**
+     * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
+     * the first Header Metadata object with the specified class, with a class
+     * that descends from the specified class. The MXF file is memory-mapped
+     * instead of being read through an InputStream.
+     * 
+     * If usebestpartition is true, the Random Index Pack at the end of the
+     * file is used to locate the partition that contains the most complete
+     * copy of the Header Metadata, e.g. the Footer Partition of a file whose
+     * Header Partition is open or incomplete, and only that copy is read. The
+     * first partition is used if the file has no Random Index Pack.
+     *
+     * @param mxffile MXF file, read from its current position, which is the start of the Header Partition
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param document DOM for which the Document Fragment is created
+     * @param usebestpartition Use the Random Index Pack to locate the best copy of the Header Metadata
+     * @return Document Fragment containing a single RegXML Fragment
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws ParserConfigurationException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static DocumentFragment fromFileChannel(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey, Document document, boolean usebestpartition) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        return fromFileChannel(mxffile, defresolver, rootclasskey, document, usebestpartition, SetDecoding.EAGER);
+    }
+
+    /**
+     * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
+     * the first Header Metadata object with the specified class, with a class
+     * that descends from the specified class. The MXF file is memory-mapped
+     * instead of being read through an InputStream.
+     * 
+     * The decoding parameter determines when Header Metadata sets are decoded
+     * and how long they are held in memory (see {@link SetDecoding}).
+     *
+     * @param mxffile MXF file, read from its current position, which is the start of the Header Partition
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Root class of Fragment
+     * @param document DOM for which the Document Fragment is created
+     * @param usebestpartition Use the Random Index Pack to locate the best copy of the Header Metadata
+     * @param decoding Decoding strategy for Header Metadata sets
+     * @return Document Fragment containing a single RegXML Fragment
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws ParserConfigurationException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static DocumentFragment fromFileChannel(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey, Document document, boolean usebestpartition, SetDecoding decoding) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        return fromKLVReader(openFileChannel(mxffile, usebestpartition), defresolver, rootclasskey, document, decoding);
+    }
+
+    private static KLVChannelReader openFileChannel(FileChannel mxffile, boolean usebestpartition) throws IOException {
+
+        KLVChannelReader kcr = new KLVChannelReader(mxffile);
+
+        if (usebestpartition) {
+
+            long start = kcr.getPosition();
+
+            long best = findBestHeaderPartition(kcr);
+
+            kcr.seek(best < 0 ? start : best);
+        }
+
+        return kcr;
+    }
+
+    /**
+     * Uses the Random Index Pack to locate the partition that contains the
+     * most complete copy of the Header Metadata. When several partitions
+     * share the same status, the last one in the file is selected.
+     *
+     * @param kcr MXF file, positioned at the start of the Header Partition
+     * @return Offset of the Partition Pack from the start of the file, or -1 if
+     * no Random Index Pack, or no partition containing Header Metadata, was found
+     * @throws IOException
+     */
+    private static long findBestHeaderPartition(KLVChannelReader kcr) throws IOException {
+
+        long start = kcr.getPosition();
+
+        long size = kcr.size();
 
-        /* look for the partition pack */
-        KLVInputStream kis = new KLVInputStream(cis);
+        /* the last 4 bytes of the file contain the length of the Random Index Pack */
+        if (size - start < 4) {
+            return -1;
+        }
+
+        long best = -1;
+        PartitionPack.Status beststatus = null;
+
+        try {
+
+            long riplen = kcr.slice(size - 4, 4).getInt() & 0xFFFFFFFFL;
+
+            if (riplen < 20 || riplen > size - start) {
+                return -1;
+            }
+
+            kcr.seek(size - riplen);
+
+            RandomIndexPack rip = RandomIndexPack.fromTriplet(kcr.readTriplet());
+
+            if (rip == null) {
+                return -1;
+            }
+
+            for (RandomIndexPack.Entry entry : rip.getEntries()) {
+
+                long offset = start + entry.getByteOffset();
+
+                kcr.seek(offset);
+
+                UL key = kcr.readUL();
+
+                if (!PartitionPack.isPartitionPackKey(key)) {
+                    LOG.log(Level.WARNING, "Random Index Pack entry does not point to a Partition Pack at offset {0}", offset);
+                    continue;
+                }
+
+                PartitionPack pp = PartitionPack.fromTriplet(kcr.readValue(key, kcr.readBERLength()));
+
+                if (pp == null || pp.getHeaderByteCount() == 0) {
+                    continue;
+                }
 
+                /* statuses are declared in increasing order of completeness */
+                if (beststatus == null || pp.getStatus().compareTo(beststatus) >= 0) {
+                    best = offset;
+                    beststatus = pp.getStatus();
+                }
+            }
+
+        } catch (KLVException | EOFException e) {
+            LOG.log(Level.WARNING, "Failed to read Random Index Pack: {0}", e.getMessage());
+        }
+
+        return best;
+    }
+
+    static DocumentFragment fromKLVReader(KLVReader kis, DefinitionResolver defresolver, UL rootclasskey, Document document, SetDecoding decoding) throws IOException, KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        HeaderMetadata hm = readHeaderMetadata(kis, decoding);
+
+        Group rootgroup = findRootGroup(hm.groups, defresolver, rootclasskey);
+
+        return new FragmentBuilder(defresolver, hm.sets).fromTriplet(rootgroup, document);
+    }
+
+    static void fromKLVReader(KLVReader kis, DefinitionResolver defresolver, UL rootclasskey, XMLStreamWriter writer, SetDecoding decoding) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        HeaderMetadata hm = readHeaderMetadata(kis, decoding);
+
+        Group rootgroup = findRootGroup(hm.groups, defresolver, rootclasskey);
+
+        new FragmentBuilder(defresolver, hm.sets).fromTriplet(rootgroup, writer);
+    }
+
+    /**
+     * Groups of the Header Metadata, in the order in which they appear, and
+     * the MXF Sets among them indexed by Instance ID
+     */
+    private static class HeaderMetadata {
+
+        final List<Group> groups;
+        final Map<UUID, Set> sets;
+
+        HeaderMetadata(List<Group> groups, Map<UUID, Set> sets) {
+            this.groups = groups;
+            this.sets = sets;
+        }
+    }
+
+    /**
+     * Reads the Header Metadata. Only a KLVChannelReader supports
+     * SetDecoding.INDEXED.
+     */
+    private static HeaderMetadata readHeaderMetadata(KLVReader kis, SetDecoding decoding) throws IOException, KLVException, MXFException {
+
+        /* look for the partition pack, skipping over the value of any other 
+           KLV, e.g. run-in or essence, without reading it */
         PartitionPack pp = null;
 
-        for (Triplet t; (t = kis.readTriplet()) != null;) {
+        while (pp == null) {
+
+            UL key = kis.readUL();
+
+            long len = kis.readBERLength();
+
+            if (PartitionPack.isPartitionPackKey(key)) {
+
+                pp = PartitionPack.fromTriplet(kis.readValue(key, len));
+
+            } else if (kis.skip(len) != len) {
 
-            if ((pp = PartitionPack.fromTriplet(t)) != null) {
                 break;
+
             }
         }
 
@@ -103,16 +474,22 @@ public class MXFFragmentBuilder {
         }
 
         /* start counting header metadata bytes */
-        cis.resetCount();
+        long hmstart = kis.getPosition();
 
         /* look for the primer pack */
         LocalTagRegister localreg = null;
 
-        for (Triplet t; (t = kis.readTriplet()) != null; cis.resetCount()) {
+        for (;; hmstart = kis.getPosition()) {
+
+            UL key = kis.readUL();
+
+            long len = kis.readBERLength();
 
             /* skip fill items, if any */
-            if (!t.getKey().equalsIgnoreVersion(FillItem.getKey())) {
-                localreg = PrimerPack.createLocalTagRegister(t);
+            if (key.equalsIgnoreVersion(FillItem.getKey())) {
+                kis.skip(len);
+            } else {
+                localreg = PrimerPack.createLocalTagRegister(kis.readValue(key, len));
                 break;
             }
 
@@ -125,30 +502,76 @@ public class MXFFragmentBuilder {
         /* capture all local sets within the header metadata */
         ArrayList<Group> gs = new ArrayList<>();
         HashMap<UUID, Set> setresolver = new HashMap<>();
+        IndexedSetResolver index = null;
+
+        if (decoding == SetDecoding.INDEXED) {
+            index = new IndexedSetResolver((KLVChannelReader) kis, localreg, INDEXED_SET_CACHE_SIZE);
+        }
 
-        for (Triplet t;
-                cis.getCount() < pp.getHeaderByteCount()
-                && (t = kis.readTriplet()) != null;) {
+        while (kis.getPosition() - hmstart < pp.getHeaderByteCount()) {
 
-            if (t.getKey().equalsIgnoreVersion(INDEX_TABLE_SEGMENT_UL)) {
+            UL key = kis.readUL();
+
+            long len = kis.readBERLength();
+
+            if (key.equalsIgnoreVersion(IndexTableSegment.getKey())) {
 
                 /* stop if Index Table reached */
                 LOG.warning("Index Table Segment encountered before Header Byte Count bytes read.");
                 break;
-            } else if (t.getKey().equalsIgnoreVersion(FillItem.getKey())) {
+            } else if (key.equalsIgnoreVersion(FillItem.getKey())) {
 
                 /* skip fill items */
+                kis.skip(len);
                 continue;
             }
+            
+            long offset = kis.getPosition();
+
+            Triplet t = kis.readValue(key, len);
+            
             try {
-                Group g = LocalSet.fromTriplet(t, localreg);
+                Group g;
+                Set set;
+
+                if (index != null) {
+
+                    if (key.isLocalSet()) {
+
+                        if (len > Integer.MAX_VALUE) {
+                            throw new KLVException(KLVException.MAX_LENGTH_EXCEEED);
+                        }
+
+                        /* decoded once, and discarded, such that the groups and
+                           sets indexed are the same as with SetDecoding.EAGER */
+                        set = Set.fromGroup(LocalSet.fromTriplet(t, localreg));
+
+                        index.add(key, offset, (int) len, set == null ? null : set.getInstanceID());
+
+                    } else {
+                        LOG.log(Level.WARNING, "Failed to read Group: {0}", t.getKey().toString());
+                    }
+
+                    continue;
+
+                } else if (decoding == SetDecoding.LAZY) {
+
+                    set = Set.fromLocalSet(t, localreg);
+                    
+                    g = set != null ? set : LocalSet.fromTripletLazily(t, localreg);
+
+                } else {
+
+                    g = LocalSet.fromTriplet(t, localreg);
+
+                    set = g != null ? Set.fromGroup(g) : null;
+
+                }
 
                 if (g != null) {
 
                     gs.add(g);
 
-                    Set set = Set.fromGroup(g);
-
                     if (set != null) {
                         setresolver.put(set.getInstanceID(), set);
                     }
@@ -166,6 +589,20 @@ public class MXFFragmentBuilder {
                 );
             }
         }
+
+        if (index != null) {
+            return new HeaderMetadata(index.getGroups(), index);
+        }
+
+        return new HeaderMetadata(gs, setresolver);
+    }
+
+    /**
+     * Returns the object of the Header Metadata with the specified class, or
+     * with a class that descends from the specified class, or the first object
+     * if no class is specified.
+     */
+    static Group findRootGroup(List<Group> gs, DefinitionResolver defresolver, UL rootclasskey) throws MXFException {
         
         for(Group agroup : gs) {
         
@@ -194,9 +631,7 @@ public class MXFFragmentBuilder {
         
         }
 
-        /* create the fragment */
-        FragmentBuilder fb = new FragmentBuilder(defresolver, setresolver);
-
+        /* find the root object */
             Group rootgroup = null;
 
             if (rootclasskey != null) {
@@ -223,7 +658,7 @@ public class MXFFragmentBuilder {
                         /* is it an instance of the requested root object */
                         UL deful = def.getIdentification().asUL();
 
-                        if (deful.equalsIgnoreVersion(rootclasskey)) {
+                        if (deful.equalsWithMask(rootclasskey, 0b1111101011111111 /* ignore version and Group coding */)) {
                             rootgroup = g;
 
                         } else {
@@ -244,7 +679,7 @@ public class MXFFragmentBuilder {
                 throw new MXFException("Root object not found");
             }
 
-            return fb.fromTriplet(rootgroup, document);
+            return rootgroup;
 
         }
 
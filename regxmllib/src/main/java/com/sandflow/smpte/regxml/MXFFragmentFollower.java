@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.HeaderMetadataParser;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException;
+import com.sandflow.smpte.regxml.dict.DefinitionResolver;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamWriter;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+
+/**
+ * Follows an MXF file (SMPTE ST 377-1) as it is written, e.g. during a live
+ * recording, and builds a RegXML Fragment (SMPTE ST 2001-1) from the most
+ * recent Header Metadata each time a partition carries Header Metadata that
+ * differs from the previous one.
+ * <p>
+ * Each call to poll() reads only the bytes appended since the previous call,
+ * and skips over essence without reading it. A Header Metadata set is decoded
+ * again only if its Instance ID is new or its content has changed.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class MXFFragmentFollower {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileChannel mxffile;
+    private final DefinitionResolver defresolver;
+    private final UL rootclasskey;
+
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+    private final Parser parser = new Parser();
+
+    /* offset of the next byte to be read from the file */
+    private long position;
+
+    /* last complete Header Metadata */
+    private PartitionPack partition;
+    private List<Group> groups;
+    private Map<UUID, ParsedSet> sets = new HashMap<>();
+    private List<ParsedSet> others = new ArrayList<>();
+
+    /* Header Metadata being parsed */
+    private PartitionPack nextpartition;
+    private ArrayList<Group> nextgroups;
+    private HashMap<UUID, ParsedSet> nextsets;
+    private ArrayList<ParsedSet> nextothers;
+    private boolean changed;
+
+    /* value of the most recent Primer Pack. The same array is kept as long
+       as the Primer Pack is unchanged, such that sets can compare their
+       Primer Packs by reference. */
+    private byte[] primer;
+
+    private boolean updated;
+    private boolean footer;
+    private boolean complete;
+
+    /**
+     * Creates a follower. No bytes are read until poll() is called.
+     *
+     * @param mxffile MXF file, positioned at the start of the Header Partition
+     * @param defresolver MetaDictionary definitions
+     * @param rootclasskey Key of the class of the root object of the fragment,
+     * or null if the first object of the Header Metadata is the root object
+     * @throws IOException
+     */
+    public MXFFragmentFollower(FileChannel mxffile, DefinitionResolver defresolver, UL rootclasskey) throws IOException {
+        this.mxffile = mxffile;
+        this.defresolver = defresolver;
+        this.rootclasskey = rootclasskey;
+        this.position = mxffile.position();
+    }
+
+    /**
+     * Parses the bytes appended to the file since the previous call.
+     *
+     * @return true if, since the previous call, the Header Metadata of at
+     * least one partition was completed and differs from the Header Metadata
+     * returned previously by buildFragment()
+     * @throws IOException
+     * @throws KLVException
+     */
+    public boolean poll() throws IOException, KLVException {
+
+        long start = position;
+
+        long size = mxffile.size();
+
+        position += parser.skip(size - position);
+
+        while (position < size) {
+
+            chunk.clear();
+
+            if (size - position < chunk.capacity()) {
+                chunk.limit((int) (size - position));
+            }
+
+            int len = mxffile.read(chunk, position);
+
+            if (len <= 0) {
+                break;
+            }
+
+            chunk.flip();
+
+            parser.feed(chunk);
+
+            position += len;
+
+            /* skip essence without reading it */
+            position += parser.skip(size - position);
+        }
+
+        complete = footer && nextpartition == null && position == start;
+
+        boolean wasupdated = updated;
+
+        updated = false;
+
+        return wasupdated;
+    }
+
+    /**
+     * Indicates whether the file appears to be completely written, i.e. the
+     * Footer Partition has been parsed and no bytes were appended since the
+     * previous call to poll()
+     *
+     * @return true if the file appears to be complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the Partition Pack of the partition that contains the most
+     * recent Header Metadata
+     *
+     * @return Partition Pack or null if no Header Metadata has been parsed
+     */
+    public PartitionPack getPartitionPack() {
+        return partition;
+    }
+
+    /**
+     * Builds a RegXML Fragment from the most recent Header Metadata
+     *
+     * @param document Document from which the XML DocumentFragment is created
+     * @return XML DocumentFragment
+     * @throws KLVException
+     * @throws MXFException
+     * @throws ParserConfigurationException
+     * @throws FragmentBuilder.RuleException
+     */
+    public DocumentFragment buildFragment(Document document) throws KLVException, MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+        return new FragmentBuilder(defresolver, getSetResolver()).fromTriplet(getRootGroup(), document);
+    }
+
+    /**
+     * Builds a RegXML Fragment from the most recent Header Metadata and writes
+     * it to an XMLStreamWriter
+     *
+     * @param writer Writer to which the RegXML Fragment is written
+     * @throws KLVException
+     * @throws MXFException
+     * @throws FragmentBuilder.RuleException
+     */
+    public void buildFragment(XMLStreamWriter writer) throws KLVException, MXFException, FragmentBuilder.RuleException {
+
+        new FragmentBuilder(defresolver, getSetResolver()).fromTriplet(getRootGroup(), writer);
+    }
+
+    private Group getRootGroup() throws MXFException {
+
+        if (groups == null) {
+            throw new MXFException("No Header Metadata found.");
+        }
+
+        return MXFFragmentBuilder.findRootGroup(groups, defresolver, rootclasskey);
+    }
+
+    private Map<UUID, Set> getSetResolver() {
+
+        HashMap<UUID, Set> setresolver = new HashMap<>();
+
+        for (Map.Entry<UUID, ParsedSet> entry : sets.entrySet()) {
+            setresolver.put(entry.getKey(), entry.getValue().set);
+        }
+
+        return setresolver;
+    }
+
+    /**
+     * Set parsed from a Local Set, which is reused as long as the Local Set
+     * and the Primer Pack that precedes it are unchanged. The Set is null for
+     * groups without Instance ID, which are only compared.
+     */
+    private static class ParsedSet {
+
+        final Triplet localset;
+        final int hash;
+        final byte[] primer;
+        final Set set;
+
+        ParsedSet(Triplet localset, int hash, byte[] primer, Set set) {
+            this.localset = localset;
+            this.hash = hash;
+            this.primer = primer;
+            this.set = set;
+        }
+
+        boolean matches(Triplet other, int otherhash, byte[] otherprimer) {
+            return hash == otherhash
+                    && primer == otherprimer
+                    && localset.getKey().equals(other.getKey())
+                    && Arrays.equals(localset.getValue(), other.getValue());
+        }
+    }
+
+    private class Parser extends HeaderMetadataParser {
+
+        Parser() {
+            super(new PartitionHandler(), true);
+        }
+
+        @Override
+        protected LocalTagRegister decodePrimerPack(Triplet triplet) throws KLVException {
+
+            byte[] value = triplet.getValue();
+
+            if (primer == null || !Arrays.equals(primer, value)) {
+                primer = value;
+            }
+
+            return super.decodePrimerPack(triplet);
+        }
+
+        @Override
+        protected Group decodeLocalSet(Triplet localset, LocalTagRegister reg) throws KLVException {
+
+            UUID instanceid = Set.getInstanceID(localset, reg);
+
+            int hash = Arrays.hashCode(localset.getValue());
+
+            if (instanceid == null) {
+
+                /* groups without Instance ID are matched in order of appearance */
+                int i = nextothers.size();
+
+                if (i >= others.size() || !others.get(i).matches(localset, hash, primer)) {
+                    changed = true;
+                }
+
+                nextothers.add(new ParsedSet(localset, hash, primer, null));
+
+                return LocalSet.fromTriplet(localset, reg);
+            }
+
+            ParsedSet ps = sets.get(instanceid);
+
+            if (ps == null || !ps.matches(localset, hash, primer)) {
+
+                /* the items of new or changed sets are decoded only when accessed */
+                ps = new ParsedSet(localset, hash, primer, Set.fromLocalSet(localset, reg));
+
+                changed = true;
+            }
+
+            nextsets.put(instanceid, ps);
+
+            return ps.set;
+        }
+    }
+
+    private class PartitionHandler implements HeaderMetadataParser.Handler {
+
+        @Override
+        public void onPartitionPack(PartitionPack pp, long offset) {
+
+            if (pp.getKind() == PartitionPack.Kind.FOOTER) {
+                footer = true;
+            }
+
+            if (pp.getHeaderByteCount() == 0) {
+                return;
+            }
+
+            nextpartition = pp;
+            nextgroups = new ArrayList<>();
+            nextsets = new HashMap<>();
+            nextothers = new ArrayList<>();
+            changed = false;
+        }
+
+        @Override
+        public void onPrimerPack(LocalTagRegister reg) {
+
+            /* sets are skipped: keep the Header Metadata of earlier partitions */
+            if (reg == null) {
+                nextgroups = null;
+            }
+        }
+
+        @Override
+        public void onLocalSet(Group group, long offset) {
+            nextgroups.add(group);
+        }
+
+        @Override
+        public void onHeaderMetadataEnd() {
+
+            if (nextgroups != null) {
+
+                if (changed
+                        || groups == null
+                        || nextgroups.size() != groups.size()
+                        || nextsets.size() != sets.size()
+                        || nextothers.size() != others.size()) {
+
+                    partition = nextpartition;
+                    groups = nextgroups;
+                    updated = true;
+                }
+
+                sets = nextsets;
+                others = nextothers;
+            }
+
+            nextpartition = null;
+            nextgroups = null;
+            nextsets = null;
+            nextothers = null;
+        }
+    }
+
+}
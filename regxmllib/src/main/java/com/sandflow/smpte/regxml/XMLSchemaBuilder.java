@@ -26,6 +26,7 @@
 package com.sandflow.smpte.regxml;
 
 import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.regxml.dict.ClassIndex;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
@@ -94,6 +95,7 @@ public class XMLSchemaBuilder {
     private static final AUID InstanceID_AUID = new AUID(UL.fromURN("urn:smpte:ul:060e2b34.01010101.01011502.00000000"));
 
     private DefinitionResolver resolver;
+    private final ClassIndex classes;
     private final NamespacePrefixMapper prefixes = new NamespacePrefixMapper();
 
     /**
@@ -102,6 +104,7 @@ public class XMLSchemaBuilder {
      */
     public XMLSchemaBuilder(DefinitionResolver resolver) {
         this.resolver = resolver;
+        this.classes = ClassIndex.forResolver(resolver);
     }
 
     private String createQName(URI uri, String name) {
@@ -217,40 +220,25 @@ public class XMLSchemaBuilder {
         Element all = root.getOwnerDocument().createElementNS(XSD_NS, "xs:all");
         complexType.appendChild(all);
 
-        boolean hasUID = false;
-        ClassDefinition cdef = definition;
+        ClassIndex.Entry entry = classes.get(definition);
 
-        while (cdef != null) {
+        for (PropertyDefinition pdef : entry.getAllMembers()) {
 
-            for (AUID auid : resolver.getMembersOf(cdef)) {
+            element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
+            element.setAttribute("ref", createQName(pdef.getNamespace(), pdef.getSymbol()));
 
-                PropertyDefinition pdef
-                        = (PropertyDefinition) resolver.getDefinition(auid);
-
-                element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
-                element.setAttribute("ref", createQName(pdef.getNamespace(), pdef.getSymbol()));
-
-                if (pdef.isOptional() || pdef.getIdentification().equals(ObjectClass_AUID)) {
-                    element.setAttribute("minOccurs", "0");
-                }
-
-                /* NOTE: require reg:uid only if the object has one property
-                         with IsUniqueIdentifier */
-                
-                hasUID |= pdef.isUniqueIdentifier();
-                
-                all.appendChild(element);
-                
+            if (pdef.isOptional() || pdef.getIdentification().equals(ObjectClass_AUID)) {
+                element.setAttribute("minOccurs", "0");
             }
 
-            if (cdef.getParentClass() != null) {
-                cdef = (ClassDefinition) resolver.getDefinition(cdef.getParentClass());
-            } else {
-                cdef = null;
-            }
+            all.appendChild(element);
 
         }
 
+        /* NOTE: require reg:uid only if the object has one property
+                 with IsUniqueIdentifier */
+        boolean hasUID = entry.getUniqueIdentifier() != null;
+
         Element attribute = null;
 
         /* @reg:uid */
@@ -608,7 +596,7 @@ public class XMLSchemaBuilder {
             root.appendChild(element);
         }
 
-        for (AUID auid : resolver.getSubclassesOf(cdef)) {
+        for (AUID auid : classes.get(cdef).getSubclasses()) {
             ClassDefinition child
                     = (ClassDefinition) resolver.getDefinition(auid);
 
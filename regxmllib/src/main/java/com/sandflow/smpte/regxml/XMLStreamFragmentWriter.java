@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.FragmentBuilder.RuleException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a RegXML Fragment to an XMLStreamWriter as it is generated, keeping
+ * only the path to the current element in memory. Namespace prefixes are
+ * assigned in the order in which namespaces are first used, and each namespace
+ * is declared on the outermost element that uses it within a given scope.
+ */
+class XMLStreamFragmentWriter implements FragmentWriter {
+
+    private final XMLStreamWriter writer;
+    private final HashMap<String, String> nsprefixes = new HashMap<>();
+
+    /* namespaces in scope, in order of declaration */
+    private final ArrayList<String> declarations = new ArrayList<>();
+
+    /* number of namespaces in scope when each open element was started */
+    private final ArrayList<Integer> scopes = new ArrayList<>();
+
+    /**
+     * Instantiates an XMLStreamFragmentWriter
+     *
+     * @param writer Writer to which the RegXML Fragment is written
+     */
+    XMLStreamFragmentWriter(XMLStreamWriter writer) {
+        this.writer = writer;
+    }
+
+    private String getPrefix(String ns) {
+        String prefix = this.nsprefixes.get(ns);
+
+        /* if prefix does not exist, create one */
+        if (prefix == null) {
+            prefix = "r" + this.nsprefixes.size();
+
+            this.nsprefixes.put(ns, prefix);
+        }
+
+        return prefix;
+    }
+
+    @Override
+    public void startElement(String namespace, String localname) throws RuleException {
+
+        try {
+
+            writer.writeStartElement(getPrefix(namespace), localname, namespace);
+
+            scopes.add(declarations.size());
+
+            declareNamespace(namespace);
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+    @Override
+    public void declareNamespace(String namespace) throws RuleException {
+
+        if (declarations.contains(namespace)) {
+            return;
+        }
+
+        try {
+
+            writer.writeNamespace(getPrefix(namespace), namespace);
+
+            declarations.add(namespace);
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+    @Override
+    public void attribute(String namespace, String localname, String value) throws RuleException {
+
+        declareNamespace(namespace);
+
+        try {
+
+            writer.writeAttribute(getPrefix(namespace), namespace, localname, value);
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+    @Override
+    public void characters(String text) throws RuleException {
+
+        try {
+
+            writer.writeCharacters(text);
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+    @Override
+    public void comment(String text) throws RuleException {
+
+        try {
+
+            writer.writeComment(text);
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+    @Override
+    public void endElement() throws RuleException {
+
+        try {
+
+            writer.writeEndElement();
+
+            int scope = scopes.remove(scopes.size() - 1);
+
+            /* namespaces declared on the element go out of scope */
+            while (declarations.size() > scope) {
+                declarations.remove(declarations.size() - 1);
+            }
+
+        } catch (XMLStreamException e) {
+            throw new RuleException(e);
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.util.AUID;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Immutable view of the Class definitions known to a DefinitionResolver, in
+ * which the members, unique identifier and subclasses of each Class are
+ * resolved once, including those inherited from its parent Classes.
+ */
+public final class ClassIndex {
+
+    /**
+     * Resolved view of a single Class definition
+     */
+    public static final class Entry {
+
+        private final ClassDefinition definition;
+        private final List<PropertyDefinition> members;
+        private final PropertyDefinition uniqueIdentifier;
+        private final List<AUID> subclasses;
+        private final List<ClassDefinition> allSubclasses;
+
+        private Entry(DefinitionResolver resolver, ClassDefinition definition) {
+
+            this.definition = definition;
+
+            ArrayList<PropertyDefinition> props = new ArrayList<>();
+            PropertyDefinition uid = null;
+
+            for (ClassDefinition cdef = definition; cdef != null;) {
+
+                Collection<AUID> auids = resolver.getMembersOf(cdef);
+
+                if (auids != null) {
+                    for (AUID auid : auids) {
+
+                        PropertyDefinition pdef = (PropertyDefinition) resolver.getDefinition(auid);
+
+                        if (uid == null && pdef != null && pdef.isUniqueIdentifier()) {
+                            uid = pdef;
+                        }
+
+                        props.add(pdef);
+                    }
+                }
+
+                if (cdef.getParentClass() != null) {
+                    cdef = (ClassDefinition) resolver.getDefinition(cdef.getParentClass());
+                } else {
+                    cdef = null;
+                }
+
+            }
+
+            this.members = Collections.unmodifiableList(props);
+            this.uniqueIdentifier = uid;
+
+            Collection<AUID> auids = resolver.getSubclassesOf(definition);
+
+            this.subclasses = auids == null
+                    ? Collections.<AUID>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(auids));
+
+            /* depth-first, in the order in which subclasses are listed */
+            ArrayList<ClassDefinition> all = new ArrayList<>();
+            IdentityHashMap<ClassDefinition, Boolean> visited = new IdentityHashMap<>();
+            ArrayDeque<ClassDefinition> stack = new ArrayDeque<>();
+
+            visited.put(definition, Boolean.TRUE);
+            pushSubclasses(resolver, stack, this.subclasses);
+
+            while (!stack.isEmpty()) {
+
+                ClassDefinition cdef = stack.pop();
+
+                if (visited.put(cdef, Boolean.TRUE) != null) {
+                    continue;
+                }
+
+                all.add(cdef);
+
+                auids = resolver.getSubclassesOf(cdef);
+
+                if (auids != null) {
+                    pushSubclasses(resolver, stack, auids);
+                }
+            }
+
+            this.allSubclasses = Collections.unmodifiableList(all);
+        }
+
+        private static void pushSubclasses(DefinitionResolver resolver, ArrayDeque<ClassDefinition> stack, Collection<AUID> auids) {
+
+            ArrayList<ClassDefinition> defs = new ArrayList<>();
+
+            for (AUID auid : auids) {
+
+                Definition def = resolver.getDefinition(auid);
+
+                if (def instanceof ClassDefinition) {
+                    defs.add((ClassDefinition) def);
+                }
+            }
+
+            for (int i = defs.size() - 1; i >= 0; i--) {
+                stack.push(defs.get(i));
+            }
+        }
+
+        /**
+         * @return Class definition
+         */
+        public ClassDefinition getDefinition() {
+            return definition;
+        }
+
+        /**
+         * @return Members of the Class, followed by those of its parent Classes
+         */
+        public List<PropertyDefinition> getAllMembers() {
+            return members;
+        }
+
+        /**
+         * @return Member of the Class, or of one of its parent Classes, that is
+         * a unique identifier, or null if none exists
+         */
+        public PropertyDefinition getUniqueIdentifier() {
+            return uniqueIdentifier;
+        }
+
+        /**
+         * @return Identifications of the direct subclasses of the Class,
+         * including any that cannot be resolved
+         */
+        public List<AUID> getSubclasses() {
+            return subclasses;
+        }
+
+        /**
+         * @return Resolved direct and indirect subclasses of the Class
+         */
+        public List<ClassDefinition> getAllSubclasses() {
+            return allSubclasses;
+        }
+    }
+
+    /**
+     * Returns the ClassIndex of a DefinitionResolver. The index is shared when
+     * the resolver is a MetaDictionary or a MetaDictionaryCollection, and is
+     * otherwise empty, in which case entries are built on each request.
+     *
+     * @param resolver Resolver whose Class definitions are indexed
+     * @return ClassIndex of the resolver
+     */
+    public static ClassIndex forResolver(DefinitionResolver resolver) {
+
+        if (resolver instanceof MetaDictionaryCollection) {
+            return ((MetaDictionaryCollection) resolver).getClassIndex();
+        }
+
+        if (resolver instanceof MetaDictionary) {
+            return ((MetaDictionary) resolver).getClassIndex();
+        }
+
+        return new ClassIndex(resolver, Collections.<Definition>emptyList());
+    }
+
+    private final DefinitionResolver resolver;
+    private final IdentityHashMap<ClassDefinition, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Builds the entries of all Class definitions among a collection of
+     * definitions.
+     *
+     * @param resolver Resolver used to resolve members, parent Classes and
+     * subclasses
+     * @param definitions Definitions to be indexed
+     */
+    ClassIndex(DefinitionResolver resolver, Collection<? extends Definition> definitions) {
+
+        this.resolver = resolver;
+
+        for (Definition def : definitions) {
+            if (def instanceof ClassDefinition) {
+                entries.put((ClassDefinition) def, new Entry(resolver, (ClassDefinition) def));
+            }
+        }
+    }
+
+    /**
+     * Returns the entry of a Class definition. Entries of definitions that were
+     * not indexed are built on each call.
+     *
+     * @param definition Class definition
+     * @return Entry of the Class definition
+     */
+    public Entry get(ClassDefinition definition) {
+
+        Entry entry = entries.get(definition);
+
+        if (entry == null) {
+            entry = new Entry(resolver, definition);
+        }
+
+        return entry;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.util.AUID;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing index of Definitions keyed by normalized AUID (see
+ * {@link MetaDictionary#createNormalizedAUID(AUID)}). Lookups normalize the
+ * key in place and do not allocate.
+ */
+final class DefinitionIndex {
+
+    private final long[] msbs;
+    private final long[] lsbs;
+    private final Definition[] defs;
+    private final int mask;
+
+    /**
+     * Builds an index from one or more maps of normalized AUIDs to Definitions.
+     * When a key appears in multiple maps, the first mapping wins.
+     *
+     * @param maps Maps from normalized AUIDs to Definitions
+     */
+    @SafeVarargs
+    DefinitionIndex(Map<AUID, Definition>... maps) {
+
+        int count = 0;
+
+        for (Map<AUID, Definition> map : maps) {
+            count += map.size();
+        }
+
+        /* keep the load factor at or below 0.5 */
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+
+        this.msbs = new long[capacity];
+        this.lsbs = new long[capacity];
+        this.defs = new Definition[capacity];
+        this.mask = capacity - 1;
+
+        for (Map<AUID, Definition> map : maps) {
+            for (Map.Entry<AUID, Definition> entry : map.entrySet()) {
+                insert(entry.getKey().getMostSignificantBits(),
+                        entry.getKey().getLeastSignificantBits(),
+                        entry.getValue());
+            }
+        }
+    }
+
+    private void insert(long msb, long lsb, Definition def) {
+
+        for (int i = hash(msb, lsb) & mask;; i = (i + 1) & mask) {
+
+            if (defs[i] == null) {
+                msbs[i] = msb;
+                lsbs[i] = lsb;
+                defs[i] = def;
+                return;
+            }
+
+            if (msbs[i] == msb && lsbs[i] == lsb) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the Definition whose normalized AUID matches the normalized
+     * value of a key
+     *
+     * @param key Key, which need not be normalized
+     * @return Definition, or null if none matches
+     */
+    Definition get(AUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Retrieves the Definition whose normalized AUID matches the normalized
+     * value of a key provided as two big-endian longs
+     *
+     * @param msb Bytes 0 to 7 of the key
+     * @param lsb Bytes 8 to 15 of the key
+     * @return Definition, or null if none matches
+     */
+    Definition get(long msb, long lsb) {
+
+        msb = MetaDictionary.normalizeMostSignificantBits(msb);
+
+        for (int i = hash(msb, lsb) & mask; defs[i] != null; i = (i + 1) & mask) {
+
+            if (msbs[i] == msb && lsbs[i] == lsb) {
+                return defs[i];
+            }
+        }
+
+        return null;
+    }
+
+    private static int hash(long msb, long lsb) {
+
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 29));
+    }
+}
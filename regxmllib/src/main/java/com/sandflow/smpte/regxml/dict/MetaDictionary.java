@@ -59,6 +59,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -97,19 +98,35 @@ public class MetaDictionary implements DefinitionResolver {
     }
 
     static UL createNormalizedUL(UL ul) {
-        byte[] value = ul.getValue().clone();
+        return new UL(normalizeMostSignificantBits(ul.getMostSignificantBits()), ul.getLeastSignificantBits());
+    }
+
+    /**
+     * Normalizes bytes 0 to 7 of an AUID, held as a big-endian long
+     * 
+     * @param msb Bytes 0 to 7 of the AUID
+     * @return Normalized bytes 0 to 7 of the AUID
+     */
+    static long normalizeMostSignificantBits(long msb) {
+        
+        /* UUIDs are left untouched */
+        
+        if (msb < 0) {
+            return msb;
+        }
+        
         /* set version to 0 */
         
-        value[7] = 0;
+        msb &= ~0xFFL;
         
-        if (ul.isGroup()) {
+        if (((msb >>> 24) & 0xFF) == 2) {
             
-            /* set byte 6 to 0x7f */
-            value[5] = 0x7f;
+            /* set byte 6 of group keys to 0x7f */
+            msb = (msb & ~0xFF0000L) | 0x7F0000L;
             
         }
         
-        return new UL(value);
+        return msb;
     }
 
     static String createQualifiedSymbol(String namespace, String symbol) {
@@ -162,6 +179,9 @@ public class MetaDictionary implements DefinitionResolver {
     private final HashMap<String, Definition> definitionsBySymbol = new HashMap<>();
     private final HashMap<AUID, Set<AUID>> membersOf = new HashMap<>();
     private final HashMap<AUID, Set<AUID>> subclassesOf = new HashMap<>();
+    private volatile DefinitionIndex index;
+    private volatile ClassIndex classIndex;
+    private volatile int revision;
 
     private MetaDictionary() {
     }
@@ -176,6 +196,12 @@ public class MetaDictionary implements DefinitionResolver {
         this.schemeID = UUID.fromURIName(schemeURI);
         this.schemeURI = schemeURI;
     }
+
+    MetaDictionary(UUID schemeID, URI schemeURI, String description) {
+        this.schemeID = schemeID;
+        this.schemeURI = schemeURI;
+        this.description = description;
+    }
     
     void indexDefinition(Definition def) throws IllegalDefinitionException {
         AUID defid = createNormalizedAUID(def.getIdentification());
@@ -193,8 +219,13 @@ public class MetaDictionary implements DefinitionResolver {
             this.definitionsByAUID.put(defid, def);
             this.definitionsBySymbol.put(def.getSymbol(), def);
             
+            this.index = null;
+            
         }
         
+        this.classIndex = null;
+        this.revision++;
+        
         if (def instanceof PropertyDefinition) {
             
             AUID parentauid = createNormalizedAUID(((PropertyDefinition) def).getMemberOf());
@@ -304,7 +335,46 @@ public class MetaDictionary implements DefinitionResolver {
 
     @Override
     public Definition getDefinition(AUID id) {
-        return definitionsByAUID.get(createNormalizedAUID(id));
+        DefinitionIndex idx = index;
+        
+        if (idx == null) {
+            idx = new DefinitionIndex(definitionsByAUID);
+            index = idx;
+        }
+        
+        return idx.get(id);
+    }
+
+    /**
+     * Returns an index of the Class definitions of the MetaDictionary, which
+     * is built once and rebuilt only after definitions are added.
+     * 
+     * @return Index of the Class definitions
+     */
+    public ClassIndex getClassIndex() {
+        ClassIndex idx = classIndex;
+        
+        if (idx == null) {
+            idx = new ClassIndex(this, definitions);
+            classIndex = idx;
+        }
+        
+        return idx;
+    }
+
+    /**
+     * @return Number of times definitions have been added to the
+     * MetaDictionary, used to detect stale indexes
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return Definitions indexed by normalized AUID
+     */
+    Map<AUID, Definition> getDefinitionsByAUID() {
+        return definitionsByAUID;
     }
 
     /**
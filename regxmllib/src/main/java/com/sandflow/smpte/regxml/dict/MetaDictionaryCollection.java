@@ -34,6 +34,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A collection of multiple RegXML Metadictionary as specified in SMPTE ST 2001-1
@@ -41,18 +42,116 @@ import java.util.HashMap;
 public class MetaDictionaryCollection implements DefinitionResolver {
 
     final private HashMap<URI, MetaDictionary> dicts = new HashMap<>();
+    
+    private volatile CollectionIndex index;
 
-    @Override
-    public Definition getDefinition(AUID auid) {
-        Definition def = null;
+    /* number of times the index has been built */
+    private int indexcount;
 
-        for (MetaDictionary md : dicts.values()) {
-            if ((def = md.getDefinition(auid)) != null) {
-                break;
+    /**
+     * Index across all the MetaDictionaries of the collection, along with the
+     * revisions of the MetaDictionaries at the time it was built
+     */
+    private static class CollectionIndex {
+
+        final DefinitionIndex definitions;
+        final MetaDictionary[] dicts;
+        final int[] revisions;
+        final int revision;
+        
+        /* built on first use, since dictionaries are often used only to
+           resolve definitions */
+        volatile ClassIndex classes;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CollectionIndex(Collection<MetaDictionary> mds, int revision) {
+            
+            this.revision = revision;
+            
+            this.dicts = mds.toArray(new MetaDictionary[mds.size()]);
+            this.revisions = new int[this.dicts.length];
+            
+            Map<AUID, Definition>[] maps = new Map[this.dicts.length];
+
+            for (int i = 0; i < this.dicts.length; i++) {
+                this.revisions[i] = this.dicts[i].getRevision();
+                maps[i] = this.dicts[i].getDefinitionsByAUID();
             }
+
+            this.definitions = new DefinitionIndex(maps);
         }
 
-        return def;
+        boolean isCurrent() {
+            for (int i = 0; i < dicts.length; i++) {
+                if (dicts[i].getRevision() != revisions[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves a definition from any of the MetaDictionaries of the
+     * collection. The lookup is a single probe into an index spanning all
+     * MetaDictionaries, which is rebuilt after definitions are added.
+     * 
+     * @param auid AUID of the definition
+     * @return Definition, or null if none found
+     */
+    @Override
+    public Definition getDefinition(AUID auid) {
+        return getIndex().definitions.get(auid);
+    }
+    
+    /**
+     * Returns an index of the Class definitions across all the
+     * MetaDictionaries of the collection, which is built once and rebuilt
+     * only after definitions are added.
+     * 
+     * @return Index of the Class definitions
+     */
+    public ClassIndex getClassIndex() {
+        CollectionIndex idx = getIndex();
+        
+        ClassIndex classes = idx.classes;
+        
+        if (classes == null) {
+            
+            ArrayList<Definition> defs = new ArrayList<>();
+            
+            for (MetaDictionary md : idx.dicts) {
+                defs.addAll(md.getDefinitions());
+            }
+            
+            classes = new ClassIndex(this, defs);
+            idx.classes = classes;
+        }
+        
+        return classes;
+    }
+    
+    /**
+     * Returns a value that changes every time a MetaDictionary or a definition
+     * is added to the collection, such that information derived from the
+     * collection can be invalidated.
+     * 
+     * @return Revision of the collection
+     */
+    public int getRevision() {
+        return getIndex().revision;
+    }
+    
+    private CollectionIndex getIndex() {
+        CollectionIndex idx = index;
+        
+        if (idx == null || !idx.isCurrent()) {
+            idx = new CollectionIndex(dicts.values(), ++indexcount);
+            index = idx;
+        }
+        
+        return idx;
     }
     
     /**
@@ -84,6 +183,7 @@ public class MetaDictionaryCollection implements DefinitionResolver {
 
         if (oldmd == null) {
             dicts.put(metadictionary.getSchemeURI(), metadictionary);
+            index = null;
         } else {
             throw new IllegalDictionaryException("Metadictionary already present in group.");
         }
@@ -104,6 +204,7 @@ public class MetaDictionaryCollection implements DefinitionResolver {
             md = new MetaDictionary(def.getNamespace());
 
             dicts.put(md.getSchemeURI(), md);
+            index = null;
         }
 
         md.add(def);
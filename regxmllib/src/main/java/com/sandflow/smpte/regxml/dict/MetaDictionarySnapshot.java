@@ -0,0 +1,733 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.DefinitionVisitor;
+import com.sandflow.smpte.regxml.dict.definitions.EnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ExtendibleEnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FixedArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.LensSerialFloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.SetTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StreamTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StringTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StrongReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.VariableArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.WeakReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UUID;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Compact binary representation of a collection of MetaDictionaries, which
+ * loads much faster than their XML representation. The format is private to
+ * regxmllib and carries a version number: snapshots should be regenerated from
+ * the XML MetaDictionaries when regxmllib is upgraded.
+ */
+public final class MetaDictionarySnapshot {
+
+    private static final int MAGIC = 0x52584D44; /* RXMD */
+    private static final int VERSION = 1;
+
+    private static final byte CHARACTER_KIND = 1;
+    private static final byte CLASS_KIND = 2;
+    private static final byte ENUMERATION_KIND = 3;
+    private static final byte EXTENDIBLE_ENUMERATION_KIND = 4;
+    private static final byte FIXED_ARRAY_KIND = 5;
+    private static final byte FLOAT_KIND = 6;
+    private static final byte INDIRECT_KIND = 7;
+    private static final byte INTEGER_KIND = 8;
+    private static final byte LENS_SERIAL_FLOAT_KIND = 9;
+    private static final byte OPAQUE_KIND = 10;
+    private static final byte PROPERTY_ALIAS_KIND = 11;
+    private static final byte PROPERTY_KIND = 12;
+    private static final byte RECORD_KIND = 13;
+    private static final byte RENAME_KIND = 14;
+    private static final byte SET_KIND = 15;
+    private static final byte STREAM_KIND = 16;
+    private static final byte STRING_KIND = 17;
+    private static final byte STRONG_REFERENCE_KIND = 18;
+    private static final byte VARIABLE_ARRAY_KIND = 19;
+    private static final byte WEAK_REFERENCE_KIND = 20;
+
+    private MetaDictionarySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a collection of MetaDictionaries
+     *
+     * @param mds MetaDictionaries to be written
+     * @param os Stream to which the snapshot is written
+     * @throws IOException
+     */
+    public static void toStream(MetaDictionaryCollection mds, OutputStream os) throws IOException {
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os));
+
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+
+        Collection<MetaDictionary> dicts = mds.getDictionaries();
+
+        dos.writeInt(dicts.size());
+
+        DefinitionWriter writer = new DefinitionWriter(dos);
+
+        for (MetaDictionary md : dicts) {
+
+            dos.write(md.getSchemeID().getValue());
+            writeString(dos, md.getSchemeURI().toString());
+            writeString(dos, md.getDescription());
+
+            dos.writeInt(md.getDefinitions().size());
+
+            for (Definition def : md.getDefinitions()) {
+
+                try {
+                    def.accept(writer);
+                } catch (DefinitionVisitor.VisitorException e) {
+                    throw new IOException(e);
+                }
+
+            }
+        }
+
+        dos.flush();
+    }
+
+    /**
+     * Reads a snapshot of a collection of MetaDictionaries from a file, which
+     * is memory-mapped
+     *
+     * @param path Path to the snapshot
+     * @return Collection of MetaDictionaries
+     * @throws IOException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException
+     */
+    public static MetaDictionaryCollection fromFile(Path path) throws IOException, IllegalDefinitionException, IllegalDictionaryException {
+
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            return fromBuffer(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+
+        }
+
+    }
+
+    /**
+     * Reads a snapshot of a collection of MetaDictionaries from a buffer,
+     * starting at its current position
+     *
+     * @param buffer Buffer containing the snapshot
+     * @return Collection of MetaDictionaries
+     * @throws IOException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException
+     */
+    public static MetaDictionaryCollection fromBuffer(ByteBuffer buffer) throws IOException, IllegalDefinitionException, IllegalDictionaryException {
+
+        try {
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a MetaDictionary snapshot.");
+            }
+
+            int version = buffer.getInt();
+
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported MetaDictionary snapshot version %d.", version));
+            }
+
+            MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+
+                byte[] schemeid = new byte[16];
+                buffer.get(schemeid);
+
+                URI schemeuri = new URI(readString(buffer));
+
+                MetaDictionary md = new MetaDictionary(new UUID(schemeid), schemeuri, readString(buffer));
+
+                for (int j = buffer.getInt(); j > 0; j--) {
+
+                    Definition def = readDefinition(buffer);
+
+                    def.setNamespace(schemeuri);
+
+                    md.add(def);
+                }
+
+                mds.addDictionary(md);
+            }
+
+            return mds;
+
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated MetaDictionary snapshot.", e);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Definition readDefinition(ByteBuffer buffer) throws IOException {
+
+        byte kind = buffer.get();
+
+        AUID identification = readAUID(buffer);
+        String symbol = readString(buffer);
+        String name = readString(buffer);
+        String description = readString(buffer);
+
+        Definition def;
+
+        switch (kind) {
+
+            case CHARACTER_KIND:
+                def = new CharacterTypeDefinition();
+                break;
+
+            case CLASS_KIND:
+                ClassDefinition classdef = new ClassDefinition();
+                classdef.setParentClass(readAUID(buffer));
+                classdef.setConcrete(buffer.get() != 0);
+                def = classdef;
+                break;
+
+            case ENUMERATION_KIND:
+                AUID elementtype = readAUID(buffer);
+                EnumerationTypeDefinition enumdef;
+                int elementcount = buffer.getInt();
+                if (elementcount < 0) {
+                    enumdef = new EnumerationTypeDefinition();
+                } else {
+                    ArrayList<EnumerationTypeDefinition.Element> elements = new ArrayList<>();
+                    for (int i = elementcount; i > 0; i--) {
+                        EnumerationTypeDefinition.Element element = new EnumerationTypeDefinition.Element();
+                        element.setName(readString(buffer));
+                        element.setValue(buffer.getInt());
+                        element.setDescription(readString(buffer));
+                        elements.add(element);
+                    }
+                    enumdef = new EnumerationTypeDefinition(elements);
+                }
+                enumdef.setElementType(elementtype);
+                def = enumdef;
+                break;
+
+            case EXTENDIBLE_ENUMERATION_KIND:
+                int xelementcount = buffer.getInt();
+                if (xelementcount < 0) {
+                    def = new ExtendibleEnumerationTypeDefinition();
+                } else {
+                    ArrayList<ExtendibleEnumerationTypeDefinition.Element> xelements = new ArrayList<>();
+                    for (int i = xelementcount; i > 0; i--) {
+                        ExtendibleEnumerationTypeDefinition.Element element = new ExtendibleEnumerationTypeDefinition.Element();
+                        element.setName(readString(buffer));
+                        element.setValue(readAUID(buffer));
+                        element.setDescription(readString(buffer));
+                        xelements.add(element);
+                    }
+                    def = new ExtendibleEnumerationTypeDefinition(xelements);
+                }
+                break;
+
+            case FIXED_ARRAY_KIND:
+                FixedArrayTypeDefinition fixeddef = new FixedArrayTypeDefinition();
+                fixeddef.setElementType(readAUID(buffer));
+                fixeddef.setElementCount(buffer.getInt());
+                def = fixeddef;
+                break;
+
+            case FLOAT_KIND:
+                FloatTypeDefinition floatdef = new FloatTypeDefinition();
+                floatdef.setSize(readEnum(buffer, FloatTypeDefinition.Size.values()));
+                def = floatdef;
+                break;
+
+            case INDIRECT_KIND:
+                def = new IndirectTypeDefinition();
+                break;
+
+            case INTEGER_KIND:
+                IntegerTypeDefinition intdef = new IntegerTypeDefinition();
+                intdef.setSize(readEnum(buffer, IntegerTypeDefinition.Size.values()));
+                intdef.setSigned(buffer.get() != 0);
+                def = intdef;
+                break;
+
+            case LENS_SERIAL_FLOAT_KIND:
+                def = new LensSerialFloatTypeDefinition();
+                break;
+
+            case OPAQUE_KIND:
+                def = new OpaqueTypeDefinition();
+                break;
+
+            case PROPERTY_ALIAS_KIND:
+                PropertyAliasDefinition aliasdef = new PropertyAliasDefinition();
+                readProperty(buffer, aliasdef);
+                aliasdef.setOriginalProperty(readAUID(buffer));
+                def = aliasdef;
+                break;
+
+            case PROPERTY_KIND:
+                PropertyDefinition propdef = new PropertyDefinition();
+                readProperty(buffer, propdef);
+                def = propdef;
+                break;
+
+            case RECORD_KIND:
+                RecordTypeDefinition recdef = new RecordTypeDefinition();
+                for (int i = buffer.getInt(); i > 0; i--) {
+                    RecordTypeDefinition.Member member = new RecordTypeDefinition.Member();
+                    member.setName(readString(buffer));
+                    member.setType(readAUID(buffer));
+                    member.setDescription(readString(buffer));
+                    recdef.addMember(member);
+                }
+                def = recdef;
+                break;
+
+            case RENAME_KIND:
+                RenameTypeDefinition renamedef = new RenameTypeDefinition();
+                renamedef.setRenamedType(readAUID(buffer));
+                def = renamedef;
+                break;
+
+            case SET_KIND:
+                SetTypeDefinition setdef = new SetTypeDefinition();
+                setdef.setElementType(readAUID(buffer));
+                def = setdef;
+                break;
+
+            case STREAM_KIND:
+                def = new StreamTypeDefinition();
+                break;
+
+            case STRING_KIND:
+                StringTypeDefinition stringdef = new StringTypeDefinition();
+                stringdef.setElementType(readAUID(buffer));
+                def = stringdef;
+                break;
+
+            case STRONG_REFERENCE_KIND:
+                StrongReferenceTypeDefinition strongdef = new StrongReferenceTypeDefinition();
+                strongdef.setReferenceType(readAUID(buffer));
+                def = strongdef;
+                break;
+
+            case VARIABLE_ARRAY_KIND:
+                VariableArrayTypeDefinition arraydef = new VariableArrayTypeDefinition();
+                arraydef.setElementType(readAUID(buffer));
+                def = arraydef;
+                break;
+
+            case WEAK_REFERENCE_KIND:
+                WeakReferenceTypeDefinition weakdef = new WeakReferenceTypeDefinition();
+                weakdef.setReferencedType(readAUID(buffer));
+                int targetcount = buffer.getInt();
+                if (targetcount < 0) {
+                    weakdef.setTargetSet(null);
+                } else {
+                    ArrayList<AUID> targetset = new ArrayList<>();
+                    for (int i = targetcount; i > 0; i--) {
+                        targetset.add(readAUID(buffer));
+                    }
+                    weakdef.setTargetSet(targetset);
+                }
+                def = weakdef;
+                break;
+
+            default:
+                throw new IOException(String.format("Unknown definition kind %d in MetaDictionary snapshot.", kind));
+        }
+
+        def.setIdentification(identification);
+        def.setSymbol(symbol);
+        def.setName(name);
+        def.setDescription(description);
+
+        return def;
+    }
+
+    private static void readProperty(ByteBuffer buffer, PropertyDefinition def) {
+        def.setType(readAUID(buffer));
+        def.setMemberOf(readAUID(buffer));
+        def.setLocalIdentification(buffer.getInt());
+        def.setOptional(buffer.get() != 0);
+        def.setUniqueIdentifier(buffer.get() != 0);
+    }
+
+    private static <T extends Enum<T>> T readEnum(ByteBuffer buffer, T[] values) throws IOException {
+
+        int ordinal = buffer.get();
+
+        if (ordinal < 0) {
+            return null;
+        }
+
+        if (ordinal >= values.length) {
+            throw new IOException("Illegal enumeration value in MetaDictionary snapshot.");
+        }
+
+        return values[ordinal];
+    }
+
+    private static AUID readAUID(ByteBuffer buffer) {
+
+        if (buffer.get() == 0) {
+            return null;
+        }
+
+        byte[] value = new byte[16];
+
+        buffer.get(value);
+
+        return new AUID(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+
+        int len = buffer.getInt();
+
+        if (len < 0) {
+            return null;
+        }
+
+        byte[] value = new byte[len];
+
+        buffer.get(value);
+
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream dos, String str) throws IOException {
+
+        if (str == null) {
+
+            dos.writeInt(-1);
+
+        } else {
+
+            byte[] value = str.getBytes(StandardCharsets.UTF_8);
+
+            dos.writeInt(value.length);
+            dos.write(value);
+
+        }
+    }
+
+    private static void writeAUID(DataOutputStream dos, AUID auid) throws IOException {
+
+        if (auid == null) {
+
+            dos.writeByte(0);
+
+        } else {
+
+            dos.writeByte(1);
+            dos.write(auid.getValue());
+
+        }
+    }
+
+    private static void writeEnum(DataOutputStream dos, Enum<?> value) throws IOException {
+        dos.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    /**
+     * Writes each definition as its kind, the fields common to all
+     * definitions, and then the fields specific to the kind
+     */
+    private static class DefinitionWriter implements DefinitionVisitor {
+
+        private final DataOutputStream dos;
+
+        public DefinitionWriter(DataOutputStream dos) {
+            this.dos = dos;
+        }
+
+        private void writeHeader(byte kind, Definition def) throws VisitorException {
+            try {
+                dos.writeByte(kind);
+                writeAUID(dos, def.getIdentification());
+                writeString(dos, def.getSymbol());
+                writeString(dos, def.getName());
+                writeString(dos, def.getDescription());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        private void writeProperty(PropertyDefinition def) throws IOException {
+            writeAUID(dos, def.getType());
+            writeAUID(dos, def.getMemberOf());
+            dos.writeInt(def.getLocalIdentification());
+            dos.writeBoolean(def.isOptional());
+            dos.writeBoolean(def.isUniqueIdentifier());
+        }
+
+        @Override
+        public void visit(ClassDefinition def) throws VisitorException {
+            writeHeader(CLASS_KIND, def);
+            try {
+                writeAUID(dos, def.getParentClass());
+                dos.writeBoolean(def.isConcrete());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(CharacterTypeDefinition def) throws VisitorException {
+            writeHeader(CHARACTER_KIND, def);
+        }
+
+        @Override
+        public void visit(IntegerTypeDefinition def) throws VisitorException {
+            writeHeader(INTEGER_KIND, def);
+            try {
+                writeEnum(dos, def.getSize());
+                dos.writeBoolean(def.isSigned());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(PropertyDefinition def) throws VisitorException {
+            writeHeader(PROPERTY_KIND, def);
+            try {
+                writeProperty(def);
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(ExtendibleEnumerationTypeDefinition def) throws VisitorException {
+            writeHeader(EXTENDIBLE_ENUMERATION_KIND, def);
+            try {
+                if (def.getElements() == null) {
+                    dos.writeInt(-1);
+                } else {
+                    dos.writeInt(def.getElements().size());
+                    for (ExtendibleEnumerationTypeDefinition.Element element : def.getElements()) {
+                        writeString(dos, element.getName());
+                        writeAUID(dos, element.getValue());
+                        writeString(dos, element.getDescription());
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(EnumerationTypeDefinition def) throws VisitorException {
+            writeHeader(ENUMERATION_KIND, def);
+            try {
+                writeAUID(dos, def.getElementType());
+                if (def.getElements() == null) {
+                    dos.writeInt(-1);
+                } else {
+                    dos.writeInt(def.getElements().size());
+                    for (EnumerationTypeDefinition.Element element : def.getElements()) {
+                        writeString(dos, element.getName());
+                        dos.writeInt(element.getValue());
+                        writeString(dos, element.getDescription());
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(FixedArrayTypeDefinition def) throws VisitorException {
+            writeHeader(FIXED_ARRAY_KIND, def);
+            try {
+                writeAUID(dos, def.getElementType());
+                dos.writeInt(def.getElementCount());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(IndirectTypeDefinition def) throws VisitorException {
+            writeHeader(INDIRECT_KIND, def);
+        }
+
+        @Override
+        public void visit(OpaqueTypeDefinition def) throws VisitorException {
+            writeHeader(OPAQUE_KIND, def);
+        }
+
+        @Override
+        public void visit(RecordTypeDefinition def) throws VisitorException {
+            writeHeader(RECORD_KIND, def);
+            try {
+                dos.writeInt(def.getMembers().size());
+                for (RecordTypeDefinition.Member member : def.getMembers()) {
+                    writeString(dos, member.getName());
+                    writeAUID(dos, member.getType());
+                    writeString(dos, member.getDescription());
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(RenameTypeDefinition def) throws VisitorException {
+            writeHeader(RENAME_KIND, def);
+            try {
+                writeAUID(dos, def.getRenamedType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(SetTypeDefinition def) throws VisitorException {
+            writeHeader(SET_KIND, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(StreamTypeDefinition def) throws VisitorException {
+            writeHeader(STREAM_KIND, def);
+        }
+
+        @Override
+        public void visit(StrongReferenceTypeDefinition def) throws VisitorException {
+            writeHeader(STRONG_REFERENCE_KIND, def);
+            try {
+                writeAUID(dos, def.getReferenceType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(StringTypeDefinition def) throws VisitorException {
+            writeHeader(STRING_KIND, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(VariableArrayTypeDefinition def) throws VisitorException {
+            writeHeader(VARIABLE_ARRAY_KIND, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(WeakReferenceTypeDefinition def) throws VisitorException {
+            writeHeader(WEAK_REFERENCE_KIND, def);
+            try {
+                writeAUID(dos, def.getReferencedType());
+                if (def.getTargetSet() == null) {
+                    dos.writeInt(-1);
+                } else {
+                    dos.writeInt(def.getTargetSet().size());
+                    for (AUID auid : def.getTargetSet()) {
+                        writeAUID(dos, auid);
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(PropertyAliasDefinition def) throws VisitorException {
+            writeHeader(PROPERTY_ALIAS_KIND, def);
+            try {
+                writeProperty(def);
+                writeAUID(dos, def.getOriginalProperty());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(FloatTypeDefinition def) throws VisitorException {
+            writeHeader(FLOAT_KIND, def);
+            try {
+                writeEnum(dos, def.getSize());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void visit(LensSerialFloatTypeDefinition def) throws VisitorException {
+            writeHeader(LENS_SERIAL_FLOAT_KIND, def);
+        }
+    }
+}
@@ -125,6 +125,65 @@ public class EnumerationTypeDefinition extends Definition {
     @XmlAnyElement(lax = false)
     private ArrayList<Element> elements;
 
+    /* open-addressing table of element names keyed by value, built on first
+       lookup */
+    private volatile NameTable names;
+
+    private static class NameTable {
+
+        final int[] values;
+        final String[] names;
+        final int mask;
+
+        NameTable(Collection<Element> elements) {
+
+            int count = elements == null ? 0 : elements.size();
+
+            /* keep the load factor at or below 0.5 */
+            int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+
+            values = new int[capacity];
+            names = new String[capacity];
+            mask = capacity - 1;
+
+            if (elements == null) {
+                return;
+            }
+
+            /* later elements take precedence over earlier ones with the same value */
+            for (Element e : elements) {
+
+                int i = hash(e.getValue()) & mask;
+
+                while (names[i] != null && values[i] != e.getValue()) {
+                    i = (i + 1) & mask;
+                }
+
+                values[i] = e.getValue();
+                names[i] = e.getName();
+            }
+        }
+
+        String get(int value) {
+
+            for (int i = hash(value) & mask; names[i] != null; i = (i + 1) & mask) {
+
+                if (values[i] == value) {
+                    return names[i];
+                }
+            }
+
+            return null;
+        }
+
+        private static int hash(int value) {
+
+            int h = value * 0x9E3779B9;
+
+            return h ^ (h >>> 16);
+        }
+    }
+
     public EnumerationTypeDefinition() {
     }
 
@@ -149,6 +208,26 @@ public class EnumerationTypeDefinition extends Definition {
         return elements;
     }
 
+    /**
+     * Returns the name of the element with a given value, without allocating.
+     * The lookup table is built on the first call, after which the elements
+     * must not be modified.
+     *
+     * @param value Value of the element
+     * @return Name of the element, or null if no element has the value
+     */
+    public String getElementName(int value) {
+
+        NameTable table = names;
+
+        if (table == null) {
+            table = new NameTable(elements);
+            names = table;
+        }
+
+        return table.get(value);
+    }
+
     @XmlType(name = "")
     @XmlAccessorType(value = XmlAccessType.NONE)
     public static class Element {
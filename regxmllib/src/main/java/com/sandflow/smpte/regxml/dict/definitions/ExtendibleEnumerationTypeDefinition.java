@@ -26,6 +26,7 @@
 package com.sandflow.smpte.regxml.dict.definitions;
 
 import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.xml.AUIDAdapter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -40,6 +41,84 @@ public class ExtendibleEnumerationTypeDefinition extends Definition {
 
     private ArrayList<Element> elements;
 
+    /* open-addressing table of elements keyed by value, ignoring the version
+       byte of ULs, built on first lookup */
+    private volatile ElementTable table;
+
+    private static class ElementTable {
+
+        final long[] msbs;
+        final long[] lsbs;
+        final Element[] elements;
+        final int mask;
+
+        ElementTable(Collection<Element> elements) {
+
+            int count = elements == null ? 0 : elements.size();
+
+            /* keep the load factor at or below 0.5 */
+            int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+
+            this.msbs = new long[capacity];
+            this.lsbs = new long[capacity];
+            this.elements = new Element[capacity];
+            this.mask = capacity - 1;
+
+            if (elements == null) {
+                return;
+            }
+
+            /* the first element wins if several differ only by version */
+            for (Element e : elements) {
+
+                if (e.getValue() == null) {
+                    continue;
+                }
+
+                long msb = normalize(e.getValue().getMostSignificantBits());
+                long lsb = e.getValue().getLeastSignificantBits();
+
+                int i = hash(msb, lsb) & mask;
+
+                while (this.elements[i] != null && !(msbs[i] == msb && lsbs[i] == lsb)) {
+                    i = (i + 1) & mask;
+                }
+
+                if (this.elements[i] == null) {
+                    msbs[i] = msb;
+                    lsbs[i] = lsb;
+                    this.elements[i] = e;
+                }
+            }
+        }
+
+        Element get(long msb, long lsb) {
+
+            msb = normalize(msb);
+
+            for (int i = hash(msb, lsb) & mask; elements[i] != null; i = (i + 1) & mask) {
+
+                if (msbs[i] == msb && lsbs[i] == lsb) {
+                    return elements[i];
+                }
+            }
+
+            return null;
+        }
+
+        /* clears the version byte of ULs, leaving UUIDs untouched */
+        private static long normalize(long msb) {
+            return msb >= 0 ? msb & ~0xFFL : msb;
+        }
+
+        private static int hash(long msb, long lsb) {
+
+            long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+
+            return (int) (h ^ (h >>> 29));
+        }
+    }
+
     public ExtendibleEnumerationTypeDefinition() {}
 
     public ExtendibleEnumerationTypeDefinition(Collection<Element> elements) {
@@ -55,6 +134,26 @@ public class ExtendibleEnumerationTypeDefinition extends Definition {
         return elements;
     }
 
+    /**
+     * Returns the element with a given value, ignoring the version byte if
+     * the value is a UL. The lookup table is built on the first call, after
+     * which the elements must not be modified.
+     *
+     * @param value Value of the element
+     * @return Element, or null if none has the value
+     */
+    public Element getElement(UL value) {
+
+        ElementTable t = table;
+
+        if (t == null) {
+            t = new ElementTable(elements);
+            table = t;
+        }
+
+        return t.get(value.getMostSignificantBits(), value.getLeastSignificantBits());
+    }
+
     @XmlAccessorType(value = XmlAccessType.NONE)
     public static class Element {
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.tools;
+
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.PartitionMap;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.util.UL;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lists the partitions of an MXF file
+ */
+public class PartitionMapDump {
+
+    private final static String USAGE = "Lists the partitions of an MXF file, reading only its Partition Packs and Random Index Pack.\n"
+            + "  Usage: PartitionMapDump -i mxffile\n"
+            + "         PartitionMapDump -?";
+
+    public static void main(String[] args) throws IOException, KLVException {
+
+        String mxfpath = null;
+
+        for (int i = 0; i < args.length; i++) {
+
+            if ("-i".equals(args[i]) && i + 1 < args.length) {
+
+                mxfpath = args[++i];
+
+            } else {
+
+                mxfpath = null;
+
+                break;
+
+            }
+        }
+
+        if (mxfpath == null) {
+
+            System.out.println(USAGE);
+
+            return;
+        }
+
+        PartitionMap pm;
+
+        try (FileChannel f = FileChannel.open(Paths.get(mxfpath), StandardOpenOption.READ)) {
+            pm = PartitionMap.fromFileChannel(f);
+        }
+
+        System.out.println(String.format("%-16s %-6s %-17s %-16s %-16s %-10s %-10s %-16s %-10s %s",
+                "Offset", "Kind", "Status", "HeaderByteCount", "IndexByteCount",
+                "IndexSID", "BodySID", "BodyOffset", "KAGSize", "OperationalPattern"));
+
+        for (PartitionPack pp : pm.getPartitions()) {
+
+            System.out.println(String.format("%-16d %-6s %-17s %-16d %-16d %-10d %-10d %-16d %-10d %s",
+                    pp.getThisPartition(),
+                    pp.getKind(),
+                    pp.getStatus(),
+                    pp.getHeaderByteCount(),
+                    pp.getIndexByteCount(),
+                    pp.getIndexSID(),
+                    pp.getBodySID(),
+                    pp.getBodyOffset(),
+                    pp.getKagSize(),
+                    pp.getOperationalPattern()));
+
+            for (UL ec : pp.getEssenceContainers()) {
+                System.out.println("    Essence Container: " + ec);
+            }
+        }
+
+        System.out.println("Random Index Pack: " + (pm.hasRandomIndexPack() ? "present" : "absent"));
+    }
+}
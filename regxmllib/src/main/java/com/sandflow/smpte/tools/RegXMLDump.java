@@ -28,21 +28,46 @@ package com.sandflow.smpte.tools;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.regxml.FragmentBuilder;
 import com.sandflow.smpte.regxml.MXFFragmentBuilder;
+import com.sandflow.smpte.regxml.MXFFragmentFollower;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.MetaDictionarySnapshot;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import com.sandflow.smpte.util.AsyncOutputStream;
+import com.sandflow.smpte.util.ReadAheadInputStream;
 import com.sandflow.smpte.util.UL;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.EOFException;
-import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -65,43 +90,469 @@ public class RegXMLDump {
 
     private static final UL PREFACE_KEY
             = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
-    
+
+    /**
+     * Interval, in milliseconds, at which a file is checked for new bytes
+     * with -follow
+     */
+    private static final long FOLLOW_INTERVAL = 1000;
 
     private final static String USAGE = "Dump header metadata of an MXF file as a RegXML structure.\n"
             + "  Usage:\n"
-            + "     RegXMLDump ( -all | -ed ) -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... -i mxffile\n"
+            + "     RegXMLDump ( -all | -ed ) [ -stream ] [ -indexed | -pipelined ] [ -bestpartition ] ( -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... | -s snapshot ) -i mxffile\n"
+            + "     RegXMLDump ( -all | -ed ) [ -stream ] [ -indexed | -pipelined ] [ -bestpartition ] ( -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... | -s snapshot ) [ -threads n ] -o outputdir -i ( mxffileordir1 mxffileordir2 ... | - )\n"
+            + "     RegXMLDump ( -all | -ed ) [ -stream ] -follow ( -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... | -s snapshot ) -i mxffile\n"
             + "     RegXMLDump -?\n"
             + "  Where:\n"
             + "     -all: dumps all header metadata\n"
-            + "     -ed: dumps only the first essence descriptor found\n";
+            + "     -ed: dumps only the first essence descriptor found, decoding only the header metadata sets it references\n"
+            + "     -stream: writes the RegXML structure as it is generated, without indentation, instead of building it in memory\n"
+            + "     -indexed: keeps only an index of the header metadata sets in memory and reads them from the file as needed, for files with very large header metadata\n"
+            + "     -pipelined: reads the MXF file ahead of decoding, and writes the output behind serialization, on separate threads, for slow storage or output\n"
+            + "     -bestpartition: reads the header metadata from the most complete partition listed in the Random Index Pack, instead of the header partition; it cannot be combined with -pipelined\n"
+            + "     -follow: follows an MXF file as it is written and dumps its header metadata each time a partition carries header metadata that differs from the last dumped, until the footer partition is written\n"
+            + "     -s: loads the metadictionaries from a snapshot created by XMLDictsToSnapshot\n"
+            + "     -o: writes one RegXML structure per MXF file to outputdir, named after the MXF file with an .xml extension\n"
+            + "     -i: with -o, either MXF files, directories whose .mxf files are processed, or - to read MXF file paths from stdin, one per line\n"
+            + "     -threads: number of MXF files processed in parallel with -o, which defaults to the number of processors\n";
+
+    public static void main(String[] args) throws IOException, EOFException, KLVException, ParserConfigurationException, JAXBException, FragmentBuilder.RuleException, TransformerException, IllegalDefinitionException, IllegalDictionaryException, XMLStreamException, InterruptedException {
+
+        UL root = null;
+        boolean stream = false;
+        MXFFragmentBuilder.SetDecoding decoding = MXFFragmentBuilder.SetDecoding.EAGER;
+        boolean indexed = false;
+        boolean pipelined = false;
+        boolean follow = false;
+        boolean bestpartition = false;
+        ArrayList<String> dictpaths = new ArrayList<>();
+        String snapshotpath = null;
+        ArrayList<String> inputs = new ArrayList<>();
+        String outputdir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+
+            if ("-all".equals(args[i])) {
+
+                root = PREFACE_KEY;
+
+            } else if ("-ed".equals(args[i])) {
+
+                root = ESSENCE_DESCRIPTOR_KEY;
+
+                /* when dumping a single object, only decode the sets it references */
+                decoding = MXFFragmentBuilder.SetDecoding.LAZY;
+
+            } else if ("-stream".equals(args[i])) {
+
+                stream = true;
+
+            } else if ("-indexed".equals(args[i])) {
+
+                indexed = true;
+
+            } else if ("-pipelined".equals(args[i])) {
+
+                pipelined = true;
+
+            } else if ("-bestpartition".equals(args[i])) {
+
+                bestpartition = true;
+
+            } else if ("-follow".equals(args[i])) {
+
+                follow = true;
+
+            } else if ("-d".equals(args[i])) {
+
+                while (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    dictpaths.add(args[++i]);
+                }
+
+            } else if ("-s".equals(args[i]) && i + 1 < args.length) {
 
-    public static void main(String[] args) throws IOException, EOFException, KLVException, ParserConfigurationException, JAXBException, FragmentBuilder.RuleException, TransformerException, IllegalDefinitionException, IllegalDictionaryException {
+                snapshotpath = args[++i];
 
-        if (args.length < 5
-                || "-?".equals(args[0])
-                || (!"-d".equals(args[1]))
-                || (!"-i".equals(args[args.length - 2]))) {
+            } else if ("-i".equals(args[i])) {
+
+                while (i + 1 < args.length && (!args[i + 1].startsWith("-") || "-".equals(args[i + 1]))) {
+                    inputs.add(args[++i]);
+                }
+
+            } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+
+                outputdir = args[++i];
+
+            } else if ("-threads".equals(args[i]) && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+
+                threads = Integer.parseInt(args[++i]);
+
+            } else {
+
+                root = null;
+
+                break;
+
+            }
+        }
+
+        if (root == null
+                || inputs.isEmpty()
+                || (outputdir == null && (inputs.size() != 1 || "-".equals(inputs.get(0))))
+                || dictpaths.isEmpty() == (snapshotpath == null)
+                || (indexed && pipelined)
+                || (bestpartition && (pipelined || follow))
+                || (follow && (indexed || pipelined || outputdir != null))) {
 
             System.out.println(USAGE);
 
             return;
         }
 
-        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+        if (indexed) {
+            decoding = MXFFragmentBuilder.SetDecoding.INDEXED;
+        }
+
+        MetaDictionaryCollection mds;
+
+        if (snapshotpath != null) {
 
-        for (int i = 2; i < args.length - 2; i++) {
+            mds = MetaDictionarySnapshot.fromFile(Paths.get(snapshotpath));
+
+        } else {
+
+            mds = new MetaDictionaryCollection();
+
+        }
+
+        for (String dictpath : dictpaths) {
 
             /* load the regxml metadictionary */
-            FileReader fr = new FileReader(args[i]);
+            FileReader fr = new FileReader(dictpath);
 
             /* add it to the dictionary group */
             mds.addDictionary(MetaDictionary.fromXML(fr));
 
         }
 
-        /* retrieve the mxf file */
-        FileInputStream f = new FileInputStream(args[args.length - 1]);
-        
+        if (follow) {
+
+            follow(Paths.get(inputs.get(0)), mds, root, stream, System.out);
+
+        } else if (outputdir == null) {
+
+            if (!dump(Paths.get(inputs.get(0)), mds, root, stream, decoding, pipelined, bestpartition, System.out)) {
+                System.exit(1);
+            }
+
+        } else {
+
+            if (dumpAll(listInputs(inputs), Paths.get(outputdir), mds, root, stream, decoding, pipelined, bestpartition, threads) != 0) {
+                System.exit(1);
+            }
+
+        }
+
+    }
+
+    /**
+     * Resolves inputs to MXF file paths: directories are replaced by the .mxf
+     * files they contain, and - by the paths read from stdin
+     */
+    private static List<Path> listInputs(List<String> inputs) throws IOException {
+
+        ArrayList<Path> paths = new ArrayList<>();
+
+        for (String input : inputs) {
+
+            if ("-".equals(input)) {
+
+                BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+
+                for (String line = br.readLine(); line != null; line = br.readLine()) {
+
+                    if (!line.trim().isEmpty()) {
+                        paths.add(Paths.get(line.trim()));
+                    }
+
+                }
+
+            } else if (Files.isDirectory(Paths.get(input))) {
+
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(Paths.get(input), "*.{mxf,MXF}")) {
+
+                    for (Path path : ds) {
+                        paths.add(path);
+                    }
+
+                }
+
+            } else {
+
+                paths.add(Paths.get(input));
+
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Dumps MXF files in parallel, sharing the metadictionaries across threads.
+     * No output file is left for an MXF file that could not be processed.
+     *
+     * @return Number of MXF files that could not be processed
+     */
+    static int dumpAll(List<Path> mxfpaths, Path outputdir, final MetaDictionaryCollection mds, final UL root, final boolean stream, final MXFFragmentBuilder.SetDecoding decoding, final boolean pipelined, final boolean bestpartition, int threads) throws InterruptedException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        ArrayList<Future<Void>> results = new ArrayList<>();
+
+        HashSet<Path> outpaths = new HashSet<>();
+
+        int failures = 0;
+
+        for (final Path mxfpath : mxfpaths) {
+
+            String name = mxfpath.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".xml";
+
+            final Path outpath = outputdir.resolve(name);
+
+            if (!outpaths.add(outpath)) {
+
+                LOG.severe(String.format("Skipping %s: output file %s already used by another MXF file", mxfpath, outpath));
+
+                failures++;
+
+                results.add(null);
+
+                continue;
+
+            }
+
+            results.add(pool.submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+
+                    boolean ok = false;
+
+                    try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(outpath))) {
+
+                        ok = dump(mxfpath, mds, root, stream, decoding, pipelined, bestpartition, os);
+
+                    } finally {
+
+                        /* do not leave a partial RegXML structure behind */
+                        if (!ok) {
+                            Files.deleteIfExists(outpath);
+                        }
+
+                    }
+
+                    if (!ok) {
+                        throw new MXFFragmentBuilder.MXFException("Header metadata could not be read");
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        pool.shutdown();
+
+        for (int i = 0; i < results.size(); i++) {
+
+            if (results.get(i) == null) {
+                continue;
+            }
+
+            try {
+
+                results.get(i).get();
+
+            } catch (ExecutionException e) {
+
+                LOG.severe(String.format("Failed to process %s: %s", mxfpaths.get(i), e.getCause().toString()));
+
+                failures++;
+
+            }
+        }
+
+        return failures;
+    }
+
+    /**
+     * Source of the RegXML fragment written by a single dump
+     */
+    private interface FragmentSource {
+
+        DocumentFragment build(Document doc) throws IOException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException;
+
+        void build(XMLStreamWriter writer) throws IOException, KLVException, MXFFragmentBuilder.MXFException, FragmentBuilder.RuleException;
+    }
+
+    /**
+     * Dumps the header metadata of a single MXF file. When pipelined, the MXF
+     * file is read ahead of decoding, and the output written behind
+     * serialization, on separate threads, and os is closed on return.
+     *
+     * @return false if the header metadata could not be read, in which case
+     * the error is logged and a document without RegXML structure is written
+     */
+    private static boolean dump(final Path mxfpath, final MetaDictionaryCollection mds, final UL root, boolean stream, final MXFFragmentBuilder.SetDecoding decoding, final boolean pipelined, final boolean bestpartition, OutputStream os) throws IOException, ParserConfigurationException, TransformerException, XMLStreamException {
+
+        OutputStream out = pipelined ? new AsyncOutputStream(os) : os;
+
+        try {
+
+            return write(new FragmentSource() {
+
+                @Override
+                public DocumentFragment build(Document doc) throws IOException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+
+                    if (pipelined) {
+
+                        try (InputStream is = new ReadAheadInputStream(Files.newInputStream(mxfpath))) {
+                            return MXFFragmentBuilder.fromInputStream(is, mds, root, doc, decoding);
+                        }
+
+                    }
+
+                    try (FileChannel f = FileChannel.open(mxfpath, StandardOpenOption.READ)) {
+                        return MXFFragmentBuilder.fromFileChannel(f, mds, root, doc, bestpartition, decoding);
+                    }
+                }
+
+                @Override
+                public void build(XMLStreamWriter writer) throws IOException, KLVException, MXFFragmentBuilder.MXFException, FragmentBuilder.RuleException {
+
+                    if (pipelined) {
+
+                        try (InputStream is = new ReadAheadInputStream(Files.newInputStream(mxfpath))) {
+                            MXFFragmentBuilder.fromInputStream(is, mds, root, writer, decoding);
+                        }
+
+                    } else {
+
+                        try (FileChannel f = FileChannel.open(mxfpath, StandardOpenOption.READ)) {
+                            MXFFragmentBuilder.fromFileChannel(f, mds, root, writer, bestpartition, decoding);
+                        }
+
+                    }
+                }
+            }, mxfpath, null, stream, out);
+
+        } finally {
+
+            if (pipelined) {
+                out.close();
+            }
+
+        }
+    }
+
+    /**
+     * Follows an MXF file as it is written, and dumps its header metadata each
+     * time a partition carries header metadata that differs from the last
+     * dumped. Each dump is a separate XML document written to os.
+     */
+    private static void follow(Path mxfpath, MetaDictionaryCollection mds, UL root, boolean stream, OutputStream os) throws IOException, KLVException, ParserConfigurationException, TransformerException, XMLStreamException, InterruptedException {
+
+        try (FileChannel f = FileChannel.open(mxfpath, StandardOpenOption.READ)) {
+
+            final MXFFragmentFollower follower = new MXFFragmentFollower(f, mds, root);
+
+            while (true) {
+
+                if (follower.poll()) {
+
+                    long offset = follower.getPartitionPack().getThisPartition();
+
+                    LOG.info(String.format("Header metadata updated in partition at offset %d", offset));
+
+                    write(new FragmentSource() {
+
+                        @Override
+                        public DocumentFragment build(Document doc) throws KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+                            return follower.buildFragment(doc);
+                        }
+
+                        @Override
+                        public void build(XMLStreamWriter writer) throws KLVException, MXFFragmentBuilder.MXFException, FragmentBuilder.RuleException {
+                            follower.buildFragment(writer);
+                        }
+                    }, mxfpath, "Partition at offset " + offset, stream, os);
+
+                    os.flush();
+                }
+
+                if (follower.isComplete()) {
+                    break;
+                }
+
+                Thread.sleep(FOLLOW_INTERVAL);
+            }
+        }
+    }
+
+    /**
+     * Writes a single XML document to os, consisting of comments that
+     * identify the MXF file, and of the fragment built by source.
+     *
+     * @param partition Partition from which the header metadata was read, or
+     * null if not reported
+     * @return false if the fragment could not be built, in which case the
+     * error is logged and a document without RegXML structure is written
+     */
+    private static boolean write(FragmentSource source, Path mxfpath, String partition, boolean stream, OutputStream os) throws IOException, ParserConfigurationException, TransformerException, XMLStreamException {
+
+        /* date and build version */
+        Date now = new java.util.Date();
+
+        List<String> comments = new ArrayList<>();
+
+        comments.add("Created: " + now.toString());
+        comments.add("From: " + mxfpath);
+
+        if (partition != null) {
+            comments.add("Header Metadata: " + partition);
+        }
+
+        comments.add("By: regxmllib build " + BuildVersionSingleton.getBuildVersion());
+        comments.add("See: https://github.com/sandflow/regxmllib");
+
+        boolean ok = true;
+
+        if (stream) {
+
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+
+            writer.writeStartDocument("UTF-8", "1.0");
+
+            for (String comment : comments) {
+                writer.writeComment(comment);
+            }
+
+            try {
+
+                source.build(writer);
+
+            } catch (MXFFragmentBuilder.MXFException | FragmentBuilder.RuleException | KLVException e) {
+                LOG.severe(e.getMessage());
+                ok = false;
+            }
+
+            writer.writeEndDocument();
+
+            writer.close();
+
+            return ok;
+        }
+
         /* create dom */
         DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
         DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
@@ -109,25 +560,19 @@ public class RegXMLDump {
 
         doc.setXmlStandalone(true);
 
-        /* date and build version */
-        Date now = new java.util.Date();
-        doc.appendChild(doc.createComment("Created: " + now.toString()));
-        doc.appendChild(doc.createComment("From: " + args[args.length - 1]));
-        doc.appendChild(doc.createComment("By: regxmllib build " + BuildVersionSingleton.getBuildVersion()));
-        doc.appendChild(doc.createComment("See: https://github.com/sandflow/regxmllib"));
-        
+        for (String comment : comments) {
+            doc.appendChild(doc.createComment(comment));
+        }
+
         try {
-            
-            UL root = "-ed".equals(args[0]) ? ESSENCE_DESCRIPTOR_KEY : PREFACE_KEY;
-            
-            DocumentFragment df = MXFFragmentBuilder.fromInputStream(f, mds, root, doc);
-            
-            doc.appendChild(df);
+
+            doc.appendChild(source.build(doc));
 
         } catch (MXFFragmentBuilder.MXFException | FragmentBuilder.RuleException | KLVException | ParserConfigurationException e) {
             LOG.severe(e.getMessage());
+            ok = false;
         }
-        
+
         /* write DOM to file */
         Transformer tr = TransformerFactory.newInstance().newTransformer();
 
@@ -136,8 +581,9 @@ public class RegXMLDump {
 
         tr.transform(
                 new DOMSource(doc),
-                new StreamResult(System.out)
+                new StreamResult(os)
         );
 
+        return ok;
     }
 }
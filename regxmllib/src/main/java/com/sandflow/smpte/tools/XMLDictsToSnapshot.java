@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.tools;
+
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.MetaDictionarySnapshot;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Converts RegXML metadictionaries to a MetaDictionary snapshot
+ */
+public class XMLDictsToSnapshot {
+
+    private final static String USAGE = "Converts RegXML metadictionaries to a binary snapshot, which loads faster.\n"
+            + "  Usage: XMLDictsToSnapshot -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... -o snapshotpath\n"
+            + "         XMLDictsToSnapshot -?";
+
+    public static void main(String[] args) throws IOException, JAXBException, IllegalDefinitionException, IllegalDictionaryException {
+
+        ArrayList<String> dictpaths = new ArrayList<>();
+        String snapshotpath = null;
+
+        for (int i = 0; i < args.length; i++) {
+
+            if ("-d".equals(args[i])) {
+
+                while (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    dictpaths.add(args[++i]);
+                }
+
+            } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+
+                snapshotpath = args[++i];
+
+            } else {
+
+                snapshotpath = null;
+
+                break;
+
+            }
+        }
+
+        if (snapshotpath == null || dictpaths.isEmpty()) {
+
+            System.out.println(USAGE);
+
+            return;
+        }
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        for (String dictpath : dictpaths) {
+
+            try (FileReader fr = new FileReader(dictpath)) {
+                mds.addDictionary(MetaDictionary.fromXML(fr));
+            }
+
+        }
+
+        try (OutputStream os = new FileOutputStream(snapshotpath)) {
+            MetaDictionarySnapshot.toStream(mds, os);
+        }
+
+    }
+}
@@ -25,8 +25,6 @@
  */
 package com.sandflow.smpte.util;
 
-import java.util.Arrays;
-
 /**
  * AUID as specified in SMPTE ST 377-1
  */
@@ -55,25 +53,36 @@ public class AUID {
  
     }
 
-    private byte[] value;
-    
-    private AUID() { }
+    private final long msb;
+    private final long lsb;
+    private final int hash;
     
     /**
      * Instantiates a AUID from a 16-byte buffer
      * @param auid 16-bytes
+     * @throws IllegalArgumentException if the buffer is shorter than 16 bytes
      */
     public AUID(byte[] auid) {
-        this.value = java.util.Arrays.copyOf(auid, 16);
+        this(Octets.toLong(Octets.checkIdentifier(auid, 0), 0), Octets.toLong(auid, 8));
     }
 
+    /**
+     * Instantiates a AUID from its 16 bytes held as two big-endian longs
+     * @param msb Bytes 0 to 7 of the AUID
+     * @param lsb Bytes 8 to 15 of the AUID
+     */
+    public AUID(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+        this.hash = Octets.hash(msb, lsb);
+    }
     
     /**
      * Instantiates a AUID from a UL
      * @param ul UL from which to create the AUID
      */
     public AUID(UL ul) {
-        this.value = ul.getValue();
+        this(ul.getMostSignificantBits(), ul.getLeastSignificantBits());
     }
 
     /**
@@ -81,11 +90,7 @@ public class AUID {
      * @param uuid UUID from which to create the AUID
      */
     public AUID(UUID uuid) {
-        
-        value = new byte[16];
-        
-        System.arraycopy(uuid.getValue(), 8, value, 0, 8);
-        System.arraycopy(uuid.getValue(), 0, value, 8, 8);
+        this(uuid.getLeastSignificantBits(), uuid.getMostSignificantBits());
     }
 
     @Override
@@ -93,17 +98,18 @@ public class AUID {
         if (!(auid instanceof AUID)) {
             return false;
         }
-        return Arrays.equals(((AUID) auid).value, this.value);
+        return ((AUID) auid).msb == this.msb && ((AUID) auid).lsb == this.lsb;
     }
 
     public boolean equals(UL ul) {
-        return Arrays.equals(ul.getValue(), this.value);
+        return ul.getMostSignificantBits() == this.msb
+                && ul.getLeastSignificantBits() == this.lsb;
     }
 
     
     @Override
     public int hashCode() {
-        return Arrays.hashCode(value);
+        return hash;
     }
 
     @Override
@@ -120,7 +126,7 @@ public class AUID {
      * @return true if the AUID is a UL
      */
     public boolean isUL() {
-        return (value[0] & 0x80) == 0;
+        return msb >= 0;
     }
     
     /**
@@ -139,12 +145,7 @@ public class AUID {
         
         if (isUL()) return null;
         
-        byte[] uuid = new byte[16];
-        
-        System.arraycopy(this.value, 8, uuid, 0, 8);
-        System.arraycopy(this.value, 0, uuid, 8, 8);
-        
-        return new UUID(uuid);
+        return new UUID(lsb, msb);
     }
 
     /**
@@ -152,7 +153,29 @@ public class AUID {
      * @return Underlying UL, or null if not a UL
      */
     public UL asUL() {
-        return isUL() ? new UL(value) : null;
+        return isUL() ? new UL(msb, lsb) : null;
+    }
+
+    /**
+     * Returns the 16 bytes of the AUID, in the order in which they are encoded
+     * @return Value of the AUID
+     */
+    public byte[] getValue() {
+        return Octets.toBytes(msb, lsb);
+    }
+
+    /**
+     * @return Bytes 0 to 7 of the AUID, as a big-endian long
+     */
+    public long getMostSignificantBits() {
+        return msb;
+    }
+
+    /**
+     * @return Bytes 8 to 15 of the AUID, as a big-endian long
+     */
+    public long getLeastSignificantBits() {
+        return lsb;
     }
 
 }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * OutputStream whose bytes are written to an underlying OutputStream by a
+ * background thread. Bytes are collected in chunks that are handed over
+ * through a bounded queue, such that writing to the destination overlaps with
+ * the production of the bytes that follow.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 65536;
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    /**
+     * Unit of work of the background thread: a chunk to be written, or a
+     * request to flush the destination
+     */
+    private static class Task {
+
+        final ByteBuffer chunk;
+        final CountDownLatch flushed;
+        final boolean last;
+
+        Task(ByteBuffer chunk, CountDownLatch flushed, boolean last) {
+            this.chunk = chunk;
+            this.flushed = flushed;
+            this.last = last;
+        }
+    }
+
+    private final OutputStream destination;
+    private final BlockingQueue<Task> tasks;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread writer;
+
+    private volatile IOException error;
+    private boolean closed = false;
+
+    /* chunk being filled */
+    private ByteBuffer current;
+
+    /**
+     * Creates an AsyncOutputStream using default chunk size and count
+     *
+     * @param destination Underlying OutputStream
+     */
+    public AsyncOutputStream(OutputStream destination) {
+        this(destination, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    /**
+     * Creates an AsyncOutputStream and starts its background thread
+     *
+     * @param destination Underlying OutputStream
+     * @param chunksize Size in bytes of each chunk
+     * @param chunkcount Maximum number of chunks waiting to be written
+     */
+    public AsyncOutputStream(OutputStream destination, int chunksize, int chunkcount) {
+
+        if (chunksize <= 0 || chunkcount <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.destination = destination;
+        this.tasks = new ArrayBlockingQueue<>(chunkcount + 1);
+        this.free = new ArrayBlockingQueue<>(chunkcount);
+
+        for (int i = 1; i < chunkcount; i++) {
+            free.add(ByteBuffer.allocate(chunksize));
+        }
+
+        this.current = ByteBuffer.allocate(chunksize);
+
+        this.writer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "AsyncOutputStream");
+
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private void drain() {
+
+        for (;;) {
+
+            Task task;
+
+            try {
+                task = tasks.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            /* after an error, tasks are still consumed so that the producer
+               does not block, but nothing is written */
+            try {
+
+                if (task.chunk != null && error == null) {
+                    destination.write(task.chunk.array(), 0, task.chunk.limit());
+                }
+
+                if (task.flushed != null && error == null) {
+                    destination.flush();
+                }
+
+            } catch (IOException e) {
+
+                error = e;
+
+            } finally {
+
+                if (task.chunk != null) {
+                    task.chunk.clear();
+                    free.add(task.chunk);
+                }
+
+                if (task.flushed != null) {
+                    task.flushed.countDown();
+                }
+            }
+
+            if (task.last) {
+                return;
+            }
+        }
+    }
+
+    private void submit(Task task) throws IOException {
+
+        try {
+            tasks.put(task);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /* hands the current chunk over to the background thread */
+    private void handOver() throws IOException {
+
+        if (error != null) {
+            throw error;
+        }
+
+        if (current.position() == 0) {
+            return;
+        }
+
+        current.flip();
+
+        submit(new Task(current, null, false));
+
+        try {
+            current = free.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /* waits until all bytes written so far have reached the destination */
+    private void sync(boolean last) throws IOException {
+
+        handOver();
+
+        CountDownLatch flushed = new CountDownLatch(1);
+
+        submit(new Task(null, flushed, last));
+
+        try {
+            flushed.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        if (!current.hasRemaining()) {
+            handOver();
+        }
+
+        current.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        while (len > 0) {
+
+            if (!current.hasRemaining()) {
+                handOver();
+            }
+
+            int sz = Math.min(len, current.remaining());
+
+            current.put(bytes, off, sz);
+
+            off += sz;
+            len -= sz;
+        }
+    }
+
+    /**
+     * Waits until all bytes written so far have been written to, and flushed
+     * from, the underlying OutputStream
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        sync(false);
+    }
+
+    /**
+     * Writes any remaining bytes, stops the background thread and closes the
+     * underlying OutputStream
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+
+            sync(true);
+
+        } finally {
+
+            /* the background thread is still waiting if sync() failed */
+            writer.interrupt();
+
+            destination.close();
+
+        }
+    }
+
+}
@@ -25,8 +25,6 @@
  */
 package com.sandflow.smpte.util;
 
-import java.util.Arrays;
-
 /**
  * IDAU as specified in SMPTE ST 377-1
  */
@@ -55,28 +53,36 @@ public class IDAU {
  
     }
 
-    private byte[] value;
-    
-    private IDAU() { }
+    private final long msb;
+    private final long lsb;
+    private final int hash;
     
     /**
      * Instantiates a IDAU from a 16-byte buffer
      * @param idau 16-bytes
+     * @throws IllegalArgumentException if the buffer is shorter than 16 bytes
      */
     public IDAU(byte[] idau) {
-        this.value = java.util.Arrays.copyOf(idau, 16);
+        this(Octets.toLong(Octets.checkIdentifier(idau, 0), 0), Octets.toLong(idau, 8));
     }
 
+    /**
+     * Instantiates a IDAU from its 16 bytes held as two big-endian longs
+     * @param msb Bytes 0 to 7 of the IDAU
+     * @param lsb Bytes 8 to 15 of the IDAU
+     */
+    public IDAU(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+        this.hash = Octets.hash(msb, lsb);
+    }
     
     /**
      * Instantiates a IDAU from a UL
      * @param ul UL from which to create the IDAU
      */
     public IDAU(UL ul) {
-        this.value = new byte[16];
-        
-        System.arraycopy(ul.getValue(), 8, this.value, 0, 8);
-        System.arraycopy(ul.getValue(), 0, this.value, 8, 8);
+        this(ul.getLeastSignificantBits(), ul.getMostSignificantBits());
     }
 
     /**
@@ -84,9 +90,7 @@ public class IDAU {
      * @param uuid UUID from which to create the IDAU
      */
     public IDAU(UUID uuid) {
-        
-        this.value = java.util.Arrays.copyOf(uuid.getValue(), 16);
-        
+        this(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
     }
 
     @Override
@@ -94,13 +98,13 @@ public class IDAU {
         if (!(idau instanceof IDAU)) {
             return false;
         }
-        return Arrays.equals(((IDAU) idau).value, this.value);
+        return ((IDAU) idau).msb == this.msb && ((IDAU) idau).lsb == this.lsb;
     }
 
     
     @Override
     public int hashCode() {
-        return Arrays.hashCode(value);
+        return hash;
     }
 
     @Override
@@ -117,7 +121,7 @@ public class IDAU {
      * @return true if the IDAU is a UL
      */
     public boolean isUL() {
-        return (value[9] & 0x80) == 0;
+        return (lsb & 0x0080000000000000L) == 0;
     }
     
     /**
@@ -136,7 +140,7 @@ public class IDAU {
         
         if (isUL()) return null;
         
-        return new UUID(this.value);
+        return new UUID(msb, lsb);
     }
     
     /**
@@ -145,12 +149,7 @@ public class IDAU {
      */
     public AUID asAUID() {
         
-        byte[] auid = new byte[16];
-        
-        System.arraycopy(this.value, 8, auid, 0, 8);
-        System.arraycopy(this.value, 0, auid, 8, 8);
-        
-        return new AUID(auid);
+        return new AUID(lsb, msb);
     }
     
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+/**
+ * Conversions between 16-byte identifiers and pairs of longs, where the first
+ * long holds bytes 0 to 7 and the second long bytes 8 to 15, big-endian.
+ */
+final class Octets {
+
+    private Octets() {
+    }
+
+    /**
+     * Checks that 16 bytes of an identifier are available
+     *
+     * @return The buffer
+     * @throws IllegalArgumentException if fewer than 16 bytes follow the offset
+     */
+    static byte[] checkIdentifier(byte[] buffer, int offset) {
+
+        if (offset < 0 || buffer.length - offset < 16) {
+            throw new IllegalArgumentException(
+                    String.format("16 bytes expected at offset %d of a %d-byte buffer", offset, buffer.length)
+            );
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Reads 8 bytes as a big-endian long
+     */
+    static long toLong(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFFL) << 56)
+                | ((buffer[offset + 1] & 0xFFL) << 48)
+                | ((buffer[offset + 2] & 0xFFL) << 40)
+                | ((buffer[offset + 3] & 0xFFL) << 32)
+                | ((buffer[offset + 4] & 0xFFL) << 24)
+                | ((buffer[offset + 5] & 0xFFL) << 16)
+                | ((buffer[offset + 6] & 0xFFL) << 8)
+                | (buffer[offset + 7] & 0xFFL);
+    }
+
+    /**
+     * Returns the 16 bytes of an identifier
+     */
+    static byte[] toBytes(long msb, long lsb) {
+
+        byte[] value = new byte[16];
+
+        for (int i = 0; i < 8; i++) {
+            value[i] = (byte) (msb >>> (56 - 8 * i));
+            value[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the nth byte of an identifier
+     */
+    static byte getOctet(long msb, long lsb, int i) {
+        return (byte) ((i < 8 ? msb : lsb) >>> (56 - 8 * (i & 7)));
+    }
+
+    /**
+     * Computes a well-distributed hash code for an identifier
+     */
+    static int hash(long msb, long lsb) {
+
+        long h = msb * 0x9E3779B97F4A7C15L + lsb;
+
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * InputStream that reads ahead of its consumer. A background thread fills
+ * chunks from an underlying InputStream and hands them over through a bounded
+ * queue, such that reading from the source overlaps with the processing of
+ * the bytes already read.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 65536;
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    /* marks the end of the source, or an error */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final InputStream source;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread reader;
+
+    private volatile Throwable error;
+    private volatile boolean closed = false;
+
+    /* chunk being consumed */
+    private ByteBuffer current;
+
+    /**
+     * Creates a ReadAheadInputStream using default chunk size and count
+     *
+     * @param source Underlying InputStream
+     */
+    public ReadAheadInputStream(InputStream source) {
+        this(source, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    /**
+     * Creates a ReadAheadInputStream and starts reading from the source
+     *
+     * @param source Underlying InputStream
+     * @param chunksize Size in bytes of each chunk
+     * @param chunkcount Maximum number of chunks read ahead of the consumer
+     */
+    public ReadAheadInputStream(InputStream source, int chunksize, int chunkcount) {
+
+        if (chunksize <= 0 || chunkcount <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.source = source;
+        this.filled = new ArrayBlockingQueue<>(chunkcount + 1);
+        this.free = new ArrayBlockingQueue<>(chunkcount);
+
+        for (int i = 0; i < chunkcount; i++) {
+            free.add(ByteBuffer.allocate(chunksize));
+        }
+
+        this.reader = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                fill();
+            }
+        }, "ReadAheadInputStream");
+
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill() {
+
+        try {
+
+            while (!closed) {
+
+                ByteBuffer chunk = free.take();
+
+                chunk.clear();
+
+                int br = 0;
+
+                while (chunk.hasRemaining()
+                        && (br = source.read(chunk.array(), chunk.position(), chunk.remaining())) >= 0) {
+                    chunk.position(chunk.position() + br);
+                }
+
+                chunk.flip();
+
+                if (chunk.hasRemaining()) {
+                    filled.put(chunk);
+                }
+
+                if (br < 0) {
+                    break;
+                }
+            }
+
+        } catch (InterruptedException e) {
+
+            /* closed by the consumer */
+
+        } catch (IOException | RuntimeException | Error e) {
+
+            error = e;
+
+        } finally {
+
+            /* there is always room for the end marker, which the consumer
+               waits for even if the source failed unexpectedly */
+            filled.offer(END);
+
+        }
+    }
+
+    /* returns the chunk being consumed, or null at the end of the source */
+    private ByteBuffer chunk() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        if (current != null && current.hasRemaining()) {
+            return current;
+        }
+
+        if (current == END) {
+            return null;
+        }
+
+        if (current != null) {
+            free.add(current);
+        }
+
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+
+        if (current == END) {
+
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+
+            if (error != null) {
+                throw new IOException(error);
+            }
+
+            return null;
+        }
+
+        return current;
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        ByteBuffer c = chunk();
+
+        return c == null ? -1 : c.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        ByteBuffer c = chunk();
+
+        if (c == null) {
+            return -1;
+        }
+
+        len = Math.min(len, c.remaining());
+
+        c.get(bytes, off, len);
+
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+
+        long skipped = 0;
+
+        while (skipped < n) {
+
+            ByteBuffer c = chunk();
+
+            if (c == null) {
+                break;
+            }
+
+            int sz = (int) Math.min(n - skipped, c.remaining());
+
+            c.position(c.position() + sz);
+
+            skipped += sz;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null || current == END ? 0 : current.remaining();
+    }
+
+    /**
+     * Stops reading ahead and closes the underlying InputStream. The source is
+     * closed first, such that a background thread blocked reading from it is
+     * released even if the read does not respond to interrupts.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+
+            source.close();
+
+        } finally {
+
+            reader.interrupt();
+
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+
+        }
+    }
+
+}
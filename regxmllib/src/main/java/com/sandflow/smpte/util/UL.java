@@ -25,7 +25,6 @@
  */
 package com.sandflow.smpte.util;
 
-import java.util.Arrays;
 import java.util.regex.Pattern;
 
 /**
@@ -92,7 +91,24 @@ public class UL {
 
     }
 
-    private final byte[] value;
+    /* EXPANDED_MASKS[m] has byte i set to 0xFF if bit (7 - i) of m is set */
+    private final static long[] EXPANDED_MASKS = new long[256];
+
+    static {
+        for (int m = 0; m < 256; m++) {
+            for (int i = 0; i < 8; i++) {
+                if ((m & (0x80 >> i)) != 0) {
+                    EXPANDED_MASKS[m] |= 0xFFL << (56 - 8 * i);
+                }
+            }
+        }
+    }
+
+    private final static long VERSION_MASK = 0xFFL;
+
+    private final long msb;
+    private final long lsb;
+    private final int hash;
 
     /**
      * @return true if the UL is a Key for a KLV Group (see SMPTE ST 336)
@@ -115,17 +131,51 @@ public class UL {
         return getValueOctet(REGISTRY_DESIGNATOR_BYTE);
     }
 
-    private UL() {
-        this.value = new byte[16];
-    }
-
     /**
      * Instantiates a UL from a sequence of 16 bytes
      *
      * @param ul Sequence of 16 bytes
+     * @throws IllegalArgumentException if the sequence is shorter than 16 bytes
      */
     public UL(byte[] ul) {
-        this.value = java.util.Arrays.copyOf(ul, 16);
+        this(ul, 0);
+    }
+
+    /**
+     * Instantiates a UL from 16 bytes located within a larger buffer
+     *
+     * @param buffer Buffer containing the UL
+     * @param offset Offset of the first byte of the UL within the buffer
+     * @throws IllegalArgumentException if fewer than 16 bytes follow the offset
+     */
+    public UL(byte[] buffer, int offset) {
+        this(Octets.toLong(Octets.checkIdentifier(buffer, offset), offset), Octets.toLong(buffer, offset + 8));
+    }
+
+    /**
+     * Instantiates a UL from its 16 bytes held as two big-endian longs
+     *
+     * @param msb Bytes 0 to 7 of the UL
+     * @param lsb Bytes 8 to 15 of the UL
+     */
+    public UL(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+        this.hash = Octets.hash(msb, lsb);
+    }
+
+    /**
+     * @return Bytes 0 to 7 of the UL, as a big-endian long
+     */
+    public long getMostSignificantBits() {
+        return msb;
+    }
+
+    /**
+     * @return Bytes 8 to 15 of the UL, as a big-endian long
+     */
+    public long getLeastSignificantBits() {
+        return lsb;
     }
 
     /**
@@ -135,47 +185,27 @@ public class UL {
      * @return true if the ULs are equal
      */
     public boolean equalsIgnoreVersion(UL ul) {
-        for (int i = 0; i < 7; i++) {
-            if (this.value[i] != ul.value[i]) {
-                return false;
-            }
-        }
-
-        for (int i = 8; i < 16; i++) {
-            if (this.value[i] != ul.value[i]) {
-                return false;
-            }
-        }
-
-        return true;
+        return ((this.msb ^ ul.msb) & ~VERSION_MASK) == 0 && this.lsb == ul.lsb;
     }
 
     /**
      * @return The value of the Version byte of the UL
      */
     public byte getVersion() {
-        return getValueOctet(7);
+        return (byte) msb;
     }
 
     /**
      * Compares this UL to another UL, ignoring specific bytes based on a mask
      *
      * @param ul Other UL to compare
-     * @param bytemask 16-bit mask, where byte[n] is ignored if bit[n] is 0,
-     * with n = 0 is the LSB
+     * @param bytemask 16-bit mask, where byte[n] is ignored if bit[15 - n] is
+     * 0, with bit[0] the LSB, e.g. 0xFEFF ignores the version byte
      * @return true if the ULs are equal
      */
     public boolean equalsWithMask(UL ul, int bytemask) {
-
-        for (int i = 0; i < 15; i++) {
-            if ((bytemask & 0x8000) != 0 && this.value[i] != ul.value[i]) {
-                return false;
-            }
-
-            bytemask = bytemask << 1;
-        }
-
-        return true;
+        return ((this.msb ^ ul.msb) & EXPANDED_MASKS[(bytemask >>> 8) & 0xFF]) == 0
+                && ((this.lsb ^ ul.lsb) & EXPANDED_MASKS[bytemask & 0xFF]) == 0;
     }
 
     /**
@@ -185,11 +215,14 @@ public class UL {
      * @return true if the ULs are equal
      */
     public boolean equals(UL ul) {
-        return Arrays.equals(ul.value, this.value);
+        return ul.msb == this.msb && ul.lsb == this.lsb;
     }
 
+    /**
+     * @return A copy of the 16 bytes of the UL
+     */
     public byte[] getValue() {
-        return value;
+        return Octets.toBytes(msb, lsb);
     }
 
     /**
@@ -199,12 +232,12 @@ public class UL {
      * @return Value of the byte
      */
     public byte getValueOctet(int i) {
-        return value[i];
+        return Octets.getOctet(msb, lsb, i);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(value);
+        return hash;
     }
 
     @Override
@@ -216,15 +249,14 @@ public class UL {
             return false;
         }
         final UL other = (UL) obj;
-        if (!Arrays.equals(this.value, other.value)) {
-            return false;
-        }
-        return true;
+        return this.msb == other.msb && this.lsb == other.lsb;
     }
 
     @Override
     public String toString() {
 
+        byte[] value = getValue();
+
         return String.format("urn:smpte:ul:%02x%02x%02x%02x.%02x%02x%02x%02x.%02x%02x%02x%02x.%02x%02x%02x%02x",
                 value[0],
                 value[1],
@@ -38,28 +38,55 @@ import java.util.regex.Pattern;
  */
 public class UUID {
 
-    private byte[] value;
-
-    private UUID() {
-    }
+    private final long msb;
+    private final long lsb;
+    private final int hash;
 
     /**
      * Instantiates a UUID from a sequence of 16 bytes
      *
      * @param uuid Sequence of 16 bytes
+     * @throws IllegalArgumentException if the sequence is shorter than 16 bytes
      */
     public UUID(byte[] uuid) {
-        this.value = java.util.Arrays.copyOf(uuid, 16);
+        this(Octets.toLong(Octets.checkIdentifier(uuid, 0), 0), Octets.toLong(uuid, 8));
+    }
+
+    /**
+     * Instantiates a UUID from its 16 bytes held as two big-endian longs
+     *
+     * @param msb Bytes 0 to 7 of the UUID
+     * @param lsb Bytes 8 to 15 of the UUID
+     */
+    public UUID(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+        this.hash = Octets.hash(msb, lsb);
     }
 
+    /**
+     * @return A copy of the 16 bytes of the UUID
+     */
     public byte[] getValue() {
-        return this.value;
+        return Octets.toBytes(msb, lsb);
+    }
+
+    /**
+     * @return Bytes 0 to 7 of the UUID, as a big-endian long
+     */
+    public long getMostSignificantBits() {
+        return msb;
+    }
+
+    /**
+     * @return Bytes 8 to 15 of the UUID, as a big-endian long
+     */
+    public long getLeastSignificantBits() {
+        return lsb;
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 37 * hash + Arrays.hashCode(this.value);
         return hash;
     }
 
@@ -72,10 +99,7 @@ public class UUID {
             return false;
         }
         final UUID other = (UUID) obj;
-        if (!Arrays.equals(this.value, other.value)) {
-            return false;
-        }
-        return true;
+        return this.msb == other.msb && this.lsb == other.lsb;
     }
 
     private final static Pattern URN_PATTERN = Pattern.compile("urn:uuid:[a-fA-F0-9]{8}-(?:[a-fA-F0-9]{4}-){3}[a-fA-F0-9]{12}");
@@ -180,6 +204,7 @@ public class UUID {
     public String toString() {
 
         char[] out = Arrays.copyOf(URNTEMPLATE, URNTEMPLATE.length);
+        byte[] value = getValue();
 
         int inoff = 0;
         int outoff = 9;
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * KLVChannelReader unit tests.
+ */
+public class KLVChannelReaderTest extends TestCase {
+
+    public KLVChannelReaderTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of readTriplet method using a window much smaller than the file, 
+     * against KLVInputStream.
+     */
+    public void testReadTripletSmallWindow() throws Exception {
+
+        FileChannel fc = FileChannel.open(
+                Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()),
+                StandardOpenOption.READ
+        );
+
+        KLVChannelReader kcr = new KLVChannelReader(fc, 100);
+
+        KLVInputStream kis = new KLVInputStream(ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf"));
+
+        int count = 0;
+
+        while (kcr.getPosition() < kcr.size()) {
+
+            Triplet t1 = kcr.readTriplet();
+            Triplet t2 = kis.readTriplet();
+
+            assertEquals(t2.getKey(), t1.getKey());
+            assertEquals(t2.getLength(), t1.getLength());
+            assertTrue(Arrays.equals(t2.getValue(), t1.getValue()));
+            assertEquals(kis.getPosition(), kcr.getPosition());
+
+            count++;
+        }
+
+        assertTrue(count > 1);
+
+        try {
+            kcr.readTriplet();
+            fail();
+        } catch (EOFException e) {
+        }
+
+        /* seek back to the start of the file and slice the first partition pack */
+        kcr.seek(0);
+
+        kcr.readUL();
+
+        long len = kcr.readBERLength();
+
+        ByteBuffer bb = kcr.slice(kcr.getPosition(), len);
+
+        assertEquals(20, kcr.getPosition());
+        assertEquals(104, bb.remaining());
+        assertEquals(1, bb.getShort());
+
+        kcr.close();
+    }
+
+}
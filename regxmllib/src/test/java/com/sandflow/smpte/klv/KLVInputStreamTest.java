@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.klv.KLVInputStream.ByteOrder;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * KLVInputStream unit tests.
+ */
+public class KLVInputStreamTest extends TestCase {
+    
+    private static final UL KEY
+            = UL.fromURN("urn:smpte:ul:060e2b34.01010101.0d010201.01100100");
+    
+    public KLVInputStreamTest(String testName) {
+        super(testName);
+    }
+    
+    static byte[] createTriplets(int count, int valuelength) {
+        byte[] bytes = new byte[count * (16 + 4 + valuelength)];
+        
+        for (int i = 0; i < count; i++) {
+            int off = i * (16 + 4 + valuelength);
+            
+            System.arraycopy(KEY.getValue(), 0, bytes, off, 16);
+            
+            /* long form BER length */
+            bytes[off + 16] = (byte) 0x83;
+            bytes[off + 17] = (byte) (valuelength >> 16);
+            bytes[off + 18] = (byte) (valuelength >> 8);
+            bytes[off + 19] = (byte) valuelength;
+            
+            Arrays.fill(bytes, off + 20, off + 20 + valuelength, (byte) i);
+        }
+        
+        return bytes;
+    }
+
+    /**
+     * Test of readTriplet method when Keys and Lengths straddle buffer boundaries.
+     */
+    public void testReadTripletSmallBuffer() throws Exception {
+        byte[] bytes = createTriplets(10, 37);
+        
+        KLVInputStream kis = new KLVInputStream(new ByteArrayInputStream(bytes), ByteOrder.BIG_ENDIAN, 33);
+        
+        for (int i = 0; i < 10; i++) {
+            Triplet t = kis.readTriplet();
+            
+            assertEquals(KEY, t.getKey());
+            assertEquals(37, t.getLength());
+            assertEquals((byte) i, t.getValue()[36]);
+            assertEquals((i + 1) * (16 + 4 + 37), kis.getPosition());
+        }
+        
+        try {
+            kis.readTriplet();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+    
+    /**
+     * Test of readTriplet method when Values are larger than the buffer.
+     */
+    public void testReadTripletLargeValues() throws Exception {
+        byte[] bytes = createTriplets(3, 100000);
+        
+        KLVInputStream kis = new KLVInputStream(new ByteArrayInputStream(bytes));
+        
+        for (int i = 0; i < 3; i++) {
+            Triplet t = kis.readTriplet();
+            
+            assertEquals(100000, t.getLength());
+            assertEquals((byte) i, t.getValue()[99999]);
+        }
+        
+        assertEquals(bytes.length, kis.getPosition());
+    }
+    
+    /**
+     * Test of skip method, of class KLVInputStream.
+     */
+    public void testSkip() throws Exception {
+        byte[] bytes = createTriplets(4, 1000);
+        
+        KLVInputStream kis = new KLVInputStream(new ByteArrayInputStream(bytes), ByteOrder.BIG_ENDIAN, 64);
+        
+        assertEquals(KEY, kis.readUL());
+        assertEquals(1000, kis.skip(kis.readBERLength()));
+        assertEquals(1020 + 16 + 4 + 1000, kis.skip(1020 + 16 + 4 + 1000));
+        assertEquals(KEY, kis.readTriplet().getKey());
+        assertEquals(bytes.length, kis.getPosition());
+    }
+    
+    /**
+     * Test of readValue method when the Length exceeds the in-memory limit.
+     */
+    public void testHugeLength() throws Exception {
+        byte[] bytes = new byte[]{(byte) 0x88, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00};
+        
+        KLVInputStream kis = new KLVInputStream(bytes);
+        
+        assertEquals(0x100000000L, kis.readBERLength());
+        
+        try {
+            kis.readValue(KEY, 0x100000000L);
+            fail("Values larger than 2 GB cannot be read into memory");
+        } catch (KLVException e) {
+            
+        }
+    }
+    
+    /**
+     * Test of the primitive decoders, of class KLVInputStream.
+     */
+    public void testByteOrder() throws Exception {
+        byte[] bytes = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+        
+        KLVInputStream be = new KLVInputStream(bytes);
+        assertEquals(0x0102, be.readUnsignedShort());
+        assertEquals(0x03040506L, be.readUnsignedInt());
+        
+        KLVInputStream le = new KLVInputStream(bytes, ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x0201, le.readUnsignedShort());
+        assertEquals(0x06050403L, le.readUnsignedInt());
+        
+        assertEquals(0x0807060504030201L, new KLVInputStream(bytes, ByteOrder.LITTLE_ENDIAN).readLong());
+        assertEquals(0xFFFFFFFEL, new KLVInputStream(new byte[] {-1, -1, -1, -2}).readUnsignedInt());
+    }
+    
+}
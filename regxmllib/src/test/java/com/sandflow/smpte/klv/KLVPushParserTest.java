@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.klv;
+
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * KLVPushParser unit tests.
+ */
+public class KLVPushParserTest extends TestCase {
+
+    public KLVPushParserTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of feed method when Keys, Lengths and Values straddle chunks.
+     */
+    public void testFeed() throws Exception {
+        byte[] bytes = KLVInputStreamTest.createTriplets(10, 37);
+
+        final ArrayList<Triplet> triplets = new ArrayList<>();
+        final ArrayList<Long> offsets = new ArrayList<>();
+
+        KLVPushParser parser = new KLVPushParser(new KLVPushParser.Handler() {
+
+            @Override
+            public boolean onKeyLength(UL key, long length, long offset) throws KLVException {
+                assertEquals(37, length);
+
+                /* skip every other triplet */
+                return offset % (2 * (16 + 4 + 37)) == 0;
+            }
+
+            @Override
+            public void onTriplet(Triplet triplet, long offset) throws KLVException {
+                triplets.add(triplet);
+                offsets.add(offset);
+            }
+
+            @Override
+            public void onSkipped(UL key, long length, long offset) throws KLVException {
+                offsets.add(offset);
+            }
+        });
+
+        for (int i = 0; i < bytes.length; i += 7) {
+            parser.feed(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+        }
+
+        parser.finish();
+
+        assertEquals(bytes.length, parser.getPosition());
+        assertEquals(5, triplets.size());
+        assertEquals(10, offsets.size());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals((byte) (2 * i), triplets.get(i).getValue()[36]);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * (16 + 4 + 37), (long) offsets.get(i));
+        }
+
+        /* truncated triplet */
+        parser.feed(ByteBuffer.wrap(bytes, 0, 18));
+
+        try {
+            parser.finish();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+
+    /**
+     * Test of feed method with Values that are received in many chunks, and
+     * with a Length far larger than the bytes actually received.
+     */
+    public void testLargeValues() throws Exception {
+        byte[] bytes = KLVInputStreamTest.createTriplets(2, 100000);
+
+        final ArrayList<Triplet> triplets = new ArrayList<>();
+
+        KLVPushParser.Handler handler = new KLVPushParser.Handler() {
+
+            @Override
+            public boolean onKeyLength(UL key, long length, long offset) throws KLVException {
+                return true;
+            }
+
+            @Override
+            public void onTriplet(Triplet triplet, long offset) throws KLVException {
+                triplets.add(triplet);
+            }
+
+            @Override
+            public void onSkipped(UL key, long length, long offset) throws KLVException {
+                fail();
+            }
+        };
+
+        KLVPushParser parser = new KLVPushParser(handler);
+
+        for (int i = 0; i < bytes.length; i += 1000) {
+            parser.feed(ByteBuffer.wrap(bytes, i, Math.min(1000, bytes.length - i)));
+        }
+
+        parser.finish();
+
+        assertEquals(2, triplets.size());
+
+        for (int i = 0; i < 2; i++) {
+
+            byte[] value = triplets.get(i).getValue();
+
+            assertEquals(100000, value.length);
+            assertEquals((byte) i, value[0]);
+            assertEquals((byte) i, value[99999]);
+        }
+
+        /* the Value buffer is not allocated upfront from the Length, which
+           would fail for a Length at the limit of array sizes */
+        parser = new KLVPushParser(handler);
+
+        byte[] huge = Arrays.copyOf(KLVInputStreamTest.createTriplets(1, 0), 16 + 5);
+
+        huge[16] = (byte) 0x84;
+        huge[17] = (byte) 0x7f;
+        huge[18] = (byte) 0xff;
+        huge[19] = (byte) 0xff;
+        huge[20] = (byte) 0xff;
+
+        parser.feed(ByteBuffer.wrap(huge));
+        parser.feed(ByteBuffer.wrap(new byte[100]));
+
+        assertEquals(2, triplets.size());
+        assertEquals(16 + 5 + 100, parser.getPosition());
+
+        try {
+            parser.finish();
+            fail();
+        } catch (EOFException e) {
+        }
+    }
+
+}
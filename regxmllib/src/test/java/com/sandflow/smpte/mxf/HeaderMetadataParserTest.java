@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.util.UL;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * HeaderMetadataParser unit tests.
+ */
+public class HeaderMetadataParserTest extends TestCase {
+
+    private static final String[] SAMPLE_FILES = {
+        "resources/sample-files/audio1.mxf",
+        "resources/sample-files/audio2.mxf",
+        "resources/sample-files/video1.mxf",
+        "resources/sample-files/video2.mxf",
+        "resources/sample-files/indirect.mxf"
+    };
+
+    public HeaderMetadataParserTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Records the structures reported by a parser
+     */
+    private static class Recorder implements HeaderMetadataParser.Handler {
+
+        final List<Long> partitions = new ArrayList<>();
+        final List<Group> groups = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+        int primers = 0;
+        int ends = 0;
+
+        @Override
+        public void onPartitionPack(PartitionPack pp, long offset) {
+            assertEquals(offset, pp.getThisPartition());
+
+            partitions.add(offset);
+        }
+
+        @Override
+        public void onPrimerPack(LocalTagRegister reg) {
+            assertNotNull(reg);
+
+            primers++;
+        }
+
+        @Override
+        public void onLocalSet(Group group, long offset) {
+            groups.add(group);
+            offsets.add(offset);
+        }
+
+        @Override
+        public void onHeaderMetadataEnd() {
+            ends++;
+        }
+    }
+
+    private static byte[] readSample(String path) throws Exception {
+        return Files.readAllBytes(Paths.get(ClassLoader.getSystemResource(path).toURI()));
+    }
+
+    /* feeds the bytes in chunks of the specified size, stopping once the parser is complete */
+    private static void feed(HeaderMetadataParser hmp, byte[] bytes, int chunksize) throws Exception {
+
+        for (int pos = 0; pos < bytes.length && !hmp.isComplete(); pos += chunksize) {
+
+            ByteBuffer chunk = ByteBuffer.wrap(bytes, pos, Math.min(chunksize, bytes.length - pos));
+
+            hmp.feed(chunk);
+
+            assertFalse(chunk.hasRemaining());
+        }
+    }
+
+    /**
+     * Reads the sets of the Header Metadata of the first partition using a
+     * KLVInputStream, recording the offset of each set
+     */
+    private static List<Group> readReference(String path, List<Long> offsets) throws Exception {
+
+        ArrayList<Group> groups = new ArrayList<>();
+
+        try (InputStream is = ClassLoader.getSystemResourceAsStream(path)) {
+
+            KLVInputStream kis = new KLVInputStream(is);
+
+            PartitionPack pp = PartitionPack.fromTriplet(kis.readTriplet());
+
+            assertNotNull(pp);
+
+            long hmstart = kis.getPosition();
+
+            Triplet t = kis.readTriplet();
+
+            while (t.getKey().equalsIgnoreVersion(FillItem.getKey())) {
+                hmstart = kis.getPosition();
+                t = kis.readTriplet();
+            }
+
+            LocalTagRegister reg = PrimerPack.createLocalTagRegister(t);
+
+            assertNotNull(reg);
+
+            while (kis.getPosition() - hmstart < pp.getHeaderByteCount()) {
+
+                long offset = kis.getPosition();
+
+                t = kis.readTriplet();
+
+                if (t.getKey().equalsIgnoreVersion(IndexTableSegment.getKey())) {
+                    break;
+                }
+
+                if (t.getKey().equalsIgnoreVersion(FillItem.getKey())) {
+                    continue;
+                }
+
+                groups.add(LocalSet.fromTriplet(t, reg));
+                offsets.add(offset);
+            }
+        }
+
+        return groups;
+    }
+
+    private static void assertSameItems(Group expected, Group actual) {
+
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getItems().size(), actual.getItems().size());
+
+        Iterator<Triplet> it = actual.getItems().iterator();
+
+        for (Triplet t : expected.getItems()) {
+
+            Triplet t2 = it.next();
+
+            assertEquals(t.getKey(), t2.getKey());
+            assertTrue(Arrays.equals(t.getValue(), t2.getValue()));
+        }
+    }
+
+    /**
+     * Test of feed method, with the sample files pushed in chunks of various
+     * sizes, against sets read using a KLVInputStream.
+     */
+    public void testFeed() throws Exception {
+
+        for (String path : SAMPLE_FILES) {
+
+            byte[] bytes = readSample(path);
+
+            ArrayList<Long> refoffsets = new ArrayList<>();
+
+            List<Group> refgroups = readReference(path, refoffsets);
+
+            assertFalse(refgroups.isEmpty());
+
+            for (int chunksize : new int[]{1, 61, 4096, bytes.length}) {
+
+                Recorder rec = new Recorder();
+
+                HeaderMetadataParser hmp = new HeaderMetadataParser(rec);
+
+                feed(hmp, bytes, chunksize);
+
+                assertTrue(hmp.isComplete());
+
+                hmp.finish();
+
+                assertEquals(Arrays.asList(0L), rec.partitions);
+                assertEquals(1, rec.primers);
+                assertEquals(1, rec.ends);
+
+                assertEquals(refoffsets, rec.offsets);
+                assertEquals(refgroups.size(), rec.groups.size());
+
+                for (int i = 0; i < refgroups.size(); i++) {
+                    assertSameItems(refgroups.get(i), rec.groups.get(i));
+                }
+
+                /* bytes pushed once complete are skipped */
+                hmp.feed(ByteBuffer.wrap(new byte[100]));
+
+                assertEquals(1, rec.ends);
+            }
+        }
+    }
+
+    /**
+     * Test of finish method when the Header Metadata is truncated.
+     */
+    public void testTruncated() throws Exception {
+
+        byte[] bytes = readSample("resources/sample-files/video1.mxf");
+
+        Recorder rec = new Recorder();
+
+        HeaderMetadataParser hmp = new HeaderMetadataParser(rec);
+
+        /* stops within the sets of the header partition */
+        feed(hmp, Arrays.copyOf(bytes, 3000), 100);
+
+        assertFalse(hmp.isComplete());
+        assertEquals(1, rec.primers);
+        assertEquals(0, rec.ends);
+        assertFalse(rec.groups.isEmpty());
+
+        try {
+            hmp.finish();
+            fail("Truncated Header Metadata not reported");
+        } catch (EOFException e) {
+        }
+    }
+
+    /**
+     * Test that parsing ends after the first Partition Pack when its Header
+     * Byte Count is zero, without the next KLV being taken for a Primer Pack.
+     */
+    public void testHeaderByteCountZero() throws Exception {
+
+        byte[] bytes = readSample("resources/sample-files/video1.mxf");
+
+        /* Header Byte Count of the header partition, at offset 32 of the value */
+        assertEquals(13025, ByteBuffer.wrap(bytes, 52, 8).getLong());
+
+        Arrays.fill(bytes, 52, 60, (byte) 0);
+
+        Recorder rec = new Recorder();
+
+        HeaderMetadataParser hmp = new HeaderMetadataParser(rec);
+
+        /* the parser is complete once the Partition Pack has been pushed */
+        feed(hmp, Arrays.copyOf(bytes, 16 + 4 + 104), 61);
+
+        assertTrue(hmp.isComplete());
+
+        hmp.finish();
+
+        assertEquals(Arrays.asList(0L), rec.partitions);
+        assertEquals(0, rec.primers);
+        assertEquals(1, rec.ends);
+        assertTrue(rec.groups.isEmpty());
+
+        /* when all partitions are parsed, the partition is skipped */
+        rec = new Recorder();
+
+        hmp = new HeaderMetadataParser(rec, true);
+
+        feed(hmp, bytes, 61);
+
+        hmp.finish();
+
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), rec.partitions);
+        assertEquals(1, rec.primers);
+        assertEquals(1, rec.ends);
+    }
+
+    /**
+     * Test of parsing the Header Metadata of all partitions.
+     */
+    public void testAllPartitions() throws Exception {
+
+        byte[] bytes = readSample("resources/sample-files/video1.mxf");
+
+        Recorder rec = new Recorder();
+
+        HeaderMetadataParser hmp = new HeaderMetadataParser(rec, true);
+
+        feed(hmp, bytes, 61);
+
+        assertFalse(hmp.isComplete());
+
+        hmp.finish();
+
+        /* the header and footer partitions carry Header Metadata */
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), rec.partitions);
+        assertEquals(2, rec.primers);
+        assertEquals(2, rec.ends);
+
+        ArrayList<Long> refoffsets = new ArrayList<>();
+
+        int count = readReference("resources/sample-files/video1.mxf", refoffsets).size();
+
+        assertEquals(refoffsets, rec.offsets.subList(0, count));
+        assertTrue(rec.groups.size() > count);
+
+        for (long offset : rec.offsets.subList(count, rec.offsets.size())) {
+            assertTrue(offset > 30630);
+        }
+    }
+
+}
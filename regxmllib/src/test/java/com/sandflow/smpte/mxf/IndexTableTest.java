@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.MemoryTriplet;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * IndexTable unit tests.
+ */
+public class IndexTableTest extends TestCase {
+
+    public IndexTableTest(String testName) {
+        super(testName);
+    }
+
+    static List<IndexTableSegment> readSegments(String path) throws Exception {
+
+        List<IndexTableSegment> segments = new ArrayList<>();
+
+        try (InputStream is = ClassLoader.getSystemResourceAsStream(path)) {
+
+            KLVInputStream kis = new KLVInputStream(is);
+
+            while (true) {
+
+                Triplet t;
+
+                try {
+                    t = kis.readTriplet();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                IndexTableSegment its = IndexTableSegment.fromTriplet(t);
+
+                if (its != null) {
+                    segments.add(its);
+                }
+            }
+        }
+
+        return segments;
+    }
+
+    static IndexTable readIndexTable(String path) throws Exception {
+
+        IndexTable it = new IndexTable();
+
+        for (IndexTableSegment its : readSegments(path)) {
+            it.add(its);
+        }
+
+        return it;
+    }
+
+    /**
+     * Creates an Index Table Segment of Index SID 1
+     *
+     * @param offsets Stream Offsets of the Index Entries, or null if the
+     * segment has no Index Entry Array
+     */
+    static IndexTableSegment createSegment(long start, long duration, long editunitbytecount, long... offsets) throws Exception {
+
+        int entries = offsets == null ? 0 : 4 + 8 + 11 * offsets.length;
+
+        ByteBuffer bb = ByteBuffer.allocate(3 * (4 + 8) + 2 * (4 + 4) + entries);
+
+        bb.putShort((short) 0x3F0C).putShort((short) 8).putLong(start);
+        bb.putShort((short) 0x3F0D).putShort((short) 8).putLong(duration);
+        bb.putShort((short) 0x3F05).putShort((short) 4).putInt((int) editunitbytecount);
+        bb.putShort((short) 0x3F06).putShort((short) 4).putInt(1);
+        bb.putShort((short) 0x3F07).putShort((short) 4).putInt(1);
+
+        if (offsets != null) {
+
+            bb.putShort((short) 0x3F0A).putShort((short) (entries - 4));
+            bb.putInt(offsets.length).putInt(11);
+
+            for (long offset : offsets) {
+                bb.put((byte) 0).put((byte) 0).put((byte) 0).putLong(offset);
+            }
+        }
+
+        return IndexTableSegment.fromTriplet(new MemoryTriplet(IndexTableSegment.getKey(), bb.array()));
+    }
+
+    /**
+     * Test of a variable Edit Unit size Index Table.
+     */
+    public void testVBE() throws Exception {
+
+        IndexTable it = readIndexTable("resources/sample-files/video1.mxf");
+
+        assertEquals(1, it.getSegments().size());
+
+        IndexTableSegment its = it.getSegment(0);
+
+        assertEquals(24000, its.getIndexEditRateNumerator());
+        assertEquals(1001, its.getIndexEditRateDenominator());
+        assertEquals(2, its.getIndexSID());
+        assertEquals(1, its.getBodySID());
+        assertEquals(0, its.getEditUnitByteCount());
+        assertEquals(1, its.getIndexDuration());
+        assertEquals(1, its.getIndexEntryCount());
+        assertEquals(1, its.getDeltaEntryCount());
+        assertEquals(0, its.getDeltaEntryElementDelta(0));
+
+        assertEquals(0, it.getStreamOffset(0));
+        assertEquals(-1, it.getStreamOffset(1));
+        assertEquals(-1, it.getStreamOffset(-1));
+    }
+
+    /**
+     * Test of a constant Edit Unit size Index Table.
+     */
+    public void testCBE() throws Exception {
+
+        IndexTable it = readIndexTable("resources/sample-files/audio1.mxf");
+
+        assertEquals(1, it.getSegments().size());
+
+        assertEquals(6, it.getSegment(0).getEditUnitByteCount());
+
+        assertEquals(0, it.getStreamOffset(0));
+        assertEquals(6 * 48000L * 3600 * 10, it.getStreamOffset(48000L * 3600 * 10));
+
+        /* repeated segments are merged */
+        for (IndexTableSegment its : readSegments("resources/sample-files/audio1.mxf")) {
+            it.add(its);
+        }
+
+        assertEquals(1, it.getSegments().size());
+        assertEquals(60, it.getStreamOffset(10));
+    }
+
+    /**
+     * Test of a variable Edit Unit size Index Table with multiple segments
+     * and a gap.
+     */
+    public void testVBESegments() throws Exception {
+
+        IndexTableSegment s0 = createSegment(0, 3, 0, 0, 100, 250);
+        IndexTableSegment s1 = createSegment(3, 2, 0, 400, 420);
+        IndexTableSegment s2 = createSegment(10, 2, 0, 1000, 1100);
+
+        IndexTable it = new IndexTable();
+
+        /* segments are ordered by start position regardless of insertion order */
+        it.add(s2);
+        it.add(s0);
+        it.add(s1);
+
+        assertEquals(3, it.getSegments().size());
+
+        /* sequential access within and across segments */
+        long[] offsets = {0, 100, 250, 400, 420};
+
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals(offsets[i], it.getStreamOffset(i));
+        }
+
+        /* random access away from the segment of the previous lookup */
+        assertEquals(1100, it.getStreamOffset(11));
+        assertEquals(100, it.getStreamOffset(1));
+        assertEquals(1000, it.getStreamOffset(10));
+        assertEquals(420, it.getStreamOffset(4));
+
+        assertSame(s0, it.getSegment(2));
+        assertSame(s1, it.getSegment(3));
+        assertSame(s2, it.getSegment(11));
+
+        /* gap between segments, and positions outside the table */
+        for (int i = 5; i < 10; i++) {
+            assertEquals(-1, it.getStreamOffset(i));
+            assertNull(it.getSegment(i));
+        }
+
+        assertEquals(-1, it.getStreamOffset(12));
+        assertEquals(-1, it.getStreamOffset(-1));
+
+        /* a later copy of a segment replaces the earlier one */
+        IndexTableSegment s1b = createSegment(3, 3, 0, 400, 420, 500);
+
+        it.add(s1b);
+
+        assertEquals(3, it.getSegments().size());
+        assertSame(s1b, it.getSegment(4));
+        assertEquals(500, it.getStreamOffset(5));
+        assertEquals(-1, it.getStreamOffset(6));
+    }
+
+    /**
+     * Test of a constant Edit Unit size Index Table with multiple segments
+     * and a gap.
+     */
+    public void testCBESegments() throws Exception {
+
+        IndexTable it = new IndexTable();
+
+        it.add(createSegment(0, 10, 4, (long[]) null));
+        it.add(createSegment(10, 5, 8, (long[]) null));
+        it.add(createSegment(15, 5, 2, (long[]) null));
+        it.add(createSegment(30, 0, 3, (long[]) null));
+
+        assertEquals(4, it.getSegments().size());
+
+        /* offsets accumulate across consecutive segments */
+        assertEquals(0, it.getStreamOffset(0));
+        assertEquals(36, it.getStreamOffset(9));
+        assertEquals(40, it.getStreamOffset(10));
+        assertEquals(72, it.getStreamOffset(14));
+        assertEquals(80, it.getStreamOffset(15));
+        assertEquals(88, it.getStreamOffset(19));
+
+        /* gap between segments */
+        for (int i = 20; i < 30; i++) {
+            assertEquals(-1, it.getStreamOffset(i));
+        }
+
+        /* a segment following a gap assumes a constant size from the start */
+        assertEquals(90, it.getStreamOffset(30));
+        assertEquals(3 * 1000000L, it.getStreamOffset(1000000L));
+
+        /* random access away from the segment of the previous lookup */
+        assertEquals(48, it.getStreamOffset(11));
+        assertEquals(4, it.getStreamOffset(1));
+        assertEquals(84, it.getStreamOffset(17));
+
+        assertEquals(-1, it.getStreamOffset(-1));
+    }
+
+}
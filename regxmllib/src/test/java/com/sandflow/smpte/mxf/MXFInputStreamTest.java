@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.util.UL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import junit.framework.TestCase;
+
+/**
+ * MXFInputStream unit tests.
+ */
+public class MXFInputStreamTest extends TestCase {
+
+    private static final UL UL1 = UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02060100");
+
+    private static final UL UL2 = UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02060200");
+
+    public MXFInputStreamTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of readBatch method, of class MXFInputStream.
+     */
+    public void testReadBatch() throws Exception {
+        ByteBuffer bb = ByteBuffer.allocate(8 + 2 * 16 + 1);
+
+        bb.putInt(2);
+        bb.putInt(16);
+        bb.put(UL1.getValue());
+        bb.put(UL2.getValue());
+        bb.put((byte) 0x5A);
+
+        MXFInputStream mis = new MXFInputStream(bb.array());
+
+        Collection<UL> batch = mis.readBatch(new MXFInputStream.ItemAdapter<UL>() {
+
+            @Override
+            public UL fromValue(byte[] value) {
+                return new UL(value);
+            }
+        });
+
+        assertEquals(2, batch.size());
+
+        Iterator<UL> iter = batch.iterator();
+
+        assertEquals(UL1, iter.next());
+        assertEquals(UL2, iter.next());
+
+        /* the items are consumed */
+        assertEquals(0x5A, mis.read());
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import junit.framework.TestCase;
+
+/**
+ * PartitionMap unit tests.
+ */
+public class PartitionMapTest extends TestCase {
+
+    /* offsets of the Partition Packs and of the Random Index Pack of video1.mxf */
+    private static final int BODY_OFFSET = 13149;
+    private static final int INDEX_OFFSET = 30340;
+    private static final int RIP_OFFSET = 43905;
+
+    /* offsets of Partition Pack fields, relative to the Partition Pack */
+    private static final int THIS_PARTITION = 28;
+    private static final int PREVIOUS_PARTITION = 36;
+    private static final int FOOTER_PARTITION = 44;
+
+    public PartitionMapTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Collects the warnings logged by PartitionMap
+     */
+    private static class WarningRecorder extends Handler {
+
+        final List<LogRecord> records = new ArrayList<>();
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel() == Level.WARNING) {
+                records.add(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        boolean contains(String message, Object... params) {
+            for (LogRecord record : records) {
+                if (record.getMessage().startsWith(message)
+                        && Arrays.equals(params, record.getParameters() == null ? new Object[0] : record.getParameters())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    static byte[] readSample(String name) throws Exception {
+        Path path = Paths.get(ClassLoader.getSystemResource("resources/sample-files/" + name).toURI());
+
+        return Files.readAllBytes(path);
+    }
+
+    /**
+     * Builds the partition map of a file, and records the warnings logged
+     */
+    static PartitionMap fromBytes(byte[] bytes, WarningRecorder warnings) throws Exception {
+
+        File file = File.createTempFile("partitions", ".mxf");
+
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), bytes);
+
+        Logger log = Logger.getLogger(PartitionMap.class.getName());
+
+        log.addHandler(warnings);
+
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            return PartitionMap.fromFileChannel(fc);
+
+        } finally {
+
+            log.removeHandler(warnings);
+
+            file.delete();
+
+        }
+    }
+
+    /**
+     * Test of fromFileChannel method, of class PartitionMap.
+     */
+    public void testFromFileChannel() throws Exception {
+
+        Path path = Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI());
+
+        PartitionMap pm;
+
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+            pm = PartitionMap.fromFileChannel(fc);
+        }
+
+        assertTrue(pm.hasRandomIndexPack());
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), pm.getOffsets());
+
+        assertEquals(PartitionPack.Kind.HEADER, pm.getPartition(0).getKind());
+        assertEquals(13025, pm.getPartition(0).getHeaderByteCount());
+
+        assertEquals(1, pm.getPartition(13149).getBodySID());
+        assertEquals(1, pm.getPartition(13149).getEssenceContainers().size());
+
+        assertEquals(2, pm.getPartition(30340).getIndexSID());
+        assertEquals(166, pm.getPartition(30340).getIndexByteCount());
+
+        assertEquals(PartitionPack.Kind.FOOTER, pm.getPartition(30630).getKind());
+        assertEquals(PartitionPack.Status.CLOSED_COMPLETE, pm.getPartition(30630).getStatus());
+    }
+
+    /**
+     * Test of fromFileChannel method, of class PartitionMap, with a file
+     * truncated before its Footer Partition.
+     */
+    public void testTruncated() throws Exception {
+
+        File truncated = File.createTempFile("truncated", ".mxf");
+
+        truncated.deleteOnExit();
+
+        try (InputStream is = ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf")) {
+
+            byte[] bytes = new byte[30630];
+
+            int len = 0;
+
+            for (int n; len < bytes.length && (n = is.read(bytes, len, bytes.length - len)) > 0;) {
+                len += n;
+            }
+
+            Files.write(truncated.toPath(), Arrays.copyOf(bytes, len));
+        }
+
+        try (FileChannel fc = FileChannel.open(truncated.toPath(), StandardOpenOption.READ)) {
+
+            PartitionMap pm = PartitionMap.fromFileChannel(fc);
+
+            assertFalse(pm.hasRandomIndexPack());
+            assertEquals(Arrays.asList(0L, 13149L, 30340L), pm.getOffsets());
+        }
+    }
+
+    /**
+     * Test of fromFileChannel method, of class PartitionMap, when the
+     * FooterPartition of the Header Partition Pack is stale.
+     */
+    public void testStaleFooterPartition() throws Exception {
+
+        byte[] bytes = readSample("video1.mxf");
+
+        ByteBuffer.wrap(bytes).putLong(FOOTER_PARTITION, 20000);
+
+        WarningRecorder warnings = new WarningRecorder();
+
+        PartitionMap pm = fromBytes(bytes, warnings);
+
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), pm.getOffsets());
+
+        assertTrue(warnings.contains("No Footer Partition found at FooterPartition offset", 20000L, 30630L));
+
+        /* the footer is found using the Random Index Pack, without scanning the file */
+        assertFalse(warnings.contains("Footer Partition not found"));
+    }
+
+    /**
+     * Test of the warnings logged when the PreviousPartition chain is broken.
+     */
+    public void testBrokenChain() throws Exception {
+
+        byte[] bytes = readSample("video1.mxf");
+
+        ByteBuffer.wrap(bytes).putLong(INDEX_OFFSET + PREVIOUS_PARTITION, 20000);
+
+        WarningRecorder warnings = new WarningRecorder();
+
+        PartitionMap pm = fromBytes(bytes, warnings);
+
+        assertTrue(warnings.contains("No Partition Pack found at PreviousPartition offset", 20000L));
+
+        /* the partition beyond the break is recovered from the Random Index Pack */
+        assertTrue(warnings.contains("Partition at offset {0} listed in the Random Index Pack is not in the PreviousPartition chain", 13149L));
+
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), pm.getOffsets());
+
+        /* PreviousPartition that does not precede the partition */
+        bytes = readSample("video1.mxf");
+
+        ByteBuffer.wrap(bytes).putLong(BODY_OFFSET + PREVIOUS_PARTITION, 30630);
+
+        warnings = new WarningRecorder();
+
+        pm = fromBytes(bytes, warnings);
+
+        assertTrue(warnings.contains("Partition at offset {0} has a PreviousPartition of {1}, which does not precede it", 13149L, 30630L));
+
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), pm.getOffsets());
+    }
+
+    /**
+     * Test of the warnings logged when the Random Index Pack and the
+     * PreviousPartition chain disagree.
+     */
+    public void testRandomIndexPackMismatch() throws Exception {
+
+        byte[] bytes = readSample("video1.mxf");
+
+        ByteBuffer bb = ByteBuffer.wrap(bytes);
+
+        /* entries of the Random Index Pack consist of a BodySID and a ByteOffset */
+        bb.putInt(RIP_OFFSET + 20 + 12, 7);
+        bb.putLong(RIP_OFFSET + 20 + 2 * 12 + 4, 20000);
+
+        WarningRecorder warnings = new WarningRecorder();
+
+        PartitionMap pm = fromBytes(bytes, warnings);
+
+        assertTrue(warnings.contains("Partition at offset {0} has a BodySID of {1} but the Random Index Pack lists {2}", 13149L, 1L, 7L));
+        assertTrue(warnings.contains("Partition at offset {0} listed in the Random Index Pack is not in the PreviousPartition chain", 20000L));
+        assertTrue(warnings.contains("No Partition Pack found at offset {0} listed in the Random Index Pack", 20000L));
+        assertTrue(warnings.contains("Partition at offset {0} is not listed in the Random Index Pack", 30340L));
+
+        assertEquals(Arrays.asList(0L, 13149L, 30340L, 30630L), pm.getOffsets());
+    }
+
+    /**
+     * Test of the warning logged when ThisPartition does not match the offset
+     * of a Partition Pack.
+     */
+    public void testThisPartitionMismatch() throws Exception {
+
+        byte[] bytes = readSample("video1.mxf");
+
+        ByteBuffer.wrap(bytes).putLong(BODY_OFFSET + THIS_PARTITION, 13150);
+
+        WarningRecorder warnings = new WarningRecorder();
+
+        PartitionMap pm = fromBytes(bytes, warnings);
+
+        assertEquals(1, warnings.records.size());
+        assertTrue(warnings.contains("Partition Pack at offset {0} has a ThisPartition of {1}", 13149L, 13150L));
+
+        assertEquals(13150, pm.getPartition(13149).getThisPartition());
+    }
+
+}
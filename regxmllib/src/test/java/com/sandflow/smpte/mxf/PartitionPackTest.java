@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.MemoryTriplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.util.UL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * PartitionPack unit tests.
+ */
+public class PartitionPackTest extends TestCase {
+
+    /* layout of the Header Partition Pack of video1.mxf */
+    private static final int VALUE_OFFSET = 20;
+    private static final int PARTITION_PACK_LENGTH = 124;
+    private static final int ESSENCE_CONTAINER_COUNT_OFFSET = 100;
+    private static final int ESSENCE_CONTAINER_LENGTH_OFFSET = 104;
+    private static final int ESSENCE_CONTAINER_OFFSET = 108;
+
+    public PartitionPackTest(String testName) {
+        super(testName);
+    }
+
+    private static PartitionPack fromBytes(byte[] pp) throws KLVException {
+        return PartitionPack.fromTriplet(
+                new MemoryTriplet(new UL(pp), Arrays.copyOfRange(pp, VALUE_OFFSET, PARTITION_PACK_LENGTH))
+        );
+    }
+
+    /**
+     * Test of the Essence Container batch read by fromTriplet method, of
+     * class PartitionPack.
+     */
+    public void testEssenceContainers() throws Exception {
+
+        byte[] pp = Arrays.copyOf(
+                Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI())),
+                PARTITION_PACK_LENGTH
+        );
+
+        assertEquals(1, ByteBuffer.wrap(pp).getInt(ESSENCE_CONTAINER_COUNT_OFFSET));
+        assertEquals(16, ByteBuffer.wrap(pp).getInt(ESSENCE_CONTAINER_LENGTH_OFFSET));
+
+        PartitionPack header = fromBytes(pp);
+
+        assertNotNull(header);
+        assertEquals(1, header.getEssenceContainers().size());
+        assertEquals(new UL(pp, ESSENCE_CONTAINER_OFFSET), header.getEssenceContainers().iterator().next());
+
+        /* the items of the batch are not ULs */
+        byte[] invalid = pp.clone();
+        invalid[ESSENCE_CONTAINER_LENGTH_OFFSET + 3] = 15;
+
+        try {
+            fromBytes(invalid);
+            fail("Essence Container batch with 15-byte items accepted");
+        } catch (KLVException e) {
+        }
+
+        /* the length of the items of an empty batch is ignored */
+        invalid[ESSENCE_CONTAINER_COUNT_OFFSET + 3] = 0;
+
+        assertTrue(fromBytes(invalid).getEssenceContainers().isEmpty());
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.ByteBufferTriplet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.MemoryTriplet;
+import com.sandflow.smpte.util.UL;
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+
+/**
+ * PrimerPack unit tests.
+ */
+public class PrimerPackTest extends TestCase {
+
+    private static final UL ITEM_KEY = UL.fromURN("urn:smpte:ul:060e2b34.01010102.06010104.02010000");
+
+    public PrimerPackTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Returns the value of a Primer Pack with a single entry
+     */
+    static byte[] primerValue(int localtag, UL key) {
+        ByteBuffer bb = ByteBuffer.allocate(8 + 18);
+
+        bb.putInt(1);
+        bb.putInt(18);
+        bb.putShort((short) localtag);
+        bb.put(key.getValue());
+
+        return bb.array();
+    }
+
+    /**
+     * Test of createLocalTagRegister method, of class PrimerPack.
+     */
+    public void testCreateLocalTagRegister() throws Exception {
+        LocalTagRegister reg = PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x3c0a, ITEM_KEY)));
+
+        assertNotNull(reg);
+        assertEquals(ITEM_KEY, reg.get(0x3c0a));
+        assertNull(reg.get(0x3c0b));
+
+        assertNull(PrimerPack.createLocalTagRegister(new MemoryTriplet(ITEM_KEY, primerValue(0x3c0a, ITEM_KEY))));
+    }
+
+    /**
+     * Test that the same register is returned for equal Primer Packs, even
+     * when their values are held in different buffers.
+     */
+    public void testCacheHit() throws Exception {
+        byte[] value = primerValue(0x3c0b, ITEM_KEY);
+
+        LocalTagRegister reg = PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), value));
+
+        assertSame(reg, PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), value.clone())));
+
+        /* same content at a non-zero offset of a larger buffer */
+        ByteBuffer bb = ByteBuffer.allocate(value.length + 7);
+        bb.position(5);
+        bb.put(value);
+
+        assertSame(reg, PrimerPack.createLocalTagRegister(new ByteBufferTriplet(PrimerPack.getKey(), bb, 5, value.length)));
+
+        /* the cached entry must not alias the caller's buffer */
+        bb.put(5, (byte) 0xFF);
+
+        assertSame(reg, PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), value.clone())));
+
+        /* different content */
+        assertNotSame(reg, PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x3c0c, ITEM_KEY))));
+    }
+
+    /**
+     * Test that the least recently used register is evicted once the cache is
+     * full.
+     */
+    public void testCacheEviction() throws Exception {
+        byte[] first = primerValue(0x4000, ITEM_KEY);
+
+        LocalTagRegister reg = PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), first));
+
+        for (int i = 1; i < PrimerPack.CACHE_SIZE; i++) {
+            PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x4000 + i, ITEM_KEY)));
+        }
+
+        /* the cache is full, and the first register is now the most recently used */
+        assertSame(reg, PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), first)));
+
+        for (int i = 1; i < PrimerPack.CACHE_SIZE; i++) {
+            PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x5000 + i, ITEM_KEY)));
+        }
+
+        assertSame(reg, PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), first)));
+
+        for (int i = 0; i < PrimerPack.CACHE_SIZE; i++) {
+            PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x6000 + i, ITEM_KEY)));
+        }
+
+        LocalTagRegister reg2 = PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), first));
+
+        assertNotSame(reg, reg2);
+        assertEquals(ITEM_KEY, reg2.get(0x4000));
+    }
+
+    /**
+     * Test that registers created from Primer Packs are read-only.
+     */
+    public void testReadOnly() throws Exception {
+        LocalTagRegister reg = PrimerPack.createLocalTagRegister(new MemoryTriplet(PrimerPack.getKey(), primerValue(0x3c0d, ITEM_KEY)));
+
+        try {
+            reg.add(0x3c0e, ITEM_KEY);
+            fail("Shared register modified");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        assertNull(reg.get(0x3c0e));
+    }
+
+}
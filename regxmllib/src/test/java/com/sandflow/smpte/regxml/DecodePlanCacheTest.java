@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import java.net.URI;
+import junit.framework.TestCase;
+
+/**
+ * DecodePlanCache unit tests.
+ */
+public class DecodePlanCacheTest extends TestCase {
+
+    private static final URI NS1 = URI.create("http://example.com/ns1");
+    private static final URI NS2 = URI.create("http://example.com/ns2");
+
+    private static final UL CLASS_UL = UL.fromDotValue("06.0E.2B.34.02.7F.01.01.0D.01.01.01.01.01.01.00");
+    private static final UL TYPE_UL = UL.fromDotValue("06.0E.2B.34.01.04.01.01.01.03.01.00.00.00.00.00");
+    private static final UL PROPERTY1_UL = UL.fromDotValue("06.0E.2B.34.01.01.01.01.01.01.15.02.00.00.00.00");
+    private static final UL PROPERTY2_UL = UL.fromDotValue("06.0E.2B.34.01.01.01.01.01.01.15.03.00.00.00.00");
+
+    public DecodePlanCacheTest(String testName) {
+        super(testName);
+    }
+
+    private static PropertyDefinition createProperty(URI namespace, String symbol, UL ul) {
+
+        PropertyDefinition def = new PropertyDefinition();
+
+        def.setNamespace(namespace);
+        def.setSymbol(symbol);
+        def.setIdentification(new AUID(ul));
+        def.setMemberOf(new AUID(CLASS_UL));
+        def.setType(new AUID(TYPE_UL));
+
+        return def;
+    }
+
+    /**
+     * Test that plans compiled before definitions are added to a
+     * MetaDictionaryCollection, including plans for unknown properties, are
+     * not used afterwards.
+     */
+    public void testDefinitionsAdded() throws Exception {
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        ClassDefinition cls = new ClassDefinition();
+        cls.setNamespace(NS1);
+        cls.setSymbol("Class");
+        cls.setIdentification(new AUID(CLASS_UL));
+
+        OpaqueTypeDefinition type = new OpaqueTypeDefinition();
+        type.setNamespace(NS1);
+        type.setSymbol("Type");
+        type.setIdentification(new AUID(TYPE_UL));
+
+        mds.addDefinition(cls);
+        mds.addDefinition(type);
+
+        DecodePlanCache cache = DecodePlanCache.forResolver(mds);
+
+        assertNull(cache.get(PROPERTY1_UL).getDefinition());
+        assertNull(cache.get(PROPERTY2_UL).getDefinition());
+
+        /* definition added to an existing MetaDictionary */
+        PropertyDefinition prop1 = createProperty(NS1, "Property1", PROPERTY1_UL);
+
+        mds.addDefinition(prop1);
+
+        assertSame(prop1, cache.get(PROPERTY1_UL).getDefinition());
+        assertSame(type, cache.get(PROPERTY1_UL).getType());
+        assertNull(cache.get(PROPERTY2_UL).getDefinition());
+
+        /* MetaDictionary added to the collection */
+        MetaDictionary md = new MetaDictionary(NS2);
+
+        PropertyDefinition prop2 = createProperty(NS2, "Property2", PROPERTY2_UL);
+
+        md.add(prop2);
+
+        mds.addDictionary(md);
+
+        assertSame(prop2, cache.get(PROPERTY2_UL).getDefinition());
+        assertSame(cache, DecodePlanCache.forResolver(mds));
+
+        /* plans are reused while the collection is unchanged */
+        assertSame(cache.get(PROPERTY2_UL), cache.get(PROPERTY2_UL));
+    }
+
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.KLVChannelReader;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.MemoryTriplet;
+import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * FragmentBuilder unit tests.
+ */
+public class FragmentBuilderTest extends TestCase {
+
+    private static final UL SEQUENCE_KEY = UL.fromURN("urn:smpte:ul:060e2b34.02530101.0d010101.01010f00");
+    private static final UL INSTANCE_UID_ITEM_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010101.01011502.00000000");
+    private static final UL COMPONENT_OBJECTS_ITEM_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.06010104.06090000");
+
+    private static final int INSTANCE_UID_TAG = 0x3c0a;
+    private static final int COMPONENT_OBJECTS_TAG = 0x1001;
+
+    private static MetaDictionaryCollection mds;
+
+    private LocalTagRegister reg;
+    private Document doc;
+
+    public FragmentBuilderTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        /* the dictionaries are only read */
+        if (mds == null) {
+            Reader fe = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Elements.xml"));
+            Reader fg = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Groups.xml"));
+            Reader ft = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Types.xml"));
+
+            mds = fromRegister(TypesRegister.fromXML(ft), GroupsRegister.fromXML(fg), ElementsRegister.fromXML(fe));
+
+            assertNotNull(mds);
+        }
+
+        reg = new LocalTagRegister();
+        reg.add(INSTANCE_UID_TAG, INSTANCE_UID_ITEM_UL);
+        reg.add(COMPONENT_OBJECTS_TAG, COMPONENT_OBJECTS_ITEM_UL);
+
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        doc = dbf.newDocumentBuilder().newDocument();
+    }
+
+    /**
+     * Returns the value of a Sequence whose Component Objects are the
+     * specified objects
+     */
+    private static byte[] sequenceValue(UUID iid, UUID... components) {
+
+        ByteBuffer bb = ByteBuffer.allocate(4 + 16 + 4 + 8 + 16 * components.length);
+
+        bb.putShort((short) INSTANCE_UID_TAG);
+        bb.putShort((short) 16);
+        bb.put(iid.getValue());
+
+        bb.putShort((short) COMPONENT_OBJECTS_TAG);
+        bb.putShort((short) (8 + 16 * components.length));
+        bb.putInt(components.length);
+        bb.putInt(16);
+
+        for (UUID component : components) {
+            bb.put(component.getValue());
+        }
+
+        return bb.array();
+    }
+
+    /**
+     * Returns a Sequence whose Component Objects are the specified objects
+     */
+    private Set createSequence(UUID iid, UUID... components) throws Exception {
+
+        Set set = Set.fromGroup(LocalSet.fromTriplet(new MemoryTriplet(SEQUENCE_KEY, sequenceValue(iid, components)), reg));
+
+        assertNotNull(set);
+
+        return set;
+    }
+
+    private static Element getChildElement(Element e, String localname) {
+
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE && localname.equals(n.getLocalName())) {
+                return (Element) n;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean hasComment(Element e) {
+
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.COMMENT_NODE) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Test of fromTriplet with Strong References nested deeper than the call
+     * stack would allow if each level were written recursively.
+     */
+    public void testDeepStrongReferences() throws Exception {
+
+        final int depth = 20000;
+
+        HashMap<UUID, Set> sets = new HashMap<>();
+
+        Set root = null;
+
+        for (int i = depth - 1; i >= 0; i--) {
+
+            Set set = i == depth - 1
+                    ? createSequence(new UUID(0, i))
+                    : createSequence(new UUID(0, i), new UUID(0, i + 1));
+
+            sets.put(set.getInstanceID(), set);
+
+            root = set;
+        }
+
+        doc.appendChild(new FragmentBuilder(mds, sets).fromTriplet(root, doc));
+
+        int count = 0;
+
+        for (Element e = doc.getDocumentElement(); e != null; count++) {
+
+            assertEquals("Sequence", e.getLocalName());
+            assertNotNull(getChildElement(e, "InstanceID"));
+
+            Element components = getChildElement(e, "ComponentObjects");
+
+            assertNotNull(components);
+
+            e = getChildElement(components, "Sequence");
+        }
+
+        assertEquals(depth, count);
+    }
+
+    /**
+     * Test of fromTriplet with a Set that references itself, and with two
+     * Sets that reference each other.
+     */
+    public void testCyclicStrongReferences() throws Exception {
+
+        HashMap<UUID, Set> sets = new HashMap<>();
+
+        /* self-reference */
+        UUID a = new UUID(0, 1);
+
+        sets.put(a, createSequence(a, a));
+
+        doc.appendChild(new FragmentBuilder(mds, sets).fromTriplet(sets.get(a), doc));
+
+        Element components = getChildElement(doc.getDocumentElement(), "ComponentObjects");
+
+        assertNotNull(components);
+
+        Element inner = getChildElement(components, "Sequence");
+
+        assertNotNull(inner);
+        assertNotNull(getChildElement(inner, "InstanceID"));
+        assertNull(getChildElement(inner, "ComponentObjects"));
+        assertTrue(hasComment(components));
+
+        /* cycle through two sets */
+        UUID b = new UUID(0, 2);
+        UUID c = new UUID(0, 3);
+
+        sets.put(b, createSequence(b, c));
+        sets.put(c, createSequence(c, b));
+
+        Document doc2 = doc.getImplementation().createDocument(null, null, null);
+
+        doc2.appendChild(new FragmentBuilder(mds, sets).fromTriplet(sets.get(b), doc2));
+
+        Element seqc = getChildElement(getChildElement(doc2.getDocumentElement(), "ComponentObjects"), "Sequence");
+
+        assertNotNull(seqc);
+
+        components = getChildElement(seqc, "ComponentObjects");
+
+        assertNotNull(components);
+
+        inner = getChildElement(components, "Sequence");
+
+        assertNotNull(inner);
+        assertNull(getChildElement(inner, "ComponentObjects"));
+        assertTrue(hasComment(components));
+    }
+
+    /**
+     * Test of fromTriplet with an array of Strong References much wider than
+     * the cache of an IndexedSetResolver, checking that the referenced
+     * objects are not all held in memory while the array is written.
+     */
+    public void testWideStrongReferenceArray() throws Exception {
+
+        final int width = 2000;
+
+        File file = File.createTempFile("wide", ".klv");
+
+        file.deleteOnExit();
+
+        UUID[] components = new UUID[width];
+        long[] offsets = new long[width];
+        int[] lengths = new int[width];
+
+        try (OutputStream os = Files.newOutputStream(file.toPath())) {
+
+            long position = 0;
+
+            for (int i = 0; i < width; i++) {
+
+                components[i] = new UUID(1, i);
+
+                byte[] value = sequenceValue(components[i]);
+
+                /* long form BER length */
+                os.write(SEQUENCE_KEY.getValue());
+                os.write(new byte[]{(byte) 0x83, (byte) (value.length >> 16), (byte) (value.length >> 8), (byte) value.length});
+                os.write(value);
+
+                offsets[i] = position + 16 + 4;
+                lengths[i] = value.length;
+
+                position = offsets[i] + value.length;
+            }
+        }
+
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            final IndexedSetResolver isr = new IndexedSetResolver(new KLVChannelReader(fc), reg, 1);
+
+            for (int i = 0; i < width; i++) {
+                isr.add(SEQUENCE_KEY, offsets[i], lengths[i], components[i]);
+            }
+
+            /* tracks the sets resolved so far, without keeping them alive */
+            final ArrayList<WeakReference<Set>> resolved = new ArrayList<>();
+            final int[] maxlive = new int[1];
+
+            Map<UUID, Set> sets = new AbstractMap<UUID, Set>() {
+
+                @Override
+                public Set get(Object key) {
+
+                    if (resolved.size() % 100 == 99) {
+
+                        System.gc();
+
+                        int live = 0;
+
+                        for (WeakReference<Set> ref : resolved) {
+                            if (ref.get() != null) {
+                                live++;
+                            }
+                        }
+
+                        maxlive[0] = Math.max(maxlive[0], live);
+                    }
+
+                    Set set = isr.get(key);
+
+                    if (set != null) {
+                        resolved.add(new WeakReference<>(set));
+                    }
+
+                    return set;
+                }
+
+                @Override
+                public java.util.Set<Map.Entry<UUID, Set>> entrySet() {
+                    return isr.entrySet();
+                }
+            };
+
+            Set root = createSequence(new UUID(0, 0), components);
+
+            doc.appendChild(new FragmentBuilder(mds, sets).fromTriplet(root, doc));
+
+            assertEquals(width, resolved.size());
+
+            /* the set being written, and the set held by the cache */
+            assertTrue("Sets held in memory: " + maxlive[0], maxlive[0] <= 2);
+        }
+
+        file.delete();
+
+        int count = 0;
+
+        Element e = getChildElement(getChildElement(doc.getDocumentElement(), "ComponentObjects"), "Sequence");
+
+        for (; e != null; e = (Element) e.getNextSibling()) {
+            assertEquals("Sequence", e.getLocalName());
+            count++;
+        }
+
+        assertEquals(width, count);
+    }
+
+    /**
+     * Test that an error while writing a fragment does not affect the next
+     * fragment written by the same FragmentBuilder.
+     */
+    public void testReuseAfterError() throws Exception {
+
+        final HashMap<UUID, Set> sets = new HashMap<>();
+
+        UUID a = new UUID(0, 1);
+        final UUID b = new UUID(0, 2);
+
+        sets.put(a, createSequence(a, b));
+        sets.put(b, createSequence(b));
+
+        final boolean[] fail = {true};
+
+        Map<UUID, Set> resolver = new AbstractMap<UUID, Set>() {
+
+            @Override
+            public Set get(Object key) {
+
+                if (fail[0] && b.equals(key)) {
+                    fail[0] = false;
+
+                    throw new IllegalStateException();
+                }
+
+                return sets.get(key);
+            }
+
+            @Override
+            public java.util.Set<Map.Entry<UUID, Set>> entrySet() {
+                return sets.entrySet();
+            }
+        };
+
+        FragmentBuilder fb = new FragmentBuilder(mds, resolver);
+
+        try {
+            fb.fromTriplet(sets.get(a), doc);
+
+            fail();
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+
+        doc.appendChild(fb.fromTriplet(sets.get(a), doc));
+
+        /* the object is not mistaken for its own ancestor */
+        Element components = getChildElement(doc.getDocumentElement(), "ComponentObjects");
+
+        assertNotNull(components);
+        assertNotNull(getChildElement(components, "Sequence"));
+        assertFalse(hasComment(components));
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.KLVChannelReader;
+import com.sandflow.smpte.klv.LocalSet;
+import com.sandflow.smpte.klv.LocalTagRegister;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.mxf.PrimerPack;
+import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ * IndexedSetResolver unit tests.
+ */
+public class IndexedSetResolverTest extends TestCase {
+
+    private FileChannel fc;
+    private KLVChannelReader kcr;
+    private LocalTagRegister reg;
+
+    /* sets of the header metadata of video1.mxf, decoded upfront */
+    private final List<Set> sets = new ArrayList<>();
+
+    private final List<UL> keys = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> lengths = new ArrayList<>();
+
+    public IndexedSetResolverTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        fc = FileChannel.open(
+                Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()),
+                StandardOpenOption.READ
+        );
+
+        kcr = new KLVChannelReader(fc);
+
+        assertNotNull(PartitionPack.fromTriplet(kcr.readTriplet()));
+
+        reg = PrimerPack.createLocalTagRegister(kcr.readTriplet());
+
+        assertNotNull(reg);
+
+        while (true) {
+
+            UL key = kcr.readUL();
+
+            long len = kcr.readBERLength();
+
+            if (!key.isLocalSet()) {
+                break;
+            }
+
+            keys.add(key);
+            offsets.add(kcr.getPosition());
+            lengths.add((int) len);
+
+            Triplet t = kcr.readValue(key, len);
+
+            sets.add(Set.fromGroup(LocalSet.fromTriplet(t, reg)));
+        }
+
+        assertTrue(sets.size() > 3);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fc.close();
+
+        super.tearDown();
+    }
+
+    private IndexedSetResolver createResolver(int cachesize) {
+
+        IndexedSetResolver isr = new IndexedSetResolver(kcr, reg, cachesize);
+
+        for (int i = 0; i < sets.size(); i++) {
+            isr.add(keys.get(i), offsets.get(i), lengths.get(i), sets.get(i).getInstanceID());
+        }
+
+        return isr;
+    }
+
+    private static void assertSameItems(Group expected, Group actual) {
+
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getItems().size(), actual.getItems().size());
+
+        Iterator<Triplet> it = actual.getItems().iterator();
+
+        for (Triplet t : expected.getItems()) {
+
+            Triplet t2 = it.next();
+
+            assertEquals(t.getKey(), t2.getKey());
+            assertTrue(Arrays.equals(t.getValue(), t2.getValue()));
+        }
+    }
+
+    /**
+     * Test that sets resolved through a cache holding a single set, which are
+     * therefore read again from the file every time, match the sets decoded
+     * upfront.
+     */
+    public void testSingleEntryCache() throws Exception {
+
+        IndexedSetResolver isr = createResolver(1);
+
+        assertEquals(sets.size(), isr.size());
+
+        for (int pass = 0; pass < 2; pass++) {
+
+            for (Set set : sets) {
+
+                Set set2 = isr.get(set.getInstanceID());
+
+                assertNotNull(set2);
+                assertEquals(set.getInstanceID(), set2.getInstanceID());
+                assertSameItems(set, set2);
+            }
+        }
+
+        List<Group> groups = isr.getGroups();
+
+        assertEquals(sets.size(), groups.size());
+
+        for (int i = sets.size() - 1; i >= 0; i--) {
+            assertSameItems(sets.get(i), groups.get(i));
+        }
+
+        int count = 0;
+
+        for (Map.Entry<UUID, Set> entry : isr.entrySet()) {
+
+            assertEquals(entry.getKey(), entry.getValue().getInstanceID());
+
+            count++;
+        }
+
+        assertEquals(sets.size(), count);
+
+        assertNull(isr.get(new UUID(0, 0)));
+        assertFalse(isr.containsKey(new UUID(0, 0)));
+    }
+
+    /**
+     * Test that the least recently used set is evicted first, and that an
+     * evicted set is read again from the file.
+     */
+    public void testEviction() throws Exception {
+
+        IndexedSetResolver isr = createResolver(2);
+
+        UUID a = sets.get(0).getInstanceID();
+        UUID b = sets.get(1).getInstanceID();
+        UUID c = sets.get(2).getInstanceID();
+
+        Set seta = isr.get(a);
+        Set setb = isr.get(b);
+
+        /* cache hits */
+        assertSame(seta, isr.get(a));
+        assertSame(setb, isr.get(b));
+
+        /* a is now the most recently used */
+        assertSame(seta, isr.get(a));
+
+        /* evicts b */
+        Set setc = isr.get(c);
+
+        assertSame(seta, isr.get(a));
+        assertSame(setc, isr.get(c));
+
+        /* b is read again, and evicts a */
+        Set setb2 = isr.get(b);
+
+        assertNotSame(setb, setb2);
+        assertSameItems(setb, setb2);
+
+        Set seta2 = isr.get(a);
+
+        assertNotSame(seta, seta2);
+        assertSameItems(seta, seta2);
+    }
+
+}
@@ -25,31 +25,51 @@
  */
 package com.sandflow.smpte.regxml;
 
+import com.sandflow.smpte.klv.LocalSet;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.register.ElementsRegister;
 import com.sandflow.smpte.register.GroupsRegister;
 import com.sandflow.smpte.register.TypesRegister;
 import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
 import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import com.sandflow.smpte.util.AsyncOutputStream;
+import com.sandflow.smpte.util.ReadAheadInputStream;
 import com.sandflow.smpte.util.UL;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import junit.framework.TestCase;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -61,6 +81,12 @@ public class MXFFragmentBuilderTest extends TestCase {
     private static final UL PREFACE_KEY
             = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
 
+    private static final UL ESSENCE_DESCRIPTOR_KEY
+            = UL.fromURN("urn:smpte:ul:060e2b34.02010101.0d010101.01012400");
+
+    private static final UL IDENTIFICATION_KEY
+            = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01013000");
+
     private MetaDictionaryCollection mds;
     private DocumentBuilder db;
 
@@ -112,7 +138,7 @@ public class MXFFragmentBuilderTest extends TestCase {
         super.tearDown();
     }
 
-    private void compareGeneratedVsRef(String spath, String refpath) throws IOException, SAXException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+    private void compareGeneratedVsRef(String spath, String refpath) throws IOException, SAXException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException, URISyntaxException, XMLStreamException {
 
         
         /* get the sample files */
@@ -141,6 +167,103 @@ public class MXFFragmentBuilderTest extends TestCase {
         /* compare the ref vs the generated */
         assertTrue(compareDOMElement(gendoc.getDocumentElement(), refdoc.getDocumentElement()));
 
+        /* build the regxml fragment from a memory-mapped file */
+        FileChannel samplefc = FileChannel.open(Paths.get(ClassLoader.getSystemResource(spath).toURI()), StandardOpenOption.READ);
+
+        Document mappeddoc = db.newDocument();
+
+        mappeddoc.appendChild(MXFFragmentBuilder.fromFileChannel(samplefc, mds, PREFACE_KEY, mappeddoc));
+
+        assertTrue(compareDOMElement(mappeddoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* build the regxml fragment from the best header metadata listed in the RIP */
+        samplefc.position(0);
+
+        Document ripdoc = db.newDocument();
+
+        ripdoc.appendChild(MXFFragmentBuilder.fromFileChannel(samplefc, mds, PREFACE_KEY, ripdoc, true));
+
+        assertTrue(compareDOMElement(ripdoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* build the regxml fragment, decoding only the sets reachable from the root */
+        samplefc.position(0);
+
+        Document lazydoc = db.newDocument();
+
+        lazydoc.appendChild(MXFFragmentBuilder.fromFileChannel(samplefc, mds, PREFACE_KEY, lazydoc, false, MXFFragmentBuilder.SetDecoding.LAZY));
+
+        assertTrue(compareDOMElement(lazydoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* build the regxml fragment, reading sets from the file as they are referenced */
+        samplefc.position(0);
+
+        Document indexeddoc = db.newDocument();
+
+        indexeddoc.appendChild(MXFFragmentBuilder.fromFileChannel(samplefc, mds, PREFACE_KEY, indexeddoc, false, MXFFragmentBuilder.SetDecoding.INDEXED));
+
+        assertTrue(compareDOMElement(indexeddoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* stream the regxml fragment and parse it back */
+        samplefc.position(0);
+
+        StringWriter sw = new StringWriter();
+
+        XMLStreamWriter xsw = XMLOutputFactory.newInstance().createXMLStreamWriter(sw);
+
+        xsw.writeStartDocument();
+
+        MXFFragmentBuilder.fromFileChannel(samplefc, mds, PREFACE_KEY, xsw, false);
+
+        xsw.writeEndDocument();
+
+        xsw.close();
+
+        samplefc.close();
+
+        Document streameddoc = db.parse(new InputSource(new StringReader(sw.toString())));
+
+        assertTrue(compareDOMElement(streameddoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* stream the regxml fragment, reading ahead of the decoder and writing behind it */
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        try (InputStream is = new ReadAheadInputStream(ClassLoader.getSystemResourceAsStream(spath), 4096, 2);
+                AsyncOutputStream os = new AsyncOutputStream(bos, 1024, 2)) {
+
+            xsw = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+
+            xsw.writeStartDocument();
+
+            MXFFragmentBuilder.fromInputStream(is, mds, PREFACE_KEY, xsw, MXFFragmentBuilder.SetDecoding.LAZY);
+
+            xsw.writeEndDocument();
+
+            xsw.close();
+        }
+
+        Document pipelineddoc = db.parse(new ByteArrayInputStream(bos.toByteArray()));
+
+        assertTrue(compareDOMElement(pipelineddoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        /* follow the file, which is complete after it has been polled twice */
+        samplefc = FileChannel.open(Paths.get(ClassLoader.getSystemResource(spath).toURI()), StandardOpenOption.READ);
+
+        MXFFragmentFollower follower = new MXFFragmentFollower(samplefc, mds, PREFACE_KEY);
+
+        assertTrue(follower.poll());
+        assertFalse(follower.isComplete());
+
+        assertFalse(follower.poll());
+        assertTrue(follower.isComplete());
+
+        samplefc.close();
+
+        Document followeddoc = db.newDocument();
+
+        followeddoc.appendChild(follower.buildFragment(followeddoc));
+
+        assertTrue(compareDOMElement(followeddoc.getDocumentElement(), refdoc.getDocumentElement()));
+
     }
 
     /**
@@ -178,6 +301,162 @@ public class MXFFragmentBuilderTest extends TestCase {
 
     }
 
+    /**
+     * Counts the Local Sets that failed to decode
+     */
+    private static class FailedGroupCounter extends Handler {
+
+        int count = 0;
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getMessage() != null && record.getMessage().startsWith("Failed to read Group")) {
+                count++;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Test that, with SetDecoding.LAZY and a root other than the Preface, sets
+     * that cannot be reached from the root are never decoded. The last item of
+     * the Identification set of video1.mxf, which is not reachable from the
+     * essence descriptor, is corrupted so that decoding the set fails.
+     */
+    public void testLazyDecodingUnreachableSets() throws Exception {
+
+        byte[] mxf = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()));
+
+        /* Identification set at offset 4653, whose last item has a Local Tag at 4925 */
+        assertEquals(0x30, mxf[4653 + 14]);
+        assertEquals(0x3c, mxf[4925]);
+        assertEquals(0x06, mxf[4926]);
+
+        mxf[4927] = (byte) 0xFF;
+        mxf[4928] = (byte) 0xFF;
+
+        FailedGroupCounter counter = new FailedGroupCounter();
+
+        Logger.getLogger(LocalSet.class.getName()).addHandler(counter);
+        Logger.getLogger(MXFFragmentBuilder.class.getName()).addHandler(counter);
+
+        try {
+
+            /* the descriptor does not reference the Identification set */
+            Document lazydoc = db.newDocument();
+
+            lazydoc.appendChild(MXFFragmentBuilder.fromInputStream(new ByteArrayInputStream(mxf), mds, ESSENCE_DESCRIPTOR_KEY, lazydoc, MXFFragmentBuilder.SetDecoding.LAZY));
+
+            assertEquals(0, counter.count);
+
+            Document refdoc = db.newDocument();
+
+            refdoc.appendChild(MXFFragmentBuilder.fromInputStream(ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf"), mds, ESSENCE_DESCRIPTOR_KEY, refdoc));
+
+            assertTrue(compareDOMElement(lazydoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+            /* the Preface references the Identification set */
+            Document prefacedoc = db.newDocument();
+
+            prefacedoc.appendChild(MXFFragmentBuilder.fromInputStream(new ByteArrayInputStream(mxf), mds, PREFACE_KEY, prefacedoc, MXFFragmentBuilder.SetDecoding.LAZY));
+
+            assertEquals(1, counter.count);
+
+            /* all sets are decoded upfront */
+            counter.count = 0;
+
+            Document eagerdoc = db.newDocument();
+
+            eagerdoc.appendChild(MXFFragmentBuilder.fromInputStream(new ByteArrayInputStream(mxf), mds, ESSENCE_DESCRIPTOR_KEY, eagerdoc, MXFFragmentBuilder.SetDecoding.EAGER));
+
+            assertEquals(1, counter.count);
+
+        } finally {
+            Logger.getLogger(LocalSet.class.getName()).removeHandler(counter);
+            Logger.getLogger(MXFFragmentBuilder.class.getName()).removeHandler(counter);
+        }
+    }
+
+    /**
+     * Builds a RegXML Fragment from a file with the specified contents
+     *
+     * @return Document, or null if the root object is not found
+     */
+    private Document buildFragment(byte[] mxf, UL rootclasskey, MXFFragmentBuilder.SetDecoding decoding) throws Exception {
+
+        Path path = Files.createTempFile("indexed", ".mxf");
+
+        try {
+
+            Files.write(path, mxf);
+
+            try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+
+                Document doc = db.newDocument();
+
+                doc.appendChild(MXFFragmentBuilder.fromFileChannel(fc, mds, rootclasskey, doc, false, decoding));
+
+                return doc;
+
+            } catch (MXFFragmentBuilder.MXFException e) {
+                return null;
+            }
+
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test that SetDecoding.INDEXED keeps and drops the same groups as
+     * SetDecoding.EAGER when the Identification set of video1.mxf, at offset
+     * 4653, is malformed
+     */
+    public void testIndexedDecodingMalformedSets() throws Exception {
+
+        byte[] video1 = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()));
+
+        /* Instance UID item at 4673, followed by This Generation UID item at 4693 */
+        assertEquals(0x3c, video1[4673]);
+        assertEquals(0x0a, video1[4674]);
+        assertEquals(0x10, video1[4676]);
+        assertEquals(0x3c, video1[4693]);
+        assertEquals(0x09, video1[4694]);
+        assertEquals(0x10, video1[4696]);
+
+        /* Instance UID shortened to 15 bytes and This Generation UID lengthened to 17 bytes */
+        byte[] shortid = video1.clone();
+        shortid[4676] = 0x0f;
+        System.arraycopy(video1, 4693, shortid, 4692, 4);
+        shortid[4695] = 0x11;
+        System.arraycopy(video1, 4697, shortid, 4696, 16);
+        shortid[4712] = 0;
+
+        /* the group, which is not an MXF Set, is kept */
+        Document eagerdoc = buildFragment(shortid, IDENTIFICATION_KEY, MXFFragmentBuilder.SetDecoding.EAGER);
+        Document indexeddoc = buildFragment(shortid, IDENTIFICATION_KEY, MXFFragmentBuilder.SetDecoding.INDEXED);
+
+        assertNotNull(eagerdoc);
+        assertNotNull(indexeddoc);
+        assertTrue(compareDOMElement(indexeddoc.getDocumentElement(), eagerdoc.getDocumentElement()));
+
+        /* the length of the last item exceeds the set */
+        byte[] undecodable = video1.clone();
+        undecodable[4927] = (byte) 0xFF;
+        undecodable[4928] = (byte) 0xFF;
+
+        /* the group, which cannot be decoded, is dropped */
+        assertNull(buildFragment(undecodable, IDENTIFICATION_KEY, MXFFragmentBuilder.SetDecoding.EAGER));
+        assertNull(buildFragment(undecodable, IDENTIFICATION_KEY, MXFFragmentBuilder.SetDecoding.INDEXED));
+    }
+
     static Map<String, String> getAttributes(Element e) {
 
         NodeList nl = e.getChildNodes();
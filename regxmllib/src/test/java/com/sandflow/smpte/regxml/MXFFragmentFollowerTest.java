@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import com.sandflow.smpte.util.UL;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+
+/**
+ * MXFFragmentFollower unit tests.
+ */
+public class MXFFragmentFollowerTest extends TestCase {
+
+    private static final UL PREFACE_KEY
+            = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
+
+    /* layout of video1.mxf */
+    private static final int BODY_OFFSET = 13149;
+    private static final int ESSENCE_VALUE_OFFSET = 13273 + 20;
+    private static final int ESSENCE_LENGTH = 17047;
+    private static final int INDEX_OFFSET = 30340;
+    private static final int APPLICATION_SUPPLIER_NAME_OFFSET = 4717;
+    private static final int PRIMER_ITEM_COUNT_OFFSET = 144;
+    private static final int IDENTIFICATION_INSTANCE_UID_TAG_OFFSET = 4673;
+
+    private static MetaDictionaryCollection mds;
+
+    private DocumentBuilder db;
+    private Path path;
+    private FileChannel out;
+
+    public MXFFragmentFollowerTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        /* the dictionaries are only read */
+        if (mds == null) {
+            Reader fe = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Elements.xml"));
+            Reader fg = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Groups.xml"));
+            Reader ft = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Types.xml"));
+
+            mds = fromRegister(TypesRegister.fromXML(ft), GroupsRegister.fromXML(fg), ElementsRegister.fromXML(fe));
+
+            assertNotNull(mds);
+        }
+
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        db = dbf.newDocumentBuilder();
+
+        path = Files.createTempFile("follow", ".mxf");
+        out = FileChannel.open(path, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        out.close();
+        Files.deleteIfExists(path);
+
+        super.tearDown();
+    }
+
+    /**
+     * FileChannel that counts the bytes read from another FileChannel
+     */
+    private static class CountingFileChannel extends FileChannel {
+
+        private final FileChannel fc;
+
+        long count = 0;
+
+        CountingFileChannel(FileChannel fc) {
+            this.fc = fc;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int len = fc.read(dst);
+            count += Math.max(len, 0);
+            return len;
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            long len = fc.read(dsts, offset, length);
+            count += Math.max(len, 0);
+            return len;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            int len = fc.read(dst, position);
+            count += Math.max(len, 0);
+            return len;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return fc.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return fc.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return fc.write(src, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return fc.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            fc.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return fc.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            fc.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            fc.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            fc.close();
+        }
+    }
+
+    private void append(byte[] bytes, int from, int to) throws IOException {
+
+        ByteBuffer bb = ByteBuffer.wrap(bytes, from, to - from);
+
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+
+    private Document buildFragment(MXFFragmentFollower follower) throws Exception {
+
+        Document doc = db.newDocument();
+
+        doc.appendChild(follower.buildFragment(doc));
+
+        return doc;
+    }
+
+    private Document buildFragment(byte[] mxf) throws Exception {
+
+        Document doc = db.newDocument();
+
+        doc.appendChild(MXFFragmentBuilder.fromInputStream(new ByteArrayInputStream(mxf), mds, PREFACE_KEY, doc));
+
+        return doc;
+    }
+
+    /**
+     * Test of poll method, following a file written in slices. The file
+     * consists of the header partition of video1.mxf, its body partition, the
+     * header metadata repeated unchanged in a body partition, the header
+     * metadata repeated with a changed set in another body partition, and
+     * the remainder of video1.mxf from its index partition.
+     */
+    public void testPoll() throws Exception {
+
+        byte[] video1 = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()));
+
+        /* header metadata repeated in a body partition */
+        byte[] repeated = Arrays.copyOf(video1, BODY_OFFSET);
+        repeated[13] = 0x03;
+
+        /* header metadata repeated with a changed Application Supplier Name */
+        byte[] changed = repeated.clone();
+        assertEquals('O', changed[APPLICATION_SUPPLIER_NAME_OFFSET + 1]);
+        changed[APPLICATION_SUPPLIER_NAME_OFFSET + 1] = 'X';
+
+        Document reference = buildFragment(video1);
+        Document changedreference = buildFragment(changed);
+
+        assertFalse(reference.isEqualNode(changedreference));
+
+        CountingFileChannel in = new CountingFileChannel(FileChannel.open(path, StandardOpenOption.READ));
+
+        MXFFragmentFollower follower = new MXFFragmentFollower(in, mds, PREFACE_KEY);
+
+        /* nothing written yet */
+        assertFalse(follower.poll());
+        assertFalse(follower.isComplete());
+        assertNull(follower.getPartitionPack());
+
+        try {
+            follower.buildFragment(db.newDocument());
+            fail("Fragment built without Header Metadata");
+        } catch (MXFFragmentBuilder.MXFException e) {
+        }
+
+        /* stops within the second set of the header metadata */
+        append(video1, 0, 2000);
+
+        assertFalse(follower.poll());
+        assertNull(follower.getPartitionPack());
+
+        /* completes the header partition */
+        append(video1, 2000, BODY_OFFSET);
+
+        assertTrue(follower.poll());
+        assertEquals(PartitionPack.Kind.HEADER, follower.getPartitionPack().getKind());
+        assertTrue(reference.isEqualNode(buildFragment(follower)));
+
+        /* stops within the essence of the body partition */
+        append(video1, BODY_OFFSET, ESSENCE_VALUE_OFFSET + 1000);
+
+        assertFalse(follower.poll());
+        assertFalse(follower.isComplete());
+
+        /* the remainder of the essence is skipped without being read */
+        append(video1, ESSENCE_VALUE_OFFSET + 1000, INDEX_OFFSET);
+        append(repeated, 0, repeated.length);
+
+        assertFalse(follower.poll());
+        assertEquals(PartitionPack.Kind.HEADER, follower.getPartitionPack().getKind());
+        assertEquals(out.size() - (ESSENCE_LENGTH - 1000), in.count);
+
+        /* the changed set is detected */
+        append(changed, 0, changed.length);
+
+        assertTrue(follower.poll());
+        assertEquals(PartitionPack.Kind.BODY, follower.getPartitionPack().getKind());
+        assertTrue(changedreference.isEqualNode(buildFragment(follower)));
+
+        /* the footer partition reverts the change */
+        append(video1, INDEX_OFFSET, video1.length);
+
+        assertTrue(follower.poll());
+        assertEquals(PartitionPack.Kind.FOOTER, follower.getPartitionPack().getKind());
+        assertTrue(reference.isEqualNode(buildFragment(follower)));
+        assertFalse(follower.isComplete());
+
+        /* no bytes appended since the footer */
+        assertFalse(follower.poll());
+        assertTrue(follower.isComplete());
+
+        in.close();
+    }
+
+    /**
+     * Test of poll method, following a file in which the Primer Pack of a
+     * body partition is malformed
+     */
+    public void testMalformedPrimerPack() throws Exception {
+
+        byte[] video1 = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()));
+
+        /* header metadata repeated with a Primer Pack item count that exceeds its length */
+        byte[] malformed = Arrays.copyOf(video1, BODY_OFFSET);
+        malformed[13] = 0x03;
+        malformed[PRIMER_ITEM_COUNT_OFFSET + 1] = (byte) 0xFF;
+
+        /* header metadata repeated with a changed Application Supplier Name */
+        byte[] changed = Arrays.copyOf(video1, BODY_OFFSET);
+        changed[13] = 0x03;
+        changed[APPLICATION_SUPPLIER_NAME_OFFSET + 1] = 'X';
+
+        Document reference = buildFragment(video1);
+        Document changedreference = buildFragment(changed);
+
+        FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+
+        MXFFragmentFollower follower = new MXFFragmentFollower(in, mds, PREFACE_KEY);
+
+        append(video1, 0, BODY_OFFSET);
+
+        assertTrue(follower.poll());
+
+        /* the partition is ignored */
+        append(malformed, 0, malformed.length);
+
+        assertFalse(follower.poll());
+        assertEquals(PartitionPack.Kind.HEADER, follower.getPartitionPack().getKind());
+        assertTrue(reference.isEqualNode(buildFragment(follower)));
+
+        /* later partitions are still followed */
+        append(changed, 0, changed.length);
+
+        assertTrue(follower.poll());
+        assertEquals(PartitionPack.Kind.BODY, follower.getPartitionPack().getKind());
+        assertTrue(changedreference.isEqualNode(buildFragment(follower)));
+
+        in.close();
+    }
+
+    /**
+     * Test of poll method, following a file in which a group without Instance
+     * ID changes
+     */
+    public void testChangedGroupWithoutInstanceID() throws Exception {
+
+        byte[] video1 = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI()));
+
+        /* the Instance UID tag of the Identification set is replaced by the This Generation UID tag */
+        byte[] header = Arrays.copyOf(video1, BODY_OFFSET);
+        assertEquals(0x3c, header[IDENTIFICATION_INSTANCE_UID_TAG_OFFSET]);
+        assertEquals(0x0a, header[IDENTIFICATION_INSTANCE_UID_TAG_OFFSET + 1]);
+        header[IDENTIFICATION_INSTANCE_UID_TAG_OFFSET + 1] = 0x09;
+
+        /* header metadata repeated unchanged in a body partition */
+        byte[] repeated = header.clone();
+        repeated[13] = 0x03;
+
+        /* header metadata repeated with a changed Application Supplier Name */
+        byte[] changed = repeated.clone();
+        changed[APPLICATION_SUPPLIER_NAME_OFFSET + 1] = 'X';
+
+        FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+
+        MXFFragmentFollower follower = new MXFFragmentFollower(in, mds, PREFACE_KEY);
+
+        append(header, 0, header.length);
+
+        assertTrue(follower.poll());
+
+        append(repeated, 0, repeated.length);
+
+        assertFalse(follower.poll());
+        assertEquals(PartitionPack.Kind.HEADER, follower.getPartitionPack().getKind());
+
+        append(changed, 0, changed.length);
+
+        assertTrue(follower.poll());
+        assertEquals(PartitionPack.Kind.BODY, follower.getPartitionPack().getKind());
+
+        in.close();
+    }
+
+}
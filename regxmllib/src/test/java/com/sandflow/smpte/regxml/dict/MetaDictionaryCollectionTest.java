@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import java.net.URI;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class MetaDictionaryCollectionTest extends TestCase {
+
+    public MetaDictionaryCollectionTest(String testName) {
+        super(testName);
+    }
+
+    private static Definition createDefinition(URI namespace, String symbol, String ul) {
+
+        OpaqueTypeDefinition def = new OpaqueTypeDefinition();
+
+        def.setNamespace(namespace);
+        def.setSymbol(symbol);
+        def.setIdentification(new AUID(UL.fromDotValue(ul)));
+
+        return def;
+    }
+
+    public void testNormalizedLookup() throws Exception {
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        URI ns1 = URI.create("http://example.com/ns1");
+        URI ns2 = URI.create("http://example.com/ns2");
+
+        Definition type = createDefinition(ns1, "Type", "06.0E.2B.34.01.04.01.01.01.03.01.00.00.00.00.00");
+        Definition group = createDefinition(ns2, "Group", "06.0E.2B.34.02.7F.01.01.0D.01.01.01.01.01.2F.00");
+
+        mds.addDefinition(type);
+
+        assertSame(type, mds.getDefinition(new AUID(UL.fromDotValue("06.0E.2B.34.01.04.01.05.01.03.01.00.00.00.00.00"))));
+        assertNull(mds.getDefinition(new AUID(UL.fromDotValue("06.0E.2B.34.02.53.01.01.0D.01.01.01.01.01.2F.00"))));
+
+        /* the index is refreshed when definitions are added */
+        mds.addDefinition(group);
+
+        assertSame(group, mds.getDefinition(new AUID(UL.fromDotValue("06.0E.2B.34.02.53.01.01.0D.01.01.01.01.01.2F.00"))));
+        assertSame(type, mds.getDefinition(type.getIdentification()));
+
+        assertNull(mds.getDefinition(new AUID(UL.fromDotValue("06.0E.2B.34.01.04.01.01.01.03.01.00.00.00.00.01"))));
+    }
+
+    public void testClassIndex() throws Exception {
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        URI ns1 = URI.create("http://example.com/ns1");
+        URI ns2 = URI.create("http://example.com/ns2");
+
+        ClassDefinition parent = new ClassDefinition();
+        parent.setNamespace(ns1);
+        parent.setSymbol("Parent");
+        parent.setIdentification(new AUID(UL.fromDotValue("06.0E.2B.34.02.7F.01.01.0D.01.01.01.01.01.01.00")));
+
+        ClassDefinition child = new ClassDefinition();
+        child.setNamespace(ns2);
+        child.setSymbol("Child");
+        child.setIdentification(new AUID(UL.fromDotValue("06.0E.2B.34.02.7F.01.01.0D.01.01.01.01.01.02.00")));
+        child.setParentClass(parent.getIdentification());
+
+        ClassDefinition grandchild = new ClassDefinition();
+        grandchild.setNamespace(ns2);
+        grandchild.setSymbol("Grandchild");
+        grandchild.setIdentification(new AUID(UL.fromDotValue("06.0E.2B.34.02.7F.01.01.0D.01.01.01.01.01.03.00")));
+        grandchild.setParentClass(child.getIdentification());
+
+        PropertyDefinition uid = new PropertyDefinition();
+        uid.setNamespace(ns1);
+        uid.setSymbol("UID");
+        uid.setIdentification(new AUID(UL.fromDotValue("06.0E.2B.34.01.01.01.01.01.01.15.02.00.00.00.00")));
+        uid.setMemberOf(parent.getIdentification());
+        uid.setUniqueIdentifier(true);
+
+        PropertyDefinition name = new PropertyDefinition();
+        name.setNamespace(ns2);
+        name.setSymbol("Name");
+        name.setIdentification(new AUID(UL.fromDotValue("06.0E.2B.34.01.01.01.01.01.01.15.03.00.00.00.00")));
+        name.setMemberOf(child.getIdentification());
+
+        mds.addDefinition(parent);
+        mds.addDefinition(uid);
+        mds.addDefinition(child);
+        mds.addDefinition(name);
+
+        ClassIndex.Entry entry = mds.getClassIndex().get(child);
+
+        assertEquals(Arrays.asList(name, uid), entry.getAllMembers());
+        assertSame(uid, entry.getUniqueIdentifier());
+
+        assertEquals(Arrays.<ClassDefinition>asList(child), mds.getClassIndex().get(parent).getAllSubclasses());
+
+        /* the index is rebuilt when definitions are added */
+        mds.addDefinition(grandchild);
+
+        assertEquals(Arrays.<ClassDefinition>asList(child, grandchild), mds.getClassIndex().get(parent).getAllSubclasses());
+        assertSame(uid, mds.getClassIndex().get(grandchild).getUniqueIdentifier());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+
+public class MetaDictionarySnapshotTest extends TestCase {
+
+    private MetaDictionaryCollection mds;
+
+    public MetaDictionarySnapshotTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        Reader fe = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Elements.xml"));
+        assertNotNull(fe);
+
+        Reader fg = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Groups.xml"));
+        assertNotNull(fg);
+
+        Reader ft = new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Types.xml"));
+        assertNotNull(ft);
+
+        mds = fromRegister(TypesRegister.fromXML(ft), GroupsRegister.fromXML(fg), ElementsRegister.fromXML(fe));
+
+        assertNotNull(mds);
+    }
+
+    private static String toString(Document doc) throws Exception {
+
+        Transformer tr = TransformerFactory.newInstance().newTransformer();
+
+        StringWriter sw = new StringWriter();
+
+        tr.transform(new DOMSource(doc), new StreamResult(sw));
+
+        return sw.toString();
+    }
+
+    public void testRoundTrip() throws Exception {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        MetaDictionarySnapshot.toStream(mds, bos);
+
+        MetaDictionaryCollection snapmds = MetaDictionarySnapshot.fromBuffer(ByteBuffer.wrap(bos.toByteArray()));
+
+        assertEquals(mds.getDictionaries().size(), snapmds.getDictionaries().size());
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            MetaDictionary snapmd = null;
+
+            for (MetaDictionary candidate : snapmds.getDictionaries()) {
+                if (candidate.getSchemeURI().equals(md.getSchemeURI())) {
+                    snapmd = candidate;
+                }
+            }
+
+            assertNotNull(snapmd);
+
+            assertEquals(md.getSchemeID(), snapmd.getSchemeID());
+
+            assertEquals(toString(md.toXML()), toString(snapmd.toXML()));
+        }
+    }
+
+    public void testBadMagic() throws Exception {
+
+        try {
+
+            MetaDictionarySnapshot.fromBuffer(ByteBuffer.wrap(new byte[]{0, 1, 2, 3, 4, 5, 6, 7}));
+
+            fail("Invalid snapshot accepted");
+
+        } catch (java.io.IOException e) {
+            /* expected */
+        }
+    }
+
+}
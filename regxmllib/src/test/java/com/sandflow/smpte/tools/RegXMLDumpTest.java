@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.tools;
+
+import com.sandflow.smpte.register.ElementsRegister;
+import com.sandflow.smpte.register.GroupsRegister;
+import com.sandflow.smpte.register.TypesRegister;
+import com.sandflow.smpte.regxml.MXFFragmentBuilder;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import com.sandflow.smpte.util.UL;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * RegXMLDump unit tests.
+ */
+public class RegXMLDumpTest extends TestCase {
+
+    private static final UL PREFACE_KEY
+            = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
+
+    public RegXMLDumpTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of dumpAll method when one of the MXF files is invalid.
+     */
+    public void testDumpAllFailure() throws Exception {
+
+        MetaDictionaryCollection mds = fromRegister(
+                TypesRegister.fromXML(new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Types.xml"))),
+                GroupsRegister.fromXML(new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Groups.xml"))),
+                ElementsRegister.fromXML(new InputStreamReader(ClassLoader.getSystemResourceAsStream("resources/reference-registers/Elements.xml")))
+        );
+
+        Path good = Paths.get(ClassLoader.getSystemResource("resources/sample-files/video1.mxf").toURI());
+
+        Path bad = Files.createTempFile("bad", ".mxf");
+
+        Path outputdir = Files.createTempDirectory("regxmldump");
+
+        try {
+
+            /* a Partition Pack followed by garbage */
+            byte[] bytes = Arrays.copyOf(Files.readAllBytes(good), 2000);
+
+            Arrays.fill(bytes, 200, bytes.length, (byte) 0xFF);
+
+            Files.write(bad, bytes);
+
+            for (boolean stream : new boolean[]{false, true}) {
+
+                assertEquals(1, RegXMLDump.dumpAll(Arrays.asList(good, bad), outputdir, mds, PREFACE_KEY, stream, MXFFragmentBuilder.SetDecoding.EAGER, false, false, 2));
+
+                assertTrue(Files.size(outputdir.resolve("video1.xml")) > 0);
+
+                String badname = bad.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".xml";
+
+                assertFalse(Files.exists(outputdir.resolve(badname)));
+            }
+
+        } finally {
+
+            Files.deleteIfExists(bad);
+            Files.deleteIfExists(outputdir.resolve("video1.xml"));
+            Files.delete(outputdir);
+
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * AsyncOutputStream unit tests.
+ */
+public class AsyncOutputStreamTest extends TestCase {
+
+    public AsyncOutputStreamTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Destination that records whether it was closed
+     */
+    private static class RecordingOutputStream extends ByteArrayOutputStream {
+
+        volatile boolean closed = false;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+
+    /**
+     * Test of write methods with chunks smaller than a single KLV triplet.
+     */
+    public void testSmallChunks() throws Exception {
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        try (InputStream is = ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf")) {
+
+            byte[] buffer = new byte[100];
+
+            for (int br; (br = is.read(buffer)) >= 0;) {
+                expected.write(buffer, 0, br);
+            }
+        }
+
+        byte[] bytes = expected.toByteArray();
+
+        RecordingOutputStream dest = new RecordingOutputStream();
+
+        AsyncOutputStream os = new AsyncOutputStream(dest, 7, 3);
+
+        os.write(bytes[0]);
+        os.write(bytes, 1, 20);
+
+        /* all bytes written so far reach the destination */
+        os.flush();
+
+        assertEquals(21, dest.size());
+
+        for (int pos = 21; pos < bytes.length;) {
+
+            int sz = Math.min(bytes.length - pos, 1 + pos % 50);
+
+            os.write(bytes, pos, sz);
+
+            pos += sz;
+        }
+
+        os.close();
+
+        assertTrue(dest.closed);
+        assertTrue(Arrays.equals(bytes, dest.toByteArray()));
+
+        try {
+            os.write(0);
+            fail("Write after close");
+        } catch (IOException e) {
+        }
+
+        /* closing again has no effect */
+        os.close();
+    }
+
+    /**
+     * Test that an error writing to the destination reaches the caller.
+     */
+    public void testDestinationError() throws Exception {
+
+        RecordingOutputStream dest = new RecordingOutputStream() {
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+
+                if (size() + len > 10) {
+                    throw new RuntimeException();
+                }
+
+                super.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("destination error");
+            }
+        };
+
+        AsyncOutputStream os = new AsyncOutputStream(dest, 4, 2);
+
+        os.write(new byte[3]);
+
+        try {
+            os.flush();
+            fail("Destination error not reported by flush()");
+        } catch (IOException e) {
+            assertEquals("destination error", e.getMessage());
+        }
+
+        /* the error is reported by any subsequent write once a chunk is handed over */
+        try {
+            os.write(new byte[8]);
+            fail("Destination error not reported by write()");
+        } catch (IOException e) {
+            assertEquals("destination error", e.getMessage());
+        }
+
+        try {
+            os.close();
+            fail("Destination error not reported by close()");
+        } catch (IOException e) {
+            assertEquals("destination error", e.getMessage());
+        }
+
+        assertTrue(dest.closed);
+        assertEquals(3, dest.size());
+    }
+
+    /**
+     * Test that close waits for the background thread while it is blocked
+     * writing to the destination, and that no bytes are lost.
+     */
+    public void testCloseWhileDestinationBlocked() throws Exception {
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        RecordingOutputStream dest = new RecordingOutputStream() {
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+
+                blocked.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+
+                super.write(b, off, len);
+            }
+        };
+
+        /* the bytes fill two chunks and part of the third */
+        final AsyncOutputStream os = new AsyncOutputStream(dest, 4, 3);
+
+        byte[] bytes = new byte[10];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        os.write(bytes);
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        final IOException[] error = new IOException[1];
+
+        Thread closer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+
+        closer.start();
+
+        closer.join(200);
+
+        assertTrue("close() returned while bytes were pending", closer.isAlive());
+        assertFalse(dest.closed);
+
+        release.countDown();
+
+        closer.join(5000);
+
+        assertFalse("close() did not return", closer.isAlive());
+        assertNull(error[0]);
+
+        assertTrue(dest.closed);
+        assertTrue(Arrays.equals(bytes, dest.toByteArray()));
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import junit.framework.TestCase;
+
+/**
+ * UL, AUID, UUID and IDAU unit tests.
+ */
+public class IdentifiersTest extends TestCase {
+
+    private static final byte[] UL_BYTES = {
+        0x06, 0x0e, 0x2b, 0x34, 0x02, 0x53, 0x01, 0x01,
+        0x0d, 0x01, 0x01, 0x01, 0x01, 0x01, 0x2f, 0x00
+    };
+
+    private static final byte[] UUID_BYTES = {
+        0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77,
+        (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb,
+        (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff
+    };
+
+    private static byte[] swapHalves(byte[] value) {
+        byte[] swapped = new byte[16];
+
+        System.arraycopy(value, 8, swapped, 0, 8);
+        System.arraycopy(value, 0, swapped, 8, 8);
+
+        return swapped;
+    }
+
+    public IdentifiersTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of the byte round-trip of UL, AUID, UUID and IDAU.
+     */
+    public void testRoundTrip() {
+        UL ul = new UL(UL_BYTES);
+
+        assertTrue(Arrays.equals(UL_BYTES, ul.getValue()));
+        assertEquals(0x060e2b3402530101L, ul.getMostSignificantBits());
+        assertEquals(0x0d01010101012f00L, ul.getLeastSignificantBits());
+
+        for (int i = 0; i < 16; i++) {
+            assertEquals(UL_BYTES[i], ul.getValueOctet(i));
+        }
+
+        byte[] padded = new byte[20];
+        System.arraycopy(UL_BYTES, 0, padded, 3, 16);
+        assertEquals(ul, new UL(padded, 3));
+
+        assertEquals(ul, UL.fromURN(ul.toString()));
+        assertEquals(ul, UL.fromDotValue("06.0e.2b.34.02.53.01.01.0d.01.01.01.01.01.2f.00"));
+
+        UUID uuid = new UUID(UUID_BYTES);
+
+        assertTrue(Arrays.equals(UUID_BYTES, uuid.getValue()));
+        assertEquals(uuid, UUID.fromURN(uuid.toString()));
+        assertEquals(uuid, new UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+
+        assertTrue(Arrays.equals(UL_BYTES, new AUID(UL_BYTES).getValue()));
+        assertTrue(Arrays.equals(UUID_BYTES, new IDAU(UUID_BYTES).asUUID().getValue()));
+    }
+
+    /**
+     * Test of equals and hashCode across UL, AUID, UUID and IDAU.
+     */
+    public void testEqualsAndHashCode() {
+        UL ul = new UL(UL_BYTES);
+        UL ul2 = new UL(UL_BYTES.clone());
+
+        assertNotSame(ul, ul2);
+        assertEquals(ul, ul2);
+        assertEquals(ul.hashCode(), ul2.hashCode());
+        assertTrue(ul.equals(ul2));
+
+        byte[] other = UL_BYTES.clone();
+        other[15] = 0x01;
+        assertFalse(ul.equals(new UL(other)));
+        assertFalse(ul.equals((Object) new UL(other)));
+
+        AUID auid = new AUID(ul);
+
+        assertEquals(auid, new AUID(UL_BYTES));
+        assertEquals(auid.hashCode(), new AUID(UL_BYTES).hashCode());
+        assertTrue(auid.equals(ul));
+        assertFalse(auid.equals((Object) ul));
+        assertFalse(ul.equals((Object) auid));
+
+        UUID uuid = new UUID(UUID_BYTES);
+
+        assertEquals(uuid, new UUID(UUID_BYTES.clone()));
+        assertEquals(uuid.hashCode(), new UUID(UUID_BYTES.clone()).hashCode());
+        assertFalse(uuid.equals(new AUID(uuid)));
+        assertFalse(new AUID(uuid).equals(uuid));
+
+        IDAU idau = new IDAU(uuid);
+
+        assertEquals(idau, new IDAU(UUID_BYTES));
+        assertEquals(idau.hashCode(), new IDAU(UUID_BYTES).hashCode());
+        assertFalse(idau.equals(new AUID(uuid)));
+
+        HashSet<Object> set = new HashSet<>();
+        set.add(ul);
+        set.add(ul2);
+        set.add(auid);
+        set.add(new AUID(UL_BYTES));
+        set.add(uuid);
+        set.add(new UUID(UUID_BYTES));
+        set.add(idau);
+        set.add(new IDAU(UUID_BYTES));
+        assertEquals(4, set.size());
+    }
+
+    /**
+     * Test of equalsWithMask and equalsIgnoreVersion methods, of class UL.
+     */
+    public void testEqualsWithMask() {
+        UL ul = new UL(UL_BYTES);
+
+        for (int i = 0; i < 16; i++) {
+            byte[] other = UL_BYTES.clone();
+            other[i] = (byte) (other[i] ^ 0xFF);
+
+            UL ul2 = new UL(other);
+
+            assertFalse(ul.equalsWithMask(ul2, 0xFFFF));
+            assertTrue(ul.equalsWithMask(ul2, 0xFFFF & ~(0x8000 >>> i)));
+            assertTrue(ul.equalsWithMask(ul2, 0));
+            assertEquals(i == 7, ul.equalsIgnoreVersion(ul2));
+        }
+
+        /* byte 15 is compared */
+        byte[] other = UL_BYTES.clone();
+        other[15] = 0x7f;
+
+        assertFalse(ul.equalsWithMask(new UL(other), 0xFFFF));
+        assertFalse(ul.equalsWithMask(new UL(other), 0x0001));
+        assertTrue(ul.equalsWithMask(new UL(other), 0xFFFE));
+
+        /* bits above bit 15 of the mask are ignored */
+        assertTrue(ul.equalsWithMask(new UL(other), 0xFFFE | 0x10000));
+
+        assertEquals(0x01, ul.getVersion());
+    }
+
+    /**
+     * Test of the conversions between UL, UUID, AUID and IDAU.
+     */
+    public void testConversions() {
+        UL ul = new UL(UL_BYTES);
+        UUID uuid = new UUID(UUID_BYTES);
+
+        /* an AUID holds a UL as is */
+        AUID ulauid = new AUID(ul);
+
+        assertTrue(ulauid.isUL());
+        assertFalse(ulauid.isUUID());
+        assertEquals(ul, ulauid.asUL());
+        assertNull(ulauid.asUUID());
+        assertTrue(Arrays.equals(UL_BYTES, ulauid.getValue()));
+        assertEquals(ul.toString(), ulauid.toString());
+
+        /* an AUID holds a UUID with its two halves swapped */
+        AUID uuidauid = new AUID(uuid);
+
+        assertTrue(uuidauid.isUUID());
+        assertFalse(uuidauid.isUL());
+        assertEquals(uuid, uuidauid.asUUID());
+        assertNull(uuidauid.asUL());
+        assertTrue(Arrays.equals(swapHalves(UUID_BYTES), uuidauid.getValue()));
+        assertEquals(uuid.getLeastSignificantBits(), uuidauid.getMostSignificantBits());
+        assertEquals(uuid.getMostSignificantBits(), uuidauid.getLeastSignificantBits());
+        assertEquals(uuidauid, new AUID(swapHalves(UUID_BYTES)));
+        assertEquals(uuid.toString(), uuidauid.toString());
+
+        /* an IDAU holds a UUID as is */
+        IDAU uuididau = new IDAU(uuid);
+
+        assertTrue(uuididau.isUUID());
+        assertFalse(uuididau.isUL());
+        assertEquals(uuid, uuididau.asUUID());
+        assertNull(uuididau.asUL());
+        assertEquals(uuidauid, uuididau.asAUID());
+        assertEquals(uuid.toString(), uuididau.toString());
+
+        /* an IDAU holds a UL with its two halves swapped */
+        IDAU ulidau = new IDAU(ul);
+
+        assertTrue(ulidau.isUL());
+        assertFalse(ulidau.isUUID());
+        assertEquals(ul, ulidau.asUL());
+        assertNull(ulidau.asUUID());
+        assertEquals(ulidau, new IDAU(swapHalves(UL_BYTES)));
+        assertEquals(ulauid, ulidau.asAUID());
+        assertEquals(ul.toString(), ulidau.toString());
+    }
+
+    /**
+     * Test that UL, AUID, UUID and IDAU reject fewer than 16 bytes.
+     */
+    public void testShortBuffers() {
+        byte[] shortbytes = Arrays.copyOf(UL_BYTES, 15);
+
+        try {
+            new UL(shortbytes);
+            fail("UL created from 15 bytes");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new UL(UL_BYTES, 1);
+            fail("UL created from 15 bytes");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new AUID(shortbytes);
+            fail("AUID created from 15 bytes");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new UUID(shortbytes);
+            fail("UUID created from 15 bytes");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new IDAU(shortbytes);
+            fail("IDAU created from 15 bytes");
+        } catch (IllegalArgumentException e) {
+        }
+
+        /* bytes beyond the first 16 are ignored */
+        byte[] longbytes = Arrays.copyOf(UL_BYTES, 17);
+
+        assertEquals(new UL(UL_BYTES), new UL(longbytes));
+        assertEquals(new UL(UL_BYTES), new UL(longbytes, 0));
+    }
+
+}
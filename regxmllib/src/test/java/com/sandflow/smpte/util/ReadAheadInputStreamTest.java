@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2015, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.Triplet;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.TestCase;
+
+/**
+ * ReadAheadInputStream unit tests.
+ */
+public class ReadAheadInputStreamTest extends TestCase {
+
+    public ReadAheadInputStreamTest(String testName) {
+        super(testName);
+    }
+
+    private static byte[] createBytes(int size) {
+        byte[] bytes = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Source that returns bytes indefinitely and records whether it was closed
+     */
+    private static class EndlessInputStream extends InputStream {
+
+        volatile boolean closed = false;
+
+        @Override
+        public int read() throws IOException {
+            return 0x55;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+
+    /**
+     * Source whose reads block, ignoring interrupts, until it is closed
+     */
+    private static class UninterruptibleInputStream extends InputStream {
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public int read() throws IOException {
+
+            reading.countDown();
+
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    closed.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed.countDown();
+        }
+    }
+
+    /* closes the stream from another thread, failing if close() does not return */
+    private static void closeWithTimeout(final InputStream is) throws Exception {
+
+        final IOException[] error = new IOException[1];
+
+        Thread t = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+
+        t.start();
+        t.join(5000);
+
+        assertFalse("close() did not return", t.isAlive());
+
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    /**
+     * Test of read methods with chunks smaller than the reads.
+     */
+    public void testRead() throws Exception {
+
+        byte[] bytes = createBytes(1000);
+
+        try (ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 3, 2)) {
+
+            byte[] actual = new byte[bytes.length];
+
+            actual[0] = (byte) is.read();
+
+            int pos = 1;
+
+            while (pos < actual.length) {
+
+                int br = is.read(actual, pos, Math.min(10, actual.length - pos));
+
+                assertTrue(br > 0 && br <= 3);
+
+                pos += br;
+            }
+
+            assertTrue(Arrays.equals(bytes, actual));
+
+            assertEquals(-1, is.read());
+            assertEquals(-1, is.read(actual, 0, 10));
+            assertEquals(0, is.read(actual, 0, 0));
+        }
+    }
+
+    /**
+     * Test of reading KLV triplets through chunks smaller than a single Key.
+     */
+    public void testSmallChunks() throws Exception {
+
+        KLVInputStream ref = new KLVInputStream(ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf"));
+
+        try (ReadAheadInputStream is = new ReadAheadInputStream(ClassLoader.getSystemResourceAsStream("resources/sample-files/video1.mxf"), 7, 3)) {
+
+            KLVInputStream kis = new KLVInputStream(is);
+
+            int count = 0;
+
+            while (true) {
+
+                Triplet t1;
+
+                try {
+                    t1 = ref.readTriplet();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                Triplet t2 = kis.readTriplet();
+
+                assertEquals(t1.getKey(), t2.getKey());
+                assertTrue(Arrays.equals(t1.getValue(), t2.getValue()));
+
+                count++;
+            }
+
+            assertTrue(count > 1);
+
+            assertEquals(-1, is.read());
+        }
+    }
+
+    /**
+     * Test of skip method, across and past the end of chunks.
+     */
+    public void testSkip() throws Exception {
+
+        byte[] bytes = createBytes(100);
+
+        try (ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(bytes), 8, 2)) {
+
+            assertEquals(0, is.skip(0));
+
+            assertEquals(5, is.skip(5));
+            assertEquals(bytes[5], (byte) is.read());
+
+            /* spans several chunks */
+            assertEquals(30, is.skip(30));
+            assertEquals(bytes[36], (byte) is.read());
+
+            /* past the end */
+            assertEquals(63, is.skip(1000));
+            assertEquals(-1, is.read());
+            assertEquals(0, is.skip(10));
+        }
+    }
+
+    /**
+     * Test that an error reading the source reaches the caller once the bytes
+     * read before the error have been consumed.
+     */
+    public void testSourceError() throws Exception {
+
+        final byte[] bytes = createBytes(20);
+
+        InputStream source = new InputStream() {
+
+            int pos = 0;
+
+            @Override
+            public int read() throws IOException {
+
+                if (pos == bytes.length) {
+                    throw new IOException("source error");
+                }
+
+                return bytes[pos++] & 0xFF;
+            }
+        };
+
+        try (ReadAheadInputStream is = new ReadAheadInputStream(source, 4, 2)) {
+
+            for (byte b : bytes) {
+                assertEquals(b, (byte) is.read());
+            }
+
+            try {
+                is.read();
+                fail("Source error not reported");
+            } catch (IOException e) {
+                assertEquals("source error", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Test that an unchecked exception thrown by the source reaches the caller
+     * instead of leaving it waiting for bytes that never come.
+     */
+    public void testSourceRuntimeException() throws Exception {
+
+        InputStream source = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                throw new IllegalStateException("source failure");
+            }
+        };
+
+        try (ReadAheadInputStream is = new ReadAheadInputStream(source, 4, 2)) {
+
+            try {
+                is.read();
+                fail("Source failure not reported");
+            } catch (IOException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    /**
+     * Test of close method while the background thread waits for the
+     * consumer to free a chunk.
+     */
+    public void testCloseWhileQueueFull() throws Exception {
+
+        EndlessInputStream source = new EndlessInputStream();
+
+        ReadAheadInputStream is = new ReadAheadInputStream(source, 16, 2);
+
+        assertEquals(0x55, is.read());
+
+        closeWithTimeout(is);
+
+        assertTrue(source.closed);
+
+        try {
+            is.read();
+            fail("Read after close");
+        } catch (IOException e) {
+        }
+
+        /* closing again has no effect */
+        is.close();
+    }
+
+    /**
+     * Test of close method while the background thread is blocked reading a
+     * source that does not respond to interrupts.
+     */
+    public void testCloseWhileSourceBlocked() throws Exception {
+
+        UninterruptibleInputStream source = new UninterruptibleInputStream();
+
+        ReadAheadInputStream is = new ReadAheadInputStream(source, 16, 2);
+
+        source.reading.await();
+
+        closeWithTimeout(is);
+
+        try {
+            is.read();
+            fail("Read after close");
+        } catch (IOException e) {
+        }
+    }
+
+}